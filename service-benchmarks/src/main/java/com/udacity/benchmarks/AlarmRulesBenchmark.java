@@ -0,0 +1,117 @@
+package com.udacity.benchmarks;
+
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.SensorType;
+import com.udacity.security.service.AlarmRules;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of deciding the next alarm status for a sensor event, with the nested conditionals the
+ * service used to have and with the compiled AlarmRules table, default and overridden. Events are
+ * drawn at random so the branch predictor cannot learn the sequence.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlarmRulesBenchmark {
+
+    private static final int EVENTS = 4096;
+    private static final ArmingStatus[] ARMINGS = ArmingStatus.values();
+    private static final AlarmStatus[] ALARMS = AlarmStatus.values();
+    private static final SensorType[] TYPES = SensorType.values();
+
+    private final ArmingStatus[] armings = new ArmingStatus[EVENTS];
+    private final AlarmStatus[] alarms = new AlarmStatus[EVENTS];
+    private final SensorType[] types = new SensorType[EVENTS];
+    private final AlarmRules.Trigger[] triggers = new AlarmRules.Trigger[EVENTS];
+
+    private AlarmRules defaultRules;
+    private AlarmRules customRules;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < EVENTS; i++) {
+            armings[i] = ARMINGS[random.nextInt(ARMINGS.length)];
+            alarms[i] = ALARMS[random.nextInt(ALARMS.length)];
+            types[i] = TYPES[random.nextInt(TYPES.length)];
+            triggers[i] = random.nextBoolean() ? AlarmRules.Trigger.ACTIVATED : AlarmRules.Trigger.DEACTIVATED;
+        }
+        defaultRules = AlarmRules.defaults();
+        Properties overrides = new Properties();
+        overrides.setProperty("ARMED_HOME.*.MOTION.ACTIVATED", AlarmRules.UNCHANGED);
+        customRules = defaultRules.withOverrides(overrides);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public int conditionals() {
+        int sum = 0;
+        for (int i = 0; i < EVENTS; i++) {
+            sum += conditionalNext(armings[i], alarms[i], triggers[i]).ordinal();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public int defaultTable() {
+        return lookUpAll(defaultRules);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public int customTable() {
+        return lookUpAll(customRules);
+    }
+
+    private int lookUpAll(AlarmRules rules) {
+        int sum = 0;
+        for (int i = 0; i < EVENTS; i++) {
+            sum += rules.next(armings[i], alarms[i], types[i], triggers[i]).ordinal();
+        }
+        return sum;
+    }
+
+    /**
+     * The decision SecurityService made before the rules table, from handleSensorActivated and
+     * handleSensorDeactivated.
+     */
+    private static AlarmStatus conditionalNext(ArmingStatus arming, AlarmStatus alarm, AlarmRules.Trigger trigger) {
+        if (alarm == AlarmStatus.ALARM) {
+            return alarm;
+        }
+        if (trigger == AlarmRules.Trigger.ACTIVATED) {
+            if (arming == ArmingStatus.DISARMED) {
+                return alarm;
+            }
+            return switch (alarm) {
+                case NO_ALARM -> AlarmStatus.PENDING_ALARM;
+                case PENDING_ALARM, ALARM -> AlarmStatus.ALARM;
+            };
+        }
+        return switch (alarm) {
+            case PENDING_ALARM -> AlarmStatus.NO_ALARM;
+            case ALARM -> AlarmStatus.PENDING_ALARM;
+            case NO_ALARM -> AlarmStatus.NO_ALARM;
+        };
+    }
+}
@@ -0,0 +1,85 @@
+package com.udacity.benchmarks;
+
+import com.udacity.image.service.AwsImageService;
+import com.udacity.image.service.ClassificationResult;
+import com.udacity.image.service.ImagePreprocessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of AwsImageService.classify up to the network call: scaling, JPEG encoding and building the
+ * request, against a stub Rekognition client. The file benchmarks compare decoding a JPEG file and
+ * classifying the pixels with handing the file's bytes over as they are.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ImageEncodeBenchmark {
+
+    @Param({"640x480", "1920x1080", "3840x2160"})
+    String resolution;
+
+    @Param({"1024"})
+    int maxEdge;
+
+    private AwsImageService imageService;
+    private BufferedImage image;
+    private Path jpegFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        String[] size = resolution.split("x");
+        image = new BufferedImage(Integer.parseInt(size[0]), Integer.parseInt(size[1]), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setPaint(new GradientPaint(0, 0, Color.ORANGE, image.getWidth(), image.getHeight(), Color.DARK_GRAY));
+        g.fillRect(0, 0, image.getWidth(), image.getHeight());
+        g.dispose();
+        imageService = new AwsImageService(new StubRekognitionClient(), null,
+                new ImagePreprocessor(maxEdge, ImagePreprocessor.DEFAULT_JPEG_QUALITY));
+        jpegFile = Files.createTempFile("benchmark", ".jpg");
+        ImageIO.write(image, "jpg", jpegFile.toFile());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(jpegFile);
+    }
+
+    @Benchmark
+    public ClassificationResult classify() {
+        return imageService.classify(image, 50.0f);
+    }
+
+    @Benchmark
+    public ClassificationResult classifyDecodedFile() throws IOException {
+        return imageService.classify(ImageIO.read(jpegFile.toFile()), 50.0f);
+    }
+
+    @Benchmark
+    public ClassificationResult classifyFile() {
+        return imageService.classify(jpegFile, 50.0f);
+    }
+}
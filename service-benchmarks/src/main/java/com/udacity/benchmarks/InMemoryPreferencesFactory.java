@@ -0,0 +1,80 @@
+package com.udacity.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.prefs.AbstractPreferences;
+import java.util.prefs.Preferences;
+import java.util.prefs.PreferencesFactory;
+
+/**
+ * PreferencesFactory whose preferences only live in memory. Benchmarks of
+ * PretendDatabaseSecurityRepositoryImpl install it with -Djava.util.prefs.PreferencesFactory so that
+ * they do not overwrite the sensors saved by the real application.
+ */
+public class InMemoryPreferencesFactory implements PreferencesFactory {
+
+    private final Preferences userRoot = new InMemoryPreferences(null, "");
+    private final Preferences systemRoot = new InMemoryPreferences(null, "");
+
+    @Override
+    public Preferences systemRoot() {
+        return systemRoot;
+    }
+
+    @Override
+    public Preferences userRoot() {
+        return userRoot;
+    }
+
+    private static class InMemoryPreferences extends AbstractPreferences {
+        private final Map<String, String> values = new HashMap<>();
+        private final Map<String, InMemoryPreferences> children = new HashMap<>();
+
+        InMemoryPreferences(InMemoryPreferences parent, String name) {
+            super(parent, name);
+        }
+
+        @Override
+        protected void putSpi(String key, String value) {
+            values.put(key, value);
+        }
+
+        @Override
+        protected String getSpi(String key) {
+            return values.get(key);
+        }
+
+        @Override
+        protected void removeSpi(String key) {
+            values.remove(key);
+        }
+
+        @Override
+        protected void removeNodeSpi() {
+            values.clear();
+        }
+
+        @Override
+        protected String[] keysSpi() {
+            return values.keySet().toArray(new String[0]);
+        }
+
+        @Override
+        protected String[] childrenNamesSpi() {
+            return children.keySet().toArray(new String[0]);
+        }
+
+        @Override
+        protected AbstractPreferences childSpi(String name) {
+            return children.computeIfAbsent(name, n -> new InMemoryPreferences(this, n));
+        }
+
+        @Override
+        protected void syncSpi() {
+        }
+
+        @Override
+        protected void flushSpi() {
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.udacity.benchmarks;
+
+import com.udacity.security.data.SensorType;
+import com.udacity.security.liveness.LivenessMonitor;
+import com.udacity.security.timer.Clock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a heartbeat and of a liveness check with a large fleet of tracked sensors. Run with
+ * -prof gc to confirm heartbeats allocate nothing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class LivenessMonitorBenchmark {
+
+    @Param({"1000", "1000000"})
+    int sensorCount;
+
+    private LivenessMonitor monitor;
+    private long[] ids;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        monitor = new LivenessMonitor(Clock.system(), Collections.emptyMap(), sensorCount);
+        ids = new long[sensorCount * 2];
+        for (int i = 0; i < sensorCount; i++) {
+            UUID id = UUID.randomUUID();
+            ids[i * 2] = id.getMostSignificantBits();
+            ids[i * 2 + 1] = id.getLeastSignificantBits();
+            monitor.track(id, SensorType.values()[i % SensorType.values().length]);
+        }
+        //visit sensors in a scattered order, as heartbeats from a real fleet would arrive
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = sensorCount - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            long high = ids[i * 2];
+            long low = ids[i * 2 + 1];
+            ids[i * 2] = ids[j * 2];
+            ids[i * 2 + 1] = ids[j * 2 + 1];
+            ids[j * 2] = high;
+            ids[j * 2 + 1] = low;
+        }
+    }
+
+    @Benchmark
+    public boolean heartbeat() {
+        int i = next;
+        next = i + 1 == sensorCount ? 0 : i + 1;
+        return monitor.heartbeat(ids[i * 2], ids[i * 2 + 1]);
+    }
+
+    @Benchmark
+    public int expireDue() {
+        //nobody has timed out, so this measures the cost of a check that finds nothing
+        return monitor.expireDue();
+    }
+}
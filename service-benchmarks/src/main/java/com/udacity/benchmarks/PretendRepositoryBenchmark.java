@@ -0,0 +1,71 @@
+package com.udacity.benchmarks;
+
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.BinarySnapshotCodec;
+import com.udacity.security.data.GsonSnapshotCodec;
+import com.udacity.security.data.PretendDatabaseSecurityRepositoryImpl;
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write cost of PretendDatabaseSecurityRepositoryImpl, which serializes every sensor on each sensor
+ * write, with either snapshot codec. Sensor counts stay small because a preference value may be at most 8 KB.
+ * Preferences are kept in memory, see InMemoryPreferencesFactory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.util.prefs.PreferencesFactory=com.udacity.benchmarks.InMemoryPreferencesFactory")
+public class PretendRepositoryBenchmark {
+
+    @Param({"gson", "binary"})
+    String codecName;
+
+    @Param({"4", "16", "64"})
+    int sensorCount;
+
+    private PretendDatabaseSecurityRepositoryImpl repository;
+    private Sensor[] sensors;
+    private int next;
+    private int nextStatus;
+
+    @Setup
+    public void setUp() {
+        repository = new PretendDatabaseSecurityRepositoryImpl(
+                "gson".equals(codecName) ? new GsonSnapshotCodec() : new BinarySnapshotCodec());
+        sensors = new Sensor[sensorCount];
+        for (int i = 0; i < sensorCount; i++) {
+            sensors[i] = new Sensor("Sensor " + i, SensorType.values()[i % SensorType.values().length]);
+            repository.addSensor(sensors[i]);
+        }
+    }
+
+    @Benchmark
+    public void updateSensor() {
+        Sensor sensor = sensors[next];
+        next = (next + 1) % sensors.length;
+        sensor.setActive(!sensor.getActive());
+        repository.updateSensor(sensor);
+    }
+
+    @Benchmark
+    public void setAlarmStatus() {
+        nextStatus = (nextStatus + 1) % AlarmStatus.values().length;
+        repository.setAlarmStatus(AlarmStatus.values()[nextStatus]);
+    }
+}
@@ -0,0 +1,81 @@
+package com.udacity.benchmarks;
+
+import com.udacity.image.service.FakeImageService;
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.OffHeapSecurityRepositoryImpl;
+import com.udacity.security.data.SecurityRepository;
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorType;
+import com.udacity.security.service.SecurityService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the SecurityService entry points that the sensor panel calls, by number of sensors.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SecurityServiceBenchmark {
+
+    @Param({"4", "100", "10000", "100000"})
+    int sensorCount;
+
+    @Param({"registry", "offheap"})
+    String repositoryKind;
+
+    private SecurityService securityService;
+    private Sensor[] sensors;
+    private int next;
+    private boolean armed;
+
+    @Setup
+    public void setUp() {
+        SecurityRepository repository = "offheap".equals(repositoryKind)
+                ? new OffHeapSecurityRepositoryImpl(sensorCount)
+                : new InMemorySecurityRepository();
+        securityService = new SecurityService(repository, new FakeImageService());
+        sensors = new Sensor[sensorCount];
+        for (int i = 0; i < sensorCount; i++) {
+            sensors[i] = new Sensor("Sensor " + i, SensorType.values()[i % SensorType.values().length]);
+            securityService.addSensor(sensors[i]);
+            //the off-heap repository hands out views of its own, work on those like the panel would
+            sensors[i] = securityService.getSensor(sensors[i].getSensorId());
+        }
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+    }
+
+    /**
+     * Flips one sensor per call, round robin, so every call changes state.
+     */
+    @Benchmark
+    public void changeSensorActivationStatus() {
+        Sensor sensor = sensors[next];
+        next = (next + 1) % sensors.length;
+        securityService.changeSensorActivationStatus(sensor, !sensor.getActive());
+    }
+
+    /**
+     * Alternates between disarmed and armed. Arming resets every sensor, so the cost grows with the
+     * number of sensors.
+     */
+    @Benchmark
+    public void setArmingStatus() {
+        armed = !armed;
+        securityService.setArmingStatus(armed ? ArmingStatus.ARMED_HOME : ArmingStatus.DISARMED);
+    }
+}
@@ -0,0 +1,68 @@
+package com.udacity.benchmarks;
+
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of Sensor.compareTo and of keeping sensors in a sorted TreeSet, as the sensor list does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SensorOrderingBenchmark {
+
+    @Param({"4", "1000", "100000"})
+    int sensorCount;
+
+    private Sensor[] sensors;
+    private TreeSet<Sensor> sorted;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        sensors = new Sensor[sensorCount];
+        sorted = new TreeSet<>();
+        for (int i = 0; i < sensorCount; i++) {
+            //names share a prefix so comparisons have to look past the first few characters
+            sensors[i] = new Sensor("Sensor " + random.nextInt(sensorCount), SensorType.values()[i % SensorType.values().length]);
+            sorted.add(sensors[i]);
+        }
+    }
+
+    @Benchmark
+    public int compareTo() {
+        Sensor a = sensors[next];
+        next = (next + 1) % sensors.length;
+        return a.compareTo(sensors[next]);
+    }
+
+    /**
+     * Removes and re-adds one sensor, the way a sorted view is kept current after a change.
+     */
+    @Benchmark
+    public boolean treeSetUpdate() {
+        Sensor sensor = sensors[next];
+        next = (next + 1) % sensors.length;
+        sorted.remove(sensor);
+        return sorted.add(sensor);
+    }
+}
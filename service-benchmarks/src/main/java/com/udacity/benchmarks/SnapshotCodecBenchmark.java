@@ -0,0 +1,91 @@
+package com.udacity.benchmarks;
+
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.BinarySnapshotCodec;
+import com.udacity.security.data.GsonSnapshotCodec;
+import com.udacity.security.data.RepositorySnapshot;
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorType;
+import com.udacity.security.data.SnapshotCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode cost of a full repository snapshot with the Gson and binary codecs, through a
+ * FileChannel on a temporary file. The file stays in the page cache, so this measures the codecs
+ * rather than the disk. Sensor names repeat every 100 sensors, as they tend to in real installations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotCodecBenchmark {
+
+    @Param({"gson", "binary"})
+    String codecName;
+
+    @Param({"16", "1024", "65536"})
+    int sensorCount;
+
+    private SnapshotCodec codec;
+    private RepositorySnapshot snapshot;
+    private Path file;
+    private FileChannel channel;
+
+    @Setup
+    public void setUp() throws IOException {
+        codec = "gson".equals(codecName) ? new GsonSnapshotCodec() : new BinarySnapshotCodec();
+        List<Sensor> sensors = new ArrayList<>(sensorCount);
+        for (int i = 0; i < sensorCount; i++) {
+            Sensor sensor = new Sensor("Sensor " + (i % 100), SensorType.values()[i % SensorType.values().length]);
+            sensor.setActive(i % 2 == 0);
+            sensors.add(sensor);
+        }
+        snapshot = new RepositorySnapshot(AlarmStatus.NO_ALARM, ArmingStatus.ARMED_HOME, sensors);
+        file = Files.createTempFile("snapshot", "." + codec.getExtension());
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        write();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        channel.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long write() throws IOException {
+        channel.truncate(0);
+        channel.position(0);
+        codec.write(snapshot, channel);
+        return channel.position();
+    }
+
+    @Benchmark
+    public RepositorySnapshot read() throws IOException {
+        channel.position(0);
+        return codec.read(channel);
+    }
+}
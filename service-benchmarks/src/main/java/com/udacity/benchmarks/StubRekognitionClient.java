@@ -0,0 +1,42 @@
+package com.udacity.benchmarks;
+
+import software.amazon.awssdk.services.rekognition.RekognitionClient;
+import software.amazon.awssdk.services.rekognition.model.DetectLabelsRequest;
+import software.amazon.awssdk.services.rekognition.model.DetectLabelsResponse;
+import software.amazon.awssdk.services.rekognition.model.Label;
+
+/**
+ * RekognitionClient that answers every request with the same labels without going over the network,
+ * so benchmarks of AwsImageService measure the local encode path only.
+ */
+public class StubRekognitionClient implements RekognitionClient {
+
+    private final DetectLabelsResponse response = DetectLabelsResponse.builder()
+            .labels(Label.builder().name("Cat").confidence(97.5f).build(),
+                    Label.builder().name("Sofa").confidence(81.0f).build())
+            .build();
+
+    private long bytesReceived;
+
+    @Override
+    public DetectLabelsResponse detectLabels(DetectLabelsRequest detectLabelsRequest) {
+        bytesReceived += detectLabelsRequest.image().bytes().asByteArrayUnsafe().length;
+        return response;
+    }
+
+    /**
+     * @return Total size of the images received so far
+     */
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+}
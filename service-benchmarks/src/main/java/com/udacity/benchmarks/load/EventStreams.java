@@ -0,0 +1,142 @@
+package com.udacity.benchmarks.load;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.SensorType;
+import com.udacity.security.headless.HeadlessCommand;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Builds the event streams a load test replays.
+ */
+public final class EventStreams {
+
+    private static final Gson gson = new Gson();
+
+    private EventStreams() {
+    }
+
+    /**
+     * Generates a random stream that first adds the sensors and then flips them, with the odd arming
+     * change and camera scan mixed in. Arming resets every sensor, so the stream does too, and every
+     * sensor event really changes its sensor. The same seed always produces the same stream.
+     * @param seed Random seed
+     * @param sensorCount Number of sensors to add
+     * @param typeWeights Relative share of each sensor type; types that are missing are not used
+     * @param eventCount Number of events after the sensors have been added
+     * @param armingShare Fraction of events that change the arming status
+     * @param scanShare Fraction of events that scan a camera frame
+     */
+    public static List<LoadEvent> synthetic(long seed, int sensorCount, Map<SensorType, Integer> typeWeights,
+                                            int eventCount, double armingShare, double scanShare) {
+        Random random = new Random(seed);
+        List<LoadEvent> events = new ArrayList<>(sensorCount + eventCount);
+        SensorType[] types = weightedTypes(typeWeights);
+        for (int i = 0; i < sensorCount; i++) {
+            events.add(LoadEvent.addSensor(types[random.nextInt(types.length)]));
+        }
+        boolean[] active = new boolean[sensorCount];
+        ArmingStatus[] armingStatuses = ArmingStatus.values();
+        for (int i = 0; i < eventCount; i++) {
+            double roll = random.nextDouble();
+            if (roll < armingShare) {
+                ArmingStatus arming = armingStatuses[random.nextInt(armingStatuses.length)];
+                if (arming != ArmingStatus.DISARMED) {
+                    Arrays.fill(active, false);
+                }
+                events.add(LoadEvent.arm(arming));
+            } else if (roll < armingShare + scanShare) {
+                events.add(LoadEvent.scan());
+            } else if (sensorCount > 0) {
+                int sensor = random.nextInt(sensorCount);
+                active[sensor] = !active[sensor];
+                events.add(LoadEvent.sensor(sensor, active[sensor]));
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Reads a file of headless-mode commands (see HeadlessCommand), such as a captured session.
+     * Sensors are matched by name; commands this tool cannot replay are skipped.
+     */
+    public static List<LoadEvent> replay(Path file) throws IOException {
+        List<LoadEvent> events = new ArrayList<>();
+        Map<String, Integer> sensorsByName = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                HeadlessCommand command;
+                try {
+                    command = gson.fromJson(line, HeadlessCommand.class);
+                } catch (JsonParseException e) {
+                    throw new IOException("Malformed command on line " + lineNumber + " of " + file, e);
+                }
+                if (command == null || command.getCommand() == null) {
+                    continue;
+                }
+                switch (command.getCommand()) {
+                    case "addSensor" -> {
+                        sensorsByName.put(command.getName(), sensorsByName.size());
+                        events.add(LoadEvent.addSensor(SensorType.valueOf(command.getSensorType())));
+                    }
+                    case "sensor" -> {
+                        Integer sensor = sensorsByName.get(command.getName());
+                        if (sensor != null && command.getActive() != null) {
+                            events.add(LoadEvent.sensor(sensor, command.getActive()));
+                        }
+                    }
+                    case "arm" -> events.add(LoadEvent.arm(ArmingStatus.valueOf(command.getStatus())));
+                    case "scan" -> events.add(LoadEvent.scan());
+                    default -> {
+                        //status queries and sensor removal do not make sense in a replay
+                    }
+                }
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Parses a type mix such as "DOOR=2,WINDOW=1,MOTION=5".
+     */
+    public static Map<SensorType, Integer> parseTypeWeights(String mix) {
+        Map<SensorType, Integer> weights = new EnumMap<>(SensorType.class);
+        for (String part : mix.split(",")) {
+            String[] pair = part.trim().split("=");
+            weights.put(SensorType.valueOf(pair[0].trim()), pair.length > 1 ? Integer.parseInt(pair[1].trim()) : 1);
+        }
+        return weights;
+    }
+
+    private static SensorType[] weightedTypes(Map<SensorType, Integer> typeWeights) {
+        List<SensorType> types = new ArrayList<>();
+        typeWeights.forEach((type, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                types.add(type);
+            }
+        });
+        if (types.isEmpty()) {
+            throw new IllegalArgumentException("Sensor type mix is empty");
+        }
+        return types.toArray(new SensorType[0]);
+    }
+}
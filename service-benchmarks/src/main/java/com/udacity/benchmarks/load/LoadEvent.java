@@ -0,0 +1,64 @@
+package com.udacity.benchmarks.load;
+
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.SensorType;
+
+/**
+ * One step of a load test: add a sensor, flip a sensor, change the arming status or scan a camera
+ * frame. Sensors are referred to by index into the sensors the stream has added, so streams can be
+ * generated up front and replayed against any service.
+ */
+public class LoadEvent {
+
+    public enum Kind { ADD_SENSOR, SENSOR, ARM, SCAN }
+
+    private final Kind kind;
+    private final int sensor;
+    private final boolean active;
+    private final SensorType sensorType;
+    private final ArmingStatus armingStatus;
+
+    private LoadEvent(Kind kind, int sensor, boolean active, SensorType sensorType, ArmingStatus armingStatus) {
+        this.kind = kind;
+        this.sensor = sensor;
+        this.active = active;
+        this.sensorType = sensorType;
+        this.armingStatus = armingStatus;
+    }
+
+    public static LoadEvent addSensor(SensorType type) {
+        return new LoadEvent(Kind.ADD_SENSOR, -1, false, type, null);
+    }
+
+    public static LoadEvent sensor(int sensor, boolean active) {
+        return new LoadEvent(Kind.SENSOR, sensor, active, null, null);
+    }
+
+    public static LoadEvent arm(ArmingStatus status) {
+        return new LoadEvent(Kind.ARM, -1, false, null, status);
+    }
+
+    public static LoadEvent scan() {
+        return new LoadEvent(Kind.SCAN, -1, false, null, null);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public int getSensor() {
+        return sensor;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public SensorType getSensorType() {
+        return sensorType;
+    }
+
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+}
@@ -0,0 +1,226 @@
+package com.udacity.benchmarks.load;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.udacity.benchmarks.InMemoryPreferencesFactory;
+import com.udacity.benchmarks.InMemorySecurityRepository;
+import com.udacity.benchmarks.StubRekognitionClient;
+import com.udacity.image.metrics.LatencyHistogram;
+import com.udacity.image.service.AwsImageService;
+import com.udacity.image.service.FakeImageService;
+import com.udacity.image.service.ImagePreprocessor;
+import com.udacity.image.service.ImageServiceHelper;
+import com.udacity.security.data.JournaledSecurityRepositoryImpl;
+import com.udacity.security.data.MappedSecurityRepositoryImpl;
+import com.udacity.security.data.OffHeapSecurityRepositoryImpl;
+import com.udacity.security.data.PretendDatabaseSecurityRepositoryImpl;
+import com.udacity.security.data.SecurityRepository;
+import com.udacity.security.data.Sensor;
+import com.udacity.security.service.ConcurrentSecurityService;
+import com.udacity.security.service.SecurityService;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a stream of sensor, arming and camera events through a SecurityService and reports the
+ * sustained event rate, latency percentiles and the state the system ended up in, as JSON.
+ *
+ *      java -cp benchmarks.jar com.udacity.benchmarks.load.LoadGenerator [options]
+ *
+ *      --replay file       replay headless-mode commands instead of generating events
+ *      --seed n            random seed for generated events (default 1)
+ *      --sensors n         number of sensors to generate (default 1000)
+ *      --events n          number of generated events after the sensors are added (default 1000000)
+ *      --types mix         sensor type mix, for example DOOR=2,WINDOW=1,MOTION=5 (default all equal)
+ *      --arming share      fraction of events that change the arming status (default 0.001)
+ *      --scans share       fraction of events that scan a camera frame (default 0)
+ *      --rate n            target events per second, 0 for as fast as possible (default 0)
+ *      --repository kind   memory, offheap, pretend, journal:dir or mapped:dir (default memory); pretend stores all sensors
+ *                          in one 8 KB preference, so keep it under about 80 sensors
+ *      --image kind        fake or stub-aws (default fake)
+ *      --service kind      plain or concurrent (default plain)
+ *
+ * The sensors added at the start of the stream are setup and are reported on their own; the event
+ * rate and latencies cover only the events after them. With a target rate, latency is measured from
+ * when each event was due rather than when it was sent, so a service that falls behind shows the
+ * queueing delay it causes instead of hiding it.
+ */
+public class LoadGenerator {
+
+    private final SecurityService securityService;
+    private final List<Sensor> sensors = new ArrayList<>();
+    private final BufferedImage frame = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    public LoadGenerator(SecurityService securityService) {
+        this.securityService = securityService;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String replay = null;
+        long seed = 1;
+        int sensorCount = 1000;
+        int eventCount = 1_000_000;
+        String types = "DOOR=1,WINDOW=1,MOTION=1";
+        double armingShare = 0.001;
+        double scanShare = 0;
+        double rate = 0;
+        String repositoryKind = "memory";
+        String imageKind = "fake";
+        String serviceKind = "plain";
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--replay" -> replay = args[++i];
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                case "--sensors" -> sensorCount = Integer.parseInt(args[++i]);
+                case "--events" -> eventCount = Integer.parseInt(args[++i]);
+                case "--types" -> types = args[++i];
+                case "--arming" -> armingShare = Double.parseDouble(args[++i]);
+                case "--scans" -> scanShare = Double.parseDouble(args[++i]);
+                case "--rate" -> rate = Double.parseDouble(args[++i]);
+                case "--repository" -> repositoryKind = args[++i];
+                case "--image" -> imageKind = args[++i];
+                case "--service" -> serviceKind = args[++i];
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        List<LoadEvent> events = replay != null
+                ? EventStreams.replay(Paths.get(replay))
+                : EventStreams.synthetic(seed, sensorCount, EventStreams.parseTypeWeights(types), eventCount, armingShare, scanShare);
+
+        SecurityRepository repository = repository(repositoryKind);
+        ImageServiceHelper imageService = imageService(imageKind);
+        SecurityService securityService = switch (serviceKind) {
+            case "plain" -> new SecurityService(repository, imageService);
+            case "concurrent" -> new ConcurrentSecurityService(repository, imageService);
+            default -> throw new IllegalArgumentException("Unknown service " + serviceKind);
+        };
+
+        JsonObject report = new LoadGenerator(securityService).run(events, rate);
+        report.addProperty("repository", repositoryKind);
+        report.addProperty("image", imageKind);
+        report.addProperty("service", serviceKind);
+        System.out.println(new GsonBuilder().setPrettyPrinting().create().toJson(report));
+
+        if (repository instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) repository).close();
+            } catch (Exception e) {
+                throw new IOException("Unable to close repository", e);
+            }
+        }
+    }
+
+    /**
+     * Adds the sensors the stream starts with as fast as possible, then applies the remaining events
+     * in order, waiting between them if a rate is given.
+     * @param events Events to apply
+     * @param rate Target events per second for the events after the setup, or 0 for no limit
+     * @return Throughput and latency of the events after the setup, the setup time and final state
+     */
+    public JsonObject run(List<LoadEvent> events, double rate) {
+        int setup = 0;
+        long setupStart = System.nanoTime();
+        while (setup < events.size() && events.get(setup).getKind() == LoadEvent.Kind.ADD_SENSOR) {
+            apply(events.get(setup++));
+        }
+        long setupElapsed = System.nanoTime() - setupStart;
+
+        long intervalNanos = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / rate) : 0;
+        long start = System.nanoTime();
+        for (int i = setup; i < events.size(); i++) {
+            long due = start + (i - setup) * intervalNanos;
+            if (intervalNanos > 0) {
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            } else {
+                due = System.nanoTime();
+            }
+            apply(events.get(i));
+            latency.recordSince(due);
+        }
+        long elapsed = System.nanoTime() - start;
+        JsonObject report = report(events.size() - setup, elapsed);
+        JsonObject setupReport = new JsonObject();
+        setupReport.addProperty("events", setup);
+        setupReport.addProperty("elapsedMillis", TimeUnit.NANOSECONDS.toMillis(setupElapsed));
+        report.add("setup", setupReport);
+        return report;
+    }
+
+    private void apply(LoadEvent event) {
+        switch (event.getKind()) {
+            case ADD_SENSOR -> {
+                Sensor sensor = new Sensor("Sensor " + sensors.size(), event.getSensorType());
+                sensors.add(sensor);
+                securityService.addSensor(sensor);
+            }
+            case SENSOR -> securityService.changeSensorActivationStatus(sensors.get(event.getSensor()), event.isActive());
+            case ARM -> securityService.setArmingStatus(event.getArmingStatus());
+            case SCAN -> securityService.processImage(frame);
+        }
+    }
+
+    private JsonObject report(int eventCount, long elapsedNanos) {
+        JsonObject report = new JsonObject();
+        report.addProperty("events", eventCount);
+        report.addProperty("elapsedMillis", TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        report.addProperty("eventsPerSecond", elapsedNanos == 0 ? 0 : eventCount * 1e9 / elapsedNanos);
+
+        JsonObject percentiles = new JsonObject();
+        percentiles.addProperty("mean", latency.getMeanMillis());
+        for (double p : new double[]{50, 90, 99, 99.9}) {
+            percentiles.addProperty("p" + (p == Math.floor(p) ? String.valueOf((int) p) : String.valueOf(p)), latency.getPercentileMillis(p));
+        }
+        percentiles.addProperty("max", latency.getMaxNanos() / (double) TimeUnit.MILLISECONDS.toNanos(1));
+        report.add("latencyMillis", percentiles);
+
+        JsonObject state = new JsonObject();
+        state.addProperty("alarm", String.valueOf(securityService.getAlarmStatus()));
+        state.addProperty("arming", String.valueOf(securityService.getArmingStatus()));
+        state.addProperty("sensors", securityService.getSensors().size());
+        state.addProperty("activeSensors", securityService.getSensors().stream().filter(s -> Boolean.TRUE.equals(s.getActive())).count());
+        report.add("finalState", state);
+        return report;
+    }
+
+    private static SecurityRepository repository(String kind) {
+        if (kind.equals("memory")) {
+            return new InMemorySecurityRepository();
+        }
+        if (kind.equals("offheap")) {
+            return new OffHeapSecurityRepositoryImpl();
+        }
+        if (kind.equals("pretend")) {
+            //keep the load test away from the sensors saved by the real application
+            if (System.getProperty("java.util.prefs.PreferencesFactory") == null) {
+                System.setProperty("java.util.prefs.PreferencesFactory", InMemoryPreferencesFactory.class.getName());
+            }
+            return new PretendDatabaseSecurityRepositoryImpl();
+        }
+        if (kind.startsWith("journal:")) {
+            return new JournaledSecurityRepositoryImpl(Paths.get(kind.substring("journal:".length())));
+        }
+        if (kind.startsWith("mapped:")) {
+            return new MappedSecurityRepositoryImpl(Paths.get(kind.substring("mapped:".length())));
+        }
+        throw new IllegalArgumentException("Unknown repository " + kind);
+    }
+
+    private static ImageServiceHelper imageService(String kind) {
+        return switch (kind) {
+            case "fake" -> new FakeImageService();
+            case "stub-aws" -> new AwsImageService(new StubRekognitionClient(), null, new ImagePreprocessor());
+            default -> throw new IllegalArgumentException("Unknown image service " + kind);
+        };
+    }
+}
@@ -0,0 +1,59 @@
+package com.udacity.image.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event for one image sent to a remote image service. The event duration covers the
+ * whole call, and the fields split it into local encoding and the remote round trip. Only calls
+ * slower than the threshold are recorded unless the recording settings say otherwise.
+ */
+@Name("com.udacity.image.ImageClassification")
+@Label("Image Classification")
+@Category({"Udacity", "Image Service"})
+@Description("An image sent to the image service for labelling")
+@Threshold("200 ms")
+@StackTrace(false)
+public class ImageClassificationEvent extends Event {
+
+    @Label("Service")
+    public String service;
+
+    @Label("Asynchronous")
+    public boolean async;
+
+    @Label("Encode Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long encodeNanos;
+
+    @Label("Sent As Is")
+    @Description("The image was sent in its original encoding, without being decoded and encoded again")
+    public boolean passthrough;
+
+    @Label("Payload")
+    @DataAmount(DataAmount.BYTES)
+    public long payloadBytes;
+
+    @Label("Remote Latency")
+    @Timespan(Timespan.NANOSECONDS)
+    public long remoteNanos;
+
+    @Label("Minimum Confidence")
+    public float minConfidence;
+
+    @Label("Labels")
+    public int labelCount;
+
+    @Label("Cat Detected")
+    public boolean catDetected;
+
+    @Label("Error")
+    public String error;
+}
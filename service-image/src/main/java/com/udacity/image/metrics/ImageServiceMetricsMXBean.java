@@ -0,0 +1,30 @@
+package com.udacity.image.metrics;
+
+/**
+ * Image classification statistics, see InstrumentedImageService.
+ */
+public interface ImageServiceMetricsMXBean {
+
+    long getClassifications();
+
+    long getErrors();
+
+    long getCatsDetected();
+
+    double getMeanLatencyMillis();
+
+    double getP50LatencyMillis();
+
+    double getP99LatencyMillis();
+
+    double getMaxLatencyMillis();
+
+    /**
+     * @return Number of classifications per latency bucket, see getLatencyBucketUpperBoundsNanos
+     */
+    long[] getLatencyBucketCounts();
+
+    long[] getLatencyBucketUpperBoundsNanos();
+
+    void reset();
+}
@@ -0,0 +1,163 @@
+package com.udacity.image.metrics;
+
+import com.udacity.image.service.ClassificationResult;
+import com.udacity.image.service.ImageServiceHelper;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ImageServiceHelper that measures another image service: how long each classification takes, how
+ * many fail and how many find a cat. Register it with MBeans.register to read the numbers over JMX.
+ */
+public class InstrumentedImageService implements ImageServiceHelper, ImageServiceMetricsMXBean {
+
+    public static final String OBJECT_NAME = "com.udacity.image:type=ImageService";
+
+    private final ImageServiceHelper delegate;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder catsDetected = new LongAdder();
+
+    public InstrumentedImageService(ImageServiceHelper delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+        long start = System.nanoTime();
+        try {
+            boolean cat = delegate.imageContainsCat(image, confidenceThreshhold);
+            if (cat) {
+                catsDetected.increment();
+            }
+            return cat;
+        } catch (RuntimeException e) {
+            errors.increment();
+            throw e;
+        } finally {
+            latency.recordSince(start);
+        }
+    }
+
+    @Override
+    public ClassificationResult classify(BufferedImage image, float minConfidence) {
+        long start = System.nanoTime();
+        try {
+            return count(delegate.classify(image, minConfidence), minConfidence);
+        } catch (RuntimeException e) {
+            errors.increment();
+            throw e;
+        } finally {
+            latency.recordSince(start);
+        }
+    }
+
+    @Override
+    public CompletableFuture<ClassificationResult> classifyAsync(BufferedImage image, float minConfidence) {
+        long start = System.nanoTime();
+        return delegate.classifyAsync(image, minConfidence).whenComplete((result, error) -> {
+            latency.recordSince(start);
+            if (error != null) {
+                errors.increment();
+            } else {
+                count(result, minConfidence);
+            }
+        });
+    }
+
+    @Override
+    public ClassificationResult classify(ByteBuffer encodedImage, float minConfidence) {
+        long start = System.nanoTime();
+        try {
+            return count(delegate.classify(encodedImage, minConfidence), minConfidence);
+        } catch (RuntimeException e) {
+            errors.increment();
+            throw e;
+        } finally {
+            latency.recordSince(start);
+        }
+    }
+
+    @Override
+    public CompletableFuture<ClassificationResult> classifyAsync(ByteBuffer encodedImage, float minConfidence) {
+        long start = System.nanoTime();
+        return delegate.classifyAsync(encodedImage, minConfidence).whenComplete((result, error) -> {
+            latency.recordSince(start);
+            if (error != null) {
+                errors.increment();
+            } else {
+                count(result, minConfidence);
+            }
+        });
+    }
+
+    private ClassificationResult count(ClassificationResult result, float minConfidence) {
+        if (result.containsCat(minConfidence)) {
+            catsDetected.increment();
+        }
+        return result;
+    }
+
+    /**
+     * @return The underlying histogram, for reading bucket counts directly
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public long getClassifications() {
+        return latency.getCount();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getCatsDetected() {
+        return catsDetected.sum();
+    }
+
+    @Override
+    public double getMeanLatencyMillis() {
+        return latency.getMeanMillis();
+    }
+
+    @Override
+    public double getP50LatencyMillis() {
+        return latency.getPercentileMillis(50);
+    }
+
+    @Override
+    public double getP99LatencyMillis() {
+        return latency.getPercentileMillis(99);
+    }
+
+    @Override
+    public double getMaxLatencyMillis() {
+        return latency.getMaxNanos() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public long[] getLatencyBucketCounts() {
+        return latency.getBucketCounts();
+    }
+
+    @Override
+    public long[] getLatencyBucketUpperBoundsNanos() {
+        return LatencyHistogram.getBucketUpperBoundsNanos();
+    }
+
+    @Override
+    public void reset() {
+        latency.reset();
+        errors.reset();
+        catsDetected.reset();
+    }
+}
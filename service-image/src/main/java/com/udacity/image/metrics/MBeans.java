@@ -0,0 +1,50 @@
+package com.udacity.image.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Registers metrics beans with the platform MBean server so they show up in JConsole and
+ * VisualVM.
+ */
+public final class MBeans {
+
+    private MBeans() {
+    }
+
+    /**
+     * Registers the bean under the given name, replacing any bean already registered under it.
+     * @param name Object name, for example "com.udacity.image:type=ImageService"
+     * @param bean Object implementing an interface whose name ends in MXBean
+     * @throws IllegalArgumentException if the name is malformed or the bean is not a valid MXBean
+     */
+    public static void register(String name, Object bean) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = new ObjectName(name);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(bean, objectName);
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Unable to register MBean " + name, e);
+        }
+    }
+
+    /**
+     * Removes the bean registered under the name, if there is one.
+     */
+    public static void unregister(String name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = new ObjectName(name);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Unable to unregister MBean " + name, e);
+        }
+    }
+}
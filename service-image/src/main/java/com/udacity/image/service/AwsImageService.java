@@ -1,5 +1,6 @@
 package com.udacity.image.service;
 
+import com.udacity.image.jfr.ImageClassificationEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
@@ -7,17 +8,22 @@ import software.amazon.awssdk.auth.credentials.AwsCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.core.SdkBytes;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.rekognition.RekognitionAsyncClient;
 import software.amazon.awssdk.services.rekognition.RekognitionClient;
 import software.amazon.awssdk.services.rekognition.model.DetectLabelsRequest;
 import software.amazon.awssdk.services.rekognition.model.DetectLabelsResponse;
 import software.amazon.awssdk.services.rekognition.model.Image;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 /**
@@ -32,13 +38,23 @@ import java.util.stream.Collectors;
  *      aws.id=[your access key id]
  *      aws.secret=[your Secret access key]
  *      aws.region=[an aws region of choice. For example: us-east-2]
+ *
+ * Images are scaled down and re-encoded before upload, see ImagePreprocessor. The optional keys
+ * image.maxEdge and image.jpegQuality override its defaults. JPEG and PNG files passed as bytes or
+ * as a path are sent as they are, unless they are larger than Rekognition accepts.
  */
 public class AwsImageService implements ImageServiceHelper {
 
+    //largest image Rekognition accepts as raw bytes
+    static final int MAX_PASSTHROUGH_BYTES = 5 * 1024 * 1024;
+
     private Logger log = LoggerFactory.getLogger(AwsImageService.class);
 
     //aws recommendation is to maintain only a single instance of client objects
-    private static RekognitionClient rekognitionClient;
+    private RekognitionClient rekognitionClient;
+    private RekognitionAsyncClient rekognitionAsyncClient;
+
+    private ImagePreprocessor preprocessor = new ImagePreprocessor();
 
     public AwsImageService() {
         Properties props = new Properties();
@@ -52,12 +68,33 @@ public class AwsImageService implements ImageServiceHelper {
         String awsId = props.getProperty("aws.id");
         String awsSecret = props.getProperty("aws.secret");
         String awsRegion = props.getProperty("aws.region");
+        preprocessor = new ImagePreprocessor(
+                Integer.parseInt(props.getProperty("image.maxEdge", String.valueOf(ImagePreprocessor.DEFAULT_MAX_EDGE))),
+                Float.parseFloat(props.getProperty("image.jpegQuality", String.valueOf(ImagePreprocessor.DEFAULT_JPEG_QUALITY))));
 
         AwsCredentials awsCredentials = AwsBasicCredentials.create(awsId, awsSecret);
         rekognitionClient = RekognitionClient.builder()
                 .credentialsProvider(StaticCredentialsProvider.create(awsCredentials))
                 .region(Region.of(awsRegion))
                 .build();
+        rekognitionAsyncClient = RekognitionAsyncClient.builder()
+                .credentialsProvider(StaticCredentialsProvider.create(awsCredentials))
+                .region(Region.of(awsRegion))
+                .build();
+    }
+
+    /**
+     * Uses the given clients instead of building them from config.properties, for example to point
+     * the service at a local stub.
+     * @param rekognitionClient Client used by classify
+     * @param rekognitionAsyncClient Client used by classifyAsync
+     * @param preprocessor Scales and encodes images before they are sent
+     */
+    public AwsImageService(RekognitionClient rekognitionClient, RekognitionAsyncClient rekognitionAsyncClient,
+                           ImagePreprocessor preprocessor) {
+        this.rekognitionClient = rekognitionClient;
+        this.rekognitionAsyncClient = rekognitionAsyncClient;
+        this.preprocessor = preprocessor;
     }
 
     /**
@@ -68,18 +105,169 @@ public class AwsImageService implements ImageServiceHelper {
      */
     @Override
     public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
-        Image awsImage;
-        try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
-            ImageIO.write(image, "jpg", os);
-            awsImage = Image.builder().bytes(SdkBytes.fromByteArray(os.toByteArray())).build();
+        return classify(image, confidenceThreshhold).containsCat(confidenceThreshhold);
+    }
+
+    /**
+     * Sends the image to Rekognition and returns every label it found.
+     * @param image Image to scan
+     * @param minConfidence Lowest confidence to include. Nothing is returned if the image could not be encoded.
+     */
+    @Override
+    public ClassificationResult classify(BufferedImage image, float minConfidence) {
+        ImageClassificationEvent event = startEvent(minConfidence, false);
+        return detect(encode(image, event), event, minConfidence);
+    }
+
+    /**
+     * Sends a JPEG or PNG to Rekognition as it is, without decoding and encoding it again. Images in
+     * other formats, or too large to send as they are, go through the preprocessor like a decoded image.
+     * @param encodedImage The encoded image between position and limit. The position is not moved.
+     * @param minConfidence Lowest confidence to include. Nothing is returned if the image could not be read.
+     */
+    @Override
+    public ClassificationResult classify(ByteBuffer encodedImage, float minConfidence) {
+        ImageClassificationEvent event = startEvent(minConfidence, false);
+        return detect(encode(encodedImage, event), event, minConfidence);
+    }
+
+    /**
+     * Encodes the image on the calling thread and sends it with the async Rekognition client, so no
+     * thread is held while the request is in flight.
+     * @param image Image to scan
+     * @param minConfidence Lowest confidence to include
+     */
+    @Override
+    public CompletableFuture<ClassificationResult> classifyAsync(BufferedImage image, float minConfidence) {
+        ImageClassificationEvent event = startEvent(minConfidence, true);
+        return detectAsync(encode(image, event), event, minConfidence);
+    }
+
+    /**
+     * Sends the encoded image with the async Rekognition client, as it is where possible, see
+     * classify(ByteBuffer, float).
+     * @param encodedImage The encoded image between position and limit. The position is not moved.
+     * @param minConfidence Lowest confidence to include
+     */
+    @Override
+    public CompletableFuture<ClassificationResult> classifyAsync(ByteBuffer encodedImage, float minConfidence) {
+        ImageClassificationEvent event = startEvent(minConfidence, true);
+        return detectAsync(encode(encodedImage, event), event, minConfidence);
+    }
+
+    private ClassificationResult detect(Image awsImage, ImageClassificationEvent event, float minConfidence) {
+        if (awsImage == null) {
+            ClassificationResult empty = new ClassificationResult(Map.of(), minConfidence);
+            commitEvent(event, empty, "encode failed");
+            return empty;
+        }
+        DetectLabelsRequest detectLabelsRequest = DetectLabelsRequest.builder().image(awsImage).minConfidence(minConfidence).build();
+        long sent = System.nanoTime();
+        DetectLabelsResponse response;
+        try {
+            response = rekognitionClient.detectLabels(detectLabelsRequest);
+        } catch (RuntimeException e) {
+            event.remoteNanos = System.nanoTime() - sent;
+            commitEvent(event, null, e.toString());
+            throw e;
+        }
+        event.remoteNanos = System.nanoTime() - sent;
+        logLabelsForFun(response);
+        ClassificationResult result = toResult(response, minConfidence);
+        commitEvent(event, result, null);
+        return result;
+    }
+
+    private CompletableFuture<ClassificationResult> detectAsync(Image awsImage, ImageClassificationEvent event, float minConfidence) {
+        if (awsImage == null) {
+            ClassificationResult empty = new ClassificationResult(Map.of(), minConfidence);
+            commitEvent(event, empty, "encode failed");
+            return CompletableFuture.completedFuture(empty);
+        }
+        DetectLabelsRequest detectLabelsRequest = DetectLabelsRequest.builder().image(awsImage).minConfidence(minConfidence).build();
+        long sent = System.nanoTime();
+        return rekognitionAsyncClient.detectLabels(detectLabelsRequest).handle((response, error) -> {
+            event.remoteNanos = System.nanoTime() - sent;
+            if (error != null) {
+                commitEvent(event, null, error.toString());
+                throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+            }
+            logLabelsForFun(response);
+            ClassificationResult result = toResult(response, minConfidence);
+            commitEvent(event, result, null);
+            return result;
+        });
+    }
+
+    private ImageClassificationEvent startEvent(float minConfidence, boolean async) {
+        ImageClassificationEvent event = new ImageClassificationEvent();
+        event.begin();
+        event.service = "Rekognition";
+        event.minConfidence = minConfidence;
+        event.async = async;
+        return event;
+    }
+
+    private static void commitEvent(ImageClassificationEvent event, ClassificationResult result, String error) {
+        event.end();
+        if (event.shouldCommit()) {
+            if (result != null) {
+                event.labelCount = result.getLabels().size();
+                event.catDetected = result.containsCat(event.minConfidence);
+            }
+            event.error = error;
+            event.commit();
+        }
+    }
+
+    /**
+     * The preprocessor encodes into a buffer it reuses, so the bytes are copied exactly once, into an
+     * array of the right size that the SDK can then take over without copying again.
+     * @return The image as a JPEG Rekognition image, or null if it could not be encoded
+     */
+    private Image encode(BufferedImage image, ImageClassificationEvent event) {
+        long start = System.nanoTime();
+        try {
+            ByteBuffer encoded = preprocessor.encode(image);
+            byte[] bytes = new byte[encoded.remaining()];
+            encoded.get(bytes);
+            event.encodeNanos = System.nanoTime() - start;
+            event.payloadBytes = bytes.length;
+            return Image.builder().bytes(SdkBytes.fromByteArrayUnsafe(bytes)).build();
         } catch (IOException ioe) {
             log.error("Error building image byte array", ioe);
-            return false;
+            return null;
         }
-        DetectLabelsRequest detectLabelsRequest = DetectLabelsRequest.builder().image(awsImage).minConfidence(confidenceThreshhold).build();
-        DetectLabelsResponse response = rekognitionClient.detectLabels(detectLabelsRequest);
-        logLabelsForFun(response);
-        return response.labels().stream().anyMatch(l -> l.name().toLowerCase().contains("cat"));
+    }
+
+    /**
+     * Uses the bytes as they are when Rekognition accepts them, so the only work left is one copy into
+     * an array the SDK can take over. Anything else is decoded and preprocessed.
+     * @return The image as a Rekognition image, or null if it could not be read
+     */
+    private Image encode(ByteBuffer encodedImage, ImageClassificationEvent event) {
+        if (encodedImage.remaining() <= MAX_PASSTHROUGH_BYTES && EncodedImages.isJpegOrPng(encodedImage)) {
+            long start = System.nanoTime();
+            byte[] bytes = EncodedImages.toArray(encodedImage);
+            event.encodeNanos = System.nanoTime() - start;
+            event.payloadBytes = bytes.length;
+            event.passthrough = true;
+            return Image.builder().bytes(SdkBytes.fromByteArrayUnsafe(bytes)).build();
+        }
+        BufferedImage image;
+        try {
+            image = EncodedImages.decode(encodedImage);
+        } catch (UncheckedIOException e) {
+            log.error("Error decoding image", e);
+            return null;
+        }
+        return encode(image, event);
+    }
+
+    private static ClassificationResult toResult(DetectLabelsResponse response, float minConfidence) {
+        Map<String, Float> labels = new LinkedHashMap<>();
+        response.labels().forEach(l -> labels.merge(l.name(), l.confidence(), Math::max));
+        return new ClassificationResult(labels, minConfidence);
     }
 
     private void logLabelsForFun(DetectLabelsResponse response) {
@@ -0,0 +1,80 @@
+package com.udacity.image.service;
+
+import javax.imageio.stream.ImageOutputStreamImpl;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * ImageOutputStream that writes into a byte array it keeps between uses. Unlike the streams ImageIO
+ * creates, it never falls back to a cache file and does not allocate a new buffer for every image.
+ */
+class ByteArrayImageOutputStream extends ImageOutputStreamImpl {
+
+    private byte[] buffer;
+    private int length;
+
+    ByteArrayImageOutputStream(int initialCapacity) {
+        buffer = new byte[initialCapacity];
+    }
+
+    /**
+     * Empties the stream so it can be handed to the next writer.
+     */
+    void clear() {
+        length = 0;
+        streamPos = 0;
+        flushedPos = 0;
+        bitOffset = 0;
+    }
+
+    /**
+     * @return View of the bytes written so far, valid until the next clear
+     */
+    ByteBuffer contents() {
+        return ByteBuffer.wrap(buffer, 0, length).asReadOnlyBuffer();
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(streamPos + 1);
+        buffer[(int) streamPos++] = (byte) b;
+        length = Math.max(length, (int) streamPos);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensureCapacity(streamPos + len);
+        System.arraycopy(b, off, buffer, (int) streamPos, len);
+        streamPos += len;
+        length = Math.max(length, (int) streamPos);
+    }
+
+    @Override
+    public int read() {
+        bitOffset = 0;
+        return streamPos < length ? buffer[(int) streamPos++] & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        bitOffset = 0;
+        if (streamPos >= length) {
+            return -1;
+        }
+        int count = Math.min(len, length - (int) streamPos);
+        System.arraycopy(buffer, (int) streamPos, b, off, count);
+        streamPos += count;
+        return count;
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    private void ensureCapacity(long required) {
+        if (required > buffer.length) {
+            buffer = Arrays.copyOf(buffer, (int) Math.max(required, buffer.length * 2L));
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.udacity.image.service;
+
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * ImageServiceHelper that remembers what another image service said about recent images. Images are
+ * matched by perceptual hash, so a camera frame that is nearly identical to one scanned a few seconds
+ * ago is answered from the cache instead of calling the wrapped service again.
+ *
+ * The cache stores every label down to a configurable confidence floor, so a request with a different
+ * threshold can still be answered from the same entry. Entries are evicted when they are older than
+ * the time-to-live, or least recently used first once the cache is full.
+ */
+public class CachingImageService implements ImageServiceHelper {
+
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    public static final int DEFAULT_HAMMING_TOLERANCE = 4;
+    public static final float DEFAULT_CONFIDENCE_FLOOR = 50.0f;
+
+    private final ImageServiceHelper delegate;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final int hammingTolerance;
+    private final float confidenceFloor;
+    private final LongSupplier clock;
+
+    //access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CachingImageService(ImageServiceHelper delegate) {
+        this(delegate, DEFAULT_MAX_ENTRIES, DEFAULT_TTL_MILLIS, DEFAULT_HAMMING_TOLERANCE, DEFAULT_CONFIDENCE_FLOOR);
+    }
+
+    /**
+     * @param delegate Image service to call on a cache miss
+     * @param maxEntries Maximum number of images to remember
+     * @param ttlMillis How long a result may be reused
+     * @param hammingTolerance Maximum number of differing hash bits for two images to count as the same
+     * @param confidenceFloor Lowest confidence requested from the delegate and kept in the cache
+     */
+    public CachingImageService(ImageServiceHelper delegate, int maxEntries, long ttlMillis,
+                               int hammingTolerance, float confidenceFloor) {
+        this(delegate, maxEntries, ttlMillis, hammingTolerance, confidenceFloor, System::nanoTime);
+    }
+
+    CachingImageService(ImageServiceHelper delegate, int maxEntries, long ttlMillis,
+                        int hammingTolerance, float confidenceFloor, LongSupplier clock) {
+        this.delegate = delegate;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.hammingTolerance = hammingTolerance;
+        this.confidenceFloor = confidenceFloor;
+        this.clock = clock;
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+        return classify(image, confidenceThreshhold).containsCat(confidenceThreshhold);
+    }
+
+    @Override
+    public ClassificationResult classify(BufferedImage image, float minConfidence) {
+        long hash = PerceptualHash.dHash(image);
+        ClassificationResult cached = lookup(hash, minConfidence);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        ClassificationResult result = delegate.classify(image, Math.min(minConfidence, confidenceFloor));
+        store(hash, result);
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<ClassificationResult> classifyAsync(BufferedImage image, float minConfidence) {
+        long hash = PerceptualHash.dHash(image);
+        ClassificationResult cached = lookup(hash, minConfidence);
+        if (cached != null) {
+            hits.increment();
+            return CompletableFuture.completedFuture(cached);
+        }
+        misses.increment();
+        return delegate.classifyAsync(image, Math.min(minConfidence, confidenceFloor))
+                .thenApply(result -> {
+                    store(hash, result);
+                    return result;
+                });
+    }
+
+    /**
+     * @return A live result for an image within the Hamming tolerance that covers the threshold, or null
+     */
+    private synchronized ClassificationResult lookup(long hash, float minConfidence) {
+        long now = clock.getAsLong();
+        Entry exact = entries.get(hash);
+        if (exact != null && isUsable(exact, minConfidence, now)) {
+            return exact.result;
+        }
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+            Entry entry = it.next();
+            if (now - entry.createdNanos > ttlNanos) {
+                it.remove();
+                evictions.increment();
+            } else if (PerceptualHash.distance(hash, entry.hash) <= hammingTolerance && entry.result.covers(minConfidence)) {
+                //touch the entry so it counts as recently used
+                entries.get(entry.hash);
+                return entry.result;
+            }
+        }
+        return null;
+    }
+
+    private boolean isUsable(Entry entry, float minConfidence, long now) {
+        return now - entry.createdNanos <= ttlNanos && entry.result.covers(minConfidence);
+    }
+
+    private synchronized void store(long hash, ClassificationResult result) {
+        entries.put(hash, new Entry(hash, result, clock.getAsLong()));
+        while (entries.size() > maxEntries) {
+            Iterator<Map.Entry<Long, Entry>> eldest = entries.entrySet().iterator();
+            eldest.next();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    private static class Entry {
+        private final long hash;
+        private final ClassificationResult result;
+        private final long createdNanos;
+
+        Entry(long hash, ClassificationResult result, long createdNanos) {
+            this.hash = hash;
+            this.result = result;
+            this.createdNanos = createdNanos;
+        }
+    }
+}
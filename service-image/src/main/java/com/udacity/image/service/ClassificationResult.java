@@ -0,0 +1,67 @@
+package com.udacity.image.service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Labels an image service found in an image, with the confidence of each one. Every label with a
+ * confidence of at least minConfidence is included, so the same result can answer "does it contain
+ * a cat?" for any threshold at or above that.
+ */
+public class ClassificationResult {
+
+    private final Map<String, Float> labels;
+    private final float minConfidence;
+
+    /**
+     * @param labels Label names mapped to a confidence between 0 and 100
+     * @param minConfidence The lowest confidence that was requested when classifying
+     */
+    public ClassificationResult(Map<String, Float> labels, float minConfidence) {
+        this.labels = Collections.unmodifiableMap(new LinkedHashMap<>(labels));
+        this.minConfidence = minConfidence;
+    }
+
+    public Map<String, Float> getLabels() {
+        return labels;
+    }
+
+    public float getMinConfidence() {
+        return minConfidence;
+    }
+
+    /**
+     * @return True if this result holds every label down to the given confidence
+     */
+    public boolean covers(float confidenceThreshhold) {
+        return confidenceThreshhold >= minConfidence;
+    }
+
+    public boolean containsCat(float confidenceThreshhold) {
+        return containsLabel("cat", confidenceThreshhold);
+    }
+
+    /**
+     * @param fragment Case-insensitive text the label name has to contain
+     * @param confidenceThreshhold Minimum confidence the label needs
+     */
+    public boolean containsLabel(String fragment, float confidenceThreshhold) {
+        String wanted = fragment.toLowerCase(Locale.ROOT);
+        return labels.entrySet().stream()
+                .anyMatch(l -> l.getValue() >= confidenceThreshhold && l.getKey().toLowerCase(Locale.ROOT).contains(wanted));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        labels.forEach((name, confidence) -> {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(String.format("%s(%.1f%%)", name, confidence));
+        });
+        return sb.toString();
+    }
+}
@@ -0,0 +1,103 @@
+package com.udacity.image.service;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Helpers for images that are still in their encoded form, such as a JPEG file from a camera, so
+ * they can be sent on without being decoded and encoded again.
+ */
+public final class EncodedImages {
+
+    //files at least this big are memory mapped rather than read into the heap
+    static final long MAP_THRESHOLD = 1024 * 1024;
+
+    private EncodedImages() {
+    }
+
+    /**
+     * Reads the whole file through a FileChannel. Large files are memory mapped, so their bytes are
+     * only copied once, when they are finally handed on.
+     * @return The file contents, from position 0 to the limit
+     */
+    public static ByteBuffer read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Image too large: " + file);
+            }
+            if (size >= MAP_THRESHOLD) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("File shrank while reading: " + file);
+                }
+            }
+            return buffer.flip();
+        }
+    }
+
+    /**
+     * Like read, for callers that cannot throw IOException.
+     */
+    public static ByteBuffer readUnchecked(Path file) {
+        try {
+            return read(file);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to read image " + file, ioe);
+        }
+    }
+
+    /**
+     * Decodes the bytes between position and limit without moving the buffer's position.
+     * @throws UncheckedIOException If the bytes are not an image ImageIO can read
+     */
+    public static BufferedImage decode(ByteBuffer encoded) {
+        try {
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(toArray(encoded)));
+            if (image == null) {
+                throw new IOException("Not a supported image format");
+            }
+            return image;
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to decode image", ioe);
+        }
+    }
+
+    /**
+     * @return True if the bytes start like a JPEG or PNG file
+     */
+    public static boolean isJpegOrPng(ByteBuffer encoded) {
+        int p = encoded.position();
+        if (encoded.remaining() >= 3
+                && encoded.get(p) == (byte) 0xFF && encoded.get(p + 1) == (byte) 0xD8 && encoded.get(p + 2) == (byte) 0xFF) {
+            return true;
+        }
+        return encoded.remaining() >= 4
+                && encoded.get(p) == (byte) 0x89 && encoded.get(p + 1) == 'P' && encoded.get(p + 2) == 'N' && encoded.get(p + 3) == 'G';
+    }
+
+    /**
+     * @return The bytes between position and limit as an array of exactly that length. The buffer's
+     * own array is returned when it already is one, otherwise the bytes are copied once.
+     */
+    public static byte[] toArray(ByteBuffer encoded) {
+        if (encoded.hasArray() && encoded.arrayOffset() == 0 && encoded.position() == 0
+                && encoded.remaining() == encoded.array().length) {
+            return encoded.array();
+        }
+        byte[] bytes = new byte[encoded.remaining()];
+        encoded.duplicate().get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,125 @@
+package com.udacity.image.service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Prepares camera frames for upload to an image service. Frames larger than the maximum edge size are
+ * scaled down, since label detection does not need full resolution, and then encoded as JPEG at the
+ * configured quality.
+ *
+ * Every thread keeps its own ImageWriter, scratch image and output buffer and reuses them for each
+ * frame, so encoding does not allocate a new growing buffer per call. Transparent pixels are
+ * flattened onto white, since JPEG has no alpha channel.
+ */
+public class ImagePreprocessor {
+
+    public static final int DEFAULT_MAX_EDGE = 1024;
+    public static final float DEFAULT_JPEG_QUALITY = 0.85f;
+
+    private static final int INITIAL_BUFFER_BYTES = 256 * 1024;
+
+    private final int maxEdge;
+    private final float jpegQuality;
+    private final ThreadLocal<Encoder> encoders = ThreadLocal.withInitial(Encoder::new);
+
+    public ImagePreprocessor() {
+        this(DEFAULT_MAX_EDGE, DEFAULT_JPEG_QUALITY);
+    }
+
+    /**
+     * @param maxEdge Longest edge, in pixels, an encoded frame may have
+     * @param jpegQuality JPEG quality between 0 and 1
+     */
+    public ImagePreprocessor(int maxEdge, float jpegQuality) {
+        this.maxEdge = maxEdge;
+        this.jpegQuality = jpegQuality;
+    }
+
+    /**
+     * Scales and encodes the image.
+     * @return Read-only view of the encoded bytes. It is backed by a buffer that belongs to the calling
+     * thread and is overwritten by that thread's next call, so copy it before handing it elsewhere.
+     */
+    public ByteBuffer encode(BufferedImage image) throws IOException {
+        return encoders.get().encode(image);
+    }
+
+    public int getMaxEdge() {
+        return maxEdge;
+    }
+
+    public float getJpegQuality() {
+        return jpegQuality;
+    }
+
+    private class Encoder {
+        private final ImageWriter writer = ImageIO.getImageWritersByFormatName("jpg").next();
+        private final ImageWriteParam param = writer.getDefaultWriteParam();
+        private final ByteArrayImageOutputStream output = new ByteArrayImageOutputStream(INITIAL_BUFFER_BYTES);
+        private BufferedImage scratch;
+
+        Encoder() {
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+        }
+
+        ByteBuffer encode(BufferedImage image) throws IOException {
+            output.clear();
+            writer.setOutput(output);
+            try {
+                writer.write(null, new IIOImage(prepare(image), null, null), param);
+            } finally {
+                writer.reset();
+            }
+            return output.contents();
+        }
+
+        /**
+         * @return The image itself if it can be written as is, otherwise an RGB copy no larger than the maximum edge
+         */
+        private BufferedImage prepare(BufferedImage image) {
+            int width = image.getWidth();
+            int height = image.getHeight();
+            int longest = Math.max(width, height);
+            boolean opaqueRgb = image.getType() == BufferedImage.TYPE_INT_RGB
+                    || image.getType() == BufferedImage.TYPE_3BYTE_BGR
+                    || image.getType() == BufferedImage.TYPE_BYTE_GRAY;
+            if (longest <= maxEdge && opaqueRgb) {
+                return image;
+            }
+            if (longest > maxEdge) {
+                width = Math.max(1, width * maxEdge / longest);
+                height = Math.max(1, height * maxEdge / longest);
+            }
+            if (scratch == null || scratch.getWidth() != width || scratch.getHeight() != height) {
+                scratch = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            }
+            Graphics2D g = scratch.createGraphics();
+            try {
+                //the scratch image still holds the previous frame, which would show through transparent pixels
+                if (image.getTransparency() != Transparency.OPAQUE) {
+                    g.setComposite(AlphaComposite.Src);
+                    g.setColor(Color.WHITE);
+                    g.fillRect(0, 0, width, height);
+                    g.setComposite(AlphaComposite.SrcOver);
+                }
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.drawImage(image, 0, 0, width, height, null);
+            } finally {
+                g.dispose();
+            }
+            return scratch;
+        }
+    }
+}
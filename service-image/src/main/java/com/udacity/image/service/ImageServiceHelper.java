@@ -1,7 +1,72 @@
 package com.udacity.image.service;
 
 import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public interface ImageServiceHelper {
     boolean imageContainsCat(BufferedImage image, float confidenceThreshhold);
+
+    /**
+     * Returns every label found in the image with a confidence of at least minConfidence. Services
+     * that can only answer yes or no report a single "Cat" label when the image contains a cat.
+     * @param image Image to scan
+     * @param minConfidence Lowest confidence to include, for example 50.0f for 50%
+     */
+    default ClassificationResult classify(BufferedImage image, float minConfidence) {
+        Map<String, Float> labels = imageContainsCat(image, minConfidence) ? Map.of("Cat", 100.0f) : Map.of();
+        return new ClassificationResult(labels, minConfidence);
+    }
+
+    /**
+     * Classifies the image without blocking the caller. Services backed by a remote call should
+     * override this with a non-blocking client; the default runs classify on the common pool.
+     * @param image Image to scan
+     * @param minConfidence Lowest confidence to include
+     */
+    default CompletableFuture<ClassificationResult> classifyAsync(BufferedImage image, float minConfidence) {
+        return CompletableFuture.supplyAsync(() -> classify(image, minConfidence));
+    }
+
+    /**
+     * Classifies an image that is still encoded, such as the contents of a JPEG file. Services that
+     * upload images should override this to send the bytes as they are; the default decodes them and
+     * calls classify with the decoded image.
+     * @param encodedImage The encoded image between position and limit. The position is not moved.
+     * @param minConfidence Lowest confidence to include
+     */
+    default ClassificationResult classify(ByteBuffer encodedImage, float minConfidence) {
+        return classify(EncodedImages.decode(encodedImage), minConfidence);
+    }
+
+    /**
+     * Classifies an encoded image without blocking the caller. The default runs classify on the common pool.
+     * @param encodedImage The encoded image between position and limit. The position is not moved.
+     * @param minConfidence Lowest confidence to include
+     */
+    default CompletableFuture<ClassificationResult> classifyAsync(ByteBuffer encodedImage, float minConfidence) {
+        return CompletableFuture.supplyAsync(() -> classify(encodedImage, minConfidence));
+    }
+
+    /**
+     * Classifies the image file, reading its bytes and passing them to classify(ByteBuffer, float).
+     * @param imageFile Image file to scan
+     * @param minConfidence Lowest confidence to include
+     */
+    default ClassificationResult classify(Path imageFile, float minConfidence) {
+        return classify(EncodedImages.readUnchecked(imageFile), minConfidence);
+    }
+
+    /**
+     * Reads the image file on the common pool and passes its bytes to classifyAsync(ByteBuffer, float),
+     * so the caller never blocks on the disk.
+     * @param imageFile Image file to scan
+     * @param minConfidence Lowest confidence to include
+     */
+    default CompletableFuture<ClassificationResult> classifyAsync(Path imageFile, float minConfidence) {
+        return CompletableFuture.supplyAsync(() -> EncodedImages.readUnchecked(imageFile))
+                .thenCompose(encoded -> classifyAsync(encoded, minConfidence));
+    }
 }
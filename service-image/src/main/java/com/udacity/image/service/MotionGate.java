@@ -0,0 +1,123 @@
+package com.udacity.image.service;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Decides whether a camera frame has changed enough since the last classified frame to be worth
+ * classifying again. Each frame is reduced to a small grid of grayscale samples and compared with
+ * the grid of the last frame that was committed; the frame counts as motion when enough samples
+ * changed by more than the noise level. Callers commit a frame once it has been classified, so a
+ * frame whose classification failed does not become the reference and its successors are retried.
+ *
+ * The grids are plain int arrays allocated once, so checking a frame allocates nothing. A gate
+ * remembers a single camera and is not thread-safe; use one gate per camera.
+ */
+public class MotionGate {
+
+    public static final int DEFAULT_GRID_WIDTH = 32;
+    public static final int DEFAULT_GRID_HEIGHT = 24;
+    public static final int DEFAULT_NOISE_LEVEL = 16;
+    public static final float DEFAULT_CHANGED_FRACTION = 0.01f;
+
+    private final int gridWidth;
+    private final int gridHeight;
+    private final int noiseLevel;
+    private final int changedSamplesRequired;
+
+    private final int[] reference;
+    private final int[] current;
+    private boolean hasReference;
+
+    private long passed;
+    private long skipped;
+
+    public MotionGate() {
+        this(DEFAULT_GRID_WIDTH, DEFAULT_GRID_HEIGHT, DEFAULT_NOISE_LEVEL, DEFAULT_CHANGED_FRACTION);
+    }
+
+    /**
+     * @param gridWidth Number of samples taken across each frame
+     * @param gridHeight Number of samples taken down each frame
+     * @param noiseLevel Brightness difference, out of 255, a sample must exceed to count as changed
+     * @param changedFraction Fraction of samples that must change for the frame to count as motion
+     */
+    public MotionGate(int gridWidth, int gridHeight, int noiseLevel, float changedFraction) {
+        this.gridWidth = gridWidth;
+        this.gridHeight = gridHeight;
+        this.noiseLevel = noiseLevel;
+        this.changedSamplesRequired = Math.max(1, Math.round(gridWidth * gridHeight * changedFraction));
+        this.reference = new int[gridWidth * gridHeight];
+        this.current = new int[gridWidth * gridHeight];
+    }
+
+    /**
+     * Checks the frame against the last committed frame. The reference only moves on commit, so
+     * slow drift is still caught once it adds up.
+     * @return True if the frame should be classified
+     */
+    public boolean hasMotion(BufferedImage frame) {
+        if (hasReference) {
+            sample(frame, current);
+            if (countChanged(reference, current) < changedSamplesRequired) {
+                skipped++;
+                return false;
+            }
+        }
+        passed++;
+        return true;
+    }
+
+    /**
+     * Makes the frame the reference that later frames are compared with. Call it once the frame has
+     * been classified successfully.
+     */
+    public void commit(BufferedImage frame) {
+        sample(frame, reference);
+        hasReference = true;
+    }
+
+    /**
+     * Forgets the reference frame, so the next frame passes.
+     */
+    public void reset() {
+        hasReference = false;
+    }
+
+    /**
+     * @return Number of frames that were let through for classification
+     */
+    public long getPassed() {
+        return passed;
+    }
+
+    /**
+     * @return Number of frames that were too similar to the reference to classify
+     */
+    public long getSkipped() {
+        return skipped;
+    }
+
+    private int countChanged(int[] a, int[] b) {
+        int changed = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (Math.abs(a[i] - b[i]) > noiseLevel) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    private void sample(BufferedImage frame, int[] grid) {
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        int i = 0;
+        for (int row = 0; row < gridHeight; row++) {
+            int y = Math.min(height - 1, (2 * row + 1) * height / (2 * gridHeight));
+            for (int column = 0; column < gridWidth; column++) {
+                int x = Math.min(width - 1, (2 * column + 1) * width / (2 * gridWidth));
+                int rgb = frame.getRGB(x, y);
+                grid[i++] = ((rgb >> 16 & 0xff) * 299 + (rgb >> 8 & 0xff) * 587 + (rgb & 0xff) * 114) / 1000;
+            }
+        }
+    }
+}
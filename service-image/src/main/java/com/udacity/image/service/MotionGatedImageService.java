@@ -0,0 +1,79 @@
+package com.udacity.image.service;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * ImageServiceHelper for a single camera that only asks another image service about frames that
+ * differ from the last one it classified, see MotionGate. For a frame without motion the previous
+ * result is returned, as long as it was produced for the same or a lower confidence threshold.
+ */
+public class MotionGatedImageService implements ImageServiceHelper {
+
+    private final ImageServiceHelper delegate;
+    private final MotionGate gate;
+
+    //guarded by this
+    private ClassificationResult lastResult;
+    private long skipped;
+
+    public MotionGatedImageService(ImageServiceHelper delegate) {
+        this(delegate, new MotionGate());
+    }
+
+    public MotionGatedImageService(ImageServiceHelper delegate, MotionGate gate) {
+        this.delegate = delegate;
+        this.gate = gate;
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+        return classify(image, confidenceThreshhold).containsCat(confidenceThreshhold);
+    }
+
+    @Override
+    public ClassificationResult classify(BufferedImage image, float minConfidence) {
+        ClassificationResult previous = reuse(image, minConfidence);
+        if (previous != null) {
+            return previous;
+        }
+        return store(image, delegate.classify(image, minConfidence));
+    }
+
+    @Override
+    public CompletableFuture<ClassificationResult> classifyAsync(BufferedImage image, float minConfidence) {
+        ClassificationResult previous = reuse(image, minConfidence);
+        if (previous != null) {
+            return CompletableFuture.completedFuture(previous);
+        }
+        return delegate.classifyAsync(image, minConfidence).thenApply(result -> store(image, result));
+    }
+
+    /**
+     * @return The last result if the frame has not changed and the result covers the threshold, otherwise null
+     */
+    private synchronized ClassificationResult reuse(BufferedImage image, float minConfidence) {
+        if (gate.hasMotion(image) || lastResult == null || !lastResult.covers(minConfidence)) {
+            return null;
+        }
+        skipped++;
+        return lastResult;
+    }
+
+    /**
+     * Only reached once the wrapped service has answered, so a failed classification leaves the
+     * previous frame as the reference and the next frame is classified again.
+     */
+    private synchronized ClassificationResult store(BufferedImage image, ClassificationResult result) {
+        gate.commit(image);
+        lastResult = result;
+        return result;
+    }
+
+    /**
+     * @return Number of frames answered without calling the wrapped service
+     */
+    public synchronized long getSkipped() {
+        return skipped;
+    }
+}
@@ -0,0 +1,61 @@
+package com.udacity.image.service;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Difference hash (dHash) of an image. The image is reduced to a 9x8 grid of average brightness
+ * values and each bit of the 64-bit hash records whether a cell is brighter than its right-hand
+ * neighbour. Images that look alike produce hashes that differ in only a few bits, no matter how
+ * they were scaled or re-encoded.
+ */
+public final class PerceptualHash {
+
+    private static final int COLUMNS = 9;
+    private static final int ROWS = 8;
+    //samples taken per cell in each direction, enough to average out noise without reading every pixel
+    private static final int SAMPLES = 4;
+
+    private PerceptualHash() {
+    }
+
+    public static long dHash(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        long hash = 0;
+        for (int row = 0; row < ROWS; row++) {
+            int previous = cellBrightness(image, 0, row, width, height);
+            for (int column = 1; column < COLUMNS; column++) {
+                int current = cellBrightness(image, column, row, width, height);
+                hash = (hash << 1) | (previous > current ? 1 : 0);
+                previous = current;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * @return Number of bits that differ between the two hashes
+     */
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    private static int cellBrightness(BufferedImage image, int column, int row, int width, int height) {
+        int x0 = column * width / COLUMNS;
+        int x1 = Math.max(x0 + 1, (column + 1) * width / COLUMNS);
+        int y0 = row * height / ROWS;
+        int y1 = Math.max(y0 + 1, (row + 1) * height / ROWS);
+        int sum = 0;
+        int count = 0;
+        for (int sy = 0; sy < SAMPLES; sy++) {
+            int y = Math.min(height - 1, y0 + (y1 - y0) * sy / SAMPLES);
+            for (int sx = 0; sx < SAMPLES; sx++) {
+                int x = Math.min(width - 1, x0 + (x1 - x0) * sx / SAMPLES);
+                int rgb = image.getRGB(x, y);
+                sum += ((rgb >> 16 & 0xff) * 299 + (rgb >> 8 & 0xff) * 587 + (rgb & 0xff) * 114) / 1000;
+                count++;
+            }
+        }
+        return sum / count;
+    }
+}
@@ -1,6 +1,9 @@
 module com.udacity.image {
     exports com.udacity.image.service;
+    exports com.udacity.image.metrics;
     requires java.desktop;
+    requires java.management;
+    requires jdk.jfr;
     requires org.slf4j;
     requires software.amazon.awssdk.core;
     requires software.amazon.awssdk.services.rekognition;
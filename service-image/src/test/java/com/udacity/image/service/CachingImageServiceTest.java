@@ -0,0 +1,133 @@
+package com.udacity.image.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CachingImageServiceTest {
+
+    private static final long TTL_MILLIS = 1000;
+
+    private long now;
+    private final RecordingService delegate = new RecordingService();
+
+    private CachingImageService cache(int maxEntries, int hammingTolerance) {
+        return new CachingImageService(delegate, maxEntries, TTL_MILLIS, hammingTolerance,
+                CachingImageService.DEFAULT_CONFIDENCE_FLOOR, () -> now);
+    }
+
+    @Test
+    @DisplayName("Caching service - images within the Hamming tolerance share a result, others do not")
+    void nearbyImages_withinTolerance_hit() {
+        BufferedImage image = PerceptualHashTest.blocks(1);
+        BufferedImage nearby = PerceptualHashTest.withChangedBlock(PerceptualHashTest.blocks(1));
+        int distance = PerceptualHash.distance(PerceptualHash.dHash(image), PerceptualHash.dHash(nearby));
+        assertTrue(distance > 0);
+
+        CachingImageService tolerant = cache(16, distance);
+        tolerant.classify(image, 50.0f);
+        tolerant.classify(nearby, 50.0f);
+        assertEquals(1, delegate.calls.size());
+        assertEquals(1, tolerant.getHits());
+
+        CachingImageService strict = cache(16, distance - 1);
+        strict.classify(image, 50.0f);
+        strict.classify(nearby, 50.0f);
+        assertEquals(3, delegate.calls.size());
+        assertEquals(0, strict.getHits());
+        assertEquals(2, strict.getMisses());
+    }
+
+    @Test
+    @DisplayName("Caching service - results expire after the time-to-live")
+    void expiredEntry_isClassifiedAgain() {
+        CachingImageService cache = cache(16, 0);
+        BufferedImage image = PerceptualHashTest.blocks(1);
+        cache.classify(image, 50.0f);
+
+        now += TimeUnit.MILLISECONDS.toNanos(TTL_MILLIS);
+        cache.classify(image, 50.0f);
+        assertEquals(1, delegate.calls.size());
+
+        now += 1;
+        cache.classify(image, 50.0f);
+        assertEquals(2, delegate.calls.size());
+    }
+
+    @Test
+    @DisplayName("Caching service - the least recently used entry is evicted once the cache is full")
+    void fullCache_evictsLeastRecentlyUsed() {
+        CachingImageService cache = cache(2, 0);
+        BufferedImage a = PerceptualHashTest.blocks(1);
+        BufferedImage b = PerceptualHashTest.blocks(2);
+        BufferedImage c = PerceptualHashTest.blocks(3);
+        cache.classify(a, 50.0f);
+        cache.classify(b, 50.0f);
+        cache.classify(a, 50.0f); //a is now more recently used than b
+        cache.classify(c, 50.0f);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        cache.classify(a, 50.0f);
+        assertEquals(3, delegate.calls.size());
+        cache.classify(b, 50.0f);
+        assertEquals(4, delegate.calls.size());
+    }
+
+    @Test
+    @DisplayName("Caching service - a cached result only answers thresholds it holds every label for")
+    void cachedResult_mustCoverThreshold() {
+        CachingImageService cache = cache(16, 0);
+        BufferedImage image = PerceptualHashTest.blocks(1);
+        delegate.catConfidence = 60.0f;
+
+        //asked for 80, the delegate is asked down to the floor of 50 and the cat at 60 is kept
+        assertFalse(cache.imageContainsCat(image, 80.0f));
+        assertEquals(List.of(50.0f), delegate.calls);
+        assertTrue(cache.imageContainsCat(image, 55.0f));
+        assertEquals(1, delegate.calls.size());
+
+        //below the floor the entry does not hold every label, so the delegate is asked again
+        delegate.catConfidence = 40.0f;
+        assertTrue(cache.imageContainsCat(image, 30.0f));
+        assertEquals(List.of(50.0f, 30.0f), delegate.calls);
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    @DisplayName("Caching service - asynchronous misses are stored for later calls")
+    void asyncMiss_isStored() {
+        CachingImageService cache = cache(16, 0);
+        BufferedImage image = PerceptualHashTest.blocks(1);
+        cache.classifyAsync(image, 50.0f).join();
+        assertTrue(cache.classifyAsync(image, 50.0f).join().containsCat(50.0f));
+        assertEquals(1, delegate.calls.size());
+    }
+
+    /**
+     * Sees a cat with the configured confidence in every image and records the thresholds it was asked for.
+     */
+    private static class RecordingService implements ImageServiceHelper {
+        private final List<Float> calls = new ArrayList<>();
+        private float catConfidence = 90.0f;
+
+        @Override
+        public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+            return classify(image, confidenceThreshhold).containsCat(confidenceThreshhold);
+        }
+
+        @Override
+        public synchronized ClassificationResult classify(BufferedImage image, float minConfidence) {
+            calls.add(minConfidence);
+            Map<String, Float> labels = catConfidence >= minConfidence ? Map.of("Cat", catConfidence) : Map.of();
+            return new ClassificationResult(labels, minConfidence);
+        }
+    }
+}
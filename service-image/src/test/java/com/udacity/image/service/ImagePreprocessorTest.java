@@ -0,0 +1,53 @@
+package com.udacity.image.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImagePreprocessorTest {
+
+    private final ImagePreprocessor preprocessor = new ImagePreprocessor(64, 0.9f);
+
+    @Test
+    @DisplayName("Preprocessor - frames are scaled down to the maximum edge")
+    void largeFrame_isScaledToMaxEdge() throws IOException {
+        BufferedImage decoded = EncodedImages.decode(preprocessor.encode(filled(320, 240, BufferedImage.TYPE_INT_RGB, Color.BLUE)));
+        assertEquals(64, decoded.getWidth());
+        assertEquals(48, decoded.getHeight());
+    }
+
+    @Test
+    @DisplayName("Preprocessor - small opaque frames keep their size")
+    void smallFrame_keepsSize() throws IOException {
+        BufferedImage decoded = EncodedImages.decode(preprocessor.encode(filled(40, 30, BufferedImage.TYPE_INT_RGB, Color.BLUE)));
+        assertEquals(40, decoded.getWidth());
+        assertEquals(30, decoded.getHeight());
+    }
+
+    @Test
+    @DisplayName("Preprocessor - transparent pixels do not show the previous frame")
+    void transparentFrame_doesNotShowPreviousFrame() throws IOException {
+        preprocessor.encode(filled(320, 240, BufferedImage.TYPE_INT_RGB, Color.RED));
+        BufferedImage transparent = new BufferedImage(320, 240, BufferedImage.TYPE_INT_ARGB);
+
+        BufferedImage decoded = EncodedImages.decode(preprocessor.encode(transparent));
+        Color center = new Color(decoded.getRGB(32, 24));
+        assertTrue(center.getRed() > 200 && center.getGreen() > 200 && center.getBlue() > 200,
+                "expected white but was " + center);
+    }
+
+    private static BufferedImage filled(int width, int height, int type, Color color) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Graphics2D g = image.createGraphics();
+        g.setColor(color);
+        g.fillRect(0, 0, width, height);
+        g.dispose();
+        return image;
+    }
+}
@@ -0,0 +1,74 @@
+package com.udacity.image.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MotionGateTest {
+
+    private final MotionGate gate = new MotionGate();
+
+    @Test
+    @DisplayName("Motion gate - the first frame passes, the same frame after it is committed does not")
+    void sameFrame_afterCommit_hasNoMotion() {
+        BufferedImage frame = frame(Color.GRAY, null);
+        assertTrue(gate.hasMotion(frame));
+        gate.commit(frame);
+        assertFalse(gate.hasMotion(frame));
+        assertFalse(gate.hasMotion(frame(Color.GRAY, null)));
+        assertEquals(1, gate.getPassed());
+        assertEquals(2, gate.getSkipped());
+    }
+
+    @Test
+    @DisplayName("Motion gate - a frame that was never committed does not become the reference")
+    void uncommittedFrame_doesNotMoveReference() {
+        BufferedImage empty = frame(Color.GRAY, null);
+        BufferedImage cat = frame(Color.GRAY, Color.ORANGE);
+        gate.commit(empty);
+
+        assertTrue(gate.hasMotion(cat));
+        //classifying the cat frame failed, so it is still new
+        assertTrue(gate.hasMotion(cat));
+        gate.commit(cat);
+        assertFalse(gate.hasMotion(cat));
+    }
+
+    @Test
+    @DisplayName("Motion gate - changes below the noise level are not motion")
+    void noise_isNotMotion() {
+        gate.commit(frame(new Color(100, 100, 100), null));
+        assertFalse(gate.hasMotion(frame(new Color(110, 110, 110), null)));
+        assertTrue(gate.hasMotion(frame(new Color(140, 140, 140), null)));
+    }
+
+    @Test
+    @DisplayName("Motion gate - reset lets the next frame pass")
+    void reset_nextFramePasses() {
+        BufferedImage frame = frame(Color.GRAY, null);
+        gate.commit(frame);
+        gate.reset();
+        assertTrue(gate.hasMotion(frame));
+    }
+
+    /**
+     * @param object Color of a square in the middle of the frame, or null for an empty frame
+     */
+    static BufferedImage frame(Color background, Color object) {
+        BufferedImage image = new BufferedImage(320, 240, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(background);
+        g.fillRect(0, 0, 320, 240);
+        if (object != null) {
+            g.setColor(object);
+            g.fillRect(120, 80, 80, 80);
+        }
+        g.dispose();
+        return image;
+    }
+}
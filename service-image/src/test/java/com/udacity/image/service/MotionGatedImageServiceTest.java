@@ -0,0 +1,75 @@
+package com.udacity.image.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MotionGatedImageServiceTest {
+
+    private static final BufferedImage EMPTY_ROOM = MotionGateTest.frame(Color.GRAY, null);
+    private static final BufferedImage CAT = MotionGateTest.frame(Color.GRAY, Color.ORANGE);
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private int failOnCall;
+
+    //sees a cat when the middle of the frame is not gray
+    private final ImageServiceHelper delegate = (image, threshold) -> {
+        if (calls.incrementAndGet() == failOnCall) {
+            throw new IllegalStateException("service unavailable");
+        }
+        return image.getRGB(160, 120) != Color.GRAY.getRGB();
+    };
+
+    @Test
+    @DisplayName("Motion gated service - unchanged frames reuse the previous result")
+    void unchangedFrames_reusePreviousResult() {
+        MotionGatedImageService service = new MotionGatedImageService(delegate);
+        assertTrue(service.imageContainsCat(CAT, 50.0f));
+        assertTrue(service.imageContainsCat(CAT, 50.0f));
+        assertTrue(service.classifyAsync(CAT, 50.0f).join().containsCat(50.0f));
+        assertEquals(1, calls.get());
+        assertEquals(2, service.getSkipped());
+    }
+
+    @Test
+    @DisplayName("Motion gated service - a result only answers thresholds at or above the one it was made for")
+    void lowerThreshold_isClassifiedAgain() {
+        MotionGatedImageService service = new MotionGatedImageService(delegate);
+        service.classify(CAT, 90.0f);
+        service.classify(CAT, 50.0f);
+        assertEquals(2, calls.get());
+        service.classify(CAT, 90.0f);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    @DisplayName("Motion gated service - after a failed classification the same frame is classified again")
+    void failedClassification_sameFrameIsRetried() {
+        MotionGatedImageService service = new MotionGatedImageService(delegate);
+        assertFalse(service.imageContainsCat(EMPTY_ROOM, 50.0f));
+
+        failOnCall = 2;
+        assertThrows(IllegalStateException.class, () -> service.classify(CAT, 50.0f));
+        assertTrue(service.imageContainsCat(CAT, 50.0f));
+        assertEquals(3, calls.get());
+        assertEquals(0, service.getSkipped());
+    }
+
+    @Test
+    @DisplayName("Motion gated service - a failed asynchronous classification is retried as well")
+    void failedAsyncClassification_sameFrameIsRetried() {
+        MotionGatedImageService service = new MotionGatedImageService(delegate);
+        service.classifyAsync(EMPTY_ROOM, 50.0f).join();
+
+        failOnCall = 2;
+        assertThrows(CompletionException.class, () -> service.classifyAsync(CAT, 50.0f).join());
+        assertTrue(service.classifyAsync(CAT, 50.0f).join().containsCat(50.0f));
+        assertEquals(3, calls.get());
+    }
+}
@@ -0,0 +1,80 @@
+package com.udacity.image.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PerceptualHashTest {
+
+    @Test
+    @DisplayName("Perceptual hash - a scaled copy hashes (almost) the same")
+    void scaledCopy_isWithinTolerance() {
+        BufferedImage image = blocks(1);
+        BufferedImage scaled = new BufferedImage(180, 120, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = scaled.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(image, 0, 0, 180, 120, null);
+        g.dispose();
+
+        assertEquals(PerceptualHash.dHash(image), PerceptualHash.dHash(blocks(1)));
+        assertTrue(PerceptualHash.distance(PerceptualHash.dHash(image), PerceptualHash.dHash(scaled))
+                <= CachingImageService.DEFAULT_HAMMING_TOLERANCE);
+    }
+
+    @Test
+    @DisplayName("Perceptual hash - a small change flips a few bits, a different image many")
+    void differentImages_areFarApart() {
+        long hash = PerceptualHash.dHash(blocks(1));
+        int nearby = PerceptualHash.distance(hash, PerceptualHash.dHash(withChangedBlock(blocks(1))));
+        int unrelated = PerceptualHash.distance(hash, PerceptualHash.dHash(blocks(2)));
+        assertTrue(nearby > 0 && nearby <= 2, nearby + " bits differ");
+        assertTrue(unrelated > 16, unrelated + " bits differ");
+    }
+
+    @Test
+    @DisplayName("Perceptual hash - distance counts differing bits")
+    void distance_countsBits() {
+        assertEquals(0, PerceptualHash.distance(0x5L, 0x5L));
+        assertEquals(2, PerceptualHash.distance(0x5L, 0x0L));
+        assertEquals(64, PerceptualHash.distance(0L, -1L));
+    }
+
+    /**
+     * @return A 360x240 image of 9x8 blocks, each a random shade of gray
+     */
+    static BufferedImage blocks(long seed) {
+        Random random = new Random(seed);
+        BufferedImage image = new BufferedImage(360, 240, BufferedImage.TYPE_INT_RGB);
+        for (int row = 0; row < 8; row++) {
+            for (int column = 0; column < 9; column++) {
+                int gray = random.nextInt(256);
+                fill(image, column, row, gray);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * @return The image with the block in the middle of the top row made much brighter or darker
+     */
+    static BufferedImage withChangedBlock(BufferedImage image) {
+        int gray = image.getRGB(4 * 40 + 20, 15) & 0xff;
+        fill(image, 4, 0, gray < 128 ? 255 : 0);
+        return image;
+    }
+
+    private static void fill(BufferedImage image, int column, int row, int gray) {
+        int rgb = gray << 16 | gray << 8 | gray;
+        for (int y = row * 30; y < row * 30 + 30; y++) {
+            for (int x = column * 40; x < column * 40 + 40; x++) {
+                image.setRGB(x, y, rgb);
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.udacity.security.application;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+
+/**
+ * Decodes camera stills into previews of a fixed size and remembers the most recent ones.
+ *
+ * Only as many pixels as the preview needs are decoded: the reader is asked to skip rows and columns
+ * with source subsampling, so a 24 megapixel photo for a 300x225 preview is read as roughly a
+ * 600x450 image and never exists at full size in memory. That image is then drawn at the exact
+ * preview size with bilinear interpolation. Previews are keyed by file, size and modification time,
+ * so a file that changes on disk is decoded again.
+ *
+ * Loading blocks on file IO and must not run on the event dispatch thread. Thread-safe.
+ */
+public class CameraPreviewCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 8;
+
+    private final int width;
+    private final int height;
+    private final int maxEntries;
+
+    //access-ordered, so iteration starts at the least recently used preview
+    private final LinkedHashMap<Key, BufferedImage> previews = new LinkedHashMap<>(16, 0.75f, true);
+
+    public CameraPreviewCache(int width, int height) {
+        this(width, height, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param width Width of every preview
+     * @param height Height of every preview
+     * @param maxEntries Maximum number of previews to remember
+     */
+    public CameraPreviewCache(int width, int height, int maxEntries) {
+        this.width = width;
+        this.height = height;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @return The preview of the image file, decoded now unless a preview of the same file version is cached
+     * @throws IOException If the file cannot be read or is not an image
+     */
+    public BufferedImage getPreview(Path file) throws IOException {
+        Key key = new Key(file.toAbsolutePath().normalize(), Files.size(file), Files.getLastModifiedTime(file).toMillis());
+        synchronized (previews) {
+            BufferedImage cached = previews.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        //decode outside the lock, so a slow file does not hold up lookups of cached ones
+        BufferedImage preview = decodePreview(file);
+        synchronized (previews) {
+            previews.put(key, preview);
+            Iterator<BufferedImage> eldest = previews.values().iterator();
+            while (previews.size() > maxEntries) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+        return preview;
+    }
+
+    public int size() {
+        synchronized (previews) {
+            return previews.size();
+        }
+    }
+
+    private BufferedImage decodePreview(Path file) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("Not a supported image: " + file);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                //largest step that still leaves at least the preview size in both directions
+                int step = Math.max(1, Math.min(reader.getWidth(0) / width, reader.getHeight(0) / height));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return scale(reader.read(0, param));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage scale(BufferedImage decoded) {
+        BufferedImage preview = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = preview.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(decoded, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return preview;
+    }
+
+    private static class Key {
+        private final Path file;
+        private final long size;
+        private final long lastModified;
+
+        Key(Path file, long size, long lastModified) {
+            this.file = file;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return size == key.size && lastModified == key.lastModified && file.equals(key.file);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(file, size, lastModified);
+        }
+    }
+}
@@ -1,10 +1,25 @@
 package com.udacity.security.application;
 
+import com.udacity.security.headless.HeadlessCatpointApp;
+
+import java.io.IOException;
+import java.util.Arrays;
+
 /**
- * This is the main class that launches the application.
+ * This is the main class that launches the application. Pass --headless to run without a display,
+ * see HeadlessCatpointApp for the remaining options.
  */
 public class CatpointApp {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("--headless")) {
+            HeadlessCatpointApp.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        showGui();
+    }
+
+    //kept out of main so the headless path never needs the Swing classes
+    private static void showGui() {
         CatpointGui gui = new CatpointGui();
         gui.setVisible(true);
     }
@@ -1,9 +1,14 @@
 package com.udacity.security.application;
 
+import com.udacity.image.metrics.InstrumentedImageService;
+import com.udacity.image.metrics.MBeans;
 import com.udacity.security.data.PretendDatabaseSecurityRepositoryImpl;
-import com.udacity.security.data.SecurityRepository;
 import com.udacity.image.service.FakeImageService;
+import com.udacity.security.metrics.InstrumentedSecurityRepository;
+import com.udacity.security.metrics.SecurityMetrics;
+import com.udacity.security.service.AlarmRules;
 import com.udacity.security.service.SecurityService;
+import com.udacity.security.timer.TimingWheel;
 import net.miginfocom.swing.MigLayout;
 
 import javax.swing.*;
@@ -15,13 +20,16 @@ import javax.swing.*;
  * all our dependencies and providing them to other classes as necessary.
  */
 public class CatpointGui extends JFrame {
-    private SecurityRepository securityRepository = new PretendDatabaseSecurityRepositoryImpl();
-    private FakeImageService imageService = new FakeImageService();
+    private InstrumentedSecurityRepository securityRepository = new InstrumentedSecurityRepository(new PretendDatabaseSecurityRepositoryImpl());
+    private InstrumentedImageService imageService = new InstrumentedImageService(new FakeImageService());
     private SecurityService securityService = new SecurityService(securityRepository, imageService);
-    private DisplayPanel displayPanel = new DisplayPanel(securityService);
+    private SecurityMetrics securityMetrics = new SecurityMetrics();
+    private SwingStatusBridge statusBridge = new SwingStatusBridge();
+    private TimingWheel timingWheel = new TimingWheel();
+    private DisplayPanel displayPanel = new DisplayPanel(securityService, statusBridge);
     private ControlPanel controlPanel = new ControlPanel(securityService);
-    private SensorPanel sensorPanel = new SensorPanel(securityService);
-    private ImagePanel imagePanel = new ImagePanel(securityService);
+    private SensorPanel sensorPanel = new SensorPanel(securityService, statusBridge);
+    private ImagePanel imagePanel = new ImagePanel(securityService, statusBridge);
 
     public CatpointGui() {
         setLocation(100, 100);
@@ -29,6 +37,22 @@ public class CatpointGui extends JFrame {
         setTitle("Very Secure App");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
+        //the bridge only records the latest state, so it can run on whichever thread publishes it
+        securityService.addStatusListener(statusBridge, Runnable::run);
+
+        //policy overrides, such as ignoring motion sensors while at home, come from -Dcatpoint.rules=file
+        securityService.setAlarmRules(AlarmRules.load());
+
+        //pending alarms escalate after the entry delay; the escalation runs on the EDT like every other action
+        timingWheel.start();
+        securityService.setEntryDelay(timingWheel, SecurityService.DEFAULT_ENTRY_DELAY, SwingUtilities::invokeLater);
+
+        //expose what the system is doing to JConsole and VisualVM
+        securityService.setMetrics(securityMetrics);
+        MBeans.register(SecurityMetrics.OBJECT_NAME, securityMetrics);
+        MBeans.register(InstrumentedSecurityRepository.OBJECT_NAME, securityRepository);
+        MBeans.register(InstrumentedImageService.OBJECT_NAME, imageService);
+
         JPanel mainPanel = new JPanel();
         mainPanel.setLayout(new MigLayout());
         mainPanel.add(displayPanel, "wrap");
@@ -15,11 +15,11 @@ public class DisplayPanel extends JPanel implements StatusListener {
 
     private JLabel currentStatusLabel;
 
-    public DisplayPanel(SecurityService securityService) {
+    public DisplayPanel(SecurityService securityService, SwingStatusBridge statusBridge) {
         super();
         setLayout(new MigLayout());
 
-        securityService.addStatusListener(this);
+        statusBridge.addListener(this);
 
         JLabel panelLabel = new JLabel("Very Secure Home Security");
         JLabel systemStatusLabel = new JLabel("System Status:");
@@ -5,31 +5,38 @@ import com.udacity.security.service.SecurityService;
 import com.udacity.security.data.AlarmStatus;
 import net.miginfocom.swing.MigLayout;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
 
 /** Panel containing the 'camera' output. Allows users to 'refresh' the camera
  * by uploading their own picture, and 'scan' the picture, sending it for image analysis
+ *
+ * Pictures are decoded in the background, and only the small preview is kept in memory. Scanning
+ * sends the picture file itself to the image service.
  */
 public class ImagePanel extends JPanel implements StatusListener {
     private SecurityService securityService;
 
     private JLabel cameraHeader;
     private JLabel cameraLabel;
-    private BufferedImage currentCameraImage;
+    private Path currentCameraFile;
+    private int previewRequest; //only the newest preview request may update the label
 
     private int IMAGE_WIDTH = 300;
     private int IMAGE_HEIGHT = 225;
 
-    public ImagePanel(SecurityService securityService) {
+    private final CameraPreviewCache previews = new CameraPreviewCache(IMAGE_WIDTH, IMAGE_HEIGHT);
+
+    public ImagePanel(SecurityService securityService, SwingStatusBridge statusBridge) {
         super();
         setLayout(new MigLayout());
         this.securityService = securityService;
-        securityService.addStatusListener(this);
+        statusBridge.addListener(this);
 
         cameraHeader = new JLabel("Camera Feed");
         cameraHeader.setFont(StyleService.HEADING_FONT);
@@ -49,19 +56,12 @@ public class ImagePanel extends JPanel implements StatusListener {
             if(chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
                 return;
             }
-            try {
-                currentCameraImage = ImageIO.read(chooser.getSelectedFile());
-                Image tmp = new ImageIcon(currentCameraImage).getImage();
-                cameraLabel.setIcon(new ImageIcon(tmp.getScaledInstance(IMAGE_WIDTH, IMAGE_HEIGHT, Image.SCALE_SMOOTH)));
-            } catch (IOException |NullPointerException ioe) {
-                JOptionPane.showMessageDialog(null, "Invalid image selected.");
-            }
-            repaint();
+            loadPreview(chooser.getSelectedFile().toPath());
         });
 
         //button that sends the image to the image service
         JButton scanPictureButton = new JButton("Scan Picture");
-        scanPictureButton.addActionListener(e -> securityService.processImage(currentCameraImage));
+        scanPictureButton.addActionListener(e -> scanPicture(currentCameraFile));
 
         add(cameraHeader, "span 3, wrap");
         add(cameraLabel, "span 3, wrap");
@@ -69,6 +69,51 @@ public class ImagePanel extends JPanel implements StatusListener {
         add(scanPictureButton);
     }
 
+    /**
+     * Decodes the preview on a SwingWorker thread and shows it once it is ready, unless another
+     * picture has been selected in the meantime.
+     */
+    private void loadPreview(Path file) {
+        int request = ++previewRequest;
+        new SwingWorker<BufferedImage, Void>() {
+            @Override
+            protected BufferedImage doInBackground() throws IOException {
+                return previews.getPreview(file);
+            }
+
+            @Override
+            protected void done() {
+                if (request != previewRequest) {
+                    return;
+                }
+                try {
+                    cameraLabel.setIcon(new ImageIcon(get()));
+                    currentCameraFile = file;
+                } catch (ExecutionException ee) {
+                    JOptionPane.showMessageDialog(null, "Invalid image selected.");
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+                repaint();
+            }
+        }.execute();
+    }
+
+    /**
+     * Sends the picture file to the image service as it is stored, without decoding it here.
+     */
+    private void scanPicture(Path file) {
+        if (file == null) {
+            JOptionPane.showMessageDialog(null, "Unable to scan picture.");
+            return;
+        }
+        securityService.processImageAsync(file)
+                .exceptionally(t -> {
+                    SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(null, "Unable to scan picture."));
+                    return false;
+                });
+    }
+
     @Override
     public void notify(AlarmStatus status) {
         //no behavior necessary
@@ -2,16 +2,23 @@ package com.udacity.security.application;
 
 import com.udacity.security.data.AlarmStatus;
 import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorEvent;
 import com.udacity.security.data.SensorType;
 import com.udacity.security.service.SecurityService;
 import com.udacity.image.service.StyleService;
 import net.miginfocom.swing.MigLayout;
 
 import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Panel that allows users to add sensors to their system. Sensors may be
  * manually set to "active" and "inactive" to test the system.
+ *
+ * Sensors are listed in a table backed by a SensorTableModel, so a status change only repaints the
+ * rows that changed and the list copes with any number of sensors. The buttons below the table act
+ * on the selected rows.
  */
 public class SensorPanel extends JPanel implements StatusListener{
 
@@ -23,15 +30,19 @@ public class SensorPanel extends JPanel implements StatusListener{
     private JTextField newSensorNameField = new JTextField();
     private JComboBox newSensorTypeDropdown = new JComboBox(SensorType.values());
     private JButton addNewSensorButton = new JButton("Add New Sensor");
+    private JButton activateButton = new JButton("Activate");
+    private JButton deactivateButton = new JButton("Deactivate");
+    private JButton removeButton = new JButton("Remove Sensor");
 
-    private JPanel sensorListPanel;
+    private SensorTableModel sensorTableModel = new SensorTableModel();
+    private JTable sensorTable = new JTable(sensorTableModel);
     private JPanel newSensorPanel;
 
-    public SensorPanel(SecurityService securityService) {
+    public SensorPanel(SecurityService securityService, SwingStatusBridge statusBridge) {
         super();
         setLayout(new MigLayout());
         this.securityService = securityService;
-        securityService.addStatusListener(this);
+        statusBridge.addListener(this);
 
         panelLabel.setFont(StyleService.HEADING_FONT);
         addNewSensorButton.addActionListener(e ->
@@ -39,10 +50,9 @@ public class SensorPanel extends JPanel implements StatusListener{
                         SensorType.valueOf(newSensorTypeDropdown.getSelectedItem().toString()))));
 
         newSensorPanel = buildAddSensorPanel();
-        sensorListPanel = new JPanel();
-        sensorListPanel.setLayout(new MigLayout());
+        JPanel sensorListPanel = buildSensorListPanel();
 
-        updateSensorList(sensorListPanel);
+        updateSensorList();
 
         add(panelLabel, "wrap");
         add(newSensorPanel, "span");
@@ -63,9 +73,47 @@ public class SensorPanel extends JPanel implements StatusListener{
         return p;
     }
 
+    /**
+     * Builds the panel with the sensor table and the buttons that act on the selected sensors
+     */
+    private JPanel buildSensorListPanel() {
+        sensorTable.setFillsViewportHeight(true);
+        sensorTable.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
+        sensorTable.getColumnModel().getColumn(SensorTableModel.NAME_COLUMN).setPreferredWidth(250);
+        sensorTable.getSelectionModel().addListSelectionListener(e -> updateButtons());
+
+        activateButton.addActionListener(e -> setSensorActivity(selectedSensors(), true));
+        deactivateButton.addActionListener(e -> setSensorActivity(selectedSensors(), false));
+        removeButton.addActionListener(e -> removeSensors(selectedSensors()));
+        updateButtons();
+
+        JPanel p = new JPanel();
+        p.setLayout(new MigLayout());
+        p.add(new JScrollPane(sensorTable), "span 3, width 500:500:500, height 150:150:400, wrap");
+        p.add(activateButton);
+        p.add(deactivateButton);
+        p.add(removeButton);
+        return p;
+    }
+
+    private List<Sensor> selectedSensors() {
+        List<Sensor> selected = new ArrayList<>();
+        for (int row : sensorTable.getSelectedRows()) {
+            selected.add(sensorTableModel.getSensorAt(sensorTable.convertRowIndexToModel(row)));
+        }
+        return selected;
+    }
+
+    private void updateButtons() {
+        boolean anySelected = sensorTable.getSelectedRowCount() > 0;
+        activateButton.setEnabled(anySelected);
+        deactivateButton.setEnabled(anySelected);
+        removeButton.setEnabled(anySelected);
+    }
+
     @Override
     public void sensorStatusChanged() {
-        updateSensorList(sensorListPanel);
+        updateSensorList();
     }
 
     @Override
@@ -76,59 +124,45 @@ public class SensorPanel extends JPanel implements StatusListener{
 
 
     /**
-     * Requests the current list of sensors and updates the provided panel to display them. Sensors
-     * will display in the order that they are created.
-     * @param p The Panel to populate with the current list of sensors
+     * Requests the current list of sensors and hands it to the table model, which only updates the
+     * rows of sensors that were added, removed or changed.
      */
-    private void updateSensorList(JPanel p) {
-        p.removeAll();
-        securityService.getSensors().stream().sorted().forEach(s -> {
-            JLabel sensorLabel = new JLabel(String.format("%s(%s): %s", s.getName(),  s.getSensorType().toString(),(s.getActive() ? "Active" : "Inactive")));
-            JButton sensorToggleButton = new JButton((s.getActive() ? "Deactivate" : "Activate"));
-            JButton sensorRemoveButton = new JButton("Remove Sensor");
-
-            sensorToggleButton.addActionListener(e -> setSensorActivity(s, !s.getActive()) );
-            sensorRemoveButton.addActionListener(e -> removeSensor(s));
-
-            //hard code some sizes, tsk tsk
-            p.add(sensorLabel, "width 300:300:300");
-            p.add(sensorToggleButton, "width 100:100:100");
-            p.add(sensorRemoveButton, "wrap");
-        });
-
-        repaint();
-        revalidate();
+    private void updateSensorList() {
+        sensorTableModel.refresh(securityService.getSensors());
     }
 
     /**
-     * Asks the securityService to change a sensor activation status and then rebuilds the current sensor list
-     * @param sensor The sensor to update
-     * @param isActive The sensor's activation status
+     * Asks the securityService to change the activation status of the sensors and then updates the sensor list.
+     * A single sensor goes through the normal path; several are applied as one batch.
+     * @param sensors The sensors to update
+     * @param isActive The sensors' activation status
      */
-    private void setSensorActivity(Sensor sensor, Boolean isActive) {
-        securityService.changeSensorActivationStatus(sensor, isActive);
-        updateSensorList(sensorListPanel);
+    private void setSensorActivity(List<Sensor> sensors, Boolean isActive) {
+        if (sensors.size() == 1) {
+            securityService.changeSensorActivationStatus(sensors.get(0), isActive);
+        } else {
+            List<SensorEvent> events = new ArrayList<>(sensors.size());
+            sensors.forEach(s -> events.add(new SensorEvent(s, isActive)));
+            securityService.applySensorEvents(events);
+        }
+        updateSensorList();
     }
 
     /**
-     * Adds a sensor to the securityService and then rebuilds the sensor list
+     * Adds a sensor to the securityService and then updates the sensor list
      * @param sensor The sensor to add
      */
     private void addSensor(Sensor sensor) {
-        if(securityService.getSensors().size() < 4) {
-            securityService.addSensor(sensor);
-            updateSensorList(sensorListPanel);
-        } else {
-            JOptionPane.showMessageDialog(null, "To add more than 4 sensors, please subscribe to our Premium Membership!");
-        }
+        securityService.addSensor(sensor);
+        updateSensorList();
     }
 
     /**
-     * Remove a sensor from the securityService and then rebuild the sensor list
-     * @param sensor The sensor to remove
+     * Remove sensors from the securityService and then update the sensor list
+     * @param sensors The sensors to remove
      */
-    private void removeSensor(Sensor sensor) {
-        securityService.removeSensor(sensor);
-        updateSensorList(sensorListPanel);
+    private void removeSensors(List<Sensor> sensors) {
+        sensors.forEach(securityService::removeSensor);
+        updateSensorList();
     }
 }
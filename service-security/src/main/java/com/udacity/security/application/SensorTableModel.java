@@ -0,0 +1,177 @@
+package com.udacity.security.application;
+
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorType;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Table model behind the sensor list. Rows are kept in sensor order and remember the values they
+ * were last shown with, so refresh can compare them against the live sensors and fire an event for
+ * just the rows that were added, removed or changed. A JTable only paints the visible rows, so the
+ * cost of a refresh no longer includes building components for every sensor.
+ *
+ * Must only be used on the event dispatch thread, like any Swing model.
+ */
+public class SensorTableModel extends AbstractTableModel {
+
+    static final int NAME_COLUMN = 0;
+    static final int TYPE_COLUMN = 1;
+    static final int STATUS_COLUMN = 2;
+
+    private static final String[] COLUMN_NAMES = {"Name", "Type", "Status"};
+
+    //same order as Sensor.compareTo, but on the values the row was last shown with
+    private static final Comparator<Row> ROW_ORDER = Comparator
+            .comparing((Row r) -> r.name, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(r -> r.type == null ? "" : r.type.name())
+            .thenComparing(r -> r.id);
+
+    //beyond this many new rows in one refresh, resorting everything is cheaper than inserting one by one
+    private static final int BULK_INSERT_THRESHOLD = 64;
+
+    private final List<Row> rows = new ArrayList<>();
+    private final Map<UUID, Row> rowsById = new HashMap<>();
+    private int generation;
+
+    /**
+     * Brings the rows in line with the given sensors, firing row-level events for every difference.
+     * @param sensors The complete current set of sensors
+     */
+    public void refresh(Collection<Sensor> sensors) {
+        int current = ++generation;
+        List<Row> added = new ArrayList<>();
+        for (Sensor sensor : sensors) {
+            Row row = rowsById.get(sensor.getSensorId());
+            if (row == null) {
+                row = new Row(sensor);
+                rowsById.put(row.id, row);
+                added.add(row);
+            } else if (!row.matches(sensor)) {
+                update(row, sensor);
+            }
+            row.sensor = sensor;
+            row.generation = current;
+        }
+
+        for (int i = rows.size() - 1; i >= 0; i--) {
+            Row row = rows.get(i);
+            if (row.generation != current) {
+                rows.remove(i);
+                rowsById.remove(row.id);
+                fireTableRowsDeleted(i, i);
+            }
+        }
+
+        if (added.size() > BULK_INSERT_THRESHOLD) {
+            rows.addAll(added);
+            rows.sort(ROW_ORDER);
+            fireTableDataChanged();
+        } else {
+            added.forEach(this::insert);
+        }
+    }
+
+    /**
+     * @return The sensor shown in the given row
+     */
+    public Sensor getSensorAt(int rowIndex) {
+        return rows.get(rowIndex).sensor;
+    }
+
+    /**
+     * @return The row the sensor is shown in, or -1 if it is not in the table
+     */
+    public int indexOf(Sensor sensor) {
+        Row row = rowsById.get(sensor.getSensorId());
+        return row == null ? -1 : indexOf(row);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        Row row = rows.get(rowIndex);
+        return switch (columnIndex) {
+            case NAME_COLUMN -> row.name;
+            case TYPE_COLUMN -> row.type;
+            case STATUS_COLUMN -> row.active ? "Active" : "Inactive";
+            default -> throw new IndexOutOfBoundsException("No column " + columnIndex);
+        };
+    }
+
+    /**
+     * Changes in name or type move the row, a change in status only repaints it.
+     */
+    private void update(Row row, Sensor sensor) {
+        int index = indexOf(row);
+        if (Objects.equals(row.name, sensor.getName()) && row.type == sensor.getSensorType()) {
+            row.active = Boolean.TRUE.equals(sensor.getActive());
+            fireTableRowsUpdated(index, index);
+            return;
+        }
+        rows.remove(index);
+        fireTableRowsDeleted(index, index);
+        row.copy(sensor);
+        insert(row);
+    }
+
+    private void insert(Row row) {
+        int index = -Collections.binarySearch(rows, row, ROW_ORDER) - 1;
+        rows.add(index, row);
+        fireTableRowsInserted(index, index);
+    }
+
+    private int indexOf(Row row) {
+        return Collections.binarySearch(rows, row, ROW_ORDER);
+    }
+
+    private static class Row {
+        private final UUID id;
+        private Sensor sensor;
+        private String name;
+        private SensorType type;
+        private boolean active;
+        private int generation;
+
+        Row(Sensor sensor) {
+            this.id = sensor.getSensorId();
+            this.sensor = sensor;
+            copy(sensor);
+        }
+
+        void copy(Sensor sensor) {
+            name = sensor.getName();
+            type = sensor.getSensorType();
+            active = Boolean.TRUE.equals(sensor.getActive());
+        }
+
+        boolean matches(Sensor sensor) {
+            return active == Boolean.TRUE.equals(sensor.getActive())
+                    && type == sensor.getSensorType()
+                    && Objects.equals(name, sensor.getName());
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.udacity.security.application;
+
+import com.udacity.security.data.AlarmStatus;
+
+import javax.swing.SwingUtilities;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hands status changes to Swing panels on the event dispatch thread, at most once per frame.
+ *
+ * The bridge is registered with the SecurityService as a single StatusListener and may be called on
+ * any thread. It only records the latest alarm status and cat result and whether any sensor changed,
+ * then schedules a refresh on the EDT with SwingUtilities.invokeLater. A refresh that would come
+ * sooner than one frame interval after the previous one is delayed until the interval has passed,
+ * and everything that arrives in the meantime is folded into it. However many events are published,
+ * the panels therefore do at most one update per frame and only ever see the latest state.
+ */
+public class SwingStatusBridge implements StatusListener {
+
+    public static final long DEFAULT_FRAME_INTERVAL_MILLIS = 16;
+
+    private final long frameIntervalNanos;
+    private final List<StatusListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final AtomicReference<AlarmStatus> pendingAlarm = new AtomicReference<>();
+    private final AtomicReference<Boolean> pendingCat = new AtomicReference<>();
+    private final AtomicBoolean pendingSensors = new AtomicBoolean();
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+    private volatile long lastRefreshNanos = System.nanoTime() - Long.MAX_VALUE / 2; //the first refresh is never delayed
+    private volatile long minRefreshGapNanos = Long.MAX_VALUE;
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+
+    private static final ScheduledExecutorService delayer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "swing-status-bridge");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public SwingStatusBridge() {
+        this(DEFAULT_FRAME_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @param frameIntervalMillis Minimum time between two refreshes of the panels
+     */
+    public SwingStatusBridge(long frameIntervalMillis) {
+        this.frameIntervalNanos = TimeUnit.MILLISECONDS.toNanos(frameIntervalMillis);
+    }
+
+    /**
+     * Adds a panel that should receive status changes. Its callbacks always run on the EDT.
+     */
+    public void addListener(StatusListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(StatusListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public void notify(AlarmStatus status) {
+        pendingAlarm.set(status);
+        requestRefresh();
+    }
+
+    @Override
+    public void catDetected(boolean catDetected) {
+        pendingCat.set(catDetected);
+        requestRefresh();
+    }
+
+    @Override
+    public void sensorStatusChanged() {
+        pendingSensors.set(true);
+        requestRefresh();
+    }
+
+    /**
+     * @return Number of status changes handed to the bridge
+     */
+    public long getReceivedCount() {
+        return received.sum();
+    }
+
+    /**
+     * @return Number of times the panels were refreshed
+     */
+    public long getRefreshCount() {
+        return refreshes.sum();
+    }
+
+    /**
+     * @return Shortest time between the start of two refreshes, or Long.MAX_VALUE before the second one
+     */
+    public long getMinRefreshGapNanos() {
+        return minRefreshGapNanos;
+    }
+
+    /**
+     * Schedules a refresh unless one is already on its way, delaying it if the previous refresh
+     * was less than a frame interval ago.
+     */
+    private void requestRefresh() {
+        received.increment();
+        if (!refreshScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        long wait = lastRefreshNanos + frameIntervalNanos - System.nanoTime();
+        if (wait <= 0) {
+            SwingUtilities.invokeLater(this::refresh);
+        } else {
+            delayer.schedule(() -> SwingUtilities.invokeLater(this::refresh), wait, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Runs on the EDT. The scheduled flag is cleared before the pending state is taken, so a change
+     * that arrives while the panels are being updated schedules the next refresh rather than being lost.
+     */
+    private void refresh() {
+        long now = System.nanoTime();
+        if (refreshes.sum() > 0) {
+            minRefreshGapNanos = Math.min(minRefreshGapNanos, now - lastRefreshNanos);
+        }
+        lastRefreshNanos = now;
+        refreshScheduled.set(false);
+        refreshes.increment();
+
+        AlarmStatus alarm = pendingAlarm.getAndSet(null);
+        Boolean cat = pendingCat.getAndSet(null);
+        boolean sensors = pendingSensors.getAndSet(false);
+        for (StatusListener listener : listeners) {
+            if (alarm != null) {
+                listener.notify(alarm);
+            }
+            if (cat != null) {
+                listener.catDetected(cat);
+            }
+            if (sensors) {
+                listener.sensorStatusChanged();
+            }
+        }
+    }
+}
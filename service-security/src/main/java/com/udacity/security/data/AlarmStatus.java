@@ -1,22 +1,27 @@
 package com.udacity.security.data;
 
-import java.awt.*;
+import java.awt.Color;
 
 /**
  * List of potential states the alarm can have. Also contains metadata about what
  * text and color is associated with the alarm.
  */
 public enum AlarmStatus {
-    NO_ALARM("Cool and Good", new Color(120,200,30)),
-    PENDING_ALARM("I'm in Danger...", new Color(200,150,20)),
-    ALARM("Awooga!", new Color(250,80,50));
+    NO_ALARM("Cool and Good", 120, 200, 30),
+    PENDING_ALARM("I'm in Danger...", 200, 150, 20),
+    ALARM("Awooga!", 250, 80, 50);
 
     private final String description;
-    private final Color color;
+    //kept as plain components so that loading the enum does not load AWT, see getColor
+    private final int red;
+    private final int green;
+    private final int blue;
 
-    AlarmStatus(String description, Color color) {
+    AlarmStatus(String description, int red, int green, int blue) {
         this.description = description;
-        this.color = color;
+        this.red = red;
+        this.green = green;
+        this.blue = blue;
     }
 
     public String getDescription() {
@@ -24,6 +29,6 @@ public enum AlarmStatus {
     }
 
     public Color getColor() {
-        return color;
+        return new Color(red, green, blue);
     }
 }
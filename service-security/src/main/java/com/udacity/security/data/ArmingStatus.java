@@ -1,22 +1,27 @@
 package com.udacity.security.data;
 
-import java.awt.*;
+import java.awt.Color;
 
 /**
  * List of potential states the security system can use to describe how the system is armed.
  * Also contains metadata about what text and color is associated with the arming status.
  */
 public enum ArmingStatus {
-    DISARMED("Disarmed", new Color(120,200,30)),
-    ARMED_HOME("Armed - At Home", new Color(190,180,50)),
-    ARMED_AWAY("Armed - Away", new Color(170,30,150));
+    DISARMED("Disarmed", 120, 200, 30),
+    ARMED_HOME("Armed - At Home", 190, 180, 50),
+    ARMED_AWAY("Armed - Away", 170, 30, 150);
 
     private final String description;
-    private final Color color;
+    //kept as plain components so that loading the enum does not load AWT, see getColor
+    private final int red;
+    private final int green;
+    private final int blue;
 
-    ArmingStatus(String description, Color color) {
+    ArmingStatus(String description, int red, int green, int blue) {
         this.description = description;
-        this.color = color;
+        this.red = red;
+        this.green = green;
+        this.blue = blue;
     }
 
     public String getDescription() {
@@ -24,6 +29,6 @@ public enum ArmingStatus {
     }
 
     public Color getColor() {
-        return color;
+        return new Color(red, green, blue);
     }
 }
@@ -0,0 +1,204 @@
+package com.udacity.security.data;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Compact binary snapshot format. Sensor ids are stored as two longs, enums as their ordinals, and
+ * every distinct sensor name once in a string table that the sensors refer to by index, so a large
+ * installation with many identically named sensors stays small and decodes without reflection.
+ *
+ * Layout, big-endian:
+ * <pre>
+ * int    magic ("CPSN")
+ * short  version
+ * byte   alarm status ordinal, byte arming status ordinal (-1 for null)
+ * int    string count, then per string: int UTF-8 length, bytes
+ * int    sensor count, then per sensor:
+ *        long id high bits, long id low bits
+ *        byte type ordinal (-1 for null), byte active (0, 1 or -1 for null), int name index (-1 for null)
+ * </pre>
+ * Data is streamed through a fixed-size buffer, so neither side holds the encoded snapshot in memory.
+ * Enum constants are stored by ordinal, so new constants must be added at the end of their enum.
+ */
+public class BinarySnapshotCodec implements SnapshotCodec {
+
+    public static final int MAGIC = 0x4350534E;
+    public static final short VERSION = 1;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int SENSOR_BYTES = Long.BYTES * 2 + 2 + Integer.BYTES;
+
+    @Override
+    public String getExtension() {
+        return "snap";
+    }
+
+    @Override
+    public void write(RepositorySnapshot snapshot, WritableByteChannel channel) throws IOException {
+        List<Sensor> sensors = snapshot.getSensors();
+        Map<String, Integer> indexes = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        for (Sensor sensor : sensors) {
+            String name = sensor.getName();
+            if (name != null && indexes.putIfAbsent(name, strings.size()) == null) {
+                strings.add(name);
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.put(ordinal(snapshot.getAlarmStatus()));
+        buffer.put(ordinal(snapshot.getArmingStatus()));
+        buffer.putInt(strings.size());
+        for (String string : strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            ensureRoom(buffer, channel, Integer.BYTES);
+            buffer.putInt(bytes.length);
+            putBytes(buffer, channel, bytes);
+        }
+        ensureRoom(buffer, channel, Integer.BYTES);
+        buffer.putInt(sensors.size());
+        for (Sensor sensor : sensors) {
+            ensureRoom(buffer, channel, SENSOR_BYTES);
+            UUID id = sensor.getSensorId();
+            buffer.putLong(id.getMostSignificantBits());
+            buffer.putLong(id.getLeastSignificantBits());
+            buffer.put(ordinal(sensor.getSensorType()));
+            Boolean active = sensor.getActive();
+            buffer.put(active == null ? -1 : (byte) (active ? 1 : 0));
+            buffer.putInt(sensor.getName() == null ? -1 : indexes.get(sensor.getName()));
+        }
+        drain(buffer, channel);
+    }
+
+    @Override
+    public RepositorySnapshot read(ReadableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        buffer.flip();
+        fill(buffer, channel, Integer.BYTES + Short.BYTES + 2 + Integer.BYTES);
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a binary snapshot");
+        }
+        short version = buffer.getShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        AlarmStatus alarmStatus = valueOf(AlarmStatus.values(), buffer.get());
+        ArmingStatus armingStatus = valueOf(ArmingStatus.values(), buffer.get());
+
+        String[] strings = new String[checkCount(buffer.getInt())];
+        for (int i = 0; i < strings.length; i++) {
+            fill(buffer, channel, Integer.BYTES);
+            byte[] bytes = new byte[checkCount(buffer.getInt())];
+            getBytes(buffer, channel, bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        fill(buffer, channel, Integer.BYTES);
+        int sensorCount = checkCount(buffer.getInt());
+        SensorType[] types = SensorType.values();
+        List<Sensor> sensors = new ArrayList<>(Math.min(sensorCount, BUFFER_SIZE));
+        for (int i = 0; i < sensorCount; i++) {
+            fill(buffer, channel, SENSOR_BYTES);
+            Sensor sensor = new Sensor();
+            sensor.setSensorId(new UUID(buffer.getLong(), buffer.getLong()));
+            sensor.setSensorType(valueOf(types, buffer.get()));
+            byte active = buffer.get();
+            sensor.setActive(active < 0 ? null : active == 1);
+            int name = buffer.getInt();
+            if (name >= strings.length) {
+                throw new IOException("Corrupt snapshot, name index " + name + " out of range");
+            }
+            sensor.setName(name < 0 ? null : strings[name]);
+            sensors.add(sensor);
+        }
+        return new RepositorySnapshot(alarmStatus, armingStatus, sensors);
+    }
+
+    private static byte ordinal(Enum<?> value) {
+        return value == null ? -1 : (byte) value.ordinal();
+    }
+
+    private static <T> T valueOf(T[] values, byte ordinal) throws IOException {
+        if (ordinal < 0) {
+            return null;
+        }
+        if (ordinal >= values.length) {
+            throw new IOException("Corrupt snapshot, unknown ordinal " + ordinal);
+        }
+        return values[ordinal];
+    }
+
+    private static int checkCount(int count) throws IOException {
+        if (count < 0) {
+            throw new IOException("Corrupt snapshot, negative length");
+        }
+        return count;
+    }
+
+    //writing side: the buffer is always in fill mode
+
+    private static void ensureRoom(ByteBuffer buffer, WritableByteChannel channel, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            drain(buffer, channel);
+        }
+    }
+
+    private static void putBytes(ByteBuffer buffer, WritableByteChannel channel, byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (!buffer.hasRemaining()) {
+                drain(buffer, channel);
+            }
+            int chunk = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, chunk);
+            offset += chunk;
+        }
+    }
+
+    private static void drain(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    //reading side: the buffer is always in drain mode
+
+    private static void fill(ByteBuffer buffer, ReadableByteChannel channel, int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Snapshot is truncated");
+            }
+        }
+        buffer.flip();
+    }
+
+    private static void getBytes(ByteBuffer buffer, ReadableByteChannel channel, byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (!buffer.hasRemaining()) {
+                fill(buffer, channel, 1);
+            }
+            int chunk = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.get(bytes, offset, chunk);
+            offset += chunk;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.udacity.security.data;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Stores snapshots as reflective Gson JSON. Easy to read by hand, but noticeably larger and slower
+ * than BinarySnapshotCodec once there are many sensors.
+ */
+public class GsonSnapshotCodec implements SnapshotCodec {
+
+    private static final Gson gson = new Gson();
+
+    @Override
+    public String getExtension() {
+        return "json";
+    }
+
+    @Override
+    public void write(RepositorySnapshot snapshot, WritableByteChannel channel) throws IOException {
+        Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8);
+        gson.toJson(snapshot, writer);
+        writer.flush();
+    }
+
+    @Override
+    public RepositorySnapshot read(ReadableByteChannel channel) throws IOException {
+        Reader reader = Channels.newReader(channel, StandardCharsets.UTF_8);
+        try {
+            RepositorySnapshot snapshot = gson.fromJson(reader, RepositorySnapshot.class);
+            if (snapshot == null) {
+                throw new IOException("Empty snapshot");
+            }
+            return snapshot;
+        } catch (JsonParseException jpe) {
+            throw new IOException("Unreadable snapshot", jpe);
+        }
+    }
+}
@@ -0,0 +1,637 @@
+package com.udacity.security.data;
+
+import com.udacity.security.jfr.RepositoryWriteEvent;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Repository that persists every change as a small delta appended to a journal file instead of
+ * rewriting the whole sensor set, so the cost of a write does not grow with the number of sensors.
+ *
+ * Writes from concurrent callers are group committed: a single flusher thread writes everything
+ * that has been appended since its last pass and forces it to disk once, and every caller returns
+ * as soon as the batch holding its record is durable. When the active journal segment grows past
+ * the compaction threshold the flusher starts a new segment and a background thread writes a full
+ * snapshot, after which the older segments are deleted. On startup the latest snapshot is loaded
+ * and the journal tail is replayed on top of it.
+ *
+ * Snapshots are written with the SnapshotCodec given to the constructor, BinarySnapshotCodec by
+ * default. Snapshots written by either built-in codec are read back regardless of which one is
+ * configured, so switching codecs does not lose state.
+ */
+public class JournaledSecurityRepositoryImpl implements SecurityRepository, AutoCloseable {
+
+    public static final long DEFAULT_COMPACTION_THRESHOLD = 4L * 1024 * 1024;
+
+    //journal record types
+    private static final byte PUT_SENSOR = 1;
+    private static final byte REMOVE_SENSOR = 2;
+    private static final byte ALARM_STATUS = 3;
+    private static final byte ARMING_STATUS = 4;
+
+    //every record is prefixed with its payload length and a CRC32 of the payload
+    private static final int RECORD_HEADER_BYTES = Integer.BYTES * 2;
+
+    private static final Pattern JOURNAL_FILE = Pattern.compile("journal-(\\d+)\\.log");
+    private static final Pattern SNAPSHOT_FILE = Pattern.compile("snapshot-(\\d+)\\.(\\w+)");
+    private static final String TEMP_EXTENSION = "tmp";
+
+    private final Path directory;
+    private final long compactionThreshold;
+    private final SnapshotCodec codec;
+
+    //in-memory state, guarded by lock
+    private final Object lock = new Object();
+    private final SensorRegistry sensors = new SensorRegistry();
+    private AlarmStatus alarmStatus = AlarmStatus.NO_ALARM;
+    private ArmingStatus armingStatus = ArmingStatus.DISARMED;
+
+    //group commit state, guarded by lock
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+    private ByteBuffer flushing = ByteBuffer.allocate(64 * 1024);
+    private int recordStart;
+    private long appendedSequence;
+    private long durableSequence;
+    private IOException failure;
+    private boolean closed;
+
+    //only touched by the flusher thread once the constructor has finished
+    private FileChannel journal;
+    private long generation;
+    private long segmentBytes;
+
+    private final CRC32 crc = new CRC32(); //guarded by lock
+    private final Thread flusher;
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "journal-compactor");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public JournaledSecurityRepositoryImpl(Path directory) {
+        this(directory, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Opens the journal in the given directory, recovering any state that was previously written there.
+     * @param directory Directory holding the journal segments and snapshots. Created if missing.
+     * @param compactionThreshold Size in bytes after which the active segment is rolled and compacted
+     */
+    public JournaledSecurityRepositoryImpl(Path directory, long compactionThreshold) {
+        this(directory, compactionThreshold, new BinarySnapshotCodec());
+    }
+
+    /**
+     * Opens the journal in the given directory, recovering any state that was previously written there.
+     * @param directory Directory holding the journal segments and snapshots. Created if missing.
+     * @param compactionThreshold Size in bytes after which the active segment is rolled and compacted
+     * @param codec Format new snapshots are written in
+     */
+    public JournaledSecurityRepositoryImpl(Path directory, long compactionThreshold, SnapshotCodec codec) {
+        if (TEMP_EXTENSION.equals(codec.getExtension())) {
+            throw new IllegalArgumentException("Snapshot extension " + TEMP_EXTENSION + " is reserved");
+        }
+        this.directory = directory;
+        this.compactionThreshold = compactionThreshold;
+        this.codec = codec;
+        try {
+            Files.createDirectories(directory);
+            generation = recover() + 1;
+            journal = openSegment(generation);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to open journal in " + directory, ioe);
+        }
+        flusher = new Thread(this::flushLoop, "journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @Override
+    public void addSensor(Sensor sensor) {
+        RepositoryWriteEvent event = RepositoryWriteEvent.start();
+        putSensor(sensor);
+        event.finish(this, "addSensor", 1);
+    }
+
+    @Override
+    public void removeSensor(Sensor sensor) {
+        RepositoryWriteEvent event = RepositoryWriteEvent.start();
+        long sequence;
+        synchronized (lock) {
+            sensors.remove(sensor.getSensorId());
+            ByteBuffer record = beginRecord(1 + Long.BYTES * 2);
+            record.put(REMOVE_SENSOR);
+            putUuid(record, sensor.getSensorId());
+            sequence = endRecord(record);
+        }
+        awaitDurable(sequence);
+        event.finish(this, "removeSensor", 1);
+    }
+
+    @Override
+    public void updateSensor(Sensor sensor) {
+        RepositoryWriteEvent event = RepositoryWriteEvent.start();
+        putSensor(sensor);
+        event.finish(this, "updateSensor", 1);
+    }
+
+    private void putSensor(Sensor sensor) {
+        long sequence;
+        synchronized (lock) {
+            sequence = appendSensor(store(sensor));
+        }
+        awaitDurable(sequence);
+    }
+
+    /**
+     * Registers the state of the given sensor. The repository keeps its own instance, so a caller that
+     * goes on changing the sensor it passed in does not change the stored state or the counters behind
+     * the repository's back. The instances handed out by getSensor and getSensors are the stored ones,
+     * and are updated in place. Must be called while holding the lock.
+     * @return The stored sensor
+     */
+    private Sensor store(Sensor sensor) {
+        Sensor stored = sensors.get(sensor.getSensorId());
+        if (stored == null) {
+            stored = new Sensor();
+            stored.setSensorId(sensor.getSensorId());
+        }
+        if (stored != sensor) {
+            stored.setName(sensor.getName());
+            stored.setSensorType(sensor.getSensorType());
+            stored.setActive(sensor.getActive());
+        }
+        sensors.put(stored);
+        return stored;
+    }
+
+    /**
+     * Appends all sensors to the same batch, so the whole update costs a single fsync.
+     */
+    @Override
+    public void updateSensors(Collection<Sensor> updated) {
+        RepositoryWriteEvent event = RepositoryWriteEvent.start();
+        long sequence = 0;
+        synchronized (lock) {
+            for (Sensor sensor : updated) {
+                sequence = appendSensor(store(sensor));
+            }
+        }
+        awaitDurable(sequence);
+        event.finish(this, "updateSensors", updated.size());
+    }
+
+    /**
+     * Resets the active sensors under the lock and appends them all to the same batch, so arming
+     * costs a single fsync and the counters never see a half-reset state.
+     */
+    @Override
+    public Map<SensorType, Integer> deactivateAllSensors() {
+        RepositoryWriteEvent event = RepositoryWriteEvent.start();
+        Map<SensorType, Integer> deactivated = new HashMap<>();
+        List<Sensor> active = new ArrayList<>();
+        long sequence = 0;
+        synchronized (lock) {
+            for (Sensor sensor : sensors.getSensors()) {
+                if (Boolean.TRUE.equals(sensor.getActive())) {
+                    active.add(sensor);
+                }
+            }
+            for (Sensor sensor : active) {
+                sensor.setActive(false);
+                sensors.put(sensor);
+                sequence = appendSensor(sensor);
+                deactivated.merge(sensor.getSensorType(), 1, Integer::sum);
+            }
+        }
+        awaitDurable(sequence);
+        event.finish(this, "deactivateAllSensors", active.size());
+        return deactivated;
+    }
+
+    @Override
+    public void setAlarmStatus(AlarmStatus alarmStatus) {
+        RepositoryWriteEvent event = RepositoryWriteEvent.start();
+        long sequence;
+        synchronized (lock) {
+            this.alarmStatus = alarmStatus;
+            ByteBuffer record = beginRecord(2);
+            record.put(ALARM_STATUS).put((byte) alarmStatus.ordinal());
+            sequence = endRecord(record);
+        }
+        awaitDurable(sequence);
+        event.finish(this, "setAlarmStatus", 0);
+    }
+
+    @Override
+    public void setArmingStatus(ArmingStatus armingStatus) {
+        RepositoryWriteEvent event = RepositoryWriteEvent.start();
+        long sequence;
+        synchronized (lock) {
+            this.armingStatus = armingStatus;
+            ByteBuffer record = beginRecord(2);
+            record.put(ARMING_STATUS).put((byte) armingStatus.ordinal());
+            sequence = endRecord(record);
+        }
+        awaitDurable(sequence);
+        event.finish(this, "setArmingStatus", 0);
+    }
+
+    /**
+     * @return A copy of the sensors, since the repository may be changed by other threads
+     */
+    @Override
+    public Set<Sensor> getSensors() {
+        synchronized (lock) {
+            return new HashSet<>(sensors.getSensors());
+        }
+    }
+
+    @Override
+    public Sensor getSensor(UUID sensorId) {
+        synchronized (lock) {
+            return sensors.get(sensorId);
+        }
+    }
+
+    @Override
+    public int getActiveSensorCount() {
+        synchronized (lock) {
+            return sensors.getActiveCount();
+        }
+    }
+
+    @Override
+    public AlarmStatus getAlarmStatus() {
+        synchronized (lock) {
+            return alarmStatus;
+        }
+    }
+
+    @Override
+    public ArmingStatus getArmingStatus() {
+        synchronized (lock) {
+            return armingStatus;
+        }
+    }
+
+    /**
+     * Flushes anything still pending, then stops the flusher and compaction threads.
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            flusher.join();
+            compactor.shutdown();
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Appends a full copy of the sensor to the pending batch. Must be called while holding the lock.
+     */
+    private long appendSensor(Sensor sensor) {
+        byte[] name = sensor.getName() == null ? null : sensor.getName().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = beginRecord(1 + Long.BYTES * 2 + 2 + Integer.BYTES + (name == null ? 0 : name.length));
+        record.put(PUT_SENSOR);
+        putUuid(record, sensor.getSensorId());
+        record.put(sensor.getSensorType() == null ? -1 : (byte) sensor.getSensorType().ordinal());
+        record.put(sensor.getActive() == null ? -1 : (byte) (sensor.getActive() ? 1 : 0));
+        record.putInt(name == null ? -1 : name.length);
+        if (name != null) {
+            record.put(name);
+        }
+        return endRecord(record);
+    }
+
+    /**
+     * Reserves room for a record header and payload in the pending batch and returns the batch
+     * positioned at the start of the payload.
+     */
+    private ByteBuffer beginRecord(int payloadBytes) {
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        int required = RECORD_HEADER_BYTES + payloadBytes;
+        if (pending.remaining() < required) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + required));
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+        recordStart = pending.position();
+        pending.position(recordStart + RECORD_HEADER_BYTES);
+        return pending;
+    }
+
+    /**
+     * Fills in the header of the record that was just written and wakes the flusher.
+     * @return The sequence number the caller has to wait for before its write is durable
+     */
+    private long endRecord(ByteBuffer record) {
+        int payloadStart = recordStart + RECORD_HEADER_BYTES;
+        int length = record.position() - payloadStart;
+        crc.reset();
+        crc.update(record.array(), payloadStart, length);
+        record.putInt(recordStart, length);
+        record.putInt(recordStart + Integer.BYTES, (int) crc.getValue());
+        lock.notifyAll();
+        return ++appendedSequence;
+    }
+
+    /**
+     * Waits until the batch holding the given record has been forced to disk. By then the change has
+     * already been applied in memory and queued for the flusher, so an interrupted caller is not told
+     * the write failed: the interrupt flag is restored and the call returns, and the write still
+     * becomes durable with the flusher's next batch unless that batch fails.
+     */
+    private void awaitDurable(long sequence) {
+        synchronized (lock) {
+            while (durableSequence < sequence && failure == null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            if (failure != null) {
+                throw new UncheckedIOException("Journal write failed", failure);
+            }
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            long batchSequence;
+            synchronized (lock) {
+                while (pending.position() == 0 && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException ie) {
+                        return;
+                    }
+                }
+                if (pending.position() == 0) {
+                    break;
+                }
+                ByteBuffer swap = flushing;
+                flushing = pending;
+                pending = swap;
+                pending.clear();
+                batchSequence = appendedSequence;
+            }
+            try {
+                flushing.flip();
+                segmentBytes += flushing.remaining();
+                while (flushing.hasRemaining()) {
+                    journal.write(flushing);
+                }
+                journal.force(false);
+                flushing.clear();
+                synchronized (lock) {
+                    durableSequence = batchSequence;
+                    lock.notifyAll();
+                }
+                if (segmentBytes >= compactionThreshold) {
+                    rollSegment();
+                }
+            } catch (IOException ioe) {
+                synchronized (lock) {
+                    failure = ioe;
+                    lock.notifyAll();
+                }
+                return;
+            }
+        }
+        try {
+            journal.close();
+        } catch (IOException ignored) {
+            //everything has already been forced to disk
+        }
+    }
+
+    /**
+     * Starts a new journal segment and hands a copy of the current state to the compactor. Records
+     * appended after the copy was taken land in the new segment, and since every record overwrites
+     * rather than modifies state, replaying one that the snapshot already contains is harmless.
+     */
+    private void rollSegment() throws IOException {
+        RepositorySnapshot snapshot;
+        synchronized (lock) {
+            snapshot = RepositorySnapshot.copyOf(alarmStatus, armingStatus, sensors.getSensors());
+        }
+        journal.close();
+        long snapshotGeneration = ++generation;
+        journal = openSegment(snapshotGeneration);
+        segmentBytes = 0;
+        compactor.execute(() -> compact(snapshot, snapshotGeneration));
+    }
+
+    private void compact(RepositorySnapshot snapshot, long snapshotGeneration) {
+        Path target = directory.resolve("snapshot-" + snapshotGeneration + "." + codec.getExtension());
+        Path temp = directory.resolve("snapshot-" + snapshotGeneration + "." + TEMP_EXTENSION);
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                codec.write(snapshot, channel);
+                channel.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            deleteOlderThan(snapshotGeneration);
+        } catch (IOException ioe) {
+            //the journal segments are still intact, so the next roll simply tries again
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                //nothing more we can do here
+            }
+        }
+    }
+
+    private void deleteOlderThan(long snapshotGeneration) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                long fileGeneration = generationOf(file, JOURNAL_FILE);
+                if (fileGeneration < 0) {
+                    fileGeneration = generationOf(file, SNAPSHOT_FILE);
+                }
+                if (fileGeneration >= 0 && fileGeneration < snapshotGeneration) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads the newest readable snapshot and replays every journal segment written since.
+     * @return The highest generation number found on disk
+     */
+    private long recover() throws IOException {
+        List<Long> journals = new ArrayList<>();
+        List<Path> snapshots = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                long journalGeneration = generationOf(file, JOURNAL_FILE);
+                if (journalGeneration >= 0) {
+                    journals.add(journalGeneration);
+                }
+                if (generationOf(file, SNAPSHOT_FILE) >= 0) {
+                    snapshots.add(file);
+                }
+            });
+        }
+        journals.sort(null);
+        snapshots.sort(Comparator.comparingLong(file -> generationOf(file, SNAPSHOT_FILE)));
+
+        long base = 0;
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            if (loadSnapshot(snapshots.get(i))) {
+                base = generationOf(snapshots.get(i), SNAPSHOT_FILE);
+                break;
+            }
+        }
+        for (long journalGeneration : journals) {
+            if (journalGeneration >= base) {
+                replay(directory.resolve("journal-" + journalGeneration + ".log"));
+            }
+        }
+        long lastJournal = journals.isEmpty() ? 0 : journals.get(journals.size() - 1);
+        long lastSnapshot = snapshots.isEmpty() ? 0 : generationOf(snapshots.get(snapshots.size() - 1), SNAPSHOT_FILE);
+        return Math.max(lastJournal, lastSnapshot);
+    }
+
+    private boolean loadSnapshot(Path file) {
+        SnapshotCodec reader = codecFor(file);
+        if (reader == null) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            RepositorySnapshot snapshot = reader.read(channel);
+            sensors.clear();
+            snapshot.getSensors().forEach(sensors::put);
+            alarmStatus = snapshot.getAlarmStatus();
+            armingStatus = snapshot.getArmingStatus();
+            return true;
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return The codec that reads the given snapshot file, or null for temporary or unknown files
+     */
+    private SnapshotCodec codecFor(Path file) {
+        Matcher matcher = SNAPSHOT_FILE.matcher(file.getFileName().toString());
+        if (!matcher.matches()) {
+            return null;
+        }
+        String extension = matcher.group(2);
+        if (extension.equals(codec.getExtension())) {
+            return codec;
+        }
+        return switch (extension) {
+            case "snap" -> new BinarySnapshotCodec();
+            case "json" -> new GsonSnapshotCodec();
+            default -> null;
+        };
+    }
+
+    /**
+     * Applies every intact record in the segment. A record that is cut short or fails its checksum
+     * can only be the tail of a write that never completed, so replay of that segment stops there.
+     */
+    private void replay(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        CRC32 checksum = new CRC32();
+        while (buffer.remaining() >= RECORD_HEADER_BYTES) {
+            int length = buffer.getInt();
+            int expected = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                return;
+            }
+            checksum.reset();
+            checksum.update(buffer.array(), buffer.position(), length);
+            if ((int) checksum.getValue() != expected) {
+                return;
+            }
+            ByteBuffer payload = buffer.slice();
+            payload.limit(length);
+            buffer.position(buffer.position() + length);
+            apply(payload);
+        }
+    }
+
+    private void apply(ByteBuffer payload) {
+        switch (payload.get()) {
+            case PUT_SENSOR -> {
+                Sensor sensor = new Sensor();
+                sensor.setSensorId(getUuid(payload));
+                byte type = payload.get();
+                sensor.setSensorType(type < 0 ? null : SensorType.values()[type]);
+                byte active = payload.get();
+                sensor.setActive(active < 0 ? null : active == 1);
+                int nameLength = payload.getInt();
+                if (nameLength >= 0) {
+                    byte[] name = new byte[nameLength];
+                    payload.get(name);
+                    sensor.setName(new String(name, StandardCharsets.UTF_8));
+                }
+                sensors.put(sensor);
+            }
+            case REMOVE_SENSOR -> sensors.remove(getUuid(payload));
+            case ALARM_STATUS -> alarmStatus = AlarmStatus.values()[payload.get()];
+            case ARMING_STATUS -> armingStatus = ArmingStatus.values()[payload.get()];
+            default -> throw new IllegalStateException("Unknown journal record type");
+        }
+    }
+
+    private FileChannel openSegment(long segmentGeneration) throws IOException {
+        return FileChannel.open(directory.resolve("journal-" + segmentGeneration + ".log"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static long generationOf(Path file, Pattern pattern) {
+        Matcher matcher = pattern.matcher(file.getFileName().toString());
+        return matcher.matches() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+
+    private static void putUuid(ByteBuffer buffer, UUID id) {
+        buffer.putLong(id.getMostSignificantBits());
+        buffer.putLong(id.getLeastSignificantBits());
+    }
+
+    private static UUID getUuid(ByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
@@ -0,0 +1,509 @@
+package com.udacity.security.data;
+
+import com.udacity.security.jfr.RepositoryWriteEvent;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repository that keeps its state in memory-mapped files, one fixed-size slot per sensor, so that
+ * changing a sensor or a status is a write of a few bytes in place rather than a rewrite of
+ * everything that is stored.
+ *
+ * The slot file starts with a header holding the statuses and the slot bookkeeping, followed by the
+ * slots. Each slot holds the sensor id as two longs, the type ordinal, a flags byte with the in-use
+ * and active bits, and the offset of the sensor's name in a separate, append-only name file. Since
+ * nothing is encoded, reopening only scans the fixed-size slots to rebuild the id index; names are
+ * decoded and Sensor objects created the first time each sensor is asked for.
+ *
+ * Writes land in the page cache and survive the process dying at any point. They only reach the disk
+ * when the mapping is forced: every forceIntervalMillis if that is positive, on force() and on close().
+ * Renaming a sensor appends its new name, and the old one is never reclaimed.
+ */
+public class MappedSecurityRepositoryImpl implements SecurityRepository, AutoCloseable {
+
+    public static final String SLOT_FILE = "sensors.slots";
+    public static final String NAME_FILE = "sensors.names";
+
+    private static final int MAGIC = 0x4350534D;
+    private static final short VERSION = 1;
+
+    //header layout
+    private static final int HEADER_BYTES = 64;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int ALARM_STATUS_OFFSET = 6;
+    private static final int ARMING_STATUS_OFFSET = 7;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int HIGH_WATER_OFFSET = 12;
+    private static final int NAMES_END_OFFSET = 16;
+
+    //slot layout
+    private static final int SLOT_BYTES = 32;
+    private static final int ID_HIGH = 0;
+    private static final int ID_LOW = 8;
+    private static final int NAME = 16;
+    private static final int TYPE = 20;
+    private static final int FLAGS = 21;
+
+    private static final byte IN_USE = 1;
+    private static final byte ACTIVE = 2;
+    private static final byte ACTIVE_SET = 4; //clear when the sensor's active flag is null
+
+    private static final int INITIAL_SLOTS = 1024;
+    private static final int INITIAL_NAME_BYTES = 16 * 1024;
+
+    private final Object lock = new Object();
+    private final FileChannel slotChannel;
+    private final FileChannel nameChannel;
+    private final ScheduledExecutorService forcer;
+
+    //guarded by lock
+    private MappedByteBuffer slots;
+    private MappedByteBuffer names;
+    private int capacity;
+    private int highWater;
+    private int namesEnd;
+    private final Map<UUID, Integer> index = new HashMap<>();
+    private final BitSet freeSlots = new BitSet();
+    private Sensor[] sensorsBySlot;
+    private String[] namesBySlot; //name as last stored, null if not decoded yet or null
+    private int activeCount;
+    private boolean closed;
+
+    private volatile boolean dirty;
+
+    public MappedSecurityRepositoryImpl(Path directory) {
+        this(directory, 0);
+    }
+
+    /**
+     * Opens the state files in the given directory, creating them if they do not exist yet.
+     * @param directory Directory holding the slot and name files. Created if missing.
+     * @param forceIntervalMillis How often changes are forced to disk, or 0 to force only on
+     *                            force() and close()
+     */
+    public MappedSecurityRepositoryImpl(Path directory, long forceIntervalMillis) {
+        try {
+            Files.createDirectories(directory);
+            slotChannel = FileChannel.open(directory.resolve(SLOT_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            nameChannel = FileChannel.open(directory.resolve(NAME_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (slotChannel.size() == 0) {
+                create();
+            } else {
+                open();
+            }
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to open state files in " + directory, ioe);
+        }
+        if (forceIntervalMillis > 0) {
+            forcer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "mapped-repository-force");
+                t.setDaemon(true);
+                return t;
+            });
+            forcer.scheduleWithFixedDelay(this::forceIfDirty, forceIntervalMillis, forceIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            forcer = null;
+        }
+    }
+
+    private void create() throws IOException {
+        capacity = INITIAL_SLOTS;
+        slots = slotChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) capacity * SLOT_BYTES);
+        names = nameChannel.map(FileChannel.MapMode.READ_WRITE, 0, INITIAL_NAME_BYTES);
+        slots.putShort(VERSION_OFFSET, VERSION);
+        slots.put(ALARM_STATUS_OFFSET, (byte) AlarmStatus.NO_ALARM.ordinal());
+        slots.put(ARMING_STATUS_OFFSET, (byte) ArmingStatus.DISARMED.ordinal());
+        slots.putInt(CAPACITY_OFFSET, capacity);
+        slots.putInt(HIGH_WATER_OFFSET, 0);
+        slots.putInt(NAMES_END_OFFSET, 0);
+        //written last, so a file that was never fully initialized is not mistaken for a valid one
+        slots.putInt(MAGIC_OFFSET, MAGIC);
+        sensorsBySlot = new Sensor[capacity];
+        namesBySlot = new String[capacity];
+    }
+
+    /**
+     * Rebuilds the id index and active count from the slots. Only fixed-size fields are read.
+     */
+    private void open() throws IOException {
+        slots = slotChannel.map(FileChannel.MapMode.READ_WRITE, 0, slotChannel.size());
+        if (slots.capacity() >= HEADER_BYTES && slots.getInt(MAGIC_OFFSET) == 0) {
+            //creation never finished, so there is nothing to recover
+            create();
+            return;
+        }
+        if (slots.capacity() < HEADER_BYTES || slots.getInt(MAGIC_OFFSET) != MAGIC) {
+            throw new IOException("Not a sensor state file");
+        }
+        if (slots.getShort(VERSION_OFFSET) != VERSION) {
+            throw new IOException("Unsupported state file version " + slots.getShort(VERSION_OFFSET));
+        }
+        capacity = slots.getInt(CAPACITY_OFFSET);
+        highWater = slots.getInt(HIGH_WATER_OFFSET);
+        namesEnd = slots.getInt(NAMES_END_OFFSET);
+        if (capacity <= 0 || highWater < 0 || highWater > capacity
+                || slots.capacity() < HEADER_BYTES + (long) capacity * SLOT_BYTES
+                || namesEnd < 0 || namesEnd > nameChannel.size()) {
+            throw new IOException("Corrupt sensor state file header");
+        }
+        names = nameChannel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(nameChannel.size(), INITIAL_NAME_BYTES));
+        sensorsBySlot = new Sensor[capacity];
+        namesBySlot = new String[capacity];
+        for (int slot = 0; slot < highWater; slot++) {
+            int base = slotBase(slot);
+            byte flags = slots.get(base + FLAGS);
+            if ((flags & IN_USE) == 0) {
+                freeSlots.set(slot);
+                continue;
+            }
+            index.put(new UUID(slots.getLong(base + ID_HIGH), slots.getLong(base + ID_LOW)), slot);
+            if ((flags & ACTIVE) != 0) {
+                activeCount++;
+            }
+        }
+    }
+
+    @Override
+    public void addSensor(Sensor sensor) {
+        RepositoryWriteEvent event = RepositoryWriteEvent.start();
+        synchronized (lock) {
+            putSensor(sensor);
+        }
+        event.finish(this, "addSensor", 1);
+    }
+
+    @Override
+    public void removeSensor(Sensor sensor) {
+        RepositoryWriteEvent event = RepositoryWriteEvent.start();
+        synchronized (lock) {
+            checkOpen();
+            Integer slot = index.remove(sensor.getSensorId());
+            if (slot != null) {
+                int base = slotBase(slot);
+                if ((slots.get(base + FLAGS) & ACTIVE) != 0) {
+                    activeCount--;
+                }
+                slots.put(base + FLAGS, (byte) 0);
+                sensorsBySlot[slot] = null;
+                namesBySlot[slot] = null;
+                freeSlots.set(slot);
+                dirty = true;
+            }
+        }
+        event.finish(this, "removeSensor", 1);
+    }
+
+    @Override
+    public void updateSensor(Sensor sensor) {
+        RepositoryWriteEvent event = RepositoryWriteEvent.start();
+        synchronized (lock) {
+            putSensor(sensor);
+        }
+        event.finish(this, "updateSensor", 1);
+    }
+
+    @Override
+    public void updateSensors(Collection<Sensor> updated) {
+        RepositoryWriteEvent event = RepositoryWriteEvent.start();
+        synchronized (lock) {
+            updated.forEach(this::putSensor);
+        }
+        event.finish(this, "updateSensors", updated.size());
+    }
+
+    /**
+     * Writes the sensor into its slot, taking a free one if it is new. For a known sensor whose name
+     * has not changed this only touches the type and flags bytes. The slot keeps a Sensor of its own
+     * with the written fields, so a caller changing the sensor it passed in afterwards does not change
+     * what getSensors returns behind the file's back. Must be called while holding the lock.
+     */
+    private void putSensor(Sensor sensor) {
+        checkOpen();
+        Integer existing = index.get(sensor.getSensorId());
+        int slot;
+        if (existing == null) {
+            slot = allocateSlot();
+            int base = slotBase(slot);
+            slots.putLong(base + ID_HIGH, sensor.getSensorId().getMostSignificantBits());
+            slots.putLong(base + ID_LOW, sensor.getSensorId().getLeastSignificantBits());
+            slots.putInt(base + NAME, appendName(sensor.getName()));
+            namesBySlot[slot] = sensor.getName();
+            index.put(sensor.getSensorId(), slot);
+        } else {
+            slot = existing;
+            if (!Objects.equals(sensor.getName(), storedName(slot))) {
+                slots.putInt(slotBase(slot) + NAME, appendName(sensor.getName()));
+                namesBySlot[slot] = sensor.getName();
+            }
+        }
+        int base = slotBase(slot);
+        byte previous = slots.get(base + FLAGS);
+        byte flags = IN_USE;
+        if (sensor.getActive() != null) {
+            flags |= ACTIVE_SET;
+            if (sensor.getActive()) {
+                flags |= ACTIVE;
+            }
+        }
+        activeCount += ((flags & ACTIVE) != 0 ? 1 : 0) - ((previous & ACTIVE) != 0 ? 1 : 0);
+        slots.put(base + TYPE, sensor.getSensorType() == null ? -1 : (byte) sensor.getSensorType().ordinal());
+        //the in-use bit goes in last, so a slot only counts once the rest of it is written
+        slots.put(base + FLAGS, flags);
+        Sensor stored = sensorsBySlot[slot];
+        if (stored == null) {
+            stored = new Sensor();
+            stored.setSensorId(sensor.getSensorId());
+            sensorsBySlot[slot] = stored;
+        }
+        if (stored != sensor) {
+            stored.setName(sensor.getName());
+            stored.setSensorType(sensor.getSensorType());
+            stored.setActive(sensor.getActive());
+        }
+        if (slot == highWater) {
+            highWater++;
+            slots.putInt(HIGH_WATER_OFFSET, highWater);
+        }
+        dirty = true;
+    }
+
+    private int allocateSlot() {
+        int slot = freeSlots.nextSetBit(0);
+        if (slot >= 0) {
+            freeSlots.clear(slot);
+            return slot;
+        }
+        if (highWater == capacity) {
+            growSlots();
+        }
+        return highWater;
+    }
+
+    private void growSlots() {
+        int grown = Math.multiplyExact(capacity, 2);
+        try {
+            slots = slotChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) grown * SLOT_BYTES);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to grow sensor state file", ioe);
+        }
+        capacity = grown;
+        slots.putInt(CAPACITY_OFFSET, capacity);
+        sensorsBySlot = Arrays.copyOf(sensorsBySlot, capacity);
+        namesBySlot = Arrays.copyOf(namesBySlot, capacity);
+    }
+
+    /**
+     * Appends a length-prefixed UTF-8 name to the name file.
+     * @return Offset of the name, or -1 for a null name
+     */
+    private int appendName(String name) {
+        if (name == null) {
+            return -1;
+        }
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int required = namesEnd + Integer.BYTES + bytes.length;
+        if (required < 0) {
+            throw new IllegalStateException("Sensor name file is full");
+        }
+        if (required > names.capacity()) {
+            long grown = Math.min(Integer.MAX_VALUE, Math.max((long) names.capacity() * 2, required));
+            try {
+                names = nameChannel.map(FileChannel.MapMode.READ_WRITE, 0, grown);
+            } catch (IOException ioe) {
+                throw new UncheckedIOException("Unable to grow sensor name file", ioe);
+            }
+        }
+        int offset = namesEnd;
+        names.putInt(offset, bytes.length);
+        names.put(offset + Integer.BYTES, bytes);
+        namesEnd = required;
+        slots.putInt(NAMES_END_OFFSET, namesEnd);
+        return offset;
+    }
+
+    private String storedName(int slot) {
+        if (namesBySlot[slot] == null) {
+            namesBySlot[slot] = readName(slots.getInt(slotBase(slot) + NAME));
+        }
+        return namesBySlot[slot];
+    }
+
+    private String readName(int offset) {
+        if (offset < 0) {
+            return null;
+        }
+        int length = names.getInt(offset);
+        if (length < 0 || offset + Integer.BYTES + length > namesEnd) {
+            throw new IllegalStateException("Corrupt sensor name at offset " + offset);
+        }
+        byte[] bytes = new byte[length];
+        names.get(offset + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return The sensor in the slot, creating it from the stored fields the first time it is needed
+     */
+    private Sensor sensorAt(int slot) {
+        Sensor sensor = sensorsBySlot[slot];
+        if (sensor == null) {
+            int base = slotBase(slot);
+            sensor = new Sensor();
+            sensor.setSensorId(new UUID(slots.getLong(base + ID_HIGH), slots.getLong(base + ID_LOW)));
+            sensor.setName(storedName(slot));
+            byte type = slots.get(base + TYPE);
+            sensor.setSensorType(type < 0 || type >= SensorType.values().length ? null : SensorType.values()[type]);
+            byte flags = slots.get(base + FLAGS);
+            sensor.setActive((flags & ACTIVE_SET) == 0 ? null : (flags & ACTIVE) != 0);
+            sensorsBySlot[slot] = sensor;
+        }
+        return sensor;
+    }
+
+    @Override
+    public void setAlarmStatus(AlarmStatus alarmStatus) {
+        RepositoryWriteEvent event = RepositoryWriteEvent.start();
+        synchronized (lock) {
+            checkOpen();
+            slots.put(ALARM_STATUS_OFFSET, (byte) alarmStatus.ordinal());
+            dirty = true;
+        }
+        event.finish(this, "setAlarmStatus", 0);
+    }
+
+    @Override
+    public void setArmingStatus(ArmingStatus armingStatus) {
+        RepositoryWriteEvent event = RepositoryWriteEvent.start();
+        synchronized (lock) {
+            checkOpen();
+            slots.put(ARMING_STATUS_OFFSET, (byte) armingStatus.ordinal());
+            dirty = true;
+        }
+        event.finish(this, "setArmingStatus", 0);
+    }
+
+    /**
+     * @return A copy of the sensors, since the repository may be changed by other threads
+     */
+    @Override
+    public Set<Sensor> getSensors() {
+        synchronized (lock) {
+            Set<Sensor> copy = new HashSet<>(index.size() * 2);
+            for (int slot : index.values()) {
+                copy.add(sensorAt(slot));
+            }
+            return copy;
+        }
+    }
+
+    @Override
+    public Sensor getSensor(UUID sensorId) {
+        synchronized (lock) {
+            Integer slot = index.get(sensorId);
+            return slot == null ? null : sensorAt(slot);
+        }
+    }
+
+    @Override
+    public int getActiveSensorCount() {
+        synchronized (lock) {
+            return activeCount;
+        }
+    }
+
+    @Override
+    public AlarmStatus getAlarmStatus() {
+        synchronized (lock) {
+            return AlarmStatus.values()[slots.get(ALARM_STATUS_OFFSET)];
+        }
+    }
+
+    @Override
+    public ArmingStatus getArmingStatus() {
+        synchronized (lock) {
+            return ArmingStatus.values()[slots.get(ARMING_STATUS_OFFSET)];
+        }
+    }
+
+    /**
+     * Writes every change made so far to disk.
+     */
+    public void force() {
+        MappedByteBuffer forcedSlots;
+        MappedByteBuffer forcedNames;
+        synchronized (lock) {
+            dirty = false;
+            forcedSlots = slots;
+            forcedNames = names;
+        }
+        //names first, so a slot on disk never points past the names that made it there
+        forcedNames.force();
+        forcedSlots.force();
+    }
+
+    private void forceIfDirty() {
+        if (dirty) {
+            force();
+        }
+    }
+
+    /**
+     * Forces all changes to disk and closes the files. The repository cannot be used afterwards.
+     */
+    @Override
+    public void close() {
+        if (forcer != null) {
+            forcer.shutdown();
+            try {
+                forcer.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            force();
+            closed = true;
+            try {
+                slotChannel.close();
+                nameChannel.close();
+            } catch (IOException ignored) {
+                //everything has already been forced to disk
+            }
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Repository is closed");
+        }
+    }
+
+    private static int slotBase(int slot) {
+        return HEADER_BYTES + slot * SLOT_BYTES;
+    }
+}
@@ -0,0 +1,124 @@
+package com.udacity.security.data;
+
+import com.udacity.security.jfr.RepositoryWriteEvent;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * In-memory repository for very large numbers of sensors, backed by an OffHeapSensorStore. Nothing
+ * is persisted. Sensors returned by this repository are views of the store, so changing one changes
+ * the stored sensor directly; updateSensor is still required for sensors that came from elsewhere.
+ *
+ * Not thread-safe.
+ */
+public class OffHeapSecurityRepositoryImpl implements SecurityRepository {
+
+    private final OffHeapSensorStore sensors;
+    private AlarmStatus alarmStatus = AlarmStatus.NO_ALARM;
+    private ArmingStatus armingStatus = ArmingStatus.DISARMED;
+
+    public OffHeapSecurityRepositoryImpl() {
+        this(OffHeapSensorStore.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedSensors Number of sensors to allocate room for up front
+     */
+    public OffHeapSecurityRepositoryImpl(int expectedSensors) {
+        this.sensors = new OffHeapSensorStore(expectedSensors);
+    }
+
+    @Override
+    public void addSensor(Sensor sensor) {
+        RepositoryWriteEvent event = RepositoryWriteEvent.start();
+        sensors.put(sensor);
+        event.finish(this, "addSensor", 1);
+    }
+
+    @Override
+    public void removeSensor(Sensor sensor) {
+        RepositoryWriteEvent event = RepositoryWriteEvent.start();
+        sensors.remove(sensor.getSensorId());
+        event.finish(this, "removeSensor", 1);
+    }
+
+    @Override
+    public void updateSensor(Sensor sensor) {
+        RepositoryWriteEvent event = RepositoryWriteEvent.start();
+        sensors.put(sensor);
+        event.finish(this, "updateSensor", 1);
+    }
+
+    /**
+     * Marks every sensor inactive by clearing whole words of the active bitset. The counts per type
+     * are taken from the bitsets first, one popcount per word and type.
+     */
+    @Override
+    public Map<SensorType, Integer> deactivateAllSensors() {
+        RepositoryWriteEvent event = RepositoryWriteEvent.start();
+        Map<SensorType, Integer> deactivated = new HashMap<>();
+        int typed = 0;
+        for (SensorType type : SensorType.values()) {
+            int count = sensors.getActiveCount(type);
+            if (count > 0) {
+                deactivated.put(type, count);
+                typed += count;
+            }
+        }
+        int total = sensors.deactivateAll();
+        if (total > typed) {
+            deactivated.put(null, total - typed);
+        }
+        event.finish(this, "deactivateAllSensors", total);
+        return deactivated;
+    }
+
+    @Override
+    public void setAlarmStatus(AlarmStatus alarmStatus) {
+        RepositoryWriteEvent event = RepositoryWriteEvent.start();
+        this.alarmStatus = alarmStatus;
+        event.finish(this, "setAlarmStatus", 0);
+    }
+
+    @Override
+    public void setArmingStatus(ArmingStatus armingStatus) {
+        RepositoryWriteEvent event = RepositoryWriteEvent.start();
+        this.armingStatus = armingStatus;
+        event.finish(this, "setArmingStatus", 0);
+    }
+
+    @Override
+    public Set<Sensor> getSensors() {
+        return sensors.getSensors();
+    }
+
+    @Override
+    public Sensor getSensor(UUID sensorId) {
+        return sensors.get(sensorId);
+    }
+
+    @Override
+    public int getActiveSensorCount() {
+        return sensors.getActiveCount();
+    }
+
+    /**
+     * @return Number of active sensors of the given type
+     */
+    public int getActiveSensorCount(SensorType type) {
+        return sensors.getActiveCount(type);
+    }
+
+    @Override
+    public AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    @Override
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+}
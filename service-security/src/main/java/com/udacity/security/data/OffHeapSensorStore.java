@@ -0,0 +1,509 @@
+package com.udacity.security.data;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Sensor storage for very large installations, kept as columns in direct buffers instead of one heap
+ * object per sensor. Every sensor occupies a slot, and each column holds one field for all slots:
+ * <ul>
+ *     <li>ids as two longs per slot</li>
+ *     <li>type ordinals as one byte per slot</li>
+ *     <li>names as an index into a table of interned strings, so sensors with the same name share it</li>
+ *     <li>active flags, slot occupancy and membership of each type as bitsets, 64 slots per word</li>
+ * </ul>
+ * Sensors are found through an open-addressing hash table of slot numbers keyed by id. Active counts,
+ * per type or in total, are bit counts over whole words, and deactivating every sensor clears whole
+ * words. About 35 bytes of direct memory per sensor are needed, and nothing per sensor on the heap.
+ *
+ * Sensors are handed out as flyweight views that read and write the columns directly, so changing a
+ * view changes the store. Views are created on demand and are not canonical: two lookups of the same
+ * sensor return equal but different objects. A view of a sensor that has since been removed throws
+ * IllegalStateException. Sensor names are never removed from the name table.
+ *
+ * Not thread-safe.
+ */
+public class OffHeapSensorStore {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final int NO_NAME = -1;
+    private static final byte NO_TYPE = -1;
+    private static final SensorType[] TYPES = SensorType.values();
+
+    private int capacity;
+    private int highWater; //every slot at or above this has never been used
+    private int size;
+    private int freeHint; //no slot below this word is free
+
+    //columns, indexed by slot
+    private LongBuffer ids;
+    private ByteBuffer types;
+    private IntBuffer nameColumn;
+    private IntBuffer generations;
+
+    //bitsets, one bit per slot
+    private LongBuffer live;
+    private LongBuffer active;
+    private final LongBuffer[] typeBits = new LongBuffer[TYPES.length];
+
+    //open-addressing index of slot + 1 by id, 0 marks an empty entry
+    private IntBuffer index;
+    private int indexMask;
+
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> internedNames = new HashMap<>();
+
+    private final Set<Sensor> sensorView = new SensorSet();
+
+    public OffHeapSensorStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param initialCapacity Number of sensors to allocate room for up front. The store grows as needed.
+     */
+    public OffHeapSensorStore(int initialCapacity) {
+        allocate(roundToWords(Math.max(initialCapacity, Long.SIZE)));
+    }
+
+    /**
+     * Stores the sensor's current state, adding it if its id is not known yet.
+     * @return A view of the stored sensor
+     */
+    public Sensor put(Sensor sensor) {
+        if (sensor instanceof SensorView && ((SensorView) sensor).store() == this) {
+            //a view of this store already writes straight into the columns
+            ((SensorView) sensor).checkLive();
+            return sensor;
+        }
+        UUID id = sensor.getSensorId();
+        long high = id.getMostSignificantBits();
+        long low = id.getLeastSignificantBits();
+        int slot = find(high, low);
+        if (slot < 0) {
+            slot = allocateSlot();
+            ids.put(slot * 2, high);
+            ids.put(slot * 2 + 1, low);
+            setBit(live, slot, true);
+            addToIndex(slot);
+            size++;
+        }
+        writeType(slot, sensor.getSensorType());
+        nameColumn.put(slot, intern(sensor.getName()));
+        setBit(active, slot, Boolean.TRUE.equals(sensor.getActive()));
+        return new SensorView(slot, generations.get(slot));
+    }
+
+    /**
+     * @return True if the sensor was stored
+     */
+    public boolean remove(UUID sensorId) {
+        int position = findPosition(sensorId.getMostSignificantBits(), sensorId.getLeastSignificantBits());
+        if (position < 0) {
+            return false;
+        }
+        int slot = index.get(position) - 1;
+        removeFromIndex(position);
+        writeType(slot, null);
+        setBit(active, slot, false);
+        setBit(live, slot, false);
+        nameColumn.put(slot, NO_NAME);
+        generations.put(slot, generations.get(slot) + 1);
+        freeHint = Math.min(freeHint, slot >>> 6);
+        size--;
+        return true;
+    }
+
+    /**
+     * @return A view of the sensor, or null if it is not stored
+     */
+    public Sensor get(UUID sensorId) {
+        int slot = find(sensorId.getMostSignificantBits(), sensorId.getLeastSignificantBits());
+        return slot < 0 ? null : new SensorView(slot, generations.get(slot));
+    }
+
+    /**
+     * @return Read-only live view of every stored sensor, creating a flyweight per sensor as it is iterated
+     */
+    public Set<Sensor> getSensors() {
+        return sensorView;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getActiveCount() {
+        int count = 0;
+        for (int word = 0, words = usedWords(); word < words; word++) {
+            count += Long.bitCount(active.get(word));
+        }
+        return count;
+    }
+
+    public int getActiveCount(SensorType type) {
+        LongBuffer ofType = typeBits[type.ordinal()];
+        int count = 0;
+        for (int word = 0, words = usedWords(); word < words; word++) {
+            count += Long.bitCount(active.get(word) & ofType.get(word));
+        }
+        return count;
+    }
+
+    /**
+     * Marks every sensor inactive.
+     * @return Number of sensors that were active
+     */
+    public int deactivateAll() {
+        int count = 0;
+        for (int word = 0, words = usedWords(); word < words; word++) {
+            count += Long.bitCount(active.get(word));
+            active.put(word, 0L);
+        }
+        return count;
+    }
+
+    public void clear() {
+        allocate(capacity);
+        names.clear();
+        internedNames.clear();
+    }
+
+    private void allocate(int slots) {
+        capacity = slots;
+        highWater = 0;
+        size = 0;
+        freeHint = 0;
+        ids = longs(slots * 2);
+        types = bytes(slots);
+        nameColumn = ints(slots);
+        generations = ints(slots);
+        live = longs(slots / Long.SIZE);
+        active = longs(slots / Long.SIZE);
+        for (int t = 0; t < TYPES.length; t++) {
+            typeBits[t] = longs(slots / Long.SIZE);
+        }
+        index = ints(indexSizeFor(slots));
+        indexMask = index.capacity() - 1;
+    }
+
+    /**
+     * Doubles every column and rebuilds the index at its new size.
+     */
+    private void grow() {
+        int grown = Math.multiplyExact(capacity, 2);
+        ids = copy(ids, longs(grown * 2));
+        types = copy(types, bytes(grown));
+        nameColumn = copy(nameColumn, ints(grown));
+        generations = copy(generations, ints(grown));
+        live = copy(live, longs(grown / Long.SIZE));
+        active = copy(active, longs(grown / Long.SIZE));
+        for (int t = 0; t < TYPES.length; t++) {
+            typeBits[t] = copy(typeBits[t], longs(grown / Long.SIZE));
+        }
+        capacity = grown;
+        index = ints(indexSizeFor(grown));
+        indexMask = index.capacity() - 1;
+        for (int slot = 0; slot < highWater; slot++) {
+            if (getBit(live, slot)) {
+                addToIndex(slot);
+            }
+        }
+    }
+
+    private int allocateSlot() {
+        if (size < highWater) {
+            for (int word = freeHint, words = usedWords(); word < words; word++) {
+                long free = ~live.get(word);
+                if (free != 0) {
+                    int slot = (word << 6) + Long.numberOfTrailingZeros(free);
+                    if (slot < highWater) {
+                        freeHint = word;
+                        return slot;
+                    }
+                }
+            }
+        }
+        if (highWater == capacity) {
+            grow();
+        }
+        return highWater++;
+    }
+
+    private void writeType(int slot, SensorType type) {
+        byte previous = types.get(slot);
+        if (previous != NO_TYPE && getBit(live, slot)) {
+            setBit(typeBits[previous], slot, false);
+        }
+        types.put(slot, type == null ? NO_TYPE : (byte) type.ordinal());
+        if (type != null) {
+            setBit(typeBits[type.ordinal()], slot, true);
+        }
+    }
+
+    private int intern(String name) {
+        if (name == null) {
+            return NO_NAME;
+        }
+        Integer id = internedNames.get(name);
+        if (id == null) {
+            id = names.size();
+            names.add(name);
+            internedNames.put(name, id);
+        }
+        return id;
+    }
+
+    private int usedWords() {
+        return (highWater + Long.SIZE - 1) >>> 6;
+    }
+
+    //index
+
+    private int find(long high, long low) {
+        int position = findPosition(high, low);
+        return position < 0 ? -1 : index.get(position) - 1;
+    }
+
+    private int findPosition(long high, long low) {
+        for (int position = hash(high, low) & indexMask; ; position = (position + 1) & indexMask) {
+            int entry = index.get(position);
+            if (entry == 0) {
+                return -1;
+            }
+            int slot = entry - 1;
+            if (ids.get(slot * 2) == high && ids.get(slot * 2 + 1) == low) {
+                return position;
+            }
+        }
+    }
+
+    private void addToIndex(int slot) {
+        int position = hashOf(slot) & indexMask;
+        while (index.get(position) != 0) {
+            position = (position + 1) & indexMask;
+        }
+        index.put(position, slot + 1);
+    }
+
+    /**
+     * Empties the entry and moves later entries of the same probe run back into the gap, so lookups
+     * never need tombstones.
+     */
+    private void removeFromIndex(int position) {
+        int gap = position;
+        index.put(gap, 0);
+        for (int next = (gap + 1) & indexMask; ; next = (next + 1) & indexMask) {
+            int entry = index.get(next);
+            if (entry == 0) {
+                return;
+            }
+            int home = hashOf(entry - 1) & indexMask;
+            //the entry can fill the gap unless its home lies cyclically after the gap, up to itself
+            boolean staysPut = gap <= next ? gap < home && home <= next : gap < home || home <= next;
+            if (!staysPut) {
+                index.put(gap, entry);
+                index.put(next, 0);
+                gap = next;
+            }
+        }
+    }
+
+    private int hashOf(int slot) {
+        return hash(ids.get(slot * 2), ids.get(slot * 2 + 1));
+    }
+
+    private static int hash(long high, long low) {
+        long h = (high ^ low) * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32);
+    }
+
+    private static int indexSizeFor(int slots) {
+        //keeps the load factor at or below one half
+        return Integer.highestOneBit(slots * 2 - 1) << 1;
+    }
+
+    //buffers
+
+    private static boolean getBit(LongBuffer bits, int slot) {
+        return (bits.get(slot >>> 6) & (1L << slot)) != 0;
+    }
+
+    private static void setBit(LongBuffer bits, int slot, boolean value) {
+        int word = slot >>> 6;
+        long mask = 1L << slot;
+        bits.put(word, value ? bits.get(word) | mask : bits.get(word) & ~mask);
+    }
+
+    private static int roundToWords(int slots) {
+        return (slots + Long.SIZE - 1) & -Long.SIZE;
+    }
+
+    private static ByteBuffer bytes(int count) {
+        return ByteBuffer.allocateDirect(count).order(ByteOrder.nativeOrder());
+    }
+
+    private static IntBuffer ints(int count) {
+        return bytes(count * Integer.BYTES).asIntBuffer();
+    }
+
+    private static LongBuffer longs(int count) {
+        return bytes(count * Long.BYTES).asLongBuffer();
+    }
+
+    private static ByteBuffer copy(ByteBuffer from, ByteBuffer to) {
+        to.put(from.rewind()).clear();
+        return to;
+    }
+
+    private static IntBuffer copy(IntBuffer from, IntBuffer to) {
+        to.put(from.rewind()).clear();
+        return to;
+    }
+
+    private static LongBuffer copy(LongBuffer from, LongBuffer to) {
+        to.put(from.rewind()).clear();
+        return to;
+    }
+
+    /**
+     * Flyweight over one slot. Reads and writes go straight to the columns; only the slot number and
+     * the generation it was created for are kept on the heap.
+     */
+    private final class SensorView extends Sensor {
+        private final int slot;
+        private final int generation;
+
+        SensorView(int slot, int generation) {
+            this.slot = slot;
+            this.generation = generation;
+        }
+
+        OffHeapSensorStore store() {
+            return OffHeapSensorStore.this;
+        }
+
+        void checkLive() {
+            if (generations.get(slot) != generation) {
+                throw new IllegalStateException("Sensor has been removed from the store");
+            }
+        }
+
+        @Override
+        public UUID getSensorId() {
+            checkLive();
+            return new UUID(ids.get(slot * 2), ids.get(slot * 2 + 1));
+        }
+
+        @Override
+        public void setSensorId(UUID sensorId) {
+            throw new UnsupportedOperationException("The id of a stored sensor cannot change");
+        }
+
+        @Override
+        public String getName() {
+            checkLive();
+            int name = nameColumn.get(slot);
+            return name == NO_NAME ? null : names.get(name);
+        }
+
+        @Override
+        public void setName(String name) {
+            checkLive();
+            nameColumn.put(slot, intern(name));
+        }
+
+        @Override
+        public Boolean getActive() {
+            checkLive();
+            return getBit(active, slot);
+        }
+
+        @Override
+        public void setActive(Boolean isActive) {
+            checkLive();
+            setBit(active, slot, Boolean.TRUE.equals(isActive));
+        }
+
+        @Override
+        public SensorType getSensorType() {
+            checkLive();
+            byte type = types.get(slot);
+            return type == NO_TYPE ? null : TYPES[type];
+        }
+
+        @Override
+        public void setSensorType(SensorType sensorType) {
+            checkLive();
+            writeType(slot, sensorType);
+        }
+    }
+
+    /**
+     * Set view over the occupied slots, so contains() is an index lookup rather than a scan.
+     */
+    private class SensorSet extends AbstractSet<Sensor> {
+        @Override
+        public Iterator<Sensor> iterator() {
+            return new Iterator<>() {
+                private int next = nextLive(0);
+
+                @Override
+                public boolean hasNext() {
+                    return next < highWater;
+                }
+
+                @Override
+                public Sensor next() {
+                    if (next >= highWater) {
+                        throw new NoSuchElementException();
+                    }
+                    Sensor sensor = new SensorView(next, generations.get(next));
+                    next = nextLive(next + 1);
+                    return sensor;
+                }
+            };
+        }
+
+        private int nextLive(int from) {
+            if (from >= highWater) {
+                return highWater;
+            }
+            int word = from >>> 6;
+            long bits = live.get(word) & (-1L << from);
+            while (bits == 0) {
+                if (++word >= usedWords()) {
+                    return highWater;
+                }
+                bits = live.get(word);
+            }
+            return (word << 6) + Long.numberOfTrailingZeros(bits);
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Sensor)) {
+                return false;
+            }
+            UUID id = ((Sensor) o).getSensorId();
+            return find(id.getMostSignificantBits(), id.getLeastSignificantBits()) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -2,82 +2,176 @@ package com.udacity.security.data;
 
 import com.google.common.reflect.TypeToken;
 import com.google.gson.Gson;
+import com.udacity.security.jfr.RepositoryWriteEvent;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.UUID;
 import java.util.prefs.Preferences;
 
 /**
  * Fake repository implementation for demo purposes. Stores state information in local
  * memory and writes it to user preferences between app loads. This implementation is
  * intentionally a little hard to use in unit tests, so watch out!
+ *
+ * Sensors are stored as a single snapshot written by a SnapshotCodec, BinarySnapshotCodec unless
+ * another one is given. The snapshot always lives under the same key and its format is recognised
+ * by the binary codec's magic number, so a snapshot written with the other built-in codec is still
+ * loaded. Sensors saved as a plain JSON set by earlier versions are loaded too. Either way they are
+ * rewritten in the configured codec's format on the next sensor change.
  */
 public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository{
 
-    private Set<Sensor> sensors;
+    private final SensorRegistry sensors = new SensorRegistry();
     private AlarmStatus alarmStatus;
     private ArmingStatus armingStatus;
 
+    private final SnapshotCodec codec;
+
     //preference keys
-    private static final String SENSORS = "SENSORS";
+    private static final String SENSORS = "SENSORS"; //legacy JSON set, only read
+    private static final String SNAPSHOT = "SNAPSHOT";
+    //snapshots kept under one key per codec extension by earlier versions, only read
+    private static final List<String> CODEC_SNAPSHOTS = List.of("SNAPSHOT.snap", "SNAPSHOT.json");
     private static final String ALARM_STATUS = "ALARM_STATUS";
     private static final String ARMING_STATUS = "ARMING_STATUS";
 
     private static final Preferences prefs = Preferences.userNodeForPackage(PretendDatabaseSecurityRepositoryImpl.class);
-    private static final Gson gson = new Gson(); //used to serialize objects into JSON
+    private static final Gson gson = new Gson(); //used to read legacy sensor sets
+    private static final Type SENSOR_SET_TYPE = new TypeToken<Set<Sensor>>() {
+    }.getType();
 
     public PretendDatabaseSecurityRepositoryImpl() {
+        this(new BinarySnapshotCodec());
+    }
+
+    /**
+     * @param codec Format the sensors are stored in
+     */
+    public PretendDatabaseSecurityRepositoryImpl(SnapshotCodec codec) {
+        this.codec = codec;
+
         //load system state from prefs, or else default
         alarmStatus = AlarmStatus.valueOf(prefs.get(ALARM_STATUS, AlarmStatus.NO_ALARM.toString()));
         armingStatus = ArmingStatus.valueOf(prefs.get(ARMING_STATUS, ArmingStatus.DISARMED.toString()));
 
         //we've serialized our sensor objects for storage, which should be a good warning sign that
         // this is likely an impractical solution for a real system
+        byte[] snapshot = prefs.getByteArray(SNAPSHOT, null);
+        for(int i = 0; snapshot == null && i < CODEC_SNAPSHOTS.size(); i++) {
+            snapshot = prefs.getByteArray(CODEC_SNAPSHOTS.get(i), null);
+        }
         String sensorString = prefs.get(SENSORS, null);
-        if(sensorString == null) {
-            sensors = new TreeSet<>();
-        } else {
-            Type type = new TypeToken<Set<Sensor>>() {
-            }.getType();
-            sensors = gson.fromJson(sensorString, type);
+        if(snapshot != null) {
+            try {
+                codecFor(snapshot).read(Channels.newChannel(new ByteArrayInputStream(snapshot))).getSensors().forEach(sensors::put);
+            } catch (IOException ioe) {
+                throw new UncheckedIOException("Unable to load stored sensors", ioe);
+            }
+        } else if(sensorString != null) {
+            Set<Sensor> stored = gson.fromJson(sensorString, SENSOR_SET_TYPE);
+            stored.forEach(sensors::put);
         }
     }
 
+    /**
+     * @return The codec that wrote the snapshot: the binary codec if it starts with its magic number,
+     * otherwise the configured codec, or the JSON codec if the binary one is configured
+     */
+    private SnapshotCodec codecFor(byte[] snapshot) {
+        boolean binary = snapshot.length >= Integer.BYTES && ByteBuffer.wrap(snapshot).getInt() == BinarySnapshotCodec.MAGIC;
+        if(binary) {
+            return codec instanceof BinarySnapshotCodec ? codec : new BinarySnapshotCodec();
+        }
+        return codec instanceof BinarySnapshotCodec ? new GsonSnapshotCodec() : codec;
+    }
+
     @Override
     public void addSensor(Sensor sensor) {
-        sensors.add(sensor);
-        prefs.put(SENSORS, gson.toJson(sensors));
+        RepositoryWriteEvent event = RepositoryWriteEvent.start();
+        sensors.put(sensor);
+        saveSensors();
+        event.finish(this, "addSensor", 1);
     }
 
     @Override
     public void removeSensor(Sensor sensor) {
-        sensors.remove(sensor);
-        prefs.put(SENSORS, gson.toJson(sensors));
+        RepositoryWriteEvent event = RepositoryWriteEvent.start();
+        sensors.remove(sensor.getSensorId());
+        saveSensors();
+        event.finish(this, "removeSensor", 1);
     }
 
     @Override
     public void updateSensor(Sensor sensor) {
-        sensors.remove(sensor);
-        sensors.add(sensor);
-        prefs.put(SENSORS, gson.toJson(sensors));
+        RepositoryWriteEvent event = RepositoryWriteEvent.start();
+        sensors.put(sensor);
+        saveSensors();
+        event.finish(this, "updateSensor", 1);
+    }
+
+    @Override
+    public void updateSensors(Collection<Sensor> updated) {
+        RepositoryWriteEvent event = RepositoryWriteEvent.start();
+        updated.forEach(sensors::put);
+        saveSensors();
+        event.finish(this, "updateSensors", updated.size());
+    }
+
+    /**
+     * Stores the sensors as one snapshot. The statuses in it are ignored on load; they have their
+     * own keys so that a status change does not have to rewrite every sensor.
+     */
+    private void saveSensors() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            codec.write(new RepositorySnapshot(alarmStatus, armingStatus, List.copyOf(sensors.getSensors())),
+                    Channels.newChannel(bytes));
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to store sensors", ioe);
+        }
+        prefs.putByteArray(SNAPSHOT, bytes.toByteArray());
+        prefs.remove(SENSORS);
+        CODEC_SNAPSHOTS.forEach(prefs::remove);
     }
 
     @Override
     public void setAlarmStatus(AlarmStatus alarmStatus) {
+        RepositoryWriteEvent event = RepositoryWriteEvent.start();
         this.alarmStatus = alarmStatus;
         prefs.put(ALARM_STATUS, this.alarmStatus.toString());
+        event.finish(this, "setAlarmStatus", 0);
     }
 
     @Override
     public void setArmingStatus(ArmingStatus armingStatus) {
+        RepositoryWriteEvent event = RepositoryWriteEvent.start();
         this.armingStatus = armingStatus;
         prefs.put(ARMING_STATUS, this.armingStatus.toString());
+        event.finish(this, "setArmingStatus", 0);
     }
 
     @Override
     public Set<Sensor> getSensors() {
-        return sensors;
+        return sensors.getSensors();
+    }
+
+    @Override
+    public Sensor getSensor(UUID sensorId) {
+        return sensors.get(sensorId);
+    }
+
+    @Override
+    public int getActiveSensorCount() {
+        return sensors.getActiveCount();
     }
 
     @Override
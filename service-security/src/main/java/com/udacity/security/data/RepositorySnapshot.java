@@ -0,0 +1,50 @@
+package com.udacity.security.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Full copy of a repository's state: the system statuses and every sensor. Written and read by a
+ * SnapshotCodec. The sensors are copies, so a snapshot taken while the repository keeps changing
+ * stays consistent.
+ */
+public class RepositorySnapshot {
+    private AlarmStatus alarmStatus;
+    private ArmingStatus armingStatus;
+    private List<Sensor> sensors;
+
+    public RepositorySnapshot(AlarmStatus alarmStatus, ArmingStatus armingStatus, List<Sensor> sensors) {
+        this.alarmStatus = alarmStatus;
+        this.armingStatus = armingStatus;
+        this.sensors = sensors;
+    }
+
+    /**
+     * Takes a snapshot, copying every sensor so later changes to the live objects do not show up in it.
+     */
+    public static RepositorySnapshot copyOf(AlarmStatus alarmStatus, ArmingStatus armingStatus, Iterable<Sensor> liveSensors) {
+        List<Sensor> copies = new ArrayList<>();
+        liveSensors.forEach(s -> {
+            Sensor copy = new Sensor();
+            copy.setSensorId(s.getSensorId());
+            copy.setName(s.getName());
+            copy.setSensorType(s.getSensorType());
+            copy.setActive(s.getActive());
+            copies.add(copy);
+        });
+        return new RepositorySnapshot(alarmStatus, armingStatus, copies);
+    }
+
+    public AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    public List<Sensor> getSensors() {
+        return sensors == null ? Collections.emptyList() : sensors;
+    }
+}
@@ -1,6 +1,12 @@
 package com.udacity.security.data;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 
 /**
  * Interface showing the methods our security repository will need to support
@@ -9,11 +15,55 @@ public interface SecurityRepository {
     void addSensor(Sensor sensor);
     void removeSensor(Sensor sensor);
     void updateSensor(Sensor sensor);
+
+    /**
+     * Persists several updated sensors at once. Implementations should override this when they
+     * can write the whole batch for less than the cost of one updateSensor call per sensor.
+     * @param sensors The sensors to update
+     */
+    default void updateSensors(Collection<Sensor> sensors) {
+        sensors.forEach(this::updateSensor);
+    }
+
+    /**
+     * Marks every sensor inactive and persists the change, as arming the system does. Implementations
+     * should override this when they can reset all sensors for less than one write per active sensor.
+     * @return Number of sensors that were active by type, with sensors without a type under null
+     */
+    default Map<SensorType, Integer> deactivateAllSensors() {
+        Map<SensorType, Integer> deactivated = new HashMap<>();
+        List<Sensor> changed = new ArrayList<>();
+        for (Sensor sensor : getSensors()) {
+            if (Boolean.TRUE.equals(sensor.getActive())) {
+                sensor.setActive(false);
+                changed.add(sensor);
+                deactivated.merge(sensor.getSensorType(), 1, Integer::sum);
+            }
+        }
+        if (!changed.isEmpty()) {
+            updateSensors(changed);
+        }
+        return deactivated;
+    }
+
     void setAlarmStatus(AlarmStatus alarmStatus);
     void setArmingStatus(ArmingStatus armingStatus);
     Set<Sensor> getSensors();
     AlarmStatus getAlarmStatus();
     ArmingStatus getArmingStatus();
 
+    /**
+     * @return The sensor with the given id, or null if there is none
+     */
+    default Sensor getSensor(UUID sensorId) {
+        return getSensors().stream().filter(s -> s.getSensorId().equals(sensorId)).findFirst().orElse(null);
+    }
+
+    /**
+     * @return Number of sensors that are currently active
+     */
+    default int getActiveSensorCount() {
+        return (int) getSensors().stream().filter(s -> Boolean.TRUE.equals(s.getActive())).count();
+    }
 
 }
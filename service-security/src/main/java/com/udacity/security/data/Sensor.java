@@ -1,12 +1,13 @@
 package com.udacity.security.data;
 
-import com.google.common.collect.ComparisonChain;
-
 import java.util.Objects;
 import java.util.UUID;
 
 /**
  * Sensor POJO. Needs to know how to sort itself for display purposes.
+ *
+ * Equality, hashing and ordering go through the getters, so subclasses that keep their state
+ * elsewhere, such as the views handed out by OffHeapSensorStore, compare correctly with plain sensors.
  */
 public class Sensor implements Comparable<Sensor> {
     private UUID sensorId;
@@ -26,14 +27,14 @@ public class Sensor implements Comparable<Sensor> {
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
+        if (!(o instanceof Sensor)) return false;
         Sensor sensor = (Sensor) o;
-        return sensorId.equals(sensor.sensorId);
+        return getSensorId().equals(sensor.getSensorId());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(sensorId);
+        return Objects.hash(getSensorId());
     }
 
     public String getName() {
@@ -68,12 +69,19 @@ public class Sensor implements Comparable<Sensor> {
         this.sensorId = sensorId;
     }
 
+    /**
+     * Orders by name, then type name, then id. Uses the getters rather than the fields so that views
+     * compare by the state they present; for plain sensors the JIT inlines them.
+     */
     @Override
     public int compareTo(Sensor o) {
-        return ComparisonChain.start()
-                .compare(this.name, o.name)
-                .compare(this.sensorType.toString(), o.sensorType.toString())
-                .compare(this.sensorId, o.sensorId)
-                .result();
+        int result = getName().compareTo(o.getName());
+        if (result == 0) {
+            result = getSensorType().name().compareTo(o.getSensorType().name());
+        }
+        if (result == 0) {
+            result = getSensorId().compareTo(o.getSensorId());
+        }
+        return result;
     }
 }
@@ -0,0 +1,23 @@
+package com.udacity.security.data;
+
+/**
+ * A requested change to the activation status of a single sensor. Used to hand the
+ * SecurityService many sensor changes at once.
+ */
+public class SensorEvent {
+    private final Sensor sensor;
+    private final boolean active;
+
+    public SensorEvent(Sensor sensor, boolean active) {
+        this.sensor = sensor;
+        this.active = active;
+    }
+
+    public Sensor getSensor() {
+        return sensor;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+}
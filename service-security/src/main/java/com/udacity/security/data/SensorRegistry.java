@@ -0,0 +1,175 @@
+package com.udacity.security.data;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * In-memory index of sensors for repository implementations. Sensors are kept in a hash index keyed
+ * by id and in one set per SensorType, and the number of active sensors is counted as sensors are
+ * added, updated and removed. Lookups, updates and "how many sensors are active?" therefore cost
+ * the same no matter how many sensors there are.
+ *
+ * Sensors are usually modified in place before the repository is told about it, so the registry
+ * remembers the active flag and type each sensor had when it was last registered, and works out
+ * the counter changes from those.
+ *
+ * Not thread-safe; repositories that are used from several threads must guard it.
+ */
+public class SensorRegistry {
+
+    private final Map<UUID, Entry> byId = new HashMap<>();
+    private final Map<SensorType, Set<Sensor>> byType = new EnumMap<>(SensorType.class);
+    private final int[] activeByType = new int[SensorType.values().length];
+    private int activeCount;
+
+    private final Set<Sensor> sensorView = new SensorSet();
+
+    public SensorRegistry() {
+        for (SensorType type : SensorType.values()) {
+            byType.put(type, new HashSet<>());
+        }
+    }
+
+    /**
+     * Adds the sensor, or brings the indexes and counters up to date with its current state if it
+     * has been registered before.
+     */
+    public void put(Sensor sensor) {
+        Entry entry = byId.get(sensor.getSensorId());
+        if (entry == null) {
+            entry = new Entry(sensor);
+            byId.put(sensor.getSensorId(), entry);
+            index(entry, 1);
+            return;
+        }
+        index(entry, -1);
+        entry.sensor = sensor;
+        entry.active = Boolean.TRUE.equals(sensor.getActive());
+        entry.type = sensor.getSensorType();
+        index(entry, 1);
+    }
+
+    /**
+     * @return The sensor that was removed, or null if it was not registered
+     */
+    public Sensor remove(UUID sensorId) {
+        Entry entry = byId.remove(sensorId);
+        if (entry == null) {
+            return null;
+        }
+        index(entry, -1);
+        return entry.sensor;
+    }
+
+    public Sensor get(UUID sensorId) {
+        Entry entry = byId.get(sensorId);
+        return entry == null ? null : entry.sensor;
+    }
+
+    public void clear() {
+        byId.clear();
+        byType.values().forEach(Set::clear);
+        Arrays.fill(activeByType, 0);
+        activeCount = 0;
+    }
+
+    /**
+     * @return Read-only live view of every registered sensor
+     */
+    public Set<Sensor> getSensors() {
+        return sensorView;
+    }
+
+    /**
+     * @return Read-only live view of the sensors of one type
+     */
+    public Set<Sensor> getSensors(SensorType type) {
+        return Collections.unmodifiableSet(byType.get(type));
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    public int getActiveCount(SensorType type) {
+        return activeByType[type.ordinal()];
+    }
+
+    public int getInactiveCount() {
+        return byId.size() - activeCount;
+    }
+
+    private void index(Entry entry, int delta) {
+        if (entry.type != null) {
+            if (delta > 0) {
+                byType.get(entry.type).add(entry.sensor);
+            } else {
+                byType.get(entry.type).remove(entry.sensor);
+            }
+        }
+        if (entry.active) {
+            activeCount += delta;
+            if (entry.type != null) {
+                activeByType[entry.type.ordinal()] += delta;
+            }
+        }
+    }
+
+    /**
+     * A registered sensor and the state it had when it was last registered.
+     */
+    private static class Entry {
+        private Sensor sensor;
+        private boolean active;
+        private SensorType type;
+
+        Entry(Sensor sensor) {
+            this.sensor = sensor;
+            this.active = Boolean.TRUE.equals(sensor.getActive());
+            this.type = sensor.getSensorType();
+        }
+    }
+
+    /**
+     * Set view over the id index, so contains() is a hash lookup rather than a scan.
+     */
+    private class SensorSet extends AbstractSet<Sensor> {
+        @Override
+        public Iterator<Sensor> iterator() {
+            Iterator<Entry> entries = byId.values().iterator();
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return entries.hasNext();
+                }
+
+                @Override
+                public Sensor next() {
+                    return entries.next().sensor;
+                }
+            };
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Sensor && byId.containsKey(((Sensor) o).getSensorId());
+        }
+
+        @Override
+        public int size() {
+            return byId.size();
+        }
+    }
+}
@@ -1,7 +1,7 @@
 package com.udacity.security.data;
 
 /**
- * List of available sensor types. Not currently used by system, other than for display.
+ * List of available sensor types. Shown in the UI and used by AlarmRules to give each type its own policy.
  */
 public enum SensorType {
     DOOR, WINDOW, MOTION
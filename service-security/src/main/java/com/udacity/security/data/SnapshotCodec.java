@@ -0,0 +1,30 @@
+package com.udacity.security.data;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Serializes a RepositorySnapshot to and from a channel, usually a FileChannel. Repositories take a
+ * codec so the storage format can be chosen without touching the repository itself.
+ *
+ * Implementations must be safe to use from several threads at once.
+ */
+public interface SnapshotCodec {
+
+    /**
+     * @return File extension, without the dot, that identifies snapshots written by this codec
+     */
+    String getExtension();
+
+    /**
+     * Writes the snapshot to the channel, starting at the channel's current position.
+     */
+    void write(RepositorySnapshot snapshot, WritableByteChannel channel) throws IOException;
+
+    /**
+     * Reads a snapshot previously written by this codec.
+     * @throws IOException if the data is not a complete snapshot in a format this codec understands
+     */
+    RepositorySnapshot read(ReadableByteChannel channel) throws IOException;
+}
@@ -0,0 +1,301 @@
+package com.udacity.security.headless;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.udacity.image.service.FakeImageService;
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.JournaledSecurityRepositoryImpl;
+import com.udacity.security.data.PretendDatabaseSecurityRepositoryImpl;
+import com.udacity.security.data.SecurityRepository;
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorType;
+import com.udacity.security.service.AlarmRules;
+import com.udacity.security.service.SecurityService;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the security system without a display. Commands are read as JSON lines (see HeadlessCommand)
+ * from stdin, a file or a TCP socket, and status changes are written as JSON lines (see
+ * JsonStatusWriter) to stdout, or back to the socket client.
+ *
+ *      java -jar service-security.jar --headless [--file commands.jsonl | --port 7070] [--journal dir] [--rules file]
+ *
+ * Nothing from Swing or AWT is touched, so the JVM starts without loading any of the UI classes.
+ * The first line written reports how long startup took, and once the first command has been
+ * handled another line reports the time to the first event.
+ */
+public class HeadlessCatpointApp {
+
+    private static final Gson gson = new Gson();
+
+    private final SecurityService securityService;
+    private final Writer out;
+    private final JsonStatusWriter output;
+    private final Map<String, Sensor> sensorsByName = new HashMap<>();
+    private final long readyNanos;
+    private boolean firstEventReported;
+
+    public HeadlessCatpointApp(SecurityService securityService, Writer out) {
+        this.securityService = securityService;
+        this.out = out;
+        this.output = new JsonStatusWriter(securityService, out);
+        //deliver on the calling thread, so status lines follow the command that caused them
+        securityService.addStatusListener(output, Runnable::run);
+        securityService.getSensors().forEach(s -> sensorsByName.put(s.getName(), s));
+        this.readyNanos = System.nanoTime();
+    }
+
+    public static void main(String[] args) throws IOException {
+        long mainStarted = System.nanoTime();
+        System.setProperty("java.awt.headless", "true");
+
+        Path file = null;
+        Integer port = null;
+        Path journal = null;
+        Path rules = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--file" -> file = Paths.get(args[++i]);
+                case "--port" -> port = Integer.parseInt(args[++i]);
+                case "--journal" -> journal = Paths.get(args[++i]);
+                case "--rules" -> rules = Paths.get(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        SecurityRepository repository = journal == null
+                ? new PretendDatabaseSecurityRepositoryImpl()
+                : new JournaledSecurityRepositoryImpl(journal);
+        SecurityService securityService = new SecurityService(repository, new FakeImageService());
+        securityService.setAlarmRules(rules == null ? AlarmRules.load() : AlarmRules.load(rules));
+        Writer stdout = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+        HeadlessCatpointApp app = new HeadlessCatpointApp(securityService, stdout);
+        app.reportStartup(mainStarted);
+
+        if (port != null) {
+            app.serve(port);
+        } else if (file != null) {
+            try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                app.run(in);
+            }
+        } else {
+            app.run(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        }
+        if (repository instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) repository).close();
+            } catch (Exception e) {
+                throw new IOException("Unable to close repository", e);
+            }
+        }
+    }
+
+    /**
+     * Handles every line until the end of the input.
+     */
+    public void run(Reader in) throws IOException {
+        BufferedReader reader = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.isBlank()) {
+                handle(line);
+            }
+        }
+    }
+
+    /**
+     * Accepts one client at a time and answers it on its own connection, until the process is stopped.
+     */
+    private void serve(int port) throws IOException {
+        try (ServerSocket server = new ServerSocket(port)) {
+            JsonObject listening = JsonStatusWriter.event("listening");
+            listening.addProperty("port", server.getLocalPort());
+            output.write(listening);
+            while (true) {
+                try (Socket client = server.accept()) {
+                    serveClient(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8),
+                            new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8));
+                } catch (IOException e) {
+                    error(e.getMessage(), null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Handles one client's commands and answers on the client's writer. Once the client is done,
+     * or goes away, output goes back to the writer the app was created with.
+     */
+    void serveClient(Reader in, Writer clientOut) {
+        try {
+            output.setOutput(clientOut);
+            try {
+                run(in);
+            } finally {
+                output.setOutput(out);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            //a client going away must not stop the server; JsonStatusWriter wraps its write failures
+            error(e.getMessage(), null);
+        }
+    }
+
+    /**
+     * Applies a single JSON command. Problems with the command are reported as an error line
+     * rather than thrown.
+     */
+    public void handle(String line) {
+        HeadlessCommand command;
+        try {
+            command = gson.fromJson(line, HeadlessCommand.class);
+        } catch (JsonParseException e) {
+            error("Malformed command: " + e.getMessage(), line);
+            return;
+        }
+        if (command == null || command.getCommand() == null) {
+            error("Missing command", line);
+            return;
+        }
+        try {
+            switch (command.getCommand()) {
+                case "addSensor" -> addSensor(command);
+                case "removeSensor" -> removeSensor(command);
+                case "sensor" -> changeSensor(command);
+                case "arm" -> securityService.setArmingStatus(armingStatus(required(command, "status", command.getStatus())));
+                case "status" -> writeStatus();
+                default -> {
+                    error("Unknown command " + command.getCommand(), line);
+                    return;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            error("Invalid command: " + e.getMessage(), line);
+            return;
+        }
+        reportFirstEvent();
+    }
+
+    private void addSensor(HeadlessCommand command) {
+        String name = required(command, "name", command.getName());
+        Sensor sensor = new Sensor(name, SensorType.valueOf(required(command, "sensorType", command.getSensorType())));
+        securityService.addSensor(sensor);
+        sensorsByName.put(sensor.getName(), sensor);
+        JsonObject line = JsonStatusWriter.event("sensorAdded");
+        line.addProperty("id", sensor.getSensorId().toString());
+        line.addProperty("name", sensor.getName());
+        output.write(line);
+    }
+
+    private void removeSensor(HeadlessCommand command) {
+        Sensor sensor = findSensor(command);
+        securityService.removeSensor(sensor);
+        sensorsByName.remove(sensor.getName());
+        JsonObject line = JsonStatusWriter.event("sensorRemoved");
+        line.addProperty("id", sensor.getSensorId().toString());
+        output.write(line);
+    }
+
+    private void changeSensor(HeadlessCommand command) {
+        if (command.getActive() == null) {
+            throw new IllegalArgumentException("sensor command needs \"active\"");
+        }
+        securityService.changeSensorActivationStatus(findSensor(command), command.getActive());
+    }
+
+    /**
+     * Same as ArmingStatus.valueOf, which would look the enum up reflectively and load the AWT
+     * Color class named in the signature of getColor.
+     */
+    private static ArmingStatus armingStatus(String name) {
+        for (ArmingStatus status : ArmingStatus.values()) {
+            if (status.name().equals(name)) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("No arming status " + name);
+    }
+
+    /**
+     * @return The value of the field, which the command cannot do without
+     */
+    private static String required(HeadlessCommand command, String field, String value) {
+        if (value == null) {
+            throw new IllegalArgumentException(command.getCommand() + " command needs \"" + field + "\"");
+        }
+        return value;
+    }
+
+    private Sensor findSensor(HeadlessCommand command) {
+        if (command.getId() == null && command.getName() == null) {
+            throw new IllegalArgumentException(command.getCommand() + " command needs \"id\" or \"name\"");
+        }
+        Sensor sensor = command.getId() != null
+                ? securityService.getSensor(UUID.fromString(command.getId()))
+                : sensorsByName.get(command.getName());
+        if (sensor == null) {
+            throw new IllegalArgumentException("No sensor " + (command.getId() != null ? command.getId() : command.getName()));
+        }
+        return sensor;
+    }
+
+    private void writeStatus() {
+        JsonObject line = JsonStatusWriter.event("status");
+        line.addProperty("alarm", String.valueOf(securityService.getAlarmStatus()));
+        line.addProperty("arming", String.valueOf(securityService.getArmingStatus()));
+        line.addProperty("sensors", securityService.getSensors().size());
+        output.write(line);
+    }
+
+    private void error(String message, String input) {
+        JsonObject line = JsonStatusWriter.event("error");
+        line.addProperty("message", message);
+        if (input != null) {
+            line.addProperty("input", input);
+        }
+        output.write(line);
+    }
+
+    /**
+     * Reports how long the JVM and the wiring in main took to get ready for input.
+     */
+    private void reportStartup(long mainStartedNanos) {
+        JsonObject line = JsonStatusWriter.event("started");
+        line.addProperty("wiringMillis", TimeUnit.NANOSECONDS.toMillis(readyNanos - mainStartedNanos));
+        ProcessHandle.current().info().startInstant().ifPresent(start ->
+                line.addProperty("startupMillis", Duration.between(start, Instant.now()).toMillis()));
+        line.addProperty("sensors", securityService.getSensors().size());
+        output.write(line);
+    }
+
+    private void reportFirstEvent() {
+        if (firstEventReported) {
+            return;
+        }
+        firstEventReported = true;
+        JsonObject line = JsonStatusWriter.event("firstEvent");
+        line.addProperty("sinceReadyMillis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - readyNanos));
+        ProcessHandle.current().info().startInstant().ifPresent(start ->
+                line.addProperty("sinceStartMillis", Duration.between(start, Instant.now()).toMillis()));
+        output.write(line);
+    }
+}
@@ -0,0 +1,45 @@
+package com.udacity.security.headless;
+
+/**
+ * One line of input to the headless app, for example
+ *
+ *      {"command": "addSensor", "name": "Front door", "sensorType": "DOOR"}
+ *      {"command": "sensor", "name": "Front door", "active": true}
+ *      {"command": "arm", "status": "ARMED_HOME"}
+ *      {"command": "removeSensor", "name": "Front door"}
+ *      {"command": "status"}
+ *
+ * Sensors can be named by "id" instead of "name".
+ */
+public class HeadlessCommand {
+    private String command;
+    private String id;
+    private String name;
+    private String sensorType;
+    private Boolean active;
+    private String status;
+
+    public String getCommand() {
+        return command;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getSensorType() {
+        return sensorType;
+    }
+
+    public Boolean getActive() {
+        return active;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,78 @@
+package com.udacity.security.headless;
+
+import com.google.gson.JsonObject;
+import com.udacity.security.application.StatusListener;
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.service.SecurityService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * StatusListener that writes every status change as one line of JSON, for example
+ *
+ *      {"event":"alarm","status":"PENDING_ALARM","time":1666000000000}
+ *
+ * The output can be switched, so a socket server can point it at whichever client is connected.
+ */
+public class JsonStatusWriter implements StatusListener {
+
+    private final SecurityService securityService;
+    private Writer out;
+
+    public JsonStatusWriter(SecurityService securityService, Writer out) {
+        this.securityService = securityService;
+        this.out = out;
+    }
+
+    public synchronized void setOutput(Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void notify(AlarmStatus status) {
+        JsonObject line = event("alarm");
+        line.addProperty("status", status.name());
+        write(line);
+    }
+
+    @Override
+    public void catDetected(boolean catDetected) {
+        JsonObject line = event("cat");
+        line.addProperty("detected", catDetected);
+        write(line);
+    }
+
+    @Override
+    public void sensorStatusChanged() {
+        JsonObject line = event("sensors");
+        line.addProperty("total", securityService.getSensors().size());
+        line.addProperty("active", securityService.getSensors().stream().filter(s -> Boolean.TRUE.equals(s.getActive())).count());
+        line.addProperty("arming", String.valueOf(securityService.getArmingStatus()));
+        write(line);
+    }
+
+    /**
+     * @return A line for the given event type with the current time filled in
+     */
+    public static JsonObject event(String type) {
+        JsonObject line = new JsonObject();
+        line.addProperty("event", type);
+        line.addProperty("time", System.currentTimeMillis());
+        return line;
+    }
+
+    /**
+     * Writes the object as a single line and flushes it.
+     */
+    public synchronized void write(JsonObject line) {
+        try {
+            out.write(line.toString());
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
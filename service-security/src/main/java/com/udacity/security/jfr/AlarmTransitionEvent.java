@@ -0,0 +1,42 @@
+package com.udacity.security.jfr;
+
+import com.udacity.security.data.AlarmStatus;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for the alarm status being set. The event duration covers writing the status
+ * to the repository and handing it to the listeners. Alarm changes are rare, so every one is recorded
+ * by default.
+ */
+@Name("com.udacity.security.AlarmTransition")
+@Label("Alarm Transition")
+@Category({"Udacity", "Security Service"})
+@Description("The alarm status was set")
+@Threshold("0 ms")
+@StackTrace(true)
+public class AlarmTransitionEvent extends Event {
+
+    @Label("From")
+    public String from;
+
+    @Label("To")
+    public String to;
+
+    /**
+     * Ends the event and commits it if it is enabled and slower than the threshold.
+     */
+    public void finish(AlarmStatus from, AlarmStatus to) {
+        end();
+        if (shouldCommit()) {
+            this.from = String.valueOf(from);
+            this.to = String.valueOf(to);
+            commit();
+        }
+    }
+}
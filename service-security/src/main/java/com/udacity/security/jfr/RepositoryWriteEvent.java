@@ -0,0 +1,53 @@
+package com.udacity.security.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for one write to a SecurityRepository, from the call until the change is
+ * stored.
+ */
+@Name("com.udacity.security.RepositoryWrite")
+@Label("Repository Write")
+@Category({"Udacity", "Repository"})
+@Description("A write to the security repository")
+@Threshold("5 ms")
+@StackTrace(false)
+public class RepositoryWriteEvent extends Event {
+
+    @Label("Repository")
+    public String repository;
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Sensors")
+    public int sensorCount;
+
+    /**
+     * Creates an event and starts its clock.
+     */
+    public static RepositoryWriteEvent start() {
+        RepositoryWriteEvent event = new RepositoryWriteEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends the event and commits it if it is enabled and slower than the threshold.
+     */
+    public void finish(Object repository, String operation, int sensorCount) {
+        end();
+        if (shouldCommit()) {
+            this.repository = repository.getClass().getSimpleName();
+            this.operation = operation;
+            this.sensorCount = sensorCount;
+            commit();
+        }
+    }
+}
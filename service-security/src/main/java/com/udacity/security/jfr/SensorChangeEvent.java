@@ -0,0 +1,54 @@
+package com.udacity.security.jfr;
+
+import com.udacity.security.data.Sensor;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for a sensor changing its activation status. The event duration covers
+ * the alarm decision and the repository write the change caused.
+ */
+@Name("com.udacity.security.SensorEvent")
+@Label("Sensor Event")
+@Category({"Udacity", "Security Service"})
+@Description("A sensor was activated or deactivated")
+@Threshold("1 ms")
+@StackTrace(false)
+public class SensorChangeEvent extends Event {
+
+    @Label("Sensor Id")
+    public String sensorId;
+
+    @Label("Sensor Name")
+    public String sensorName;
+
+    @Label("Sensor Type")
+    public String sensorType;
+
+    @Label("Was Active")
+    public boolean wasActive;
+
+    @Label("Active")
+    public boolean active;
+
+    /**
+     * Ends the event and commits it if the sensor really changed, and the event is enabled and slower
+     * than the threshold. Setting a sensor to the state it already had is not recorded.
+     */
+    public void finish(Sensor sensor, boolean wasActive, boolean active) {
+        end();
+        if (wasActive != active && shouldCommit()) {
+            this.sensorId = String.valueOf(sensor.getSensorId());
+            this.sensorName = sensor.getName();
+            this.sensorType = String.valueOf(sensor.getSensorType());
+            this.wasActive = wasActive;
+            this.active = active;
+            commit();
+        }
+    }
+}
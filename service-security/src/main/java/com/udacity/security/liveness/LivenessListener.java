@@ -0,0 +1,14 @@
+package com.udacity.security.liveness;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Identifies a component that should be notified when sensors stop or resume sending heartbeats.
+ * Changes are delivered in batches, so a power cut that silences thousands of sensors at once
+ * arrives as one call.
+ */
+public interface LivenessListener {
+    void sensorsOffline(List<UUID> sensorIds);
+    void sensorsRecovered(List<UUID> sensorIds);
+}
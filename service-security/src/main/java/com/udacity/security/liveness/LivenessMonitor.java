@@ -0,0 +1,497 @@
+package com.udacity.security.liveness;
+
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorType;
+import com.udacity.security.timer.Clock;
+import com.udacity.security.timer.TimingWheel;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks when each sensor was last heard from and reports sensors that have gone silent for longer
+ * than the timeout of their SensorType, and sensors that come back.
+ *
+ * Sensors live in slots of parallel primitive arrays, found through an open-addressing table of slot
+ * numbers keyed by the two halves of the id, so a heartbeat allocates nothing. Online sensors of each
+ * type are also chained in a doubly linked list in the order they were last heard from: a heartbeat
+ * moves the sensor to the tail, so the head is always the sensor whose timeout runs out first.
+ * Finding the sensors that went offline therefore only looks at list heads until it meets one that is
+ * still within its timeout, and costs nothing for the sensors that are fine.
+ *
+ * expireDue does the check and notifies listeners. Once started on a TimingWheel, the monitor runs it
+ * at the earliest deadline among the list heads instead of on a fixed period, and shortly after a
+ * silent sensor comes back. Listeners are called outside the monitor's lock on the thread that runs
+ * the check. Thread-safe.
+ */
+public class LivenessMonitor implements AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofMinutes(5);
+
+    private static final SensorType[] TYPES = SensorType.values();
+    private static final int NONE = -1;
+    private static final byte FREE = 0;
+    private static final byte ONLINE = 1;
+    private static final byte OFFLINE = 2;
+
+    private final Clock clock;
+    private final long[] timeoutNanos = new long[TYPES.length];
+    private final List<LivenessListener> listeners = new CopyOnWriteArrayList<>();
+
+    //columns, indexed by slot; guarded by this
+    private long[] idHigh;
+    private long[] idLow;
+    private long[] lastSeen;
+    private int[] prev;
+    private int[] next;
+    private byte[] types;
+    private byte[] states;
+    private int highWater; //every slot at or above this has never been used
+    private int[] freeSlots;
+    private int freeCount;
+    private int tracked;
+    private int offline;
+
+    //per type list of online sensors, least recently heard from first
+    private final int[] heads = new int[TYPES.length];
+    private final int[] tails = new int[TYPES.length];
+
+    //open-addressing index of slot + 1 by id, 0 marks an empty entry
+    private int[] index;
+    private int indexMask;
+
+    //ids of sensors that came back since the last check, two longs each
+    private long[] recovered = new long[32];
+    private int recoveredCount;
+
+    private TimingWheel wheel;
+    private TimingWheel.Timeout nextCheck;
+    private long nextCheckNanos; //when nextCheck is due, on the monitor's clock
+    private TimingWheel.Timeout recoveryFlush;
+
+    public LivenessMonitor() {
+        this(Clock.system(), Collections.emptyMap(), DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param clock Source of the current time
+     * @param timeouts Silence after which a sensor of the given type counts as offline. Types that are
+     *                 missing use DEFAULT_TIMEOUT.
+     * @param initialCapacity Number of sensors to allocate room for up front. The monitor grows as needed.
+     */
+    public LivenessMonitor(Clock clock, Map<SensorType, Duration> timeouts, int initialCapacity) {
+        this.clock = clock;
+        Map<SensorType, Duration> resolved = new EnumMap<>(SensorType.class);
+        resolved.putAll(timeouts);
+        for (SensorType type : TYPES) {
+            timeoutNanos[type.ordinal()] = resolved.getOrDefault(type, DEFAULT_TIMEOUT).toNanos();
+        }
+        Arrays.fill(heads, NONE);
+        Arrays.fill(tails, NONE);
+        allocate(Math.max(initialCapacity, 16));
+    }
+
+    public void addListener(LivenessListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(LivenessListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Starts tracking the sensor, counting it as heard from now.
+     */
+    public void track(Sensor sensor) {
+        track(sensor.getSensorId(), sensor.getSensorType());
+    }
+
+    /**
+     * Starts tracking the sensor, counting it as heard from now. A sensor that is already tracked
+     * keeps its state but takes on the new type.
+     */
+    public synchronized void track(UUID sensorId, SensorType type) {
+        long high = sensorId.getMostSignificantBits();
+        long low = sensorId.getLeastSignificantBits();
+        int slot = find(high, low);
+        if (slot != NONE) {
+            if (states[slot] == ONLINE) {
+                unlink(slot);
+                types[slot] = (byte) type.ordinal();
+                lastSeen[slot] = clock.nanoTime();
+                linkLast(slot);
+                checkBy(slot);
+            } else {
+                types[slot] = (byte) type.ordinal();
+            }
+            return;
+        }
+        slot = allocateSlot();
+        idHigh[slot] = high;
+        idLow[slot] = low;
+        types[slot] = (byte) type.ordinal();
+        states[slot] = ONLINE;
+        lastSeen[slot] = clock.nanoTime();
+        linkLast(slot);
+        addToIndex(slot);
+        tracked++;
+        checkBy(slot);
+    }
+
+    /**
+     * Stops tracking the sensor without notifying listeners.
+     * @return False if the sensor was not tracked
+     */
+    public synchronized boolean untrack(UUID sensorId) {
+        int position = findPosition(sensorId.getMostSignificantBits(), sensorId.getLeastSignificantBits());
+        if (position == NONE) {
+            return false;
+        }
+        int slot = index[position] - 1;
+        removeFromIndex(position);
+        if (states[slot] == ONLINE) {
+            unlink(slot);
+        } else {
+            offline--;
+        }
+        states[slot] = FREE;
+        freeSlots[freeCount++] = slot;
+        tracked--;
+        return true;
+    }
+
+    /**
+     * Records that the sensor was heard from now.
+     * @return False if the sensor is not tracked
+     */
+    public boolean heartbeat(UUID sensorId) {
+        return heartbeat(sensorId.getMostSignificantBits(), sensorId.getLeastSignificantBits());
+    }
+
+    /**
+     * Records that the sensor with the given id halves was heard from now, for callers that receive
+     * ids off the wire and never build a UUID.
+     * @return False if the sensor is not tracked
+     */
+    public synchronized boolean heartbeat(long idHigh, long idLow) {
+        int slot = find(idHigh, idLow);
+        if (slot == NONE) {
+            return false;
+        }
+        lastSeen[slot] = clock.nanoTime();
+        if (states[slot] == ONLINE) {
+            unlink(slot);
+        } else {
+            states[slot] = ONLINE;
+            offline--;
+            addRecovered(slot);
+        }
+        linkLast(slot);
+        checkBy(slot);
+        return true;
+    }
+
+    /**
+     * @return True if the sensor is tracked and has not gone silent past its timeout at the last check
+     */
+    public synchronized boolean isOnline(UUID sensorId) {
+        int slot = find(sensorId.getMostSignificantBits(), sensorId.getLeastSignificantBits());
+        return slot != NONE && states[slot] == ONLINE;
+    }
+
+    public synchronized int getTrackedCount() {
+        return tracked;
+    }
+
+    public synchronized int getOfflineCount() {
+        return offline;
+    }
+
+    /**
+     * Marks every sensor whose timeout has run out as offline and tells listeners about those and
+     * about the sensors that recovered since the last check.
+     * @return Number of sensors that went offline
+     */
+    public int expireDue() {
+        List<UUID> wentOffline = new ArrayList<>();
+        List<UUID> cameBack;
+        synchronized (this) {
+            long now = clock.nanoTime();
+            for (int type = 0; type < TYPES.length; type++) {
+                long timeout = timeoutNanos[type];
+                for (int slot = heads[type]; slot != NONE && now - lastSeen[slot] >= timeout; slot = heads[type]) {
+                    unlink(slot);
+                    states[slot] = OFFLINE;
+                    offline++;
+                    wentOffline.add(new UUID(idHigh[slot], idLow[slot]));
+                }
+            }
+            cameBack = drainRecovered();
+        }
+        if (!wentOffline.isEmpty()) {
+            List<UUID> batch = Collections.unmodifiableList(wentOffline);
+            listeners.forEach(l -> l.sensorsOffline(batch));
+        }
+        if (!cameBack.isEmpty()) {
+            List<UUID> batch = Collections.unmodifiableList(cameBack);
+            listeners.forEach(l -> l.sensorsRecovered(batch));
+        }
+        return wentOffline.size();
+    }
+
+    /**
+     * @return Time in nanoseconds, on the monitor's clock, at which the next sensor goes offline if it
+     * is not heard from, or Long.MAX_VALUE if no sensor is online
+     */
+    public synchronized long getNextDeadline() {
+        long deadline = Long.MAX_VALUE;
+        for (int type = 0; type < TYPES.length; type++) {
+            if (heads[type] != NONE) {
+                deadline = Math.min(deadline, lastSeen[heads[type]] + timeoutNanos[type]);
+            }
+        }
+        return deadline;
+    }
+
+    /**
+     * Runs the check on the wheel from now on, each time at the next deadline.
+     */
+    public synchronized void start(TimingWheel wheel) {
+        close();
+        this.wheel = wheel;
+        scheduleCheck();
+    }
+
+    /**
+     * Stops checking on the wheel given to start.
+     */
+    @Override
+    public synchronized void close() {
+        if (nextCheck != null) {
+            nextCheck.cancel();
+            nextCheck = null;
+        }
+        if (recoveryFlush != null) {
+            recoveryFlush.cancel();
+            recoveryFlush = null;
+        }
+        wheel = null;
+    }
+
+    private void check() {
+        expireDue();
+        synchronized (this) {
+            //a check left over from before close or a restart must not start a second chain
+            if (wheel != null && (nextCheck == null || nextCheck.isExpired())) {
+                scheduleCheck();
+            }
+        }
+    }
+
+    /**
+     * Schedules the check at the earliest head deadline. A sensor that is linked in later can still
+     * run out sooner than that if its type has a shorter timeout, which checkBy takes care of. With no
+     * sensor online, checking again after the shortest timeout is early enough for any sensor tracked
+     * meanwhile.
+     */
+    private void scheduleCheck() {
+        long deadline = getNextDeadline();
+        long now = clock.nanoTime();
+        long delay;
+        if (deadline == Long.MAX_VALUE) {
+            delay = Arrays.stream(timeoutNanos).min().orElse(DEFAULT_TIMEOUT.toNanos());
+        } else {
+            delay = Math.max(0, deadline - now);
+        }
+        nextCheckNanos = now + delay;
+        nextCheck = wheel.schedule(this::check, delay, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Brings the pending check forward if the sensor just linked in runs out before it. A check that
+     * is already running schedules the next one from the current heads, so it is left alone.
+     */
+    private void checkBy(int slot) {
+        if (wheel == null || lastSeen[slot] + timeoutNanos[types[slot]] >= nextCheckNanos) {
+            return;
+        }
+        if (nextCheck != null && nextCheck.cancel()) {
+            scheduleCheck();
+        }
+    }
+
+    private void addRecovered(int slot) {
+        if (recoveredCount * 2 == recovered.length) {
+            recovered = Arrays.copyOf(recovered, recovered.length * 2);
+        }
+        recovered[recoveredCount * 2] = idHigh[slot];
+        recovered[recoveredCount * 2 + 1] = idLow[slot];
+        recoveredCount++;
+        //report the recovery on the next tick rather than waiting for the next deadline
+        if (wheel != null && recoveryFlush == null) {
+            recoveryFlush = wheel.schedule(this::expireDue, 0, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private List<UUID> drainRecovered() {
+        recoveryFlush = null;
+        if (recoveredCount == 0) {
+            return Collections.emptyList();
+        }
+        List<UUID> ids = new ArrayList<>(recoveredCount);
+        for (int i = 0; i < recoveredCount; i++) {
+            ids.add(new UUID(recovered[i * 2], recovered[i * 2 + 1]));
+        }
+        recoveredCount = 0;
+        return ids;
+    }
+
+    //lists
+
+    private void linkLast(int slot) {
+        int type = types[slot];
+        int tail = tails[type];
+        prev[slot] = tail;
+        next[slot] = NONE;
+        if (tail == NONE) {
+            heads[type] = slot;
+        } else {
+            next[tail] = slot;
+        }
+        tails[type] = slot;
+    }
+
+    private void unlink(int slot) {
+        int type = types[slot];
+        int before = prev[slot];
+        int after = next[slot];
+        if (before == NONE) {
+            heads[type] = after;
+        } else {
+            next[before] = after;
+        }
+        if (after == NONE) {
+            tails[type] = before;
+        } else {
+            prev[after] = before;
+        }
+        prev[slot] = NONE;
+        next[slot] = NONE;
+    }
+
+    //slots and index
+
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (highWater == idHigh.length) {
+            grow();
+        }
+        return highWater++;
+    }
+
+    private void allocate(int capacity) {
+        idHigh = new long[capacity];
+        idLow = new long[capacity];
+        lastSeen = new long[capacity];
+        prev = new int[capacity];
+        next = new int[capacity];
+        types = new byte[capacity];
+        states = new byte[capacity];
+        freeSlots = new int[capacity];
+        index = new int[indexSizeFor(capacity)];
+        indexMask = index.length - 1;
+    }
+
+    /**
+     * Doubles every column. Slot numbers stay the same, so the lists are untouched; only the index
+     * is rebuilt.
+     */
+    private void grow() {
+        int capacity = idHigh.length * 2;
+        idHigh = Arrays.copyOf(idHigh, capacity);
+        idLow = Arrays.copyOf(idLow, capacity);
+        lastSeen = Arrays.copyOf(lastSeen, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+        next = Arrays.copyOf(next, capacity);
+        types = Arrays.copyOf(types, capacity);
+        states = Arrays.copyOf(states, capacity);
+        freeSlots = Arrays.copyOf(freeSlots, capacity);
+        index = new int[indexSizeFor(capacity)];
+        indexMask = index.length - 1;
+        for (int slot = 0; slot < highWater; slot++) {
+            if (states[slot] != FREE) {
+                addToIndex(slot);
+            }
+        }
+    }
+
+    private int find(long high, long low) {
+        int position = findPosition(high, low);
+        return position == NONE ? NONE : index[position] - 1;
+    }
+
+    private int findPosition(long high, long low) {
+        for (int position = hash(high, low) & indexMask; ; position = (position + 1) & indexMask) {
+            int entry = index[position];
+            if (entry == 0) {
+                return NONE;
+            }
+            int slot = entry - 1;
+            if (idHigh[slot] == high && idLow[slot] == low) {
+                return position;
+            }
+        }
+    }
+
+    private void addToIndex(int slot) {
+        int position = hash(idHigh[slot], idLow[slot]) & indexMask;
+        while (index[position] != 0) {
+            position = (position + 1) & indexMask;
+        }
+        index[position] = slot + 1;
+    }
+
+    /**
+     * Empties the entry and moves later entries of the same probe run back into the gap, so lookups
+     * never need tombstones.
+     */
+    private void removeFromIndex(int position) {
+        int gap = position;
+        index[gap] = 0;
+        for (int probe = (gap + 1) & indexMask; ; probe = (probe + 1) & indexMask) {
+            int entry = index[probe];
+            if (entry == 0) {
+                return;
+            }
+            int home = hash(idHigh[entry - 1], idLow[entry - 1]) & indexMask;
+            //the entry can fill the gap unless its home lies cyclically after the gap, up to itself
+            boolean staysPut = gap <= probe ? gap < home && home <= probe : gap < home || home <= probe;
+            if (!staysPut) {
+                index[gap] = entry;
+                index[probe] = 0;
+                gap = probe;
+            }
+        }
+    }
+
+    private static int hash(long high, long low) {
+        long h = (high ^ low) * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32);
+    }
+
+    private static int indexSizeFor(int slots) {
+        //keeps the load factor at or below one half
+        return Integer.highestOneBit(slots * 2 - 1) << 1;
+    }
+}
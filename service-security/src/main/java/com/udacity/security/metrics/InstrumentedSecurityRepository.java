@@ -0,0 +1,201 @@
+package com.udacity.security.metrics;
+
+import com.udacity.image.metrics.LatencyHistogram;
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.SecurityRepository;
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorType;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SecurityRepository that times every write to another repository. Reads are passed through
+ * untouched. Register it with MBeans.register to read the numbers over JMX.
+ */
+public class InstrumentedSecurityRepository implements SecurityRepository, RepositoryMetricsMXBean {
+
+    public static final String OBJECT_NAME = "com.udacity.security:type=Repository";
+
+    private final SecurityRepository delegate;
+    private final LatencyHistogram writeLatency = new LatencyHistogram();
+    private final LongAdder writeErrors = new LongAdder();
+
+    public InstrumentedSecurityRepository(SecurityRepository delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void addSensor(Sensor sensor) {
+        long start = System.nanoTime();
+        try {
+            delegate.addSensor(sensor);
+        } catch (RuntimeException e) {
+            writeErrors.increment();
+            throw e;
+        } finally {
+            writeLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public void removeSensor(Sensor sensor) {
+        long start = System.nanoTime();
+        try {
+            delegate.removeSensor(sensor);
+        } catch (RuntimeException e) {
+            writeErrors.increment();
+            throw e;
+        } finally {
+            writeLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public void updateSensor(Sensor sensor) {
+        long start = System.nanoTime();
+        try {
+            delegate.updateSensor(sensor);
+        } catch (RuntimeException e) {
+            writeErrors.increment();
+            throw e;
+        } finally {
+            writeLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public void updateSensors(Collection<Sensor> sensors) {
+        long start = System.nanoTime();
+        try {
+            delegate.updateSensors(sensors);
+        } catch (RuntimeException e) {
+            writeErrors.increment();
+            throw e;
+        } finally {
+            writeLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public Map<SensorType, Integer> deactivateAllSensors() {
+        long start = System.nanoTime();
+        try {
+            return delegate.deactivateAllSensors();
+        } catch (RuntimeException e) {
+            writeErrors.increment();
+            throw e;
+        } finally {
+            writeLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public void setAlarmStatus(AlarmStatus alarmStatus) {
+        long start = System.nanoTime();
+        try {
+            delegate.setAlarmStatus(alarmStatus);
+        } catch (RuntimeException e) {
+            writeErrors.increment();
+            throw e;
+        } finally {
+            writeLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public void setArmingStatus(ArmingStatus armingStatus) {
+        long start = System.nanoTime();
+        try {
+            delegate.setArmingStatus(armingStatus);
+        } catch (RuntimeException e) {
+            writeErrors.increment();
+            throw e;
+        } finally {
+            writeLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public Set<Sensor> getSensors() {
+        return delegate.getSensors();
+    }
+
+    @Override
+    public Sensor getSensor(UUID sensorId) {
+        return delegate.getSensor(sensorId);
+    }
+
+    @Override
+    public int getActiveSensorCount() {
+        return delegate.getActiveSensorCount();
+    }
+
+    @Override
+    public AlarmStatus getAlarmStatus() {
+        return delegate.getAlarmStatus();
+    }
+
+    @Override
+    public ArmingStatus getArmingStatus() {
+        return delegate.getArmingStatus();
+    }
+
+    /**
+     * @return The underlying histogram, for reading bucket counts directly
+     */
+    public LatencyHistogram getWriteLatency() {
+        return writeLatency;
+    }
+
+    @Override
+    public long getWrites() {
+        return writeLatency.getCount();
+    }
+
+    @Override
+    public long getWriteErrors() {
+        return writeErrors.sum();
+    }
+
+    @Override
+    public double getMeanWriteLatencyMillis() {
+        return writeLatency.getMeanMillis();
+    }
+
+    @Override
+    public double getP50WriteLatencyMillis() {
+        return writeLatency.getPercentileMillis(50);
+    }
+
+    @Override
+    public double getP99WriteLatencyMillis() {
+        return writeLatency.getPercentileMillis(99);
+    }
+
+    @Override
+    public double getMaxWriteLatencyMillis() {
+        return writeLatency.getMaxNanos() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public long[] getWriteLatencyBucketCounts() {
+        return writeLatency.getBucketCounts();
+    }
+
+    @Override
+    public long[] getWriteLatencyBucketUpperBoundsNanos() {
+        return LatencyHistogram.getBucketUpperBoundsNanos();
+    }
+
+    @Override
+    public void reset() {
+        writeLatency.reset();
+        writeErrors.reset();
+    }
+}
@@ -0,0 +1,28 @@
+package com.udacity.security.metrics;
+
+/**
+ * Repository write statistics, see InstrumentedSecurityRepository.
+ */
+public interface RepositoryMetricsMXBean {
+
+    long getWrites();
+
+    long getWriteErrors();
+
+    double getMeanWriteLatencyMillis();
+
+    double getP50WriteLatencyMillis();
+
+    double getP99WriteLatencyMillis();
+
+    double getMaxWriteLatencyMillis();
+
+    /**
+     * @return Number of writes per latency bucket, see getWriteLatencyBucketUpperBoundsNanos
+     */
+    long[] getWriteLatencyBucketCounts();
+
+    long[] getWriteLatencyBucketUpperBoundsNanos();
+
+    void reset();
+}
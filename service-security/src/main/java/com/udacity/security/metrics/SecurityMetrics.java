@@ -0,0 +1,113 @@
+package com.udacity.security.metrics;
+
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.SensorType;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts sensor activations and deactivations per SensorType and alarm transitions per
+ * AlarmStatus edge. Every counter is a LongAdder created up front and found by ordinal, so
+ * recording allocates nothing and is safe from any thread.
+ */
+public class SecurityMetrics implements SecurityMetricsMXBean {
+
+    public static final String OBJECT_NAME = "com.udacity.security:type=SecurityService";
+
+    private static final SensorType[] SENSOR_TYPES = SensorType.values();
+    private static final AlarmStatus[] ALARM_STATUSES = AlarmStatus.values();
+
+    private final LongAdder[] activations = counters(SENSOR_TYPES.length);
+    private final LongAdder[] deactivations = counters(SENSOR_TYPES.length);
+    //indexed by from.ordinal() * number of statuses + to.ordinal()
+    private final LongAdder[] transitions = counters(ALARM_STATUSES.length * ALARM_STATUSES.length);
+
+    /**
+     * Records a sensor changing its activation status.
+     */
+    public void sensorChanged(SensorType type, boolean active) {
+        if (type != null) {
+            (active ? activations : deactivations)[type.ordinal()].increment();
+        }
+    }
+
+    /**
+     * Records several sensors of one type changing their activation status the same way at once.
+     */
+    public void sensorsChanged(SensorType type, boolean active, int count) {
+        if (type != null) {
+            (active ? activations : deactivations)[type.ordinal()].add(count);
+        }
+    }
+
+    /**
+     * Records the alarm status changing. Writes of the status it already had are ignored.
+     */
+    public void alarmTransition(AlarmStatus from, AlarmStatus to) {
+        if (from != null && to != null && from != to) {
+            transitions[from.ordinal() * ALARM_STATUSES.length + to.ordinal()].increment();
+        }
+    }
+
+    public long getSensorActivations(SensorType type) {
+        return activations[type.ordinal()].sum();
+    }
+
+    public long getSensorDeactivations(SensorType type) {
+        return deactivations[type.ordinal()].sum();
+    }
+
+    public long getAlarmTransitions(AlarmStatus from, AlarmStatus to) {
+        return transitions[from.ordinal() * ALARM_STATUSES.length + to.ordinal()].sum();
+    }
+
+    @Override
+    public Map<String, Long> getSensorActivations() {
+        return byType(activations);
+    }
+
+    @Override
+    public Map<String, Long> getSensorDeactivations() {
+        return byType(deactivations);
+    }
+
+    @Override
+    public Map<String, Long> getAlarmTransitions() {
+        Map<String, Long> edges = new LinkedHashMap<>();
+        for (AlarmStatus from : ALARM_STATUSES) {
+            for (AlarmStatus to : ALARM_STATUSES) {
+                if (from != to) {
+                    edges.put(from + "->" + to, getAlarmTransitions(from, to));
+                }
+            }
+        }
+        return edges;
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder[] group : new LongAdder[][]{activations, deactivations, transitions}) {
+            for (LongAdder counter : group) {
+                counter.reset();
+            }
+        }
+    }
+
+    private static Map<String, Long> byType(LongAdder[] counters) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (SensorType type : SENSOR_TYPES) {
+            counts.put(type.name(), counters[type.ordinal()].sum());
+        }
+        return counts;
+    }
+
+    private static LongAdder[] counters(int size) {
+        LongAdder[] counters = new LongAdder[size];
+        for (int i = 0; i < size; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+}
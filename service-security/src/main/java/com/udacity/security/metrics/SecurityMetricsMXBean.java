@@ -0,0 +1,26 @@
+package com.udacity.security.metrics;
+
+import java.util.Map;
+
+/**
+ * Sensor and alarm statistics, see SecurityMetrics.
+ */
+public interface SecurityMetricsMXBean {
+
+    /**
+     * @return Number of times a sensor went from inactive to active, by sensor type
+     */
+    Map<String, Long> getSensorActivations();
+
+    /**
+     * @return Number of times a sensor went from active to inactive, by sensor type
+     */
+    Map<String, Long> getSensorDeactivations();
+
+    /**
+     * @return Number of alarm status changes, keyed by edge such as "NO_ALARM->PENDING_ALARM"
+     */
+    Map<String, Long> getAlarmTransitions();
+
+    void reset();
+}
@@ -0,0 +1,329 @@
+package com.udacity.security.service;
+
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.SensorType;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Alarm status that follows a sensor event, for every combination of arming status, alarm status,
+ * sensor type and trigger, compiled into one flat array indexed by the enum ordinals. Looking up a
+ * transition is a single array read, whatever the rules say.
+ *
+ * The default rules are those of AlarmStateMachine.alarmAfterActivation, alarmAfterDeactivation and
+ * alarmAfterReport, identical for every sensor type. They can be overridden from a properties file
+ * with one rule per line, each of the four key parts either a constant name or * for all of them:
+ * <pre>
+ *     # arming.alarm.sensorType.trigger = alarm status to move to, or UNCHANGED
+ *     ARMED_HOME.*.MOTION.ACTIVATED = UNCHANGED
+ *     ARMED_AWAY.NO_ALARM.DOOR.ACTIVATED = ALARM
+ * </pre>
+ * Where rules overlap, the one with fewer wildcards wins. Two rules with the same number of wildcards
+ * that overlap and disagree are rejected, unless a rule with fewer wildcards settles every case they
+ * share. Sensors without a type only follow rules whose type is *. A null arming status counts as DISARMED.
+ *
+ * Immutable, so one instance can be shared by any number of threads.
+ */
+public final class AlarmRules {
+
+    /**
+     * Name of the system property that points at a rules file to load at startup.
+     */
+    public static final String RULES_PROPERTY = "catpoint.rules";
+    public static final String UNCHANGED = "UNCHANGED";
+    private static final String WILDCARD = "*";
+
+    /**
+     * What a sensor did.
+     */
+    public enum Trigger {
+        /** The sensor was set active, whether or not it already was. */
+        ACTIVATED,
+        /** An active sensor was set inactive. */
+        DEACTIVATED,
+        /** An inactive sensor was reported again through SecurityService.deactivateSensor. */
+        REPORTED_INACTIVE,
+        /** An active sensor was reported again through SecurityService.deactivateSensor. */
+        REPORTED_ACTIVE
+    }
+
+    private static final ArmingStatus[] ARMINGS = ArmingStatus.values();
+    private static final AlarmStatus[] ALARMS = AlarmStatus.values();
+    private static final SensorType[] TYPES = SensorType.values();
+    private static final Trigger[] TRIGGERS = Trigger.values();
+
+    private static final int DISARMED = ArmingStatus.DISARMED.ordinal();
+    //one extra type column for sensors without a type
+    private static final int TYPE_COLUMNS = TYPES.length + 1;
+    private static final int UNTYPED = TYPES.length;
+    private static final int TYPE_STRIDE = TRIGGERS.length;
+    private static final int ALARM_STRIDE = TYPE_COLUMNS * TYPE_STRIDE;
+    private static final int ARMING_STRIDE = ALARMS.length * ALARM_STRIDE;
+
+    private static final AlarmRules DEFAULTS = new AlarmRules(defaultTable());
+
+    private final AlarmStatus[] table;
+
+    private AlarmRules(AlarmStatus[] table) {
+        this.table = table;
+    }
+
+    /**
+     * @return The rules the system has always followed
+     */
+    public static AlarmRules defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * @return The default rules with the overrides from the file named by the catpoint.rules system
+     * property, or just the defaults if it is not set
+     */
+    public static AlarmRules load() {
+        String file = System.getProperty(RULES_PROPERTY);
+        return file == null ? DEFAULTS : load(Paths.get(file));
+    }
+
+    /**
+     * @return The default rules with the overrides from the given properties file
+     */
+    public static AlarmRules load(Path file) {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to read alarm rules from " + file, ioe);
+        }
+        return DEFAULTS.withOverrides(properties);
+    }
+
+    /**
+     * @param overrides Rules in the arming.alarm.sensorType.trigger = status format
+     * @return These rules with the overrides applied
+     * @throws IllegalArgumentException If a rule names a constant that does not exist, or two rules
+     * are ambiguous
+     */
+    public AlarmRules withOverrides(Properties overrides) {
+        List<Rule> rules = new ArrayList<>();
+        for (String key : overrides.stringPropertyNames()) {
+            rules.add(Rule.parse(key.trim(), overrides.getProperty(key).trim()));
+        }
+        checkAmbiguity(rules);
+        //most general first, so that more specific rules overwrite them
+        rules.sort(Comparator.comparingInt(Rule::wildcards).reversed());
+
+        AlarmStatus[] compiled = table.clone();
+        for (Rule rule : rules) {
+            rule.applyTo(compiled);
+        }
+        return new AlarmRules(compiled);
+    }
+
+    /**
+     * @param arming Current arming status, null counts as DISARMED
+     * @param alarm Current alarm status
+     * @param type Type of the sensor, or null
+     * @param trigger What the sensor did
+     * @return The alarm status to move to, which is the current one if nothing should change
+     */
+    public AlarmStatus next(ArmingStatus arming, AlarmStatus alarm, SensorType type, Trigger trigger) {
+        int armingIndex = arming == null ? DISARMED : arming.ordinal();
+        int typeIndex = type == null ? UNTYPED : type.ordinal();
+        return table[armingIndex * ARMING_STRIDE + alarm.ordinal() * ALARM_STRIDE
+                + typeIndex * TYPE_STRIDE + trigger.ordinal()];
+    }
+
+    /**
+     * Alarm status after the given numbers of active sensors were deactivated together, as when arming
+     * resets every sensor. Each type takes one DEACTIVATED step, repeated for further sensors of that
+     * type only while the alarm still changes, so the cost follows the number of types rather than the
+     * number of sensors.
+     * @param deactivated Number of deactivated sensors by type, null for sensors without a type
+     */
+    public AlarmStatus afterDeactivations(ArmingStatus arming, AlarmStatus alarm, Map<SensorType, Integer> deactivated) {
+        for (Map.Entry<SensorType, Integer> entry : deactivated.entrySet()) {
+            for (int i = 0; i < entry.getValue(); i++) {
+                AlarmStatus next = next(arming, alarm, entry.getKey(), Trigger.DEACTIVATED);
+                if (next == alarm) {
+                    break;
+                }
+                alarm = next;
+            }
+        }
+        return alarm;
+    }
+
+    /**
+     * Rules with the same number of wildcards are applied in no particular order, so where two of
+     * them meet with different targets, a more specific rule has to decide.
+     */
+    private static void checkAmbiguity(List<Rule> rules) {
+        for (int i = 0; i < rules.size(); i++) {
+            Rule a = rules.get(i);
+            for (int j = i + 1; j < rules.size(); j++) {
+                Rule b = rules.get(j);
+                if (a.wildcards() != b.wildcards() || a.target == b.target) {
+                    continue;
+                }
+                Rule shared = a.intersect(b);
+                if (shared != null && rules.stream().noneMatch(r -> r.wildcards() < a.wildcards() && r.covers(shared))) {
+                    throw new IllegalArgumentException("Alarm rules " + a.key + " and " + b.key
+                            + " overlap and disagree; add a more specific rule for " + shared.key + " or remove one of them");
+                }
+            }
+        }
+    }
+
+    private static int indexOf(int arming, int alarm, int type, int trigger) {
+        return arming * ARMING_STRIDE + alarm * ALARM_STRIDE + type * TYPE_STRIDE + trigger;
+    }
+
+    private static AlarmStatus[] defaultTable() {
+        AlarmStatus[] table = new AlarmStatus[ARMINGS.length * ARMING_STRIDE];
+        for (ArmingStatus arming : ARMINGS) {
+            for (AlarmStatus alarm : ALARMS) {
+                for (int type = 0; type < TYPE_COLUMNS; type++) {
+                    for (Trigger trigger : TRIGGERS) {
+                        table[indexOf(arming.ordinal(), alarm.ordinal(), type, trigger.ordinal())] =
+                                defaultNext(arming, alarm, trigger);
+                    }
+                }
+            }
+        }
+        return table;
+    }
+
+    private static AlarmStatus defaultNext(ArmingStatus arming, AlarmStatus alarm, Trigger trigger) {
+        return switch (trigger) {
+            //a full alarm is only ever cleared by disarming or the cat check, never by a sensor change
+            case ACTIVATED -> alarm == AlarmStatus.ALARM ? alarm : AlarmStateMachine.alarmAfterActivation(arming, alarm);
+            case DEACTIVATED -> alarm == AlarmStatus.ALARM ? alarm : AlarmStateMachine.alarmAfterDeactivation(alarm);
+            case REPORTED_INACTIVE -> AlarmStateMachine.alarmAfterReport(arming, alarm, false);
+            case REPORTED_ACTIVE -> AlarmStateMachine.alarmAfterReport(arming, alarm, true);
+        };
+    }
+
+    /**
+     * One parsed override. A null constant stands for the wildcard.
+     */
+    private static class Rule {
+        private final String key;
+        private final ArmingStatus arming;
+        private final AlarmStatus alarm;
+        private final SensorType type;
+        private final Trigger trigger;
+        private final AlarmStatus target; //null keeps the current alarm status
+
+        private Rule(String key, ArmingStatus arming, AlarmStatus alarm, SensorType type, Trigger trigger, AlarmStatus target) {
+            this.key = key;
+            this.arming = arming;
+            this.alarm = alarm;
+            this.type = type;
+            this.trigger = trigger;
+            this.target = target;
+        }
+
+        static Rule parse(String key, String value) {
+            String[] parts = key.split("\\.");
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Alarm rule " + key + " must have the form arming.alarm.sensorType.trigger");
+            }
+            try {
+                return new Rule(key,
+                        constant(ArmingStatus.class, parts[0]),
+                        constant(AlarmStatus.class, parts[1]),
+                        constant(SensorType.class, parts[2]),
+                        constant(Trigger.class, parts[3]),
+                        UNCHANGED.equals(value) ? null : AlarmStatus.valueOf(value));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid alarm rule " + key + " = " + value, e);
+            }
+        }
+
+        private static <E extends Enum<E>> E constant(Class<E> type, String name) {
+            return WILDCARD.equals(name) ? null : Enum.valueOf(type, name);
+        }
+
+        /**
+         * @return The cases both rules apply to, as a rule without a target, or null if there are none
+         */
+        Rule intersect(Rule other) {
+            ArmingStatus a = narrow(arming, other.arming);
+            AlarmStatus s = narrow(alarm, other.alarm);
+            SensorType t = narrow(type, other.type);
+            Trigger e = narrow(trigger, other.trigger);
+            boolean disjoint = (a == null && arming != other.arming)
+                    || (s == null && alarm != other.alarm)
+                    || (t == null && type != other.type)
+                    || (e == null && trigger != other.trigger);
+            if (disjoint) {
+                return null;
+            }
+            return new Rule(name(a) + "." + name(s) + "." + name(t) + "." + name(e), a, s, t, e, null);
+        }
+
+        /**
+         * @return True if this rule applies to every case the other one does
+         */
+        boolean covers(Rule other) {
+            return (arming == null || arming == other.arming)
+                    && (alarm == null || alarm == other.alarm)
+                    && (type == null || type == other.type)
+                    && (trigger == null || trigger == other.trigger);
+        }
+
+        /**
+         * @return The more specific of two parts, or null if both are wildcards or they contradict
+         */
+        private static <E extends Enum<E>> E narrow(E first, E second) {
+            if (first == null) {
+                return second;
+            }
+            return second == null || second == first ? first : null;
+        }
+
+        private static String name(Enum<?> constant) {
+            return constant == null ? WILDCARD : constant.name();
+        }
+
+        int wildcards() {
+            return (arming == null ? 1 : 0) + (alarm == null ? 1 : 0) + (type == null ? 1 : 0) + (trigger == null ? 1 : 0);
+        }
+
+        void applyTo(AlarmStatus[] table) {
+            for (ArmingStatus a : ARMINGS) {
+                if (arming != null && arming != a) {
+                    continue;
+                }
+                for (AlarmStatus s : ALARMS) {
+                    if (alarm != null && alarm != s) {
+                        continue;
+                    }
+                    for (int t = 0; t < TYPE_COLUMNS; t++) {
+                        //a typed rule never covers sensors without a type
+                        if (type != null && type.ordinal() != t) {
+                            continue;
+                        }
+                        for (Trigger e : TRIGGERS) {
+                            if (trigger == null || trigger == e) {
+                                table[indexOf(a.ordinal(), s.ordinal(), t, e.ordinal())] = target == null ? s : target;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.udacity.security.service;
+
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.SensorType;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * Lock-free holder for the alarm, arming and cat state. Every event is a pure function from one
+ * SystemState to the next, applied with compare-and-set, so any number of threads can feed events
+ * in without a lock and without one thread overwriting another's transition. Sensor events are
+ * looked up in the AlarmRules table.
+ */
+public class AlarmStateMachine {
+
+    private final AtomicReference<SystemState> state;
+    private volatile AlarmRules rules;
+
+    public AlarmStateMachine(SystemState initial) {
+        this(initial, AlarmRules.defaults());
+    }
+
+    public AlarmStateMachine(SystemState initial, AlarmRules rules) {
+        this.state = new AtomicReference<>(initial);
+        this.rules = rules;
+    }
+
+    public void setRules(AlarmRules rules) {
+        this.rules = rules;
+    }
+
+    public SystemState getState() {
+        return state.get();
+    }
+
+    /**
+     * Applies the transition function until it wins the compare-and-set. The function may run more
+     * than once under contention, so it must not have side effects.
+     * @param transition Function from the current state to the next one
+     * @return The state the winning attempt started from and the state it produced
+     */
+    public StateTransition apply(UnaryOperator<SystemState> transition) {
+        while (true) {
+            SystemState current = state.get();
+            SystemState next = transition.apply(current);
+            if (next == current) {
+                return new StateTransition(current, current);
+            }
+            next = next.withVersion(current.getVersion() + 1);
+            if (state.compareAndSet(current, next)) {
+                return new StateTransition(current, next);
+            }
+        }
+    }
+
+    /**
+     * A single sensor without a type changed from wasActive to active.
+     */
+    public StateTransition sensorChanged(boolean wasActive, boolean active) {
+        return sensorChanged(null, wasActive, active);
+    }
+
+    /**
+     * A single sensor of the given type changed from wasActive to active.
+     */
+    public StateTransition sensorChanged(SensorType type, boolean wasActive, boolean active) {
+        AlarmRules current = rules;
+        return apply(s -> onSensorChanged(current, s, type, wasActive, active));
+    }
+
+    /**
+     * A batch of sensors changed, evaluated in order as one atomic transition.
+     */
+    public StateTransition sensorsChanged(SensorType[] types, boolean[] wasActive, boolean[] active, int count) {
+        AlarmRules current = rules;
+        return apply(s -> {
+            SystemState next = s;
+            for (int i = 0; i < count; i++) {
+                next = onSensorChanged(current, next, types[i], wasActive[i], active[i]);
+            }
+            return next;
+        });
+    }
+
+    public StateTransition sensorAdded(boolean active) {
+        return apply(s -> active ? s.withActiveSensors(s.getActiveSensors() + 1) : s);
+    }
+
+    public StateTransition sensorRemoved(boolean wasActive) {
+        return apply(s -> wasActive ? s.withActiveSensors(s.getActiveSensors() - 1) : s);
+    }
+
+    public StateTransition armingChanged(ArmingStatus arming) {
+        return apply(s -> onArmingChanged(s, arming));
+    }
+
+    /**
+     * The arming status changed and active sensors were reset to inactive because of it, evaluated
+     * under the new arming status as one atomic transition, so no other event can see the system
+     * armed with the sensors not yet reset.
+     * @param deactivated Number of sensors that were reset by type, see AlarmRules.afterDeactivations
+     */
+    public StateTransition armingChanged(ArmingStatus arming, Map<SensorType, Integer> deactivated) {
+        AlarmRules current = rules;
+        int count = deactivated.values().stream().mapToInt(Integer::intValue).sum();
+        return apply(s -> {
+            SystemState next = onArmingChanged(s, arming);
+            next = withAlarm(next, current.afterDeactivations(arming, next.getAlarmStatus(), deactivated));
+            return count == 0 ? next : next.withActiveSensors(next.getActiveSensors() - count);
+        });
+    }
+
+    public StateTransition catDetected(boolean cat) {
+        return apply(s -> {
+            SystemState next = s.isCatDetected() == cat ? s : s.withCatDetected(cat);
+            if (s.getArmingStatus() == ArmingStatus.ARMED_HOME && cat) {
+                next = withAlarm(next, AlarmStatus.ALARM);
+            } else if (s.getActiveSensors() == 0 && !cat) {
+                next = withAlarm(next, AlarmStatus.NO_ALARM);
+            }
+            return next;
+        });
+    }
+
+    /**
+     * Mirrors SecurityService.deactivateSensor, a sensor of the given type reported again.
+     */
+    public StateTransition sensorReset(SensorType type, boolean sensorActive) {
+        AlarmRules current = rules;
+        AlarmRules.Trigger trigger = sensorActive ? AlarmRules.Trigger.REPORTED_ACTIVE : AlarmRules.Trigger.REPORTED_INACTIVE;
+        return apply(s -> withAlarm(s, current.next(s.getArmingStatus(), s.getAlarmStatus(), type, trigger)));
+    }
+
+    /**
+     * The entry delay ran out: a pending alarm becomes a full alarm, anything else is left alone.
+     */
+    public StateTransition pendingAlarmExpired() {
+        return apply(s -> s.getAlarmStatus() == AlarmStatus.PENDING_ALARM ? withAlarm(s, AlarmStatus.ALARM) : s);
+    }
+
+    public StateTransition alarmStatusSet(AlarmStatus alarm) {
+        return apply(s -> withAlarm(s, alarm));
+    }
+
+    private static SystemState onArmingChanged(SystemState s, ArmingStatus arming) {
+        SystemState next = s.withArmingStatus(arming);
+        if (arming == ArmingStatus.ARMED_HOME && s.isCatDetected()) {
+            next = next.withAlarmStatus(AlarmStatus.ALARM);
+        }
+        if (arming == ArmingStatus.DISARMED) {
+            next = next.withAlarmStatus(AlarmStatus.NO_ALARM);
+        }
+        return next;
+    }
+
+    private static SystemState onSensorChanged(AlarmRules rules, SystemState s, SensorType type, boolean wasActive, boolean active) {
+        AlarmStatus alarm = s.getAlarmStatus();
+        if (active) {
+            alarm = rules.next(s.getArmingStatus(), alarm, type, AlarmRules.Trigger.ACTIVATED);
+        } else if (wasActive) {
+            alarm = rules.next(s.getArmingStatus(), alarm, type, AlarmRules.Trigger.DEACTIVATED);
+        }
+        SystemState next = withAlarm(s, alarm);
+        if (wasActive != active) {
+            next = next.withActiveSensors(s.getActiveSensors() + (active ? 1 : -1));
+        }
+        return next;
+    }
+
+    private static SystemState withAlarm(SystemState s, AlarmStatus alarm) {
+        return s.getAlarmStatus() == alarm ? s : s.withAlarmStatus(alarm);
+    }
+
+    /**
+     * Alarm status that follows a sensor activation.
+     */
+    static AlarmStatus alarmAfterActivation(ArmingStatus arming, AlarmStatus alarm) {
+        if (arming == ArmingStatus.DISARMED) {
+            return alarm;
+        }
+        return switch (alarm) {
+            case NO_ALARM -> AlarmStatus.PENDING_ALARM;
+            case PENDING_ALARM, ALARM -> AlarmStatus.ALARM;
+        };
+    }
+
+    /**
+     * Alarm status that follows a sensor being reported again: an inactive sensor clears a pending
+     * alarm, and any sensor report steps a full alarm down once the system has been disarmed.
+     */
+    static AlarmStatus alarmAfterReport(ArmingStatus arming, AlarmStatus alarm, boolean sensorActive) {
+        if (!sensorActive && alarm == AlarmStatus.PENDING_ALARM
+                || arming == ArmingStatus.DISARMED && alarm == AlarmStatus.ALARM) {
+            return alarmAfterDeactivation(alarm);
+        }
+        return alarm;
+    }
+
+    /**
+     * Alarm status that follows a sensor deactivation.
+     */
+    static AlarmStatus alarmAfterDeactivation(AlarmStatus alarm) {
+        return switch (alarm) {
+            case PENDING_ALARM -> AlarmStatus.NO_ALARM;
+            case ALARM -> AlarmStatus.PENDING_ALARM;
+            case NO_ALARM -> AlarmStatus.NO_ALARM;
+        };
+    }
+}
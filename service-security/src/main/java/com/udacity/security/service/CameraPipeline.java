@@ -0,0 +1,390 @@
+package com.udacity.security.service;
+
+import com.udacity.image.service.ImageServiceHelper;
+import com.udacity.image.service.MotionGate;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Scans frames from any number of cameras for cats. Every camera has a small queue of its own, and a
+ * shared pool of workers takes frames from those queues and sends them to the image service. A camera
+ * never has more than one frame being classified at a time, so one busy camera cannot take over the
+ * whole pool. When a camera's queue is full, its oldest frame is dropped to make room for the new one.
+ *
+ * Results are merged before they reach the SecurityService: a cat is detected as long as any camera
+ * last saw one, so one camera seeing an empty room does not cancel another camera's sighting. The
+ * merged result is handed to the SecurityService outside the pipeline's lock by one worker at a time,
+ * which always passes on the latest value, so workers never wait on the repository.
+ *
+ * Optionally every camera gets a MotionGate, and frames that barely differ from the last classified
+ * frame of that camera keep its previous result instead of being sent to the image service.
+ */
+public class CameraPipeline implements AutoCloseable {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 2;
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private final SecurityService securityService;
+    private final ImageServiceHelper imageService;
+    private final int queueCapacity;
+    private final Supplier<MotionGate> motionGates;
+    private final ExecutorService workers;
+    private final Map<String, Camera> cameras = new ConcurrentHashMap<>();
+
+    //merged cat state, guarded by this
+    private int camerasSeeingCat;
+    private Boolean publishedCat;
+    //latest merged state to hand to the SecurityService, and the worker currently doing so
+    private volatile boolean latestCat;
+    private final AtomicInteger publishWork = new AtomicInteger();
+    //last state the SecurityService accepted, or null if the last attempt failed; only written by the worker that holds publishWork
+    private volatile Boolean deliveredCat;
+    private volatile boolean closed;
+
+    private final long startNanos = System.nanoTime();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder publishFailed = new LongAdder();
+    private final LongAdder totalLatencyNanos = new LongAdder();
+    private volatile long lastLatencyNanos;
+    private volatile long maxLatencyNanos;
+
+    public CameraPipeline(SecurityService securityService, int workerCount) {
+        this(securityService, workerCount, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * @param securityService Service to report the merged cat state to, using its image service
+     * @param workerCount Number of frames classified at the same time
+     * @param queueCapacity Number of frames each camera may have waiting
+     */
+    public CameraPipeline(SecurityService securityService, int workerCount, int queueCapacity) {
+        this(securityService, workerCount, queueCapacity, null);
+    }
+
+    /**
+     * @param securityService Service to report the merged cat state to, using its image service
+     * @param workerCount Number of frames classified at the same time
+     * @param queueCapacity Number of frames each camera may have waiting
+     * @param motionGates Creates the motion gate for each new camera, or null to classify every frame
+     */
+    public CameraPipeline(SecurityService securityService, int workerCount, int queueCapacity,
+                          Supplier<MotionGate> motionGates) {
+        this.securityService = securityService;
+        this.imageService = securityService.getImageService();
+        this.queueCapacity = queueCapacity;
+        this.motionGates = motionGates;
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "camera-worker-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /**
+     * Queues a frame from the given camera. Never blocks; if the camera already has a full queue
+     * the oldest waiting frame is dropped.
+     * @param cameraId Any name that identifies the camera
+     * @param frame
+     * @throws RejectedExecutionException if the pipeline has been closed
+     */
+    public void submit(String cameraId, BufferedImage frame) {
+        if (closed) {
+            throw new RejectedExecutionException("Camera pipeline is closed");
+        }
+        Camera camera = cameras.computeIfAbsent(cameraId, id -> new Camera(motionGates == null ? null : motionGates.get()));
+        submitted.increment();
+        boolean schedule;
+        synchronized (camera) {
+            if (camera.queue.size() >= queueCapacity) {
+                camera.queue.pollFirst();
+                dropped.increment();
+            }
+            camera.queue.addLast(new Frame(frame, System.nanoTime()));
+            schedule = !camera.scheduled;
+            camera.scheduled = true;
+        }
+        if (schedule) {
+            workers.execute(() -> drain(camera));
+        }
+    }
+
+    /**
+     * Forgets a camera. Frames still waiting are discarded and its last result no longer counts
+     * towards the merged cat state.
+     */
+    public void removeCamera(String cameraId) {
+        Camera camera = cameras.remove(cameraId);
+        if (camera == null) {
+            return;
+        }
+        synchronized (camera) {
+            dropped.add(camera.queue.size());
+            camera.queue.clear();
+        }
+        boolean changed;
+        synchronized (this) {
+            changed = updateCat(camera, false);
+            camera.removed = true;
+        }
+        if (changed) {
+            publishCat();
+        }
+    }
+
+    /**
+     * Classifies one frame of the camera, then puts the camera back in line for the pool if more
+     * frames have arrived in the meantime.
+     */
+    private void drain(Camera camera) {
+        Frame frame;
+        synchronized (camera) {
+            frame = camera.queue.pollFirst();
+            if (frame == null) {
+                camera.scheduled = false;
+                return;
+            }
+        }
+        boolean classified = false;
+        boolean publish = false;
+        try {
+            //the gate and classified flag are only used by the one worker that holds the camera
+            if (camera.gate != null && !camera.gate.hasMotion(frame.image) && camera.classified) {
+                skipped.increment();
+            } else {
+                boolean cat = imageService.imageContainsCat(frame.image, SecurityService.CAT_CONFIDENCE_THRESHOLD);
+                //only a classified frame becomes the reference, so a failure is retried on the next frame
+                if (camera.gate != null) {
+                    camera.gate.commit(frame.image);
+                }
+                camera.classified = true;
+                publish = updateCat(camera, cat);
+            }
+            classified = true;
+        } catch (RuntimeException e) {
+            //a frame that cannot be classified must not stop the camera
+            failed.increment();
+        }
+        if (publish) {
+            try {
+                publishCat();
+            } catch (RuntimeException e) {
+                //the frame itself was classified; the state is sent again with the next frame
+                publishFailed.increment();
+            }
+        }
+        if (classified) {
+            recordLatency(System.nanoTime() - frame.submittedNanos);
+            processed.increment();
+        }
+        boolean more;
+        synchronized (camera) {
+            more = !camera.queue.isEmpty();
+            camera.scheduled = more;
+        }
+        if (more) {
+            workers.execute(() -> drain(camera));
+        }
+    }
+
+    /**
+     * @return True if the merged cat state changed, or the last attempt to deliver it failed, and it
+     * has to be published
+     */
+    private synchronized boolean updateCat(Camera camera, boolean cat) {
+        if (camera.removed) {
+            return false;
+        }
+        if (camera.seesCat != cat) {
+            camera.seesCat = cat;
+            camerasSeeingCat += cat ? 1 : -1;
+        }
+        boolean merged = camerasSeeingCat > 0;
+        if (publishedCat != null && publishedCat == merged && deliveredCat != null) {
+            return false;
+        }
+        publishedCat = merged;
+        latestCat = merged;
+        return true;
+    }
+
+    /**
+     * Hands the latest merged state to the SecurityService. Only one worker does so at a time; one that
+     * finds another already at it leaves its change to that worker, which checks again before it stops,
+     * so an older state can never overwrite a newer one.
+     */
+    private void publishCat() {
+        if (publishWork.getAndIncrement() != 0) {
+            return;
+        }
+        RuntimeException failure = null;
+        int missed = 1;
+        do {
+            boolean merged = latestCat;
+            if (deliveredCat == null || deliveredCat != merged) {
+                try {
+                    securityService.catDetected(merged);
+                    deliveredCat = merged;
+                } catch (RuntimeException e) {
+                    //not delivered, so updateCat has the next frame publish it again even if it is unchanged
+                    deliveredCat = null;
+                    failure = e;
+                }
+            }
+            missed = publishWork.addAndGet(-missed);
+        } while (missed != 0);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void recordLatency(long latency) {
+        totalLatencyNanos.add(latency);
+        lastLatencyNanos = latency;
+        if (latency > maxLatencyNanos) {
+            maxLatencyNanos = latency;
+        }
+    }
+
+    /**
+     * @return True if any camera currently sees a cat
+     */
+    public synchronized boolean isCatDetected() {
+        return camerasSeeingCat > 0;
+    }
+
+    public long getSubmitted() {
+        return submitted.sum();
+    }
+
+    public long getProcessed() {
+        return processed.sum();
+    }
+
+    /**
+     * @return Number of frames that were replaced by a newer one before they could be classified
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return Number of frames that kept the previous result because the motion gate saw no change
+     */
+    public long getSkipped() {
+        return skipped.sum();
+    }
+
+    /**
+     * @return Number of frames that could not be classified
+     */
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    /**
+     * @return Number of times the merged cat state could not be handed to the SecurityService
+     */
+    public long getPublishFailed() {
+        return publishFailed.sum();
+    }
+
+    /**
+     * @return Frames processed per second since the pipeline was created, including skipped ones
+     */
+    public double getThroughputPerSecond() {
+        long elapsed = System.nanoTime() - startNanos;
+        return elapsed == 0 ? 0 : processed.sum() * 1e9 / elapsed;
+    }
+
+    /**
+     * @return Number of frames waiting across all cameras
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (Camera camera : cameras.values()) {
+            depth += getQueueDepth(camera);
+        }
+        return depth;
+    }
+
+    /**
+     * @return Number of frames waiting for the camera
+     */
+    public int getQueueDepth(String cameraId) {
+        Camera camera = cameras.get(cameraId);
+        return camera == null ? 0 : getQueueDepth(camera);
+    }
+
+    private int getQueueDepth(Camera camera) {
+        synchronized (camera) {
+            return camera.queue.size();
+        }
+    }
+
+    /**
+     * @return Time from submitting the most recently classified frame to its result
+     */
+    public long getLastLatencyNanos() {
+        return lastLatencyNanos;
+    }
+
+    public long getMaxLatencyNanos() {
+        return maxLatencyNanos;
+    }
+
+    public long getMeanLatencyNanos() {
+        long count = processed.sum();
+        return count == 0 ? 0 : totalLatencyNanos.sum() / count;
+    }
+
+    /**
+     * Stops the workers. Frames still waiting are discarded.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        workers.shutdownNow();
+    }
+
+    private static class Camera {
+        //queue and scheduled are guarded by the camera
+        private final ArrayDeque<Frame> queue = new ArrayDeque<>();
+        private boolean scheduled;
+        private final MotionGate gate;
+        private boolean classified;
+        //removed and seesCat are guarded by the pipeline
+        private boolean removed;
+        private boolean seesCat;
+
+        Camera(MotionGate gate) {
+            this.gate = gate;
+        }
+    }
+
+    private static class Frame {
+        private final BufferedImage image;
+        private final long submittedNanos;
+
+        Frame(BufferedImage image, long submittedNanos) {
+            this.image = image;
+            this.submittedNanos = submittedNanos;
+        }
+    }
+}
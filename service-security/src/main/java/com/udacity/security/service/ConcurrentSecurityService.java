@@ -0,0 +1,321 @@
+package com.udacity.security.service;
+
+import com.udacity.image.service.ImageServiceHelper;
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.SecurityRepository;
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorEvent;
+import com.udacity.security.data.SensorType;
+import com.udacity.security.jfr.SensorChangeEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * SecurityService that can be fed from many threads at once. The alarm, arming and cat state live in
+ * an AlarmStateMachine instead of being read back from the repository, so two sensors firing at the
+ * same moment can no longer both see NO_ALARM and lose the escalation.
+ *
+ * A sensor's flag is swapped and its transition applied while holding the lock stripe of that sensor
+ * only, so two threads toggling the same sensor apply their transitions in the order they swapped the
+ * flag. Batches take the stripes of all their sensors in ascending order. The resulting status is
+ * written to the repository by whichever thread happens to be publishing: other threads just leave
+ * a note that there is more to write and return. The repository must be safe for concurrent use,
+ * such as JournaledSecurityRepositoryImpl.
+ */
+public class ConcurrentSecurityService extends SecurityService {
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final SecurityRepository securityRepository;
+    private final AlarmStateMachine stateMachine;
+    private final ReentrantLock[] sensorLocks = new ReentrantLock[LOCK_STRIPES];
+    //every image scan result is passed on to the listeners, not only changes
+    private final AtomicLong catReports = new AtomicLong();
+
+    //publish state, only touched by the thread that took publishWork from 0 to 1
+    private final AtomicInteger publishWork = new AtomicInteger();
+    private AlarmStatus publishedAlarm;
+    private ArmingStatus publishedArming;
+    private long publishedCatReports;
+
+    public ConcurrentSecurityService(SecurityRepository securityRepository, ImageServiceHelper imageService) {
+        super(securityRepository, imageService);
+        this.securityRepository = securityRepository;
+        int active = securityRepository.getActiveSensorCount();
+        this.publishedAlarm = securityRepository.getAlarmStatus();
+        this.publishedArming = securityRepository.getArmingStatus();
+        this.stateMachine = new AlarmStateMachine(new SystemState(publishedAlarm, publishedArming, false, active));
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            sensorLocks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * @return The current state, including the number of active sensors
+     */
+    public SystemState getState() {
+        return stateMachine.getState();
+    }
+
+    /**
+     * Change the activation status for the specified sensor and return the transition it caused.
+     * @param sensor
+     * @param active
+     */
+    public StateTransition changeSensorState(Sensor sensor, boolean active) {
+        SensorChangeEvent event = new SensorChangeEvent();
+        event.begin();
+        boolean wasActive;
+        StateTransition transition;
+        ReentrantLock lock = lockFor(sensor);
+        lock.lock();
+        try {
+            wasActive = Boolean.TRUE.equals(sensor.getActive());
+            sensor.setActive(active);
+            transition = stateMachine.sensorChanged(sensor.getSensorType(), wasActive, active);
+        } finally {
+            lock.unlock();
+        }
+        if (wasActive != active) {
+            recordSensorChange(sensor, active);
+        }
+        securityRepository.updateSensor(sensor);
+        publish();
+        event.finish(sensor, wasActive, active);
+        return transition;
+    }
+
+    @Override
+    public void changeSensorActivationStatus(Sensor sensor, Boolean active) {
+        changeSensorState(sensor, active);
+    }
+
+    @Override
+    public void applySensorEvents(Collection<SensorEvent> events) {
+        if (applyEvents(events).isChanged()) {
+            getStatusDispatcher().publishSensorStatusChanged();
+        }
+    }
+
+    /**
+     * Applies all events as a single atomic transition.
+     */
+    private StateTransition applyEvents(Collection<SensorEvent> events) {
+        SensorType[] types = new SensorType[events.size()];
+        boolean[] wasActive = new boolean[events.size()];
+        boolean[] active = new boolean[events.size()];
+        List<Sensor> changed = new ArrayList<>();
+        boolean[] stripes = new boolean[LOCK_STRIPES];
+        for (SensorEvent event : events) {
+            stripes[stripeOf(event.getSensor())] = true;
+        }
+        StateTransition transition;
+        lockStripes(stripes);
+        try {
+            int count = 0;
+            for (SensorEvent event : events) {
+                Sensor sensor = event.getSensor();
+                types[count] = sensor.getSensorType();
+                wasActive[count] = Boolean.TRUE.equals(sensor.getActive());
+                sensor.setActive(event.isActive());
+                active[count] = event.isActive();
+                if (wasActive[count] != active[count]) {
+                    changed.add(sensor);
+                }
+                count++;
+            }
+            transition = stateMachine.sensorsChanged(types, wasActive, active, count);
+        } finally {
+            unlockStripes(stripes);
+        }
+        for (Sensor sensor : changed) {
+            recordSensorChange(sensor, Boolean.TRUE.equals(sensor.getActive()));
+        }
+        if (!changed.isEmpty()) {
+            securityRepository.updateSensors(changed);
+        }
+        publish();
+        return transition;
+    }
+
+    @Override
+    public void deactivateSensor(Sensor sensor) {
+        ReentrantLock lock = lockFor(sensor);
+        lock.lock();
+        try {
+            stateMachine.sensorReset(sensor.getSensorType(), Boolean.TRUE.equals(sensor.getActive()));
+        } finally {
+            lock.unlock();
+        }
+        securityRepository.updateSensor(sensor);
+        publish();
+    }
+
+    /**
+     * Arming resets every sensor to inactive through the repository's bulk path. The arming change and
+     * the reset are a single transition taken with all lock stripes held, so no other event sees the
+     * system armed before the reset.
+     */
+    @Override
+    public void setArmingStatus(ArmingStatus armingStatus) {
+        if (armingStatus == ArmingStatus.DISARMED) {
+            stateMachine.armingChanged(armingStatus);
+        } else {
+            Map<SensorType, Integer> deactivated;
+            boolean[] stripes = new boolean[LOCK_STRIPES];
+            Arrays.fill(stripes, true);
+            lockStripes(stripes);
+            try {
+                deactivated = securityRepository.deactivateAllSensors();
+                stateMachine.armingChanged(armingStatus, deactivated);
+            } finally {
+                unlockStripes(stripes);
+            }
+            recordSensorsDeactivated(deactivated);
+        }
+        publish();
+        getStatusDispatcher().publishSensorStatusChanged();
+    }
+
+    @Override
+    void catDetected(Boolean cat) {
+        stateMachine.catDetected(cat);
+        catReports.incrementAndGet();
+        publish();
+    }
+
+    @Override
+    public void setAlarmStatus(AlarmStatus status) {
+        stateMachine.alarmStatusSet(status);
+        publish();
+    }
+
+    @Override
+    public void setAlarmRules(AlarmRules rules) {
+        super.setAlarmRules(rules);
+        stateMachine.setRules(rules);
+    }
+
+    @Override
+    void escalatePendingAlarm() {
+        stateMachine.pendingAlarmExpired();
+        publish();
+    }
+
+    @Override
+    public AlarmStatus getAlarmStatus() {
+        return stateMachine.getState().getAlarmStatus();
+    }
+
+    @Override
+    public ArmingStatus getArmingStatus() {
+        return stateMachine.getState().getArmingStatus();
+    }
+
+    @Override
+    public void addSensor(Sensor sensor) {
+        super.addSensor(sensor);
+        stateMachine.sensorAdded(Boolean.TRUE.equals(sensor.getActive()));
+    }
+
+    @Override
+    public void removeSensor(Sensor sensor) {
+        super.removeSensor(sensor);
+        stateMachine.sensorRemoved(Boolean.TRUE.equals(sensor.getActive()));
+    }
+
+    /**
+     * Writes the latest state to the repository and listeners. Only one thread publishes at a time;
+     * a thread that finds another one publishing bumps the work counter and returns, and the
+     * publishing thread goes round again until it has written the newest state.
+     *
+     * A write that fails is not marked as published, so it is tried again on the next round or the
+     * next publish, and the failure is thrown to this caller once the work counter is back at zero.
+     * Resetting the counter instead would drop the work other threads added meanwhile.
+     */
+    private void publish() {
+        if (publishWork.getAndIncrement() != 0) {
+            return;
+        }
+        RuntimeException failure = null;
+        int missed = 1;
+        do {
+            SystemState state = stateMachine.getState();
+            if (state.getAlarmStatus() != publishedAlarm) {
+                try {
+                    super.setAlarmStatus(state.getAlarmStatus());
+                    publishedAlarm = state.getAlarmStatus();
+                } catch (RuntimeException e) {
+                    failure = addFailure(failure, e);
+                }
+            }
+            if (state.getArmingStatus() != publishedArming) {
+                try {
+                    securityRepository.setArmingStatus(state.getArmingStatus());
+                    publishedArming = state.getArmingStatus();
+                } catch (RuntimeException e) {
+                    failure = addFailure(failure, e);
+                }
+            }
+            //the state is read after the count, so it includes every report counted so far
+            long reports = catReports.get();
+            if (reports != publishedCatReports) {
+                try {
+                    getStatusDispatcher().publishCatDetected(stateMachine.getState().isCatDetected());
+                    publishedCatReports = reports;
+                } catch (RuntimeException e) {
+                    failure = addFailure(failure, e);
+                }
+            }
+            missed = publishWork.addAndGet(-missed);
+        } while (missed != 0);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private ReentrantLock lockFor(Sensor sensor) {
+        return sensorLocks[stripeOf(sensor)];
+    }
+
+    private static int stripeOf(Sensor sensor) {
+        return Math.floorMod(sensor.hashCode(), LOCK_STRIPES);
+    }
+
+    /**
+     * Locks the marked stripes in ascending order, so threads locking overlapping sets cannot deadlock.
+     */
+    private void lockStripes(boolean[] stripes) {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            if (stripes[i]) {
+                sensorLocks[i].lock();
+            }
+        }
+    }
+
+    private void unlockStripes(boolean[] stripes) {
+        for (int i = LOCK_STRIPES - 1; i >= 0; i--) {
+            if (stripes[i]) {
+                sensorLocks[i].unlock();
+            }
+        }
+    }
+
+    private static RuntimeException addFailure(RuntimeException first, RuntimeException next) {
+        if (first == null) {
+            return next;
+        }
+        if (first != next) {
+            first.addSuppressed(next);
+        }
+        return first;
+    }
+}
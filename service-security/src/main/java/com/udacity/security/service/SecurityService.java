@@ -6,12 +6,25 @@ import com.udacity.security.data.AlarmStatus;
 import com.udacity.security.data.ArmingStatus;
 import com.udacity.security.data.SecurityRepository;
 import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorEvent;
+import com.udacity.security.data.SensorType;
+import com.udacity.security.jfr.AlarmTransitionEvent;
+import com.udacity.security.jfr.SensorChangeEvent;
+import com.udacity.security.metrics.SecurityMetrics;
+import com.udacity.security.timer.TimingWheel;
 
 import java.awt.image.BufferedImage;
-import java.util.HashSet;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Service that receives information about changes to the security system. Responsible for
@@ -22,10 +35,23 @@ import java.util.concurrent.ConcurrentSkipListSet;
  */
 public class SecurityService {
 
+    static final float CAT_CONFIDENCE_THRESHOLD = 50.0f;
+    public static final Duration DEFAULT_ENTRY_DELAY = Duration.ofSeconds(30);
+
     private ImageServiceHelper imageService;
     private SecurityRepository securityRepository;
-    private Set<StatusListener> statusListeners = new HashSet<>();
-    private boolean isCatDetected = false;
+    private final StatusDispatcher statusDispatcher = new StatusDispatcher();
+    private volatile boolean isCatDetected = false;
+    private SecurityMetrics metrics;
+    private volatile AlarmRules alarmRules = AlarmRules.defaults();
+
+    //pending alarm escalation, off until setEntryDelay is called
+    private final Object escalationLock = new Object();
+    private volatile TimingWheel escalationWheel;
+    private Duration entryDelay;
+    private Executor escalationExecutor;
+    private TimingWheel.Timeout escalation;
+    private long escalationGeneration;
 
     public SecurityService(SecurityRepository securityRepository, ImageServiceHelper imageService) {
         this.securityRepository = securityRepository;
@@ -44,23 +70,27 @@ public class SecurityService {
         if(armingStatus == ArmingStatus.DISARMED) {
             setAlarmStatus(AlarmStatus.NO_ALARM);
         } else {
-                changeSensorStatus(getSensors(), false);
+            deactivateAllSensors(armingStatus);
         }
         securityRepository.setArmingStatus(armingStatus);
-        statusListeners.forEach(StatusListener::sensorStatusChanged);
+        statusDispatcher.publishSensorStatusChanged();
     }
 
-    private void changeSensorStatus(Set<Sensor> sensors, boolean active) {
-        sensors.forEach(sensor ->
-                System.out.printf("Before changing Sensor(#ID-%s) is active - %s%n",
-                        sensor.getSensorId(), sensor.getActive()));
-
-        System.out.println("\nChanging sensors and alarm statuses...\n");
-        sensors.parallelStream().forEachOrdered(sensor -> changeSensorActivationStatus(sensor, active));
-
-        sensors.forEach(sensor ->
-                System.out.printf("After changing Sensor(#ID-%s) is active - %s%n",
-                        sensor.getSensorId(), sensor.getActive()));
+    /**
+     * Resets every sensor through the repository's bulk path and evaluates the alarm with one
+     * DEACTIVATED step per sensor type that had active sensors, under the new arming status.
+     */
+    private void deactivateAllSensors(ArmingStatus armingStatus) {
+        Map<SensorType, Integer> deactivated = securityRepository.deactivateAllSensors();
+        if (deactivated.isEmpty()) {
+            return;
+        }
+        recordSensorsDeactivated(deactivated);
+        AlarmStatus initial = securityRepository.getAlarmStatus();
+        AlarmStatus alarm = alarmRules.afterDeactivations(armingStatus, initial, deactivated);
+        if (alarm != initial) {
+            setAlarmStatus(alarm);
+        }
     }
 
     /**
@@ -68,57 +98,206 @@ public class SecurityService {
      * the camera currently shows a cat.
      * @param cat True if a cat is detected, otherwise false.
      */
-    private void catDetected(Boolean cat) {
+    void catDetected(Boolean cat) {
         isCatDetected = cat;
         if(getArmingStatus() == ArmingStatus.ARMED_HOME && cat) {
             setAlarmStatus(AlarmStatus.ALARM);
-        } else if(isAllTheSensorsHaveTheSameState(false) && !cat) {
+        } else if(securityRepository.getActiveSensorCount() == 0 && !cat) {
             setAlarmStatus(AlarmStatus.NO_ALARM);
         }
-        statusListeners.forEach(sl -> sl.catDetected(cat));
-    }
-
-    private boolean isAllTheSensorsHaveTheSameState (boolean sensorState) {
-        return getSensors().stream().allMatch(x -> x.getActive() == sensorState);
+        statusDispatcher.publishCatDetected(cat);
     }
 
 
     /**
      * Register the StatusListener for alarm system updates from within the SecurityService.
+     * Listeners are called asynchronously on their own thread and only see the latest state.
+     * @param statusListener
+     */
+    public void addStatusListener(StatusListener statusListener) {statusDispatcher.addListener(statusListener);}
+
+    /**
+     * Register the StatusListener so that its callbacks run on the given executor, such as
+     * SwingUtilities::invokeLater for listeners that update the UI.
      * @param statusListener
+     * @param executor
      */
-    public void addStatusListener(StatusListener statusListener) {statusListeners.add(statusListener);}
-    public void removeStatusListener(StatusListener statusListener) {statusListeners.remove(statusListener);}
+    public void addStatusListener(StatusListener statusListener, Executor executor) {
+        statusDispatcher.addListener(statusListener, executor);
+    }
+
+    public void removeStatusListener(StatusListener statusListener) {statusDispatcher.removeListener(statusListener);}
+
+    ImageServiceHelper getImageService() {
+        return imageService;
+    }
+
+    /**
+     * Start counting sensor changes and alarm transitions. Counting is off until this is called.
+     * @param metrics
+     */
+    public void setMetrics(SecurityMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public SecurityMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Replace the rules that decide how sensor events change the alarm status.
+     * @param rules
+     */
+    public void setAlarmRules(AlarmRules rules) {
+        this.alarmRules = rules;
+    }
+
+    public AlarmRules getAlarmRules() {
+        return alarmRules;
+    }
+
+    /**
+     * Counts a sensor that changed its activation status, if metrics are enabled.
+     */
+    void recordSensorChange(Sensor sensor, boolean active) {
+        if(metrics != null) {
+            metrics.sensorChanged(sensor.getSensorType(), active);
+        }
+    }
+
+    /**
+     * Counts sensors reset together by type, if metrics are enabled.
+     */
+    void recordSensorsDeactivated(Map<SensorType, Integer> deactivated) {
+        if(metrics != null) {
+            deactivated.forEach((type, count) -> metrics.sensorsChanged(type, false, count));
+        }
+    }
+
+    StatusDispatcher getStatusDispatcher() {
+        return statusDispatcher;
+    }
+
+    /**
+     * @return Per-listener delivery lag and drop counts
+     */
+    public List<StatusDispatcher.ListenerChannel> getStatusListenerChannels() {
+        return statusDispatcher.getChannels();
+    }
 
     /**
      * Change the alarm status of the system and notify all listeners.
      * @param status
      */
     public void setAlarmStatus(AlarmStatus status) {
+        AlarmTransitionEvent event = new AlarmTransitionEvent();
+        event.begin();
+        //only read the previous status when something will use it
+        AlarmStatus previous = metrics != null || event.isEnabled() ? securityRepository.getAlarmStatus() : null;
+        if(metrics != null) {
+            metrics.alarmTransition(previous, status);
+        }
         securityRepository.setAlarmStatus(status);
-        statusListeners.forEach (sl -> sl.notify(status));
+        statusDispatcher.publishAlarmStatus(status);
+        event.finish(previous, status);
+        if(escalationWheel != null) {
+            updateEscalation(status);
+        }
+    }
+
+    /**
+     * Escalate a pending alarm to a full alarm once it has been pending for the entry delay, the
+     * way a real panel gives the owner time to disarm after walking in. Leaving PENDING_ALARM, by
+     * deactivating the sensor or disarming, cancels the escalation. Escalation is off by default.
+     * @param wheel Timer the escalation deadlines are scheduled on, or null to turn escalation off
+     * @param delay How long an alarm stays pending before it escalates
+     * @param executor Runs the escalation, such as SwingUtilities::invokeLater when the service is driven from the UI
+     */
+    public void setEntryDelay(TimingWheel wheel, Duration delay, Executor executor) {
+        synchronized (escalationLock) {
+            cancelEscalation();
+            escalationWheel = wheel;
+            entryDelay = delay;
+            escalationExecutor = executor;
+        }
+        if(wheel != null && getAlarmStatus() == AlarmStatus.PENDING_ALARM) {
+            updateEscalation(AlarmStatus.PENDING_ALARM);
+        }
+    }
+
+    /**
+     * Escalate pending alarms after the entry delay, running the escalation on the wheel's own thread.
+     */
+    public void setEntryDelay(TimingWheel wheel, Duration delay) {
+        setEntryDelay(wheel, delay, Runnable::run);
+    }
+
+    /**
+     * @return True if a pending alarm is waiting to escalate
+     */
+    public boolean isEscalationScheduled() {
+        synchronized (escalationLock) {
+            return escalation != null;
+        }
+    }
+
+    /**
+     * Schedules an escalation when the system enters PENDING_ALARM and cancels it on any other status.
+     * A status that stays pending keeps its original deadline.
+     */
+    private void updateEscalation(AlarmStatus status) {
+        synchronized (escalationLock) {
+            if(status != AlarmStatus.PENDING_ALARM) {
+                cancelEscalation();
+            } else if(escalation == null && escalationWheel != null) {
+                long generation = escalationGeneration;
+                Executor executor = escalationExecutor;
+                escalation = escalationWheel.schedule(() -> executor.execute(() -> escalate(generation)),
+                        entryDelay.toNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private void cancelEscalation() {
+        if(escalation != null) {
+            escalation.cancel();
+            escalation = null;
+        }
+        escalationGeneration++;
     }
 
     /**
-     * Internal method for updating the alarm status when a sensor has been activated.
+     * Runs when the entry delay has passed. The generation check drops a deadline that was cancelled
+     * after it had already expired but before it got to run.
      */
-    private void handleSensorActivated() {
-        if(securityRepository.getArmingStatus() == ArmingStatus.DISARMED) {
-            return; //no problem if the system is disarmed
+    private void escalate(long generation) {
+        synchronized (escalationLock) {
+            if(generation != escalationGeneration) {
+                return;
+            }
+            escalation = null;
+            escalationGeneration++;
         }
-        switch(securityRepository.getAlarmStatus()) {
-            case NO_ALARM -> setAlarmStatus(AlarmStatus.PENDING_ALARM);
-            case PENDING_ALARM -> setAlarmStatus(AlarmStatus.ALARM);
+        escalatePendingAlarm();
+    }
+
+    /**
+     * Turns a pending alarm that has outlasted the entry delay into a full alarm.
+     */
+    void escalatePendingAlarm() {
+        if(getAlarmStatus() == AlarmStatus.PENDING_ALARM) {
+            setAlarmStatus(AlarmStatus.ALARM);
         }
     }
 
     /**
-     * Internal method for updating the alarm status when a sensor has been deactivated
+     * Internal method for updating the alarm status after a sensor event, as the alarm rules say.
+     * @param alarm The current alarm status
      */
-    private void handleSensorDeactivated() {
-        switch(securityRepository.getAlarmStatus()) {
-            case PENDING_ALARM -> setAlarmStatus(AlarmStatus.NO_ALARM);
-            case ALARM -> setAlarmStatus(AlarmStatus.PENDING_ALARM);
+    private void applyRule(Sensor sensor, AlarmStatus alarm, AlarmRules.Trigger trigger) {
+        AlarmStatus next = alarmRules.next(securityRepository.getArmingStatus(), alarm, sensor.getSensorType(), trigger);
+        if(next != alarm) {
+            setAlarmStatus(next);
         }
     }
 
@@ -128,17 +307,79 @@ public class SecurityService {
      * @param active
      */
     public void changeSensorActivationStatus(Sensor sensor, Boolean active) {
+        SensorChangeEvent event = new SensorChangeEvent();
+        event.begin();
+        boolean wasActive = Boolean.TRUE.equals(sensor.getActive());
         AlarmStatus alarm = securityRepository.getAlarmStatus();
 
-        if (alarm != AlarmStatus.ALARM) {
-            if (active) {
-                handleSensorActivated();
-            } else if (sensor.getActive()) {
-                handleSensorDeactivated();
-            }
+        if (active) {
+            applyRule(sensor, alarm, AlarmRules.Trigger.ACTIVATED);
+        } else if (wasActive) {
+            applyRule(sensor, alarm, AlarmRules.Trigger.DEACTIVATED);
+        }
+        if (wasActive != active) {
+            recordSensorChange(sensor, active);
         }
         sensor.setActive(active);
         securityRepository.updateSensor(sensor);
+        event.finish(sensor, wasActive, active);
+    }
+
+    /**
+     * Change the activation status for many sensors at once. The alarm status is worked out over
+     * the whole batch and written once, all changed sensors are persisted in a single repository
+     * call, and listeners receive a single sensorStatusChanged notification.
+     * @param events The sensor changes to apply, in order
+     */
+    public void applySensorEvents(Collection<SensorEvent> events) {
+        if(applyEvents(events)) {
+            statusDispatcher.publishSensorStatusChanged();
+        }
+    }
+
+    /**
+     * Applies the events using the same rules as changeSensorActivationStatus, but keeps the
+     * intermediate alarm status in memory instead of writing it after every event.
+     * @return True if at least one sensor changed its activation status
+     */
+    private boolean applyEvents(Collection<SensorEvent> events) {
+        if(events.isEmpty()) {
+            return false;
+        }
+        AlarmRules rules = alarmRules;
+        AlarmStatus initial = securityRepository.getAlarmStatus();
+        AlarmStatus alarm = initial;
+        ArmingStatus arming = null;
+        boolean armingKnown = false;
+        Set<Sensor> changed = new LinkedHashSet<>();
+        for(SensorEvent event : events) {
+            SensorChangeEvent recorded = new SensorChangeEvent();
+            recorded.begin();
+            Sensor sensor = event.getSensor();
+            boolean wasActive = Boolean.TRUE.equals(sensor.getActive());
+            if(event.isActive() || wasActive) {
+                if(!armingKnown) {
+                    arming = securityRepository.getArmingStatus();
+                    armingKnown = true;
+                }
+                AlarmRules.Trigger trigger = event.isActive() ? AlarmRules.Trigger.ACTIVATED : AlarmRules.Trigger.DEACTIVATED;
+                alarm = rules.next(arming, alarm, sensor.getSensorType(), trigger);
+            }
+            if(wasActive != event.isActive()) {
+                sensor.setActive(event.isActive());
+                recordSensorChange(sensor, event.isActive());
+                changed.add(sensor);
+                recorded.finish(sensor, wasActive, event.isActive());
+            }
+        }
+        if(alarm != initial) {
+            setAlarmStatus(alarm);
+        }
+        if(changed.isEmpty()) {
+            return false;
+        }
+        securityRepository.updateSensors(changed);
+        return true;
     }
 
     /**
@@ -149,10 +390,12 @@ public class SecurityService {
         AlarmStatus alarm = this.getAlarmStatus();
         ArmingStatus arming = this.getArmingStatus();
 
-        if (!sensor.getActive() && alarm == AlarmStatus.PENDING_ALARM
-                ||
-            arming == ArmingStatus.DISARMED && alarm == AlarmStatus.ALARM) {
-            handleSensorDeactivated();
+        AlarmRules.Trigger trigger = Boolean.TRUE.equals(sensor.getActive())
+                ? AlarmRules.Trigger.REPORTED_ACTIVE
+                : AlarmRules.Trigger.REPORTED_INACTIVE;
+        AlarmStatus next = alarmRules.next(arming, alarm, sensor.getSensorType(), trigger);
+        if (next != alarm) {
+            setAlarmStatus(next);
         }
         securityRepository.updateSensor(sensor);
     }
@@ -163,7 +406,48 @@ public class SecurityService {
      * @param currentCameraImage
      */
     public void processImage(BufferedImage currentCameraImage) {
-        catDetected(imageService.imageContainsCat(currentCameraImage, 50.0f));
+        catDetected(imageService.imageContainsCat(currentCameraImage, CAT_CONFIDENCE_THRESHOLD));
+    }
+
+    /**
+     * Send an image for processing without waiting for the result. The alarm status is updated once
+     * the image service answers, on whichever thread completes the request, so several scans can be
+     * in flight at once.
+     * @param currentCameraImage
+     * @return Completes with true if a cat was detected
+     */
+    public CompletableFuture<Boolean> processImageAsync(BufferedImage currentCameraImage) {
+        return imageService.classifyAsync(currentCameraImage, CAT_CONFIDENCE_THRESHOLD)
+                .thenApply(result -> {
+                    boolean cat = result.containsCat(CAT_CONFIDENCE_THRESHOLD);
+                    catDetected(cat);
+                    return cat;
+                });
+    }
+
+    /**
+     * Send an image file to the SecurityService for processing. The file's bytes are handed to the
+     * image service as they are, so an image service that uploads them can skip decoding and
+     * encoding the picture again.
+     * @param imageFile
+     */
+    public void processImage(Path imageFile) {
+        catDetected(imageService.classify(imageFile, CAT_CONFIDENCE_THRESHOLD).containsCat(CAT_CONFIDENCE_THRESHOLD));
+    }
+
+    /**
+     * Send an image file for processing without waiting for the result, like processImageAsync for a
+     * decoded image. The file is read off the calling thread.
+     * @param imageFile
+     * @return Completes with true if a cat was detected
+     */
+    public CompletableFuture<Boolean> processImageAsync(Path imageFile) {
+        return imageService.classifyAsync(imageFile, CAT_CONFIDENCE_THRESHOLD)
+                .thenApply(result -> {
+                    boolean cat = result.containsCat(CAT_CONFIDENCE_THRESHOLD);
+                    catDetected(cat);
+                    return cat;
+                });
     }
 
     public AlarmStatus getAlarmStatus() {
@@ -174,6 +458,10 @@ public class SecurityService {
         return securityRepository.getSensors();
     }
 
+    public Sensor getSensor(UUID sensorId) {
+        return securityRepository.getSensor(sensorId);
+    }
+
     public void addSensor(Sensor sensor) {
         securityRepository.addSensor(sensor);
     }
@@ -0,0 +1,42 @@
+package com.udacity.security.service;
+
+import com.udacity.security.data.AlarmStatus;
+
+/**
+ * Result of applying an event to the alarm state machine: the state the event was applied to
+ * and the state it produced. Both are the same instance when the event changed nothing.
+ */
+public final class StateTransition {
+    private final SystemState before;
+    private final SystemState after;
+
+    StateTransition(SystemState before, SystemState after) {
+        this.before = before;
+        this.after = after;
+    }
+
+    public SystemState getBefore() {
+        return before;
+    }
+
+    public SystemState getAfter() {
+        return after;
+    }
+
+    public boolean isChanged() {
+        return before != after;
+    }
+
+    public boolean isAlarmChanged() {
+        return before.getAlarmStatus() != after.getAlarmStatus();
+    }
+
+    public AlarmStatus getAlarmStatus() {
+        return after.getAlarmStatus();
+    }
+
+    @Override
+    public String toString() {
+        return before + " -> " + after;
+    }
+}
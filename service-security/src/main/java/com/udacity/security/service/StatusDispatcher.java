@@ -0,0 +1,255 @@
+package com.udacity.security.service;
+
+import com.udacity.security.application.StatusListener;
+import com.udacity.security.data.AlarmStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Delivers StatusListener callbacks off the thread that produced them. Every listener has its own
+ * executor and holds at most one undelivered value per callback: a newer alarm status or cat result
+ * replaces one that has not been delivered yet, and any number of sensor changes collapse into a
+ * single sensorStatusChanged call. Publishing therefore never waits on a listener, and a slow listener
+ * only ever sees the latest state. Events published to a listener while it is being removed are
+ * discarded.
+ */
+public class StatusDispatcher {
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private final List<ListenerChannel> channels = new CopyOnWriteArrayList<>();
+
+    /**
+     * Registers a listener that is called on its own dedicated thread.
+     */
+    public void addListener(StatusListener listener) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1), r -> {
+                    Thread t = new Thread(r, "status-listener-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        channels.add(new ListenerChannel(listener, executor, executor));
+    }
+
+    /**
+     * Registers a listener that is called through the given executor, for example
+     * SwingUtilities::invokeLater for listeners that touch Swing components.
+     */
+    public void addListener(StatusListener listener, Executor executor) {
+        channels.add(new ListenerChannel(listener, executor, null));
+    }
+
+    public void removeListener(StatusListener listener) {
+        for (ListenerChannel channel : channels) {
+            if (channel.listener == listener) {
+                channels.remove(channel);
+                channel.shutdown();
+            }
+        }
+    }
+
+    public void publishAlarmStatus(AlarmStatus status) {
+        for (ListenerChannel channel : channels) {
+            channel.offerAlarmStatus(status);
+        }
+    }
+
+    public void publishCatDetected(boolean catDetected) {
+        for (ListenerChannel channel : channels) {
+            channel.offerCatDetected(catDetected);
+        }
+    }
+
+    public void publishSensorStatusChanged() {
+        for (ListenerChannel channel : channels) {
+            channel.offerSensorStatusChanged();
+        }
+    }
+
+    /**
+     * @return Delivery statistics for every registered listener
+     */
+    public List<ListenerChannel> getChannels() {
+        return new ArrayList<>(channels);
+    }
+
+    /**
+     * Pending callbacks and delivery statistics for a single listener.
+     */
+    public static class ListenerChannel {
+        private final StatusListener listener;
+        private final Executor executor;
+        private final ExecutorService ownedExecutor;
+
+        private final AtomicReference<AlarmStatus> pendingAlarm = new AtomicReference<>();
+        private final AtomicReference<Boolean> pendingCat = new AtomicReference<>();
+        private final AtomicBoolean pendingSensors = new AtomicBoolean();
+        private final AtomicLong oldestPendingNanos = new AtomicLong();
+        private final AtomicInteger work = new AtomicInteger();
+        private volatile boolean closed;
+
+        private final LongAdder delivered = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private volatile long lastLagNanos;
+        private volatile long maxLagNanos;
+
+        ListenerChannel(StatusListener listener, Executor executor, ExecutorService ownedExecutor) {
+            this.listener = listener;
+            this.executor = executor;
+            this.ownedExecutor = ownedExecutor;
+        }
+
+        void offerAlarmStatus(AlarmStatus status) {
+            markPending();
+            if (pendingAlarm.getAndSet(status) != null) {
+                dropped.increment();
+            }
+            schedule();
+        }
+
+        void offerCatDetected(boolean catDetected) {
+            markPending();
+            if (pendingCat.getAndSet(catDetected) != null) {
+                dropped.increment();
+            }
+            schedule();
+        }
+
+        void offerSensorStatusChanged() {
+            markPending();
+            if (pendingSensors.getAndSet(true)) {
+                dropped.increment();
+            }
+            schedule();
+        }
+
+        private void markPending() {
+            oldestPendingNanos.compareAndSet(0, System.nanoTime());
+        }
+
+        /**
+         * Submits a drain unless one is already queued or running, so the executor never holds
+         * more than one task for this listener.
+         */
+        private void schedule() {
+            if (closed) {
+                return;
+            }
+            if (work.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    //the listener was removed after the check above and its executor shut down
+                    if (!closed) {
+                        throw e;
+                    }
+                }
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            while (true) {
+                long since = oldestPendingNanos.getAndSet(0);
+                AlarmStatus alarm = pendingAlarm.getAndSet(null);
+                if (alarm != null) {
+                    deliver(() -> listener.notify(alarm));
+                }
+                Boolean cat = pendingCat.getAndSet(null);
+                if (cat != null) {
+                    deliver(() -> listener.catDetected(cat));
+                }
+                if (pendingSensors.getAndSet(false)) {
+                    deliver(listener::sensorStatusChanged);
+                }
+                if (since != 0) {
+                    long lag = System.nanoTime() - since;
+                    lastLagNanos = lag;
+                    if (lag > maxLagNanos) {
+                        maxLagNanos = lag;
+                    }
+                }
+                missed = work.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        private void deliver(Runnable callback) {
+            try {
+                callback.run();
+                delivered.increment();
+            } catch (RuntimeException e) {
+                //a failing listener must not stop delivery to itself or anyone else
+                failed.increment();
+            }
+        }
+
+        private void shutdown() {
+            //publishers that still see this channel stop scheduling before the executor goes away
+            closed = true;
+            if (ownedExecutor != null) {
+                ownedExecutor.shutdown();
+            }
+        }
+
+        public StatusListener getListener() {
+            return listener;
+        }
+
+        /**
+         * @return Number of callbacks that have been delivered to the listener
+         */
+        public long getDelivered() {
+            return delivered.sum();
+        }
+
+        /**
+         * @return Number of events replaced by a newer one before the listener got to see them
+         */
+        public long getDropped() {
+            return dropped.sum();
+        }
+
+        /**
+         * @return Number of callbacks that threw an exception
+         */
+        public long getFailed() {
+            return failed.sum();
+        }
+
+        /**
+         * @return Time between the oldest event of the most recent delivery being published and delivered
+         */
+        public long getLastLagNanos() {
+            return lastLagNanos;
+        }
+
+        public long getMaxLagNanos() {
+            return maxLagNanos;
+        }
+
+        /**
+         * @return True if there are events waiting to be delivered
+         */
+        public boolean isPending() {
+            return work.get() != 0;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.udacity.security.service;
+
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.ArmingStatus;
+
+/**
+ * Immutable view of everything the alarm state machine decides on. A new instance is created
+ * for every transition, so a reader always sees a consistent combination of values.
+ */
+public final class SystemState {
+    private final AlarmStatus alarmStatus;
+    private final ArmingStatus armingStatus;
+    private final boolean catDetected;
+    private final int activeSensors;
+    private final long version;
+
+    public SystemState(AlarmStatus alarmStatus, ArmingStatus armingStatus, boolean catDetected, int activeSensors) {
+        this(alarmStatus, armingStatus, catDetected, activeSensors, 0);
+    }
+
+    private SystemState(AlarmStatus alarmStatus, ArmingStatus armingStatus, boolean catDetected, int activeSensors, long version) {
+        this.alarmStatus = alarmStatus;
+        this.armingStatus = armingStatus;
+        this.catDetected = catDetected;
+        this.activeSensors = activeSensors;
+        this.version = version;
+    }
+
+    public AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    public boolean isCatDetected() {
+        return catDetected;
+    }
+
+    public int getActiveSensors() {
+        return activeSensors;
+    }
+
+    /**
+     * @return Number of transitions applied since the state machine was created
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    SystemState withAlarmStatus(AlarmStatus alarmStatus) {
+        return new SystemState(alarmStatus, armingStatus, catDetected, activeSensors, version);
+    }
+
+    SystemState withArmingStatus(ArmingStatus armingStatus) {
+        return new SystemState(alarmStatus, armingStatus, catDetected, activeSensors, version);
+    }
+
+    SystemState withCatDetected(boolean catDetected) {
+        return new SystemState(alarmStatus, armingStatus, catDetected, activeSensors, version);
+    }
+
+    SystemState withActiveSensors(int activeSensors) {
+        return new SystemState(alarmStatus, armingStatus, catDetected, activeSensors, version);
+    }
+
+    SystemState withVersion(long version) {
+        return new SystemState(alarmStatus, armingStatus, catDetected, activeSensors, version);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SystemState[%s, %s, cat=%s, active=%d, v%d]",
+                alarmStatus, armingStatus, catDetected, activeSensors, version);
+    }
+}
@@ -0,0 +1,17 @@
+package com.udacity.security.timer;
+
+/**
+ * Source of monotonic time for timers. Production code uses the system clock; tests plug in a
+ * ManualClock so that timeouts can be driven in virtual time.
+ */
+public interface Clock {
+
+    /**
+     * @return Current time in nanoseconds, with the same meaning as System.nanoTime
+     */
+    long nanoTime();
+
+    static Clock system() {
+        return System::nanoTime;
+    }
+}
@@ -0,0 +1,250 @@
+package com.udacity.security.timer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hierarchical timing wheel. Time is cut into ticks, and each level of the wheel has 64 buckets: a
+ * bucket on level 0 holds the timers due in one tick, a bucket on level 1 those due in one span of 64
+ * ticks, and so on. A timer is put in the bucket for its deadline on the lowest level that reaches
+ * that far, and each bucket is an intrusive doubly linked list, so scheduling and cancelling are
+ * constant time however many timers are pending. Whenever level 0 wraps around, the next bucket of
+ * the level above is emptied into the lower levels, so every timer is moved at most once per level.
+ *
+ * Timers never fire early, and fire at most one tick late once the wheel is advanced. The wheel is
+ * advanced by expireDue, either from the thread started with start() or, with a ManualClock, by a
+ * test in virtual time. Tasks run on the advancing thread, outside the wheel's lock, and must not
+ * block for long.
+ */
+public class TimingWheel implements AutoCloseable {
+
+    public static final long DEFAULT_TICK_MILLIS = 10;
+
+    private static final int LEVELS = 5;
+    private static final int BUCKET_BITS = 6;
+    private static final int BUCKETS = 1 << BUCKET_BITS;
+    private static final int BUCKET_MASK = BUCKETS - 1;
+    //furthest ahead the top level reaches; later deadlines are parked there and placed again when it cascades
+    private static final long SPAN_TICKS = 1L << (BUCKET_BITS * LEVELS);
+
+    private final Clock clock;
+    private final long tickNanos;
+    private final long startNanos;
+
+    //guarded by this
+    private final Timeout[][] buckets = new Timeout[LEVELS][BUCKETS];
+    private long currentTick; //last tick whose level 0 bucket has been expired
+    private int pending;
+
+    private Thread driver;
+
+    public TimingWheel() {
+        this(Clock.system(), DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param clock Source of the current time
+     * @param tick Resolution of the wheel; deadlines are rounded up to a whole tick
+     */
+    public TimingWheel(Clock clock, long tick, TimeUnit unit) {
+        if (tick <= 0) {
+            throw new IllegalArgumentException("Tick must be positive");
+        }
+        this.clock = clock;
+        this.tickNanos = unit.toNanos(tick);
+        this.startNanos = clock.nanoTime();
+        for (Timeout[] level : buckets) {
+            for (int i = 0; i < BUCKETS; i++) {
+                level[i] = new Timeout(null, 0);
+            }
+        }
+    }
+
+    /**
+     * Runs the task once the delay has passed, unless the returned timeout is cancelled first.
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        long deadlineNanos = clock.nanoTime() + unit.toNanos(Math.max(delay, 0));
+        //round up, so the task never runs before its deadline
+        long deadlineTick = Math.floorDiv(deadlineNanos - startNanos + tickNanos - 1, tickNanos);
+        Timeout timeout = new Timeout(task, deadlineTick);
+        synchronized (this) {
+            place(timeout, currentTick + 1);
+            pending++;
+        }
+        return timeout;
+    }
+
+    /**
+     * Expires every tick up to the current time and runs the tasks that fell due.
+     * @return Number of tasks that ran
+     */
+    public int expireDue() {
+        long targetTick = Math.floorDiv(clock.nanoTime() - startNanos, tickNanos);
+        List<Timeout> expired = new ArrayList<>();
+        synchronized (this) {
+            while (currentTick < targetTick) {
+                long tick = currentTick + 1;
+                cascade(tick);
+                Timeout head = buckets[0][(int) (tick & BUCKET_MASK)];
+                for (Timeout t = head.next; t != head; t = head.next) {
+                    t.unlink();
+                    t.state = Timeout.EXPIRED;
+                    expired.add(t);
+                }
+                currentTick = tick;
+            }
+            pending -= expired.size();
+        }
+        for (Timeout timeout : expired) {
+            timeout.task.run();
+        }
+        return expired.size();
+    }
+
+    /**
+     * @return Number of timers that have been scheduled and have neither run nor been cancelled
+     */
+    public synchronized int getPendingCount() {
+        return pending;
+    }
+
+    /**
+     * Starts a daemon thread that advances the wheel once per tick against the wheel's clock.
+     */
+    public synchronized void start() {
+        if (driver != null) {
+            return;
+        }
+        driver = new Thread(() -> {
+            long tickMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(tickNanos));
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    expireDue();
+                    Thread.sleep(tickMillis);
+                } catch (InterruptedException ie) {
+                    return;
+                } catch (RuntimeException e) {
+                    //a failing task must not stop every other timer
+                }
+            }
+        }, "timing-wheel");
+        driver.setDaemon(true);
+        driver.start();
+    }
+
+    /**
+     * Stops the thread started by start(). Pending timers stay scheduled but no longer fire on their own.
+     */
+    @Override
+    public void close() {
+        Thread stopping;
+        synchronized (this) {
+            stopping = driver;
+            driver = null;
+        }
+        if (stopping != null) {
+            stopping.interrupt();
+        }
+    }
+
+    /**
+     * Puts the timeout in the bucket that will be expired or cascaded at the right time, as seen
+     * from the given tick, which is the next one to be expired.
+     */
+    private void place(Timeout timeout, long fromTick) {
+        long deadline = Math.max(timeout.deadlineTick, fromTick);
+        long delta = deadline - fromTick;
+        if (delta >= SPAN_TICKS) {
+            deadline = fromTick + SPAN_TICKS - 1;
+            delta = SPAN_TICKS - 1;
+        }
+        int level = 0;
+        while (delta >= 1L << (BUCKET_BITS * (level + 1))) {
+            level++;
+        }
+        int bucket = (int) ((deadline >>> (BUCKET_BITS * level)) & BUCKET_MASK);
+        timeout.linkBefore(buckets[level][bucket]);
+    }
+
+    /**
+     * Moves timers from the upper levels down before the given tick is expired. Level n is cascaded
+     * when the tick is a multiple of 64^n, starting from the bottom.
+     */
+    private void cascade(long tick) {
+        for (int level = 1; level < LEVELS; level++) {
+            long shifted = tick >>> (BUCKET_BITS * level);
+            if ((tick & ((1L << (BUCKET_BITS * level)) - 1)) != 0) {
+                return;
+            }
+            Timeout head = buckets[level][(int) (shifted & BUCKET_MASK)];
+            for (Timeout t = head.next; t != head; t = head.next) {
+                t.unlink();
+                place(t, tick);
+            }
+        }
+    }
+
+    /**
+     * Handle for a scheduled task. Doubles as its own node in the bucket list it is waiting in.
+     */
+    public final class Timeout {
+        private static final int PENDING = 0;
+        private static final int EXPIRED = 1;
+        private static final int CANCELLED = 2;
+
+        private final Runnable task;
+        private final long deadlineTick;
+        private Timeout prev = this;
+        private Timeout next = this;
+        private int state;
+
+        private Timeout(Runnable task, long deadlineTick) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /**
+         * Stops the task from running.
+         * @return False if the task already ran or was cancelled before
+         */
+        public boolean cancel() {
+            synchronized (TimingWheel.this) {
+                if (state != PENDING) {
+                    return false;
+                }
+                state = CANCELLED;
+                unlink();
+                pending--;
+                return true;
+            }
+        }
+
+        public boolean isCancelled() {
+            synchronized (TimingWheel.this) {
+                return state == CANCELLED;
+            }
+        }
+
+        public boolean isExpired() {
+            synchronized (TimingWheel.this) {
+                return state == EXPIRED;
+            }
+        }
+
+        private void linkBefore(Timeout head) {
+            prev = head.prev;
+            next = head;
+            head.prev.next = this;
+            head.prev = this;
+        }
+
+        private void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = this;
+            next = this;
+        }
+    }
+}
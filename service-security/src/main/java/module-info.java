@@ -1,10 +1,14 @@
 module com.udacity.security {
     opens com.udacity.security.data to com.google.gson;
+    opens com.udacity.security.headless to com.google.gson;
+    exports com.udacity.security.metrics;
     requires com.udacity.image;
     requires miglayout;
     requires java.desktop;
     requires com.google.gson;
     requires com.google.common;
     requires java.prefs;
+    requires java.management;
+    requires jdk.jfr;
 
 }
\ No newline at end of file
@@ -0,0 +1,89 @@
+package com.udacity.security.application;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CameraPreviewCacheTest {
+
+    @TempDir
+    Path dir;
+
+    private Path writeImage(String name, int width, int height, Color color) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(color);
+        g.fillRect(0, 0, width, height);
+        g.dispose();
+        Path file = dir.resolve(name);
+        ImageIO.write(image, "png", file.toFile());
+        return file;
+    }
+
+    @Test
+    @DisplayName("Camera previews - large pictures are decoded to the preview size")
+    void largePicture_decodedToPreviewSize() throws IOException {
+        CameraPreviewCache cache = new CameraPreviewCache(300, 225);
+        Path file = writeImage("large.png", 4000, 3000, Color.ORANGE);
+
+        BufferedImage preview = cache.getPreview(file);
+
+        assertEquals(300, preview.getWidth());
+        assertEquals(225, preview.getHeight());
+        assertEquals(Color.ORANGE.getRGB(), preview.getRGB(150, 112));
+    }
+
+    @Test
+    @DisplayName("Camera previews - small pictures are scaled up to the preview size")
+    void smallPicture_scaledToPreviewSize() throws IOException {
+        CameraPreviewCache cache = new CameraPreviewCache(300, 225);
+        BufferedImage preview = cache.getPreview(writeImage("small.png", 40, 30, Color.BLUE));
+        assertEquals(300, preview.getWidth());
+        assertEquals(225, preview.getHeight());
+    }
+
+    @Test
+    @DisplayName("Camera previews - the least recently used preview is evicted, changed files are decoded again")
+    void cache_isLruAndNoticesChangedFiles() throws IOException {
+        CameraPreviewCache cache = new CameraPreviewCache(30, 20, 2);
+        Path first = writeImage("first.png", 60, 40, Color.RED);
+        Path second = writeImage("second.png", 60, 40, Color.GREEN);
+        Path third = writeImage("third.png", 60, 40, Color.BLUE);
+
+        BufferedImage firstPreview = cache.getPreview(first);
+        cache.getPreview(second);
+        assertSame(firstPreview, cache.getPreview(first));
+        cache.getPreview(third);
+
+        assertEquals(2, cache.size());
+        assertSame(firstPreview, cache.getPreview(first));
+        assertEquals(2, cache.size());
+
+        writeImage("first.png", 60, 40, Color.WHITE);
+        Files.setLastModifiedTime(first, FileTime.fromMillis(Files.getLastModifiedTime(first).toMillis() + 5000));
+        BufferedImage changed = cache.getPreview(first);
+        assertNotSame(firstPreview, changed);
+        assertEquals(Color.WHITE.getRGB(), changed.getRGB(15, 10));
+    }
+
+    @Test
+    @DisplayName("Camera previews - files that are not pictures are rejected")
+    void notAnImage_throws() throws IOException {
+        CameraPreviewCache cache = new CameraPreviewCache(300, 225);
+        Path file = dir.resolve("notes.txt");
+        Files.writeString(file, "not a picture");
+        assertThrows(IOException.class, () -> cache.getPreview(file));
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,104 @@
+package com.udacity.security.application;
+
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.event.TableModelEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SensorTableModelTest {
+
+    private SensorTableModel model;
+    private List<TableModelEvent> events;
+    private List<Sensor> sensors;
+
+    @BeforeEach
+    void init() {
+        model = new SensorTableModel();
+        events = new ArrayList<>();
+        sensors = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            sensors.add(new Sensor("sensor" + i, SensorType.DOOR));
+        }
+        model.refresh(sensors);
+        model.addTableModelListener(events::add);
+    }
+
+    @Test
+    @DisplayName("Sensor table - rows are sorted like sensors")
+    void rows_areInSensorOrder() {
+        for (int i = 0; i < sensors.size(); i++) {
+            assertEquals("sensor" + i, model.getValueAt(i, SensorTableModel.NAME_COLUMN));
+        }
+    }
+
+    @Test
+    @DisplayName("Sensor table - a status change updates only its own row")
+    void statusChange_firesSingleRowUpdate() {
+        sensors.get(3).setActive(true);
+        model.refresh(sensors);
+
+        assertEquals(1, events.size());
+        TableModelEvent event = events.get(0);
+        assertEquals(TableModelEvent.UPDATE, event.getType());
+        assertEquals(3, event.getFirstRow());
+        assertEquals(3, event.getLastRow());
+        assertEquals("Active", model.getValueAt(3, SensorTableModel.STATUS_COLUMN));
+    }
+
+    @Test
+    @DisplayName("Sensor table - refreshing unchanged sensors fires nothing")
+    void unchangedSensors_fireNoEvents() {
+        model.refresh(sensors);
+
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Sensor table - added and removed sensors insert and delete single rows")
+    void addAndRemove_fireRowEvents() {
+        Sensor added = new Sensor("sensor45", SensorType.WINDOW);
+        sensors.add(added);
+        Sensor removed = sensors.remove(1);
+        model.refresh(sensors);
+
+        assertEquals(2, events.size());
+        assertEquals(TableModelEvent.DELETE, events.get(0).getType());
+        assertEquals(1, events.get(0).getFirstRow());
+        assertEquals(TableModelEvent.INSERT, events.get(1).getType());
+        assertEquals(added, model.getSensorAt(events.get(1).getFirstRow()));
+        assertEquals(-1, model.indexOf(removed));
+        assertEquals(sensors.size(), model.getRowCount());
+    }
+
+    @Test
+    @DisplayName("Sensor table - a renamed sensor moves to its new place")
+    void rename_movesRow() {
+        Sensor sensor = sensors.get(0);
+        sensor.setName("zzz");
+        model.refresh(sensors);
+
+        assertEquals(sensors.size() - 1, model.indexOf(sensor));
+        assertEquals("zzz", model.getValueAt(sensors.size() - 1, SensorTableModel.NAME_COLUMN));
+    }
+
+    @Test
+    @DisplayName("Sensor table - many sensors at once are added in one pass")
+    void bulkAdd_keepsOrder() {
+        for (int i = 10; i < 5000; i++) {
+            sensors.add(new Sensor(String.format("bulk%05d", i), SensorType.MOTION));
+        }
+        model.refresh(sensors);
+
+        assertEquals(sensors.size(), model.getRowCount());
+        for (int i = 1; i < model.getRowCount(); i++) {
+            assertTrue(model.getSensorAt(i - 1).compareTo(model.getSensorAt(i)) < 0);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.udacity.security.application;
+
+import com.udacity.security.data.AlarmStatus;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.SwingUtilities;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SwingStatusBridgeTest {
+
+    private static final long FRAME_MILLIS = 20;
+
+    @Test
+    @DisplayName("Status bridge - a flood of events is folded into a few refreshes on the EDT")
+    void eventFlood_fromManyThreads_isCoalescedOnEdt() throws Exception {
+        SwingStatusBridge bridge = new SwingStatusBridge(FRAME_MILLIS);
+        RecordingListener listener = new RecordingListener();
+        bridge.addListener(listener);
+
+        //start the EDT first, or the whole flood can arrive before the first refresh runs
+        SwingUtilities.invokeAndWait(() -> {});
+        ExecutorService publishers = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        //publish for several frames, so the bridge has to hold refreshes back
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FRAME_MILLIS * 10);
+        for (int t = 0; t < 4; t++) {
+            futures.add(publishers.submit(() -> {
+                while (System.nanoTime() < end) {
+                    bridge.sensorStatusChanged();
+                    bridge.notify(AlarmStatus.PENDING_ALARM);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        publishers.shutdown();
+        bridge.notify(AlarmStatus.ALARM);
+        bridge.catDetected(true);
+        awaitRefreshes();
+
+        assertFalse(listener.offEdt, "callbacks must run on the EDT");
+        assertEquals(AlarmStatus.ALARM, listener.lastAlarm);
+        assertEquals(Boolean.TRUE, listener.lastCat);
+        assertTrue(listener.sensorRefreshes >= 1);
+        assertTrue(bridge.getRefreshCount() < bridge.getReceivedCount() / 100,
+                bridge.getRefreshCount() + " refreshes for " + bridge.getReceivedCount() + " events");
+        assertTrue(bridge.getRefreshCount() >= 2, bridge.getRefreshCount() + " refreshes");
+        //taken by the bridge at the start of each refresh, so EDT latency in the listeners does not blur it
+        assertTrue(bridge.getMinRefreshGapNanos() >= TimeUnit.MILLISECONDS.toNanos(FRAME_MILLIS),
+                "refreshes " + bridge.getMinRefreshGapNanos() + "ns apart");
+    }
+
+    @Test
+    @DisplayName("Status bridge - a single event is delivered without waiting for a frame")
+    void singleEvent_isDelivered() throws Exception {
+        SwingStatusBridge bridge = new SwingStatusBridge(FRAME_MILLIS);
+        RecordingListener listener = new RecordingListener();
+        bridge.addListener(listener);
+
+        bridge.notify(AlarmStatus.NO_ALARM);
+        awaitRefreshes();
+
+        assertEquals(AlarmStatus.NO_ALARM, listener.lastAlarm);
+        assertEquals(1, bridge.getRefreshCount());
+    }
+
+    private static void awaitRefreshes() throws Exception {
+        Thread.sleep(FRAME_MILLIS * 3);
+        SwingUtilities.invokeAndWait(() -> {});
+    }
+
+    /**
+     * Only touched on the EDT, apart from the final reads after invokeAndWait.
+     */
+    private static class RecordingListener implements StatusListener {
+        private AlarmStatus lastAlarm;
+        private Boolean lastCat;
+        private int sensorRefreshes;
+        private boolean offEdt;
+
+        @Override
+        public void notify(AlarmStatus status) {
+            checkEdt();
+            lastAlarm = status;
+        }
+
+        @Override
+        public void catDetected(boolean catDetected) {
+            checkEdt();
+            lastCat = catDetected;
+        }
+
+        @Override
+        public void sensorStatusChanged() {
+            checkEdt();
+            sensorRefreshes++;
+        }
+
+        private void checkEdt() {
+            offEdt |= !SwingUtilities.isEventDispatchThread();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.udacity.security.data;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinarySnapshotCodecTest {
+
+    @TempDir
+    Path dir;
+
+    private final BinarySnapshotCodec codec = new BinarySnapshotCodec();
+
+    @Test
+    @DisplayName("Binary snapshot - every field survives a round trip through a file")
+    void roundTrip_throughFileChannel_keepsEverySensor() throws IOException {
+        List<Sensor> sensors = new ArrayList<>();
+        //enough sensors to cross several buffer refills on both sides
+        for (int i = 0; i < 10_000; i++) {
+            Sensor sensor = new Sensor("sensor" + (i % 100), SensorType.values()[i % SensorType.values().length]);
+            sensor.setActive(i % 3 == 0);
+            sensors.add(sensor);
+        }
+        Sensor blank = new Sensor();
+        blank.setSensorId(new Sensor("x", SensorType.DOOR).getSensorId());
+        sensors.add(blank);
+        Sensor longName = new Sensor("n".repeat(100_000), SensorType.MOTION);
+        sensors.add(longName);
+
+        RepositorySnapshot read = roundTrip(new RepositorySnapshot(AlarmStatus.PENDING_ALARM, ArmingStatus.ARMED_HOME, sensors));
+
+        assertEquals(AlarmStatus.PENDING_ALARM, read.getAlarmStatus());
+        assertEquals(ArmingStatus.ARMED_HOME, read.getArmingStatus());
+        assertEquals(sensors.size(), read.getSensors().size());
+        for (int i = 0; i < sensors.size(); i++) {
+            Sensor expected = sensors.get(i);
+            Sensor actual = read.getSensors().get(i);
+            assertEquals(expected.getSensorId(), actual.getSensorId());
+            assertEquals(expected.getName(), actual.getName());
+            assertEquals(expected.getSensorType(), actual.getSensorType());
+            assertEquals(expected.getActive(), actual.getActive());
+        }
+    }
+
+    @Test
+    @DisplayName("Binary snapshot - repeated names are stored once")
+    void repeatedNames_areStoredOnce() throws IOException {
+        List<Sensor> sensors = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            sensors.add(new Sensor("Front door", SensorType.DOOR));
+        }
+        Path file = write(new RepositorySnapshot(AlarmStatus.NO_ALARM, ArmingStatus.DISARMED, sensors));
+
+        //header, one table entry and a fixed number of bytes per sensor
+        long expected = 4 + 2 + 2 + 4 + 4 + "Front door".length() + 4 + 100L * (16 + 2 + 4);
+        assertEquals(expected, Files.size(file));
+    }
+
+    @Test
+    @DisplayName("Binary snapshot - truncated or foreign files are rejected")
+    void damagedFiles_areRejected() throws IOException {
+        Path file = write(new RepositorySnapshot(AlarmStatus.ALARM, ArmingStatus.ARMED_AWAY,
+                Arrays.asList(new Sensor("a", SensorType.DOOR), new Sensor("b", SensorType.WINDOW))));
+        byte[] bytes = Files.readAllBytes(file);
+
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        assertThrows(IOException.class, () -> read(file));
+
+        bytes[0] = '{';
+        Files.write(file, bytes);
+        assertThrows(IOException.class, () -> read(file));
+    }
+
+    private RepositorySnapshot roundTrip(RepositorySnapshot snapshot) throws IOException {
+        return read(write(snapshot));
+    }
+
+    private Path write(RepositorySnapshot snapshot) throws IOException {
+        Path file = dir.resolve("snapshot.snap");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            codec.write(snapshot, channel);
+        }
+        return file;
+    }
+
+    private RepositorySnapshot read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return codec.read(channel);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.udacity.security.data;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JournaledSecurityRepositoryImplTest {
+
+    @TempDir
+    Path journalDir;
+
+    @Test
+    @DisplayName("Journal - state survives a reopen")
+    void reopen_afterWrites_recoversSensorsAndStatuses() {
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        Sensor window = new Sensor("window", SensorType.WINDOW);
+        try (JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(journalDir)) {
+            repository.addSensor(door);
+            repository.addSensor(window);
+            door.setActive(true);
+            repository.updateSensor(door);
+            repository.removeSensor(window);
+            repository.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+            repository.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        }
+
+        try (JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(journalDir)) {
+            assertEquals(1, repository.getSensors().size());
+            Sensor recovered = repository.getSensors().iterator().next();
+            assertEquals(door.getSensorId(), recovered.getSensorId());
+            assertEquals("door", recovered.getName());
+            assertTrue(recovered.getActive());
+            assertEquals(AlarmStatus.PENDING_ALARM, repository.getAlarmStatus());
+            assertEquals(ArmingStatus.ARMED_AWAY, repository.getArmingStatus());
+        }
+    }
+
+    @Test
+    @DisplayName("Journal - changing a sensor after writing it does not change the stored state")
+    void callerSensor_changedAfterWrite_storedStateUnchanged() {
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        try (JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(journalDir)) {
+            repository.addSensor(door);
+            door.setActive(true);
+            door.setName("front door");
+
+            Sensor stored = repository.getSensor(door.getSensorId());
+            assertNotSame(door, stored);
+            assertFalse(stored.getActive());
+            assertEquals("door", stored.getName());
+            assertEquals(0, repository.getActiveSensorCount());
+
+            repository.updateSensor(door);
+            assertSame(stored, repository.getSensor(door.getSensorId()));
+            assertTrue(stored.getActive());
+            assertEquals("front door", stored.getName());
+            assertEquals(1, repository.getActiveSensorCount());
+        }
+    }
+
+    @Test
+    @DisplayName("Journal - a write interrupted while waiting for the flush is not reported as failed")
+    void interruptedWrite_returnsAndIsRecovered() {
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        try (JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(journalDir)) {
+            Thread.currentThread().interrupt();
+            try {
+                repository.addSensor(door);
+                assertTrue(Thread.currentThread().isInterrupted());
+            } finally {
+                Thread.interrupted();
+            }
+            assertEquals(door, repository.getSensor(door.getSensorId()));
+        }
+
+        try (JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(journalDir)) {
+            assertEquals("door", repository.getSensor(door.getSensorId()).getName());
+        }
+    }
+
+    @Test
+    @DisplayName("Journal - resetting all sensors reports them by type and survives a reopen")
+    void deactivateAllSensors_countsByTypeAndIsRecovered() {
+        try (JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(journalDir)) {
+            for (int i = 0; i < 6; i++) {
+                Sensor sensor = new Sensor("sensor" + i, i < 4 ? SensorType.DOOR : SensorType.MOTION);
+                sensor.setActive(i % 2 == 0);
+                repository.addSensor(sensor);
+            }
+
+            assertEquals(Map.of(SensorType.DOOR, 2, SensorType.MOTION, 1), repository.deactivateAllSensors());
+            assertEquals(0, repository.getActiveSensorCount());
+            assertTrue(repository.deactivateAllSensors().isEmpty());
+        }
+
+        try (JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(journalDir)) {
+            assertEquals(6, repository.getSensors().size());
+            assertEquals(0, repository.getActiveSensorCount());
+        }
+    }
+
+    @Test
+    @DisplayName("Journal - concurrent writers are compacted into a snapshot")
+    void concurrentWrites_pastThreshold_areCompactedAndRecovered() throws Exception {
+        List<Sensor> sensors = new ArrayList<>();
+        try (JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(journalDir, 1024)) {
+            for (int i = 0; i < 20; i++) {
+                Sensor sensor = new Sensor("sensor" + i, SensorType.MOTION);
+                sensors.add(sensor);
+                repository.addSensor(sensor);
+            }
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            List<Future<?>> writes = new ArrayList<>();
+            for (Sensor sensor : sensors) {
+                writes.add(executor.submit(() -> {
+                    sensor.setActive(true);
+                    repository.updateSensor(sensor);
+                }));
+            }
+            for (Future<?> write : writes) {
+                write.get();
+            }
+            executor.shutdown();
+        }
+
+        try (Stream<Path> files = Files.list(journalDir)) {
+            assertTrue(files.anyMatch(f -> f.getFileName().toString().startsWith("snapshot-")));
+        }
+        try (JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(journalDir, 1024)) {
+            assertEquals(sensors.size(), repository.getSensors().size());
+            assertTrue(repository.getSensors().stream().allMatch(Sensor::getActive));
+        }
+    }
+
+    @Test
+    @DisplayName("Journal - a torn trailing record is ignored on recovery")
+    void reopen_withTornTail_keepsEarlierRecords() throws IOException {
+        try (JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(journalDir)) {
+            repository.setArmingStatus(ArmingStatus.ARMED_HOME);
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(journalDir)) {
+            segment = files.filter(f -> f.getFileName().toString().startsWith("journal-"))
+                    .filter(f -> f.toFile().length() > 0)
+                    .findFirst()
+                    .orElseThrow();
+        }
+        Files.write(segment, new byte[]{0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+
+        try (JournaledSecurityRepositoryImpl repository = new JournaledSecurityRepositoryImpl(journalDir)) {
+            assertEquals(ArmingStatus.ARMED_HOME, repository.getArmingStatus());
+        }
+    }
+
+    @Test
+    @DisplayName("Journal - snapshots written with another codec are still recovered")
+    void reopen_withDifferentCodec_recoversSnapshot() {
+        List<Sensor> sensors = new ArrayList<>();
+        try (JournaledSecurityRepositoryImpl repository =
+                     new JournaledSecurityRepositoryImpl(journalDir, 256, new GsonSnapshotCodec())) {
+            for (int i = 0; i < 20; i++) {
+                Sensor sensor = new Sensor("sensor" + i, SensorType.WINDOW);
+                sensors.add(sensor);
+                repository.addSensor(sensor);
+            }
+        }
+
+        try (JournaledSecurityRepositoryImpl repository =
+                     new JournaledSecurityRepositoryImpl(journalDir, 256, new BinarySnapshotCodec())) {
+            assertEquals(sensors.size(), repository.getSensors().size());
+            for (Sensor sensor : sensors) {
+                assertEquals(sensor.getName(), repository.getSensor(sensor.getSensorId()).getName());
+            }
+        }
+    }
+}
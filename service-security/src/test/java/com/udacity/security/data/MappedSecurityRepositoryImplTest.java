@@ -0,0 +1,118 @@
+package com.udacity.security.data;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedSecurityRepositoryImplTest {
+
+    @TempDir
+    Path stateDir;
+
+    @Test
+    @DisplayName("Mapped - state survives a reopen")
+    void reopen_afterWrites_recoversSensorsAndStatuses() {
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        Sensor window = new Sensor("window", SensorType.WINDOW);
+        try (MappedSecurityRepositoryImpl repository = new MappedSecurityRepositoryImpl(stateDir)) {
+            repository.addSensor(door);
+            repository.addSensor(window);
+            door.setActive(true);
+            repository.updateSensor(door);
+            repository.removeSensor(window);
+            repository.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+            repository.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        }
+
+        try (MappedSecurityRepositoryImpl repository = new MappedSecurityRepositoryImpl(stateDir)) {
+            assertEquals(1, repository.getSensors().size());
+            assertEquals(1, repository.getActiveSensorCount());
+            Sensor recovered = repository.getSensor(door.getSensorId());
+            assertEquals("door", recovered.getName());
+            assertEquals(SensorType.DOOR, recovered.getSensorType());
+            assertTrue(recovered.getActive());
+            assertNull(repository.getSensor(window.getSensorId()));
+            assertEquals(AlarmStatus.PENDING_ALARM, repository.getAlarmStatus());
+            assertEquals(ArmingStatus.ARMED_AWAY, repository.getArmingStatus());
+        }
+    }
+
+    @Test
+    @DisplayName("Mapped - changing a sensor after writing it does not change the stored state")
+    void callerSensor_changedAfterWrite_storedStateUnchanged() {
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        try (MappedSecurityRepositoryImpl repository = new MappedSecurityRepositoryImpl(stateDir)) {
+            repository.addSensor(door);
+            door.setActive(true);
+            door.setName("front door");
+
+            Sensor stored = repository.getSensor(door.getSensorId());
+            assertNotSame(door, stored);
+            assertFalse(stored.getActive());
+            assertEquals("door", stored.getName());
+            assertEquals(0, repository.getActiveSensorCount());
+
+            repository.updateSensor(door);
+            assertSame(stored, repository.getSensor(door.getSensorId()));
+            assertTrue(stored.getActive());
+            assertEquals("front door", stored.getName());
+            assertEquals(1, repository.getActiveSensorCount());
+        }
+    }
+
+    @Test
+    @DisplayName("Mapped - changes are visible to a new instance without closing the old one")
+    void reopen_withoutClose_seesEveryWrite() {
+        MappedSecurityRepositoryImpl crashed = new MappedSecurityRepositoryImpl(stateDir);
+        Sensor motion = new Sensor("motion", SensorType.MOTION);
+        crashed.addSensor(motion);
+        motion.setActive(true);
+        crashed.updateSensor(motion);
+        crashed.setArmingStatus(ArmingStatus.ARMED_HOME);
+
+        try (MappedSecurityRepositoryImpl repository = new MappedSecurityRepositoryImpl(stateDir)) {
+            assertTrue(repository.getSensor(motion.getSensorId()).getActive());
+            assertEquals(ArmingStatus.ARMED_HOME, repository.getArmingStatus());
+        }
+        crashed.close();
+    }
+
+    @Test
+    @DisplayName("Mapped - the slot file grows past its initial size and reuses removed slots")
+    void manySensors_growAndReuseSlots() throws IOException {
+        List<Sensor> sensors = new ArrayList<>();
+        long grownSize;
+        try (MappedSecurityRepositoryImpl repository = new MappedSecurityRepositoryImpl(stateDir, 10)) {
+            for (int i = 0; i < 3000; i++) {
+                Sensor sensor = new Sensor("sensor" + i, SensorType.values()[i % SensorType.values().length]);
+                sensor.setActive(i % 2 == 0);
+                sensors.add(sensor);
+                repository.addSensor(sensor);
+            }
+            for (int i = 0; i < 1000; i++) {
+                repository.removeSensor(sensors.get(i));
+            }
+            grownSize = Files.size(stateDir.resolve(MappedSecurityRepositoryImpl.SLOT_FILE));
+            for (int i = 0; i < 1000; i++) {
+                repository.addSensor(new Sensor("replacement" + i, SensorType.DOOR));
+            }
+            assertEquals(grownSize, Files.size(stateDir.resolve(MappedSecurityRepositoryImpl.SLOT_FILE)));
+            assertEquals(1000, repository.getActiveSensorCount());
+        }
+
+        try (MappedSecurityRepositoryImpl repository = new MappedSecurityRepositoryImpl(stateDir)) {
+            assertEquals(3000, repository.getSensors().size());
+            assertEquals(1000, repository.getActiveSensorCount());
+            Sensor last = sensors.get(sensors.size() - 1);
+            assertEquals(last.getName(), repository.getSensor(last.getSensorId()).getName());
+        }
+    }
+}
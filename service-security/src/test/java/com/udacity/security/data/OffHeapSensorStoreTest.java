@@ -0,0 +1,133 @@
+package com.udacity.security.data;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OffHeapSensorStoreTest {
+
+    private final OffHeapSensorStore store = new OffHeapSensorStore(64);
+
+    @Test
+    @DisplayName("Off-heap store - stored sensors read back through views")
+    void put_thenGet_returnsEqualView() {
+        Sensor door = new Sensor("Front door", SensorType.DOOR);
+        door.setActive(true);
+        store.put(door);
+
+        Sensor view = store.get(door.getSensorId());
+        assertNotSame(door, view);
+        assertEquals(door, view);
+        assertEquals(view, door);
+        assertEquals(door.hashCode(), view.hashCode());
+        assertEquals(0, door.compareTo(view));
+        assertEquals("Front door", view.getName());
+        assertEquals(SensorType.DOOR, view.getSensorType());
+        assertTrue(view.getActive());
+        assertTrue(store.getSensors().contains(door));
+    }
+
+    @Test
+    @DisplayName("Off-heap store - changing a view changes the store")
+    void viewSetters_writeThrough() {
+        Sensor window = new Sensor("Window", SensorType.WINDOW);
+        Sensor view = store.put(window);
+
+        view.setActive(true);
+        view.setSensorType(SensorType.MOTION);
+        view.setName("Hall");
+
+        Sensor reread = store.get(window.getSensorId());
+        assertTrue(reread.getActive());
+        assertEquals(SensorType.MOTION, reread.getSensorType());
+        assertEquals("Hall", reread.getName());
+        assertEquals(1, store.getActiveCount(SensorType.MOTION));
+        assertEquals(0, store.getActiveCount(SensorType.WINDOW));
+    }
+
+    @Test
+    @DisplayName("Off-heap store - active counts and bulk deactivation work on whole words")
+    void activeCounts_andDeactivateAll() {
+        for (int i = 0; i < 1000; i++) {
+            Sensor sensor = new Sensor("sensor" + i, SensorType.values()[i % SensorType.values().length]);
+            sensor.setActive(i % 4 == 0);
+            store.put(sensor);
+        }
+
+        assertEquals(250, store.getActiveCount());
+        int byType = 0;
+        for (SensorType type : SensorType.values()) {
+            byType += store.getActiveCount(type);
+        }
+        assertEquals(250, byType);
+
+        assertEquals(250, store.deactivateAll());
+        assertEquals(0, store.getActiveCount());
+        assertTrue(store.getSensors().stream().noneMatch(Sensor::getActive));
+    }
+
+    @Test
+    @DisplayName("Off-heap repository - resetting all sensors reports them by type, untyped ones under null")
+    void repositoryDeactivateAll_countsByType() {
+        OffHeapSecurityRepositoryImpl repository = new OffHeapSecurityRepositoryImpl();
+        for (int i = 0; i < 100; i++) {
+            Sensor sensor = new Sensor("sensor" + i, i % 2 == 0 ? SensorType.WINDOW : SensorType.MOTION);
+            sensor.setActive(i % 5 == 0);
+            repository.addSensor(sensor);
+        }
+        Sensor untyped = new Sensor("untyped", null);
+        untyped.setActive(true);
+        repository.addSensor(untyped);
+
+        Map<SensorType, Integer> expected = new HashMap<>();
+        expected.put(SensorType.WINDOW, 10);
+        expected.put(SensorType.MOTION, 10);
+        expected.put(null, 1);
+        assertEquals(expected, repository.deactivateAllSensors());
+        assertEquals(0, repository.getActiveSensorCount());
+        assertTrue(repository.getSensors().stream().noneMatch(Sensor::getActive));
+    }
+
+    @Test
+    @DisplayName("Off-heap store - growth, removal and slot reuse keep the index consistent")
+    void manySensors_withRemovals_stayFindable() {
+        List<Sensor> sensors = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            Sensor sensor = new Sensor("sensor" + (i % 50), SensorType.DOOR);
+            sensor.setActive(true);
+            sensors.add(sensor);
+            store.put(sensor);
+        }
+        Sensor removedView = store.get(sensors.get(0).getSensorId());
+        for (int i = 0; i < sensors.size(); i += 2) {
+            assertTrue(store.remove(sensors.get(i).getSensorId()));
+        }
+        for (int i = 0; i < 5_000; i++) {
+            store.put(new Sensor("replacement", SensorType.WINDOW));
+        }
+
+        assertEquals(15_000, store.size());
+        assertEquals(10_000, store.getActiveCount());
+        for (int i = 0; i < sensors.size(); i++) {
+            Sensor found = store.get(sensors.get(i).getSensorId());
+            if (i % 2 == 0) {
+                assertNull(found);
+            } else {
+                assertEquals(sensors.get(i).getName(), found.getName());
+            }
+        }
+        Set<UUID> iterated = new HashSet<>();
+        store.getSensors().forEach(s -> iterated.add(s.getSensorId()));
+        assertEquals(15_000, iterated.size());
+        assertThrows(IllegalStateException.class, removedView::getName);
+    }
+}
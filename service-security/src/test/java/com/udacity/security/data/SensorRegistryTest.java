@@ -0,0 +1,144 @@
+package com.udacity.security.data;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SensorRegistryTest {
+
+    private final SensorRegistry registry = new SensorRegistry();
+
+    private Sensor sensor(String name, SensorType type, boolean active) {
+        Sensor sensor = new Sensor(name, type);
+        sensor.setActive(active);
+        return sensor;
+    }
+
+    @Test
+    @DisplayName("Sensor registry - adding and removing sensors keeps the counters right")
+    void putAndRemove_updateCounters() {
+        Sensor door = sensor("Front door", SensorType.DOOR, true);
+        Sensor window = sensor("Kitchen window", SensorType.WINDOW, false);
+        Sensor motion = sensor("Hallway", SensorType.MOTION, true);
+        registry.put(door);
+        registry.put(window);
+        registry.put(motion);
+
+        assertEquals(3, registry.size());
+        assertEquals(2, registry.getActiveCount());
+        assertEquals(1, registry.getInactiveCount());
+        assertEquals(1, registry.getActiveCount(SensorType.DOOR));
+        assertEquals(0, registry.getActiveCount(SensorType.WINDOW));
+        assertEquals(Set.of(window), registry.getSensors(SensorType.WINDOW));
+
+        assertSame(door, registry.remove(door.getSensorId()));
+        assertNull(registry.remove(door.getSensorId()));
+        assertNull(registry.remove(UUID.randomUUID()));
+        assertNull(registry.get(door.getSensorId()));
+        assertEquals(2, registry.size());
+        assertEquals(1, registry.getActiveCount());
+        assertEquals(0, registry.getActiveCount(SensorType.DOOR));
+        assertTrue(registry.getSensors(SensorType.DOOR).isEmpty());
+        assertEquals(Set.of(window, motion), registry.getSensors());
+        assertFalse(registry.getSensors().contains(door));
+    }
+
+    @Test
+    @DisplayName("Sensor registry - sensors changed in place are recounted when put again")
+    void inPlaceUpdate_isRecounted() {
+        Sensor door = sensor("Front door", SensorType.DOOR, false);
+        registry.put(door);
+
+        door.setActive(true);
+        registry.put(door);
+        assertEquals(1, registry.getActiveCount());
+        assertEquals(1, registry.getActiveCount(SensorType.DOOR));
+
+        //putting it again unchanged must not count it twice
+        registry.put(door);
+        assertEquals(1, registry.getActiveCount());
+        assertEquals(1, registry.size());
+
+        door.setActive(false);
+        registry.put(door);
+        assertEquals(0, registry.getActiveCount());
+        assertEquals(1, registry.getInactiveCount());
+    }
+
+    @Test
+    @DisplayName("Sensor registry - a retyped sensor moves to the set and counter of its new type")
+    void retypedSensor_movesBetweenTypes() {
+        Sensor sensor = sensor("Garage", SensorType.DOOR, true);
+        registry.put(sensor);
+
+        sensor.setSensorType(SensorType.MOTION);
+        registry.put(sensor);
+        assertTrue(registry.getSensors(SensorType.DOOR).isEmpty());
+        assertEquals(Set.of(sensor), registry.getSensors(SensorType.MOTION));
+        assertEquals(0, registry.getActiveCount(SensorType.DOOR));
+        assertEquals(1, registry.getActiveCount(SensorType.MOTION));
+        assertEquals(1, registry.getActiveCount());
+
+        //retyped and deactivated at once
+        sensor.setSensorType(SensorType.WINDOW);
+        sensor.setActive(false);
+        registry.put(sensor);
+        assertEquals(0, registry.getActiveCount(SensorType.MOTION));
+        assertEquals(0, registry.getActiveCount(SensorType.WINDOW));
+        assertEquals(Set.of(sensor), registry.getSensors(SensorType.WINDOW));
+        assertEquals(0, registry.getActiveCount());
+    }
+
+    @Test
+    @DisplayName("Sensor registry - another sensor object with a registered id replaces the old one")
+    void existingId_replacesSensor() {
+        Sensor original = sensor("Front door", SensorType.DOOR, true);
+        registry.put(original);
+
+        Sensor replacement = sensor("Front door", SensorType.WINDOW, false);
+        replacement.setSensorId(original.getSensorId());
+        registry.put(replacement);
+
+        assertEquals(1, registry.size());
+        assertSame(replacement, registry.get(original.getSensorId()));
+        assertSame(replacement, registry.getSensors(SensorType.WINDOW).iterator().next());
+        assertTrue(registry.getSensors(SensorType.DOOR).isEmpty());
+        assertEquals(0, registry.getActiveCount());
+        assertEquals(0, registry.getActiveCount(SensorType.DOOR));
+    }
+
+    @Test
+    @DisplayName("Sensor registry - deactivating every sensor in place and putting it back leaves none active")
+    void deactivateAll_leavesNoActiveSensors() {
+        List<Sensor> sensors = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            Sensor sensor = sensor("Sensor " + i, SensorType.values()[i % SensorType.values().length], i % 3 != 0);
+            sensors.add(sensor);
+            registry.put(sensor);
+        }
+        assertEquals(20, registry.getActiveCount());
+
+        //what repositories do when arming resets every sensor
+        for (Sensor sensor : sensors) {
+            sensor.setActive(false);
+            registry.put(sensor);
+        }
+        assertEquals(0, registry.getActiveCount());
+        assertEquals(30, registry.getInactiveCount());
+        for (SensorType type : SensorType.values()) {
+            assertEquals(0, registry.getActiveCount(type));
+            assertEquals(10, registry.getSensors(type).size());
+        }
+
+        registry.clear();
+        assertEquals(0, registry.size());
+        assertTrue(registry.getSensors().isEmpty());
+        assertTrue(registry.getSensors(SensorType.DOOR).isEmpty());
+    }
+}
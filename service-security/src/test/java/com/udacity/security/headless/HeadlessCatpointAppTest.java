@@ -0,0 +1,131 @@
+package com.udacity.security.headless;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.udacity.image.service.FakeImageService;
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.JournaledSecurityRepositoryImpl;
+import com.udacity.security.service.SecurityService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HeadlessCatpointAppTest {
+
+    @TempDir
+    Path journalDir;
+
+    private JournaledSecurityRepositoryImpl repository;
+    private SecurityService securityService;
+    private StringWriter out;
+    private HeadlessCatpointApp app;
+
+    @BeforeEach
+    void init() {
+        repository = new JournaledSecurityRepositoryImpl(journalDir);
+        securityService = new SecurityService(repository, new FakeImageService());
+        out = new StringWriter();
+        app = new HeadlessCatpointApp(securityService, out);
+    }
+
+    @AfterEach
+    void close() {
+        repository.close();
+    }
+
+    @Test
+    @DisplayName("Headless - commands drive the service and status changes are written as JSON lines")
+    void commandStream_armedSensorActivation_writesPendingAlarm() throws Exception {
+        app.run(new StringReader(String.join("\n",
+                "{\"command\":\"addSensor\",\"name\":\"Front door\",\"sensorType\":\"DOOR\"}",
+                "{\"command\":\"arm\",\"status\":\"ARMED_AWAY\"}",
+                "",
+                "{\"command\":\"sensor\",\"name\":\"Front door\",\"active\":true}")));
+
+        assertEquals(AlarmStatus.PENDING_ALARM, repository.getAlarmStatus());
+        List<JsonObject> lines = lines();
+        assertTrue(lines.stream().anyMatch(l -> event(l).equals("firstEvent")));
+        assertTrue(lines.stream().anyMatch(l -> event(l).equals("alarm")
+                && l.get("status").getAsString().equals("PENDING_ALARM")));
+    }
+
+    @Test
+    @DisplayName("Headless - bad commands are reported and do not stop the stream")
+    void badCommands_areReportedAsErrors() throws Exception {
+        app.run(new StringReader(String.join("\n",
+                "not json",
+                "{\"command\":\"sensor\",\"name\":\"Nowhere\",\"active\":true}",
+                "{\"command\":\"fly\"}",
+                "{\"command\":\"status\"}")));
+
+        List<JsonObject> lines = lines();
+        assertEquals(3, lines.stream().filter(l -> event(l).equals("error")).count());
+        assertTrue(lines.stream().anyMatch(l -> event(l).equals("status")));
+    }
+
+    @Test
+    @DisplayName("Headless - commands missing a field are reported as errors")
+    void missingFields_areReportedAsErrors() throws Exception {
+        app.run(new StringReader(String.join("\n",
+                "{\"command\":\"addSensor\",\"sensorType\":\"DOOR\"}",
+                "{\"command\":\"addSensor\",\"name\":\"Front door\"}",
+                "{\"command\":\"arm\"}",
+                "{\"command\":\"removeSensor\"}")));
+
+        List<JsonObject> errors = lines().stream().filter(l -> event(l).equals("error")).collect(Collectors.toList());
+        assertEquals(4, errors.size());
+        assertEquals("Invalid command: addSensor command needs \"name\"", errors.get(0).get("message").getAsString());
+        assertEquals("Invalid command: addSensor command needs \"sensorType\"", errors.get(1).get("message").getAsString());
+        assertEquals("Invalid command: arm command needs \"status\"", errors.get(2).get("message").getAsString());
+        assertTrue(repository.getSensors().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Headless - a client that goes away while being answered is reported and output returns to the default writer")
+    void clientGoneWhileWriting_isReportedAndOutputRestored() {
+        Writer closedClient = new Writer() {
+            @Override
+            public void write(char[] buffer, int offset, int length) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        app.serveClient(new StringReader("{\"command\":\"status\"}"), closedClient);
+        app.handle("{\"command\":\"status\"}");
+
+        List<JsonObject> lines = lines();
+        assertEquals("error", event(lines.get(0)));
+        assertTrue(lines.get(0).get("message").getAsString().contains("Broken pipe"));
+        assertTrue(lines.stream().skip(1).anyMatch(l -> event(l).equals("status")));
+    }
+
+    private List<JsonObject> lines() {
+        return out.toString().lines()
+                .map(line -> JsonParser.parseString(line).getAsJsonObject())
+                .collect(Collectors.toList());
+    }
+
+    private static String event(JsonObject line) {
+        return line.get("event").getAsString();
+    }
+}
@@ -0,0 +1,52 @@
+package com.udacity.security.jfr;
+
+import com.udacity.image.service.FakeImageService;
+import com.udacity.security.data.OffHeapSecurityRepositoryImpl;
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorType;
+import com.udacity.security.service.SecurityService;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SensorChangeEventTest {
+
+    @TempDir
+    Path recordingDir;
+
+    @Test
+    @DisplayName("Flight Recorder - only real sensor changes are recorded")
+    void unchangedSensor_isNotRecorded() throws Exception {
+        SecurityService securityService = new SecurityService(new OffHeapSecurityRepositoryImpl(), new FakeImageService());
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        securityService.addSensor(door);
+        Path file = recordingDir.resolve("sensors.jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable("com.udacity.security.SensorEvent").withThreshold(Duration.ZERO);
+            recording.start();
+            securityService.changeSensorActivationStatus(door, false);
+            securityService.changeSensorActivationStatus(door, true);
+            securityService.changeSensorActivationStatus(door, true);
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(e -> e.getEventType().getName().equals("com.udacity.security.SensorEvent"))
+                .collect(Collectors.toList());
+        assertEquals(1, events.size());
+        assertFalse(events.get(0).getBoolean("wasActive"));
+        assertTrue(events.get(0).getBoolean("active"));
+    }
+}
@@ -0,0 +1,200 @@
+package com.udacity.security.liveness;
+
+import com.udacity.security.data.SensorType;
+import com.udacity.security.timer.ManualClock;
+import com.udacity.security.timer.TimingWheel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LivenessMonitorTest {
+
+    private final ManualClock clock = new ManualClock();
+    private final LivenessMonitor monitor = new LivenessMonitor(clock,
+            Map.of(SensorType.DOOR, Duration.ofSeconds(10), SensorType.MOTION, Duration.ofSeconds(30)), 16);
+    private final RecordingListener listener = new RecordingListener();
+
+    @BeforeEach
+    void init() {
+        monitor.addListener(listener);
+    }
+
+    @Test
+    @DisplayName("Liveness - a sensor goes offline once silent past the timeout of its type")
+    void silentSensor_goesOfflineAfterTypeTimeout() {
+        UUID door = UUID.randomUUID();
+        UUID motion = UUID.randomUUID();
+        monitor.track(door, SensorType.DOOR);
+        monitor.track(motion, SensorType.MOTION);
+
+        clock.advance(Duration.ofSeconds(9));
+        assertEquals(0, monitor.expireDue());
+
+        clock.advance(Duration.ofSeconds(1));
+        assertEquals(1, monitor.expireDue());
+        assertEquals(List.of(List.of(door)), listener.offline);
+        assertFalse(monitor.isOnline(door));
+        assertTrue(monitor.isOnline(motion));
+
+        clock.advance(Duration.ofSeconds(20));
+        assertEquals(1, monitor.expireDue());
+        assertEquals(List.of(motion), listener.offline.get(1));
+        assertEquals(2, monitor.getOfflineCount());
+    }
+
+    @Test
+    @DisplayName("Liveness - heartbeats keep a sensor online")
+    void heartbeats_keepSensorOnline() {
+        UUID door = UUID.randomUUID();
+        monitor.track(door, SensorType.DOOR);
+        for (int i = 0; i < 10; i++) {
+            clock.advance(Duration.ofSeconds(8));
+            assertTrue(monitor.heartbeat(door));
+            assertEquals(0, monitor.expireDue());
+        }
+        assertTrue(monitor.isOnline(door));
+        assertTrue(listener.offline.isEmpty());
+        assertFalse(monitor.heartbeat(UUID.randomUUID()));
+    }
+
+    @Test
+    @DisplayName("Liveness - a heartbeat from an offline sensor is reported as a recovery")
+    void offlineSensor_heartbeat_isReportedRecovered() {
+        UUID door = UUID.randomUUID();
+        monitor.track(door, SensorType.DOOR);
+        clock.advance(Duration.ofSeconds(10));
+        monitor.expireDue();
+
+        monitor.heartbeat(door);
+        assertTrue(monitor.isOnline(door));
+        assertEquals(0, monitor.getOfflineCount());
+        monitor.expireDue();
+        assertEquals(List.of(List.of(door)), listener.recovered);
+
+        clock.advance(Duration.ofSeconds(10));
+        assertEquals(1, monitor.expireDue());
+    }
+
+    @Test
+    @DisplayName("Liveness - untracked sensors are forgotten and never reported")
+    void untrack_forgetsSensor() {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            UUID id = UUID.randomUUID();
+            ids.add(id);
+            monitor.track(id, SensorType.values()[i % SensorType.values().length]);
+        }
+        for (int i = 0; i < ids.size(); i += 2) {
+            assertTrue(monitor.untrack(ids.get(i)));
+        }
+        assertFalse(monitor.untrack(ids.get(0)));
+        assertEquals(500, monitor.getTrackedCount());
+        for (int i = 1; i < ids.size(); i += 2) {
+            assertTrue(monitor.heartbeat(ids.get(i)));
+        }
+
+        clock.advance(Duration.ofMinutes(10));
+        assertEquals(500, monitor.expireDue());
+        Set<UUID> reported = new HashSet<>();
+        listener.offline.forEach(reported::addAll);
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(i % 2 == 1, reported.contains(ids.get(i)));
+        }
+    }
+
+    @Test
+    @DisplayName("Liveness - on a timing wheel, checks run at the next deadline and recoveries on the next tick")
+    void onTimingWheel_checksAtDeadlines() {
+        TimingWheel wheel = new TimingWheel(clock, 100, TimeUnit.MILLISECONDS);
+        UUID door = UUID.randomUUID();
+        monitor.track(door, SensorType.DOOR);
+        monitor.start(wheel);
+
+        clock.advance(Duration.ofSeconds(5));
+        monitor.heartbeat(door);
+        clock.advance(Duration.ofSeconds(9));
+        wheel.expireDue();
+        assertTrue(listener.offline.isEmpty());
+
+        clock.advance(Duration.ofSeconds(1));
+        wheel.expireDue();
+        assertEquals(List.of(List.of(door)), listener.offline);
+
+        monitor.heartbeat(door);
+        clock.advance(Duration.ofMillis(200));
+        wheel.expireDue();
+        assertEquals(List.of(List.of(door)), listener.recovered);
+
+        monitor.close();
+        clock.advance(Duration.ofMinutes(1));
+        wheel.expireDue();
+        assertEquals(1, listener.offline.size());
+        assertEquals(0, wheel.getPendingCount());
+    }
+
+    @Test
+    @DisplayName("Liveness - on a timing wheel, a sensor with a shorter timeout than the pending check is still reported on time")
+    void onTimingWheel_shorterTimeoutType_bringsCheckForward() {
+        TimingWheel wheel = new TimingWheel(clock, 100, TimeUnit.MILLISECONDS);
+        UUID motion = UUID.randomUUID();
+        monitor.track(motion, SensorType.MOTION);
+        monitor.start(wheel);
+
+        //tracked with 10s to go while the check is due in 30s
+        UUID door = UUID.randomUUID();
+        monitor.track(door, SensorType.DOOR);
+        //retyped from 30s to 10s
+        UUID window = UUID.randomUUID();
+        monitor.track(window, SensorType.MOTION);
+        clock.advance(Duration.ofSeconds(1));
+        monitor.track(window, SensorType.DOOR);
+
+        clock.advance(Duration.ofSeconds(9));
+        wheel.expireDue();
+        assertEquals(List.of(List.of(door)), listener.offline);
+        clock.advance(Duration.ofSeconds(1));
+        wheel.expireDue();
+        assertEquals(List.of(window), listener.offline.get(1));
+        assertTrue(monitor.isOnline(motion));
+
+        //a door that recovers while only the motion check is pending
+        monitor.heartbeat(door);
+        monitor.heartbeat(window);
+        monitor.heartbeat(motion);
+        clock.advance(Duration.ofMillis(200));
+        wheel.expireDue();
+        assertEquals(1, listener.recovered.size());
+        clock.advance(Duration.ofSeconds(10));
+        wheel.expireDue();
+        assertEquals(3, listener.offline.size());
+        assertEquals(Set.of(door, window), new HashSet<>(listener.offline.get(2)));
+        assertTrue(monitor.isOnline(motion));
+        monitor.close();
+    }
+
+    private static class RecordingListener implements LivenessListener {
+        private final List<List<UUID>> offline = new ArrayList<>();
+        private final List<List<UUID>> recovered = new ArrayList<>();
+
+        @Override
+        public void sensorsOffline(List<UUID> sensorIds) {
+            offline.add(sensorIds);
+        }
+
+        @Override
+        public void sensorsRecovered(List<UUID> sensorIds) {
+            recovered.add(sensorIds);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.udacity.security.metrics;
+
+import com.udacity.image.metrics.MBeans;
+import com.udacity.image.service.FakeImageService;
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.JournaledSecurityRepositoryImpl;
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorType;
+import com.udacity.security.service.SecurityService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SecurityMetricsTest {
+
+    @TempDir
+    Path journalDir;
+
+    private JournaledSecurityRepositoryImpl journal;
+    private InstrumentedSecurityRepository repository;
+    private SecurityMetrics metrics;
+    private SecurityService securityService;
+
+    @BeforeEach
+    void init() {
+        journal = new JournaledSecurityRepositoryImpl(journalDir);
+        repository = new InstrumentedSecurityRepository(journal);
+        metrics = new SecurityMetrics();
+        securityService = new SecurityService(repository, new FakeImageService());
+        securityService.setMetrics(metrics);
+    }
+
+    @AfterEach
+    void close() {
+        journal.close();
+    }
+
+    @Test
+    @DisplayName("Metrics - sensor changes and alarm edges are counted")
+    void sensorChanges_whileArmed_countActivationsAndTransitions() {
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        Sensor window = new Sensor("window", SensorType.WINDOW);
+        securityService.addSensor(door);
+        securityService.addSensor(window);
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+
+        securityService.changeSensorActivationStatus(door, true);
+        securityService.changeSensorActivationStatus(door, true);
+        securityService.changeSensorActivationStatus(window, true);
+        securityService.changeSensorActivationStatus(door, false);
+
+        assertEquals(1, metrics.getSensorActivations(SensorType.DOOR));
+        assertEquals(1, metrics.getSensorActivations(SensorType.WINDOW));
+        assertEquals(1, metrics.getSensorDeactivations(SensorType.DOOR));
+        assertEquals(0, metrics.getSensorActivations(SensorType.MOTION));
+        assertEquals(1, metrics.getAlarmTransitions(AlarmStatus.NO_ALARM, AlarmStatus.PENDING_ALARM));
+        assertEquals(1, metrics.getAlarmTransitions(AlarmStatus.PENDING_ALARM, AlarmStatus.ALARM));
+        assertTrue(repository.getWrites() >= 7);
+        assertEquals(0, repository.getWriteErrors());
+    }
+
+    @Test
+    @DisplayName("Metrics - counters can be read over JMX")
+    void registeredMetrics_areReadableFromPlatformMBeanServer() throws Exception {
+        metrics.sensorChanged(SensorType.MOTION, true);
+        MBeans.register(SecurityMetrics.OBJECT_NAME, metrics);
+        MBeans.register(InstrumentedSecurityRepository.OBJECT_NAME, repository);
+        try {
+            securityService.addSensor(new Sensor("hall", SensorType.MOTION));
+
+            Object activations = ManagementFactory.getPlatformMBeanServer()
+                    .getAttribute(new ObjectName(SecurityMetrics.OBJECT_NAME), "SensorActivations");
+            assertNotNull(activations);
+            long writes = (Long) ManagementFactory.getPlatformMBeanServer()
+                    .getAttribute(new ObjectName(InstrumentedSecurityRepository.OBJECT_NAME), "Writes");
+            assertEquals(1, writes);
+            Map<String, Long> byType = metrics.getSensorActivations();
+            assertEquals(1, (long) byType.get("MOTION"));
+        } finally {
+            MBeans.unregister(SecurityMetrics.OBJECT_NAME);
+            MBeans.unregister(InstrumentedSecurityRepository.OBJECT_NAME);
+        }
+    }
+}
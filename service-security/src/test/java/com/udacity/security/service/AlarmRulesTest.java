@@ -0,0 +1,141 @@
+package com.udacity.security.service;
+
+import com.udacity.image.service.FakeImageService;
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.OffHeapSecurityRepositoryImpl;
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AlarmRulesTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Alarm rules - the default table matches the hand-written transitions")
+    void defaults_matchStateMachineHelpers() {
+        AlarmRules rules = AlarmRules.defaults();
+        SensorType[] types = {SensorType.DOOR, SensorType.WINDOW, SensorType.MOTION, null};
+        for (ArmingStatus arming : ArmingStatus.values()) {
+            for (AlarmStatus alarm : AlarmStatus.values()) {
+                for (SensorType type : types) {
+                    AlarmStatus activated = alarm == AlarmStatus.ALARM ? alarm : AlarmStateMachine.alarmAfterActivation(arming, alarm);
+                    AlarmStatus deactivated = alarm == AlarmStatus.ALARM ? alarm : AlarmStateMachine.alarmAfterDeactivation(alarm);
+                    assertEquals(activated, rules.next(arming, alarm, type, AlarmRules.Trigger.ACTIVATED));
+                    assertEquals(deactivated, rules.next(arming, alarm, type, AlarmRules.Trigger.DEACTIVATED));
+                    assertEquals(AlarmStateMachine.alarmAfterReport(arming, alarm, false),
+                            rules.next(arming, alarm, type, AlarmRules.Trigger.REPORTED_INACTIVE));
+                    assertEquals(AlarmStateMachine.alarmAfterReport(arming, alarm, true),
+                            rules.next(arming, alarm, type, AlarmRules.Trigger.REPORTED_ACTIVE));
+                }
+            }
+        }
+        assertEquals(AlarmStatus.NO_ALARM, rules.next(null, AlarmStatus.NO_ALARM, SensorType.DOOR, AlarmRules.Trigger.ACTIVATED));
+    }
+
+    @Test
+    @DisplayName("Alarm rules - more specific overrides win over wildcards")
+    void overrides_mostSpecificWins() {
+        Properties overrides = new Properties();
+        overrides.setProperty("ARMED_HOME.*.MOTION.ACTIVATED", "UNCHANGED");
+        overrides.setProperty("ARMED_HOME.PENDING_ALARM.MOTION.ACTIVATED", "ALARM");
+        overrides.setProperty("*.*.*.REPORTED_ACTIVE", "UNCHANGED");
+        AlarmRules rules = AlarmRules.defaults().withOverrides(overrides);
+
+        assertEquals(AlarmStatus.NO_ALARM, rules.next(ArmingStatus.ARMED_HOME, AlarmStatus.NO_ALARM, SensorType.MOTION, AlarmRules.Trigger.ACTIVATED));
+        assertEquals(AlarmStatus.ALARM, rules.next(ArmingStatus.ARMED_HOME, AlarmStatus.PENDING_ALARM, SensorType.MOTION, AlarmRules.Trigger.ACTIVATED));
+        assertEquals(AlarmStatus.PENDING_ALARM, rules.next(ArmingStatus.ARMED_HOME, AlarmStatus.NO_ALARM, SensorType.DOOR, AlarmRules.Trigger.ACTIVATED));
+        assertEquals(AlarmStatus.PENDING_ALARM, rules.next(ArmingStatus.ARMED_AWAY, AlarmStatus.NO_ALARM, SensorType.MOTION, AlarmRules.Trigger.ACTIVATED));
+        //typed rules leave sensors without a type alone, wildcard types cover them
+        assertEquals(AlarmStatus.PENDING_ALARM, rules.next(ArmingStatus.ARMED_HOME, AlarmStatus.NO_ALARM, null, AlarmRules.Trigger.ACTIVATED));
+        assertEquals(AlarmStatus.ALARM, rules.next(ArmingStatus.DISARMED, AlarmStatus.ALARM, null, AlarmRules.Trigger.REPORTED_ACTIVE));
+        //the rules they were built from are untouched
+        assertEquals(AlarmStatus.PENDING_ALARM, AlarmRules.defaults().next(ArmingStatus.ARMED_HOME, AlarmStatus.NO_ALARM, SensorType.MOTION, AlarmRules.Trigger.ACTIVATED));
+    }
+
+    @Test
+    @DisplayName("Alarm rules - overlapping rules with as many wildcards that disagree are rejected")
+    void ambiguousOverrides_areRejected() {
+        Properties overrides = new Properties();
+        overrides.setProperty("ARMED_HOME.*.DOOR.ACTIVATED", "ALARM");
+        overrides.setProperty("*.NO_ALARM.DOOR.ACTIVATED", "UNCHANGED");
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> AlarmRules.defaults().withOverrides(overrides));
+        assertTrue(e.getMessage().contains("ARMED_HOME.NO_ALARM.DOOR.ACTIVATED"), e.getMessage());
+
+        //a more specific rule for where they meet settles it, whatever order they are applied in
+        overrides.setProperty("ARMED_HOME.NO_ALARM.DOOR.ACTIVATED", "PENDING_ALARM");
+        AlarmRules rules = AlarmRules.defaults().withOverrides(overrides);
+        assertEquals(AlarmStatus.PENDING_ALARM, rules.next(ArmingStatus.ARMED_HOME, AlarmStatus.NO_ALARM, SensorType.DOOR, AlarmRules.Trigger.ACTIVATED));
+        assertEquals(AlarmStatus.ALARM, rules.next(ArmingStatus.ARMED_HOME, AlarmStatus.PENDING_ALARM, SensorType.DOOR, AlarmRules.Trigger.ACTIVATED));
+        assertEquals(AlarmStatus.NO_ALARM, rules.next(ArmingStatus.ARMED_AWAY, AlarmStatus.NO_ALARM, SensorType.DOOR, AlarmRules.Trigger.ACTIVATED));
+    }
+
+    @Test
+    @DisplayName("Alarm rules - overlapping rules that agree, or do not overlap, are accepted")
+    void agreeingOrDisjointOverrides_areAccepted() {
+        Properties overrides = new Properties();
+        overrides.setProperty("ARMED_HOME.*.DOOR.ACTIVATED", "ALARM");
+        overrides.setProperty("*.NO_ALARM.DOOR.ACTIVATED", "ALARM");
+        overrides.setProperty("ARMED_AWAY.*.WINDOW.ACTIVATED", "UNCHANGED");
+        overrides.setProperty("ARMED_HOME.*.WINDOW.ACTIVATED", "ALARM");
+        AlarmRules rules = AlarmRules.defaults().withOverrides(overrides);
+        assertEquals(AlarmStatus.ALARM, rules.next(ArmingStatus.ARMED_HOME, AlarmStatus.NO_ALARM, SensorType.DOOR, AlarmRules.Trigger.ACTIVATED));
+        assertEquals(AlarmStatus.NO_ALARM, rules.next(ArmingStatus.ARMED_AWAY, AlarmStatus.NO_ALARM, SensorType.WINDOW, AlarmRules.Trigger.ACTIVATED));
+        assertEquals(AlarmStatus.ALARM, rules.next(ArmingStatus.ARMED_HOME, AlarmStatus.NO_ALARM, SensorType.WINDOW, AlarmRules.Trigger.ACTIVATED));
+    }
+
+    @Test
+    @DisplayName("Alarm rules - malformed rules are rejected")
+    void invalidRule_throws() {
+        Properties parts = new Properties();
+        parts.setProperty("ARMED_HOME.MOTION.ACTIVATED", "ALARM");
+        assertThrows(IllegalArgumentException.class, () -> AlarmRules.defaults().withOverrides(parts));
+
+        Properties constant = new Properties();
+        constant.setProperty("ARMED_HOME.*.SMOKE.ACTIVATED", "ALARM");
+        assertThrows(IllegalArgumentException.class, () -> AlarmRules.defaults().withOverrides(constant));
+
+        Properties target = new Properties();
+        target.setProperty("ARMED_HOME.*.MOTION.ACTIVATED", "PANIC");
+        assertThrows(IllegalArgumentException.class, () -> AlarmRules.defaults().withOverrides(target));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    @DisplayName("Alarm rules - rules loaded from a file change how the service reacts")
+    void loadedRules_ignoreMotionWhileArmedHome(boolean concurrent) throws IOException {
+        Path file = dir.resolve("rules.properties");
+        Files.writeString(file, "# motion sensors see the people at home\nARMED_HOME.*.MOTION.ACTIVATED = UNCHANGED\n");
+
+        OffHeapSecurityRepositoryImpl repository = new OffHeapSecurityRepositoryImpl();
+        SecurityService service = concurrent
+                ? new ConcurrentSecurityService(repository, new FakeImageService())
+                : new SecurityService(repository, new FakeImageService());
+        service.setAlarmRules(AlarmRules.load(file));
+        service.setArmingStatus(ArmingStatus.ARMED_HOME);
+        Sensor motion = new Sensor("Hall", SensorType.MOTION);
+        Sensor door = new Sensor("Front door", SensorType.DOOR);
+        service.addSensor(motion);
+        service.addSensor(door);
+
+        service.changeSensorActivationStatus(service.getSensor(motion.getSensorId()), true);
+        assertEquals(AlarmStatus.NO_ALARM, service.getAlarmStatus());
+
+        service.changeSensorActivationStatus(service.getSensor(door.getSensorId()), true);
+        assertEquals(AlarmStatus.PENDING_ALARM, service.getAlarmStatus());
+    }
+}
@@ -0,0 +1,170 @@
+package com.udacity.security.service;
+
+import com.udacity.image.service.FakeImageService;
+import com.udacity.security.data.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Hammers the lock-free state machine from many threads at once and checks that no transition is lost.
+ */
+public class AlarmStateMachineStressTest {
+
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 200;
+
+    @Test
+    @DisplayName("Stress - simultaneous activations escalate exactly once")
+    void simultaneousActivations_whileArmed_escalateExactlyOnce() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            AlarmStateMachine machine = new AlarmStateMachine(
+                    new SystemState(AlarmStatus.NO_ALARM, ArmingStatus.ARMED_AWAY, false, 0));
+            AtomicInteger toPending = new AtomicInteger();
+            AtomicInteger toAlarm = new AtomicInteger();
+
+            runConcurrently(THREADS, i -> {
+                StateTransition transition = machine.sensorChanged(false, true);
+                if (transition.isAlarmChanged()) {
+                    (transition.getAlarmStatus() == AlarmStatus.PENDING_ALARM ? toPending : toAlarm).incrementAndGet();
+                }
+            });
+
+            SystemState state = machine.getState();
+            assertEquals(AlarmStatus.ALARM, state.getAlarmStatus());
+            assertEquals(THREADS, state.getActiveSensors());
+            assertEquals(THREADS, state.getVersion());
+            assertEquals(1, toPending.get());
+            assertEquals(1, toAlarm.get());
+        }
+    }
+
+    @Test
+    @DisplayName("Stress - active sensor count is never lost")
+    void balancedActivations_fromManyThreads_leaveNoActiveSensors() throws Exception {
+        AlarmStateMachine machine = new AlarmStateMachine(
+                new SystemState(AlarmStatus.NO_ALARM, ArmingStatus.DISARMED, false, 0));
+
+        runConcurrently(THREADS, i -> {
+            for (int n = 0; n < 10_000; n++) {
+                machine.sensorChanged(false, true);
+                machine.sensorChanged(true, false);
+            }
+        });
+
+        assertEquals(0, machine.getState().getActiveSensors());
+        assertEquals(THREADS * 20_000L, machine.getState().getVersion());
+        assertEquals(AlarmStatus.NO_ALARM, machine.getState().getAlarmStatus());
+    }
+
+    @Test
+    @DisplayName("Stress - concurrent service persists the final alarm status")
+    void concurrentService_withManyIngestionThreads_persistsLatestState() throws Exception {
+        InMemoryRepository repository = new InMemoryRepository();
+        List<Sensor> sensors = new ArrayList<>();
+        for (int i = 0; i < THREADS * 4; i++) {
+            Sensor sensor = new Sensor("sensor" + i, SensorType.values()[i % SensorType.values().length]);
+            sensors.add(sensor);
+            repository.addSensor(sensor);
+        }
+        ConcurrentSecurityService service = new ConcurrentSecurityService(repository, new FakeImageService());
+        service.setArmingStatus(ArmingStatus.ARMED_HOME);
+
+        runConcurrently(THREADS, i -> {
+            for (int n = 0; n < 2_000; n++) {
+                Sensor sensor = sensors.get(i * 4 + n % 4);
+                service.changeSensorActivationStatus(sensor, n % 3 != 0);
+            }
+        });
+
+        SystemState state = service.getState();
+        long active = sensors.stream().filter(Sensor::getActive).count();
+        assertEquals(active, state.getActiveSensors());
+        assertEquals(state.getAlarmStatus(), repository.getAlarmStatus());
+        assertEquals(ArmingStatus.ARMED_HOME, repository.getArmingStatus());
+    }
+
+    private interface Worker {
+        void run(int index) throws Exception;
+    }
+
+    private static void runConcurrently(int threads, Worker worker) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            int index = i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                worker.run(index);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * Thread-safe repository that only keeps state in memory.
+     */
+    private static class InMemoryRepository implements SecurityRepository {
+        private final Map<Sensor, Sensor> sensors = new ConcurrentHashMap<>();
+        private volatile AlarmStatus alarmStatus = AlarmStatus.NO_ALARM;
+        private volatile ArmingStatus armingStatus = ArmingStatus.DISARMED;
+
+        @Override
+        public void addSensor(Sensor sensor) {
+            sensors.put(sensor, sensor);
+        }
+
+        @Override
+        public void removeSensor(Sensor sensor) {
+            sensors.remove(sensor);
+        }
+
+        @Override
+        public void updateSensor(Sensor sensor) {
+            sensors.put(sensor, sensor);
+        }
+
+        @Override
+        public void setAlarmStatus(AlarmStatus alarmStatus) {
+            this.alarmStatus = alarmStatus;
+        }
+
+        @Override
+        public void setArmingStatus(ArmingStatus armingStatus) {
+            this.armingStatus = armingStatus;
+        }
+
+        @Override
+        public Set<Sensor> getSensors() {
+            return sensors.keySet();
+        }
+
+        @Override
+        public AlarmStatus getAlarmStatus() {
+            return alarmStatus;
+        }
+
+        @Override
+        public ArmingStatus getArmingStatus() {
+            return armingStatus;
+        }
+    }
+}
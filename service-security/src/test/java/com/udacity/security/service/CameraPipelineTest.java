@@ -0,0 +1,247 @@
+package com.udacity.security.service;
+
+import com.udacity.image.service.ImageServiceHelper;
+import com.udacity.image.service.MotionGate;
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.JournaledSecurityRepositoryImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CameraPipelineTest {
+
+    //frames this wide contain a cat
+    private static final int CAT_WIDTH = 2;
+
+    private static final BufferedImage CAT = new BufferedImage(CAT_WIDTH, 1, BufferedImage.TYPE_INT_RGB);
+    private static final BufferedImage EMPTY_ROOM = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+
+    @TempDir
+    Path journalDir;
+
+    private JournaledSecurityRepositoryImpl repository;
+
+    @BeforeEach
+    void init() {
+        repository = new JournaledSecurityRepositoryImpl(journalDir);
+    }
+
+    @AfterEach
+    void close() {
+        repository.close();
+    }
+
+    @Test
+    @DisplayName("Pipeline - one camera without a cat does not clear another camera's cat")
+    void catOnOneCamera_emptyRoomOnAnother_staysDetected() throws Exception {
+        ImageServiceHelper imageService = (image, threshold) -> image.getWidth() == CAT_WIDTH;
+        SecurityService securityService = new SecurityService(repository, imageService);
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+
+        try (CameraPipeline pipeline = new CameraPipeline(securityService, 4)) {
+            pipeline.submit("kitchen", CAT);
+            awaitProcessed(pipeline, 1);
+            for (int i = 0; i < 10; i++) {
+                pipeline.submit("hallway", EMPTY_ROOM);
+                awaitProcessed(pipeline, 2 + i);
+            }
+            assertTrue(pipeline.isCatDetected());
+            assertEquals(AlarmStatus.ALARM, repository.getAlarmStatus());
+
+            pipeline.submit("kitchen", EMPTY_ROOM);
+            awaitProcessed(pipeline, 12);
+            assertFalse(pipeline.isCatDetected());
+        }
+    }
+
+    @Test
+    @DisplayName("Pipeline - a camera that falls behind drops its oldest frames")
+    void slowClassification_dropsOldestFramesPerCamera() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ImageServiceHelper imageService = (image, threshold) -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        };
+        SecurityService securityService = new SecurityService(repository, imageService);
+
+        try (CameraPipeline pipeline = new CameraPipeline(securityService, 2, 2)) {
+            pipeline.submit("garage", EMPTY_ROOM);
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 5; i++) {
+                pipeline.submit("garage", EMPTY_ROOM);
+            }
+            assertEquals(2, pipeline.getQueueDepth("garage"));
+            assertEquals(3, pipeline.getDropped());
+
+            release.countDown();
+            awaitProcessed(pipeline, 3);
+            assertEquals(0, pipeline.getQueueDepth());
+            assertEquals(6, pipeline.getSubmitted());
+        }
+    }
+
+    @Test
+    @DisplayName("Pipeline - unchanged frames reuse the previous result")
+    void unchangedFrames_withMotionGate_areNotClassifiedAgain() throws Exception {
+        AtomicInteger classified = new AtomicInteger();
+        ImageServiceHelper imageService = (image, threshold) -> {
+            classified.incrementAndGet();
+            return image.getWidth() == CAT_WIDTH;
+        };
+        SecurityService securityService = new SecurityService(repository, imageService);
+
+        try (CameraPipeline pipeline = new CameraPipeline(securityService, 2, 2, MotionGate::new)) {
+            for (int i = 0; i < 5; i++) {
+                pipeline.submit("porch", CAT);
+                awaitProcessed(pipeline, i + 1);
+            }
+            assertEquals(1, classified.get());
+            assertEquals(4, pipeline.getSkipped());
+            assertTrue(pipeline.isCatDetected());
+        }
+    }
+
+    @Test
+    @DisplayName("Pipeline - a frame whose classification failed is not used as the motion reference")
+    void failedClassification_withMotionGate_nextFrameIsClassified() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        ImageServiceHelper imageService = (image, threshold) -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("service unavailable");
+            }
+            return image.getWidth() == CAT_WIDTH;
+        };
+        SecurityService securityService = new SecurityService(repository, imageService);
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+
+        try (CameraPipeline pipeline = new CameraPipeline(securityService, 2, 2, MotionGate::new)) {
+            pipeline.submit("porch", CAT);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (pipeline.getFailed() < 1) {
+                assertTrue(System.nanoTime() < deadline, "frame did not fail in time");
+                Thread.sleep(1);
+            }
+            pipeline.submit("porch", CAT);
+            awaitProcessed(pipeline, 1);
+            assertEquals(2, calls.get());
+            assertEquals(0, pipeline.getSkipped());
+            assertTrue(pipeline.isCatDetected());
+            assertEquals(AlarmStatus.ALARM, repository.getAlarmStatus());
+        }
+    }
+
+    @Test
+    @DisplayName("Pipeline - a slow SecurityService update does not hold up other cameras, and the latest state wins")
+    void slowCatUpdate_doesNotBlockOtherCameras() throws Exception {
+        ImageServiceHelper imageService = (image, threshold) -> image.getWidth() == CAT_WIDTH;
+        CountDownLatch updating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Boolean> updates = new CopyOnWriteArrayList<>();
+        SecurityService securityService = new SecurityService(repository, imageService) {
+            @Override
+            void catDetected(Boolean cat) {
+                updating.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                updates.add(cat);
+                super.catDetected(cat);
+            }
+        };
+
+        try (CameraPipeline pipeline = new CameraPipeline(securityService, 2)) {
+            pipeline.submit("kitchen", CAT);
+            assertTrue(updating.await(5, TimeUnit.SECONDS));
+            //the kitchen worker is stuck in the SecurityService, the hallway is still classified
+            for (int i = 0; i < 3; i++) {
+                pipeline.submit("hallway", EMPTY_ROOM);
+                awaitProcessed(pipeline, i + 1);
+            }
+            //the change is left to the stuck worker instead of waiting for it
+            pipeline.removeCamera("kitchen");
+            assertFalse(pipeline.isCatDetected());
+
+            release.countDown();
+            awaitProcessed(pipeline, 4);
+            assertEquals(List.of(true, false), updates);
+            assertEquals(AlarmStatus.NO_ALARM, repository.getAlarmStatus());
+        }
+    }
+
+    @Test
+    @DisplayName("Pipeline - a state the SecurityService failed to take is sent again with the next frame")
+    void failedCatUpdate_isRetriedWithUnchangedResult() throws Exception {
+        ImageServiceHelper imageService = (image, threshold) -> image.getWidth() == CAT_WIDTH;
+        AtomicInteger attempts = new AtomicInteger();
+        SecurityService securityService = new SecurityService(repository, imageService) {
+            @Override
+            void catDetected(Boolean cat) {
+                if (attempts.incrementAndGet() == 1) {
+                    throw new IllegalStateException("repository unavailable");
+                }
+                super.catDetected(cat);
+            }
+        };
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+
+        try (CameraPipeline pipeline = new CameraPipeline(securityService, 2)) {
+            pipeline.submit("kitchen", CAT);
+            awaitProcessed(pipeline, 1);
+            //classified fine, only the hand-over failed
+            assertEquals(0, pipeline.getFailed());
+            assertEquals(1, pipeline.getPublishFailed());
+            assertEquals(AlarmStatus.NO_ALARM, repository.getAlarmStatus());
+
+            pipeline.submit("kitchen", CAT);
+            awaitProcessed(pipeline, 2);
+            assertEquals(2, attempts.get());
+            assertEquals(AlarmStatus.ALARM, repository.getAlarmStatus());
+
+            pipeline.submit("kitchen", CAT);
+            awaitProcessed(pipeline, 3);
+            assertEquals(2, attempts.get());
+        }
+    }
+
+    @Test
+    @DisplayName("Pipeline - frames submitted after close are rejected without being counted")
+    void submit_afterClose_isRejected() {
+        ImageServiceHelper imageService = (image, threshold) -> false;
+        CameraPipeline pipeline = new CameraPipeline(new SecurityService(repository, imageService), 2);
+        pipeline.close();
+
+        assertThrows(RejectedExecutionException.class, () -> pipeline.submit("kitchen", EMPTY_ROOM));
+        assertEquals(0, pipeline.getSubmitted());
+        assertEquals(0, pipeline.getQueueDepth());
+    }
+
+    private static void awaitProcessed(CameraPipeline pipeline, long count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (pipeline.getProcessed() < count) {
+            assertTrue(System.nanoTime() < deadline, "frames were not processed in time");
+            Thread.sleep(1);
+        }
+    }
+}
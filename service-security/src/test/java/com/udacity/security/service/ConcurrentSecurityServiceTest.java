@@ -0,0 +1,165 @@
+package com.udacity.security.service;
+
+import com.udacity.image.service.FakeImageService;
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.application.StatusListener;
+import com.udacity.security.data.OffHeapSecurityRepositoryImpl;
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorType;
+import com.udacity.security.metrics.SecurityMetrics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentSecurityServiceTest {
+
+    @Test
+    @DisplayName("Concurrent service - a failed write does not lose changes other threads made while publishing")
+    void failedWrite_whileAnotherThreadChangesState_publishesBoth() throws Exception {
+        ConcurrentSecurityService[] service = new ConcurrentSecurityService[1];
+        FailingOnceRepository repository = new FailingOnceRepository(() -> {
+            //another thread changes the arming status while this one is publishing, then the write fails
+            Thread other = new Thread(() -> service[0].setArmingStatus(ArmingStatus.DISARMED));
+            other.start();
+            try {
+                other.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        repository.setArmingStatus(ArmingStatus.ARMED_HOME);
+        service[0] = new ConcurrentSecurityService(repository, new FakeImageService());
+
+        assertThrows(IllegalStateException.class, () -> service[0].setAlarmStatus(AlarmStatus.ALARM));
+
+        assertEquals(ArmingStatus.DISARMED, repository.getArmingStatus());
+        assertEquals(service[0].getAlarmStatus(), repository.getAlarmStatus());
+
+        //and publishing still works afterwards
+        service[0].setArmingStatus(ArmingStatus.ARMED_AWAY);
+        assertEquals(ArmingStatus.ARMED_AWAY, repository.getArmingStatus());
+    }
+
+    @Test
+    @DisplayName("Concurrent service - a failed write is not taken as published and is written on the next publish")
+    void failedWrite_isRetriedOnNextPublish() {
+        FailingOnceRepository repository = new FailingOnceRepository(() -> {});
+        ConcurrentSecurityService service = new ConcurrentSecurityService(repository, new FakeImageService());
+
+        assertThrows(IllegalStateException.class, () -> service.setAlarmStatus(AlarmStatus.ALARM));
+        assertEquals(AlarmStatus.NO_ALARM, repository.getAlarmStatus());
+
+        service.setAlarmStatus(AlarmStatus.ALARM);
+        assertEquals(AlarmStatus.ALARM, repository.getAlarmStatus());
+        assertEquals(2, repository.alarmWrites);
+    }
+
+    @Test
+    @DisplayName("Concurrent service - transitions of one sensor are applied in the order its flag was swapped")
+    void sameSensorToggledConcurrently_transitionsFollowFlagOrder() throws Exception {
+        OffHeapSecurityRepositoryImpl repository = new OffHeapSecurityRepositoryImpl();
+        ConcurrentSecurityService service = new ConcurrentSecurityService(repository, new FakeImageService());
+        service.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        Sensor added = new Sensor("door", SensorType.DOOR);
+        service.addSensor(added);
+        Sensor door = service.getSensor(added.getSensorId());
+        Thread[] deactivating = new Thread[1];
+        service.setMetrics(new SecurityMetrics() {
+            @Override
+            public void sensorChanged(SensorType type, boolean active) {
+                super.sensorChanged(type, active);
+                if (active && deactivating[0] == null) {
+                    //the activating thread has swapped the flag; another thread deactivates the sensor now
+                    deactivating[0] = new Thread(() -> service.changeSensorState(door, false));
+                    deactivating[0].start();
+                    try {
+                        deactivating[0].join(TimeUnit.SECONDS.toMillis(5));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        });
+
+        service.changeSensorState(door, true);
+        deactivating[0].join();
+
+        assertFalse(door.getActive());
+        assertEquals(0, service.getState().getActiveSensors());
+        assertEquals(AlarmStatus.NO_ALARM, service.getAlarmStatus());
+    }
+
+    @Test
+    @DisplayName("Concurrent service - arming and the sensor reset it causes are one transition")
+    void arming_withActiveSensors_isSingleTransition() {
+        OffHeapSecurityRepositoryImpl repository = new OffHeapSecurityRepositoryImpl();
+        ConcurrentSecurityService service = new ConcurrentSecurityService(repository, new FakeImageService());
+        for (int i = 0; i < 3; i++) {
+            Sensor added = new Sensor("window" + i, SensorType.WINDOW);
+            service.addSensor(added);
+            service.changeSensorState(service.getSensor(added.getSensorId()), true);
+        }
+        long version = service.getState().getVersion();
+
+        service.setArmingStatus(ArmingStatus.ARMED_HOME);
+
+        SystemState state = service.getState();
+        assertEquals(version + 1, state.getVersion());
+        assertEquals(ArmingStatus.ARMED_HOME, state.getArmingStatus());
+        assertEquals(0, state.getActiveSensors());
+        assertEquals(0, repository.getActiveSensorCount());
+        assertEquals(AlarmStatus.NO_ALARM, repository.getAlarmStatus());
+    }
+
+    @Test
+    @DisplayName("Concurrent service - every scan result reaches the listeners, including the first one without a cat")
+    void catDetected_everyResult_isPublished() throws Exception {
+        ConcurrentSecurityService service = new ConcurrentSecurityService(new OffHeapSecurityRepositoryImpl(), new FakeImageService());
+        BlockingQueue<Boolean> results = new LinkedBlockingQueue<>();
+        service.addStatusListener(new StatusListener() {
+            @Override
+            public void notify(AlarmStatus status) {
+            }
+
+            @Override
+            public void catDetected(boolean catDetected) {
+                results.add(catDetected);
+            }
+
+            @Override
+            public void sensorStatusChanged() {
+            }
+        });
+
+        service.catDetected(false);
+        assertEquals(Boolean.FALSE, results.poll(5, TimeUnit.SECONDS));
+        service.catDetected(true);
+        assertEquals(Boolean.TRUE, results.poll(5, TimeUnit.SECONDS));
+        service.catDetected(true);
+        assertEquals(Boolean.TRUE, results.poll(5, TimeUnit.SECONDS));
+    }
+
+    private static class FailingOnceRepository extends OffHeapSecurityRepositoryImpl {
+        private final Runnable beforeFailure;
+        private int alarmWrites;
+
+        FailingOnceRepository(Runnable beforeFailure) {
+            this.beforeFailure = beforeFailure;
+        }
+
+        @Override
+        public void setAlarmStatus(AlarmStatus alarmStatus) {
+            if (++alarmWrites == 1) {
+                beforeFailure.run();
+                throw new IllegalStateException("disk full");
+            }
+            super.setAlarmStatus(alarmStatus);
+        }
+    }
+}
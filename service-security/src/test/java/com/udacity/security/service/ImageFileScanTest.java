@@ -0,0 +1,88 @@
+package com.udacity.security.service;
+
+import com.udacity.image.service.ClassificationResult;
+import com.udacity.image.service.ImageServiceHelper;
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.OffHeapSecurityRepositoryImpl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImageFileScanTest {
+
+    @TempDir
+    Path dir;
+
+    private Path writeJpeg(int width, int height) throws IOException {
+        Path file = dir.resolve("frame.jpg");
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "jpg", file.toFile());
+        return file;
+    }
+
+    @Test
+    @DisplayName("Image files - the file's bytes reach the image service unchanged")
+    void processImageFile_passesBytesThrough() throws Exception {
+        Path file = writeJpeg(64, 48);
+        byte[] expected = Files.readAllBytes(file);
+        AtomicInteger decodedCalls = new AtomicInteger();
+        ImageServiceHelper imageService = new ImageServiceHelper() {
+            @Override
+            public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+                decodedCalls.incrementAndGet();
+                return false;
+            }
+
+            @Override
+            public ClassificationResult classify(ByteBuffer encodedImage, float minConfidence) {
+                byte[] bytes = new byte[encodedImage.remaining()];
+                encodedImage.duplicate().get(bytes);
+                assertArrayEquals(expected, bytes);
+                return new ClassificationResult(Map.of("Cat", 99.0f), minConfidence);
+            }
+        };
+        OffHeapSecurityRepositoryImpl repository = new OffHeapSecurityRepositoryImpl();
+        SecurityService securityService = new SecurityService(repository, imageService);
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+
+        assertTrue(securityService.processImageAsync(file).get(5, TimeUnit.SECONDS));
+        assertEquals(AlarmStatus.ALARM, securityService.getAlarmStatus());
+        assertEquals(0, decodedCalls.get());
+    }
+
+    @Test
+    @DisplayName("Image files - services that only take decoded images still get the picture")
+    void processImageFile_decodesForPlainServices() throws Exception {
+        Path file = writeJpeg(64, 48);
+        ImageServiceHelper imageService = (image, threshold) -> image.getWidth() == 64 && image.getHeight() == 48;
+        SecurityService securityService = new SecurityService(new OffHeapSecurityRepositoryImpl(), imageService);
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+
+        securityService.processImage(file);
+        assertEquals(AlarmStatus.ALARM, securityService.getAlarmStatus());
+    }
+
+    @Test
+    @DisplayName("Image files - a file that is not a picture fails the scan")
+    void processImageFile_notAnImage_fails() throws Exception {
+        Path file = dir.resolve("notes.txt");
+        Files.writeString(file, "not a picture");
+        ImageServiceHelper imageService = (image, threshold) -> true;
+        SecurityService securityService = new SecurityService(new OffHeapSecurityRepositoryImpl(), imageService);
+
+        assertThrows(Exception.class, () -> securityService.processImageAsync(file).get(5, TimeUnit.SECONDS));
+        assertEquals(AlarmStatus.NO_ALARM, securityService.getAlarmStatus());
+    }
+}
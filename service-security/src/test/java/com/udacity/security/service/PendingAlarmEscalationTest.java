@@ -0,0 +1,112 @@
+package com.udacity.security.service;
+
+import com.udacity.image.service.FakeImageService;
+import com.udacity.security.data.AlarmStatus;
+import com.udacity.security.data.ArmingStatus;
+import com.udacity.security.data.OffHeapSecurityRepositoryImpl;
+import com.udacity.security.data.Sensor;
+import com.udacity.security.data.SensorType;
+import com.udacity.security.timer.ManualClock;
+import com.udacity.security.timer.TimingWheel;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PendingAlarmEscalationTest {
+
+    private static final Duration ENTRY_DELAY = Duration.ofSeconds(30);
+
+    private final ManualClock clock = new ManualClock();
+    private final TimingWheel wheel = new TimingWheel(clock, 100, TimeUnit.MILLISECONDS);
+
+    private SecurityService armedService(boolean concurrent) {
+        OffHeapSecurityRepositoryImpl repository = new OffHeapSecurityRepositoryImpl();
+        SecurityService service = concurrent
+                ? new ConcurrentSecurityService(repository, new FakeImageService())
+                : new SecurityService(repository, new FakeImageService());
+        service.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        service.setEntryDelay(wheel, ENTRY_DELAY);
+        return service;
+    }
+
+    private Sensor addSensor(SecurityService service) {
+        Sensor sensor = new Sensor("Front door", SensorType.DOOR);
+        service.addSensor(sensor);
+        return service.getSensor(sensor.getSensorId());
+    }
+
+    private void advance(Duration duration) {
+        clock.advance(duration);
+        wheel.expireDue();
+    }
+
+    @ParameterizedTest(name = "concurrent service: {0}")
+    @ValueSource(booleans = {false, true})
+    @DisplayName("Escalation - a pending alarm becomes an alarm after the entry delay")
+    void pendingAlarm_escalatesAfterEntryDelay(boolean concurrent) {
+        SecurityService service = armedService(concurrent);
+        service.changeSensorActivationStatus(addSensor(service), true);
+        assertEquals(AlarmStatus.PENDING_ALARM, service.getAlarmStatus());
+        assertTrue(service.isEscalationScheduled());
+
+        advance(ENTRY_DELAY.minusSeconds(1));
+        assertEquals(AlarmStatus.PENDING_ALARM, service.getAlarmStatus());
+
+        advance(Duration.ofSeconds(1));
+        assertEquals(AlarmStatus.ALARM, service.getAlarmStatus());
+        assertFalse(service.isEscalationScheduled());
+        assertEquals(0, wheel.getPendingCount());
+    }
+
+    @ParameterizedTest(name = "concurrent service: {0}")
+    @ValueSource(booleans = {false, true})
+    @DisplayName("Escalation - deactivating the sensor cancels the escalation")
+    void deactivation_cancelsEscalation(boolean concurrent) {
+        SecurityService service = armedService(concurrent);
+        Sensor sensor = addSensor(service);
+        service.changeSensorActivationStatus(sensor, true);
+        service.changeSensorActivationStatus(sensor, false);
+
+        assertEquals(AlarmStatus.NO_ALARM, service.getAlarmStatus());
+        assertFalse(service.isEscalationScheduled());
+        assertEquals(0, wheel.getPendingCount());
+
+        advance(ENTRY_DELAY.multipliedBy(2));
+        assertEquals(AlarmStatus.NO_ALARM, service.getAlarmStatus());
+    }
+
+    @ParameterizedTest(name = "concurrent service: {0}")
+    @ValueSource(booleans = {false, true})
+    @DisplayName("Escalation - disarming cancels the escalation")
+    void disarm_cancelsEscalation(boolean concurrent) {
+        SecurityService service = armedService(concurrent);
+        service.changeSensorActivationStatus(addSensor(service), true);
+        service.setArmingStatus(ArmingStatus.DISARMED);
+
+        assertFalse(service.isEscalationScheduled());
+        advance(ENTRY_DELAY.multipliedBy(2));
+        assertEquals(AlarmStatus.NO_ALARM, service.getAlarmStatus());
+    }
+
+    @ParameterizedTest(name = "concurrent service: {0}")
+    @ValueSource(booleans = {false, true})
+    @DisplayName("Escalation - re-entering PENDING_ALARM starts a fresh entry delay")
+    void reenteringPending_startsFreshDelay(boolean concurrent) {
+        SecurityService service = armedService(concurrent);
+        Sensor sensor = addSensor(service);
+        service.changeSensorActivationStatus(sensor, true);
+        advance(ENTRY_DELAY.minusSeconds(5));
+        service.changeSensorActivationStatus(sensor, false);
+        service.changeSensorActivationStatus(sensor, true);
+
+        advance(Duration.ofSeconds(10));
+        assertEquals(AlarmStatus.PENDING_ALARM, service.getAlarmStatus());
+        advance(ENTRY_DELAY);
+        assertEquals(AlarmStatus.ALARM, service.getAlarmStatus());
+    }
+}
@@ -19,6 +19,7 @@ import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
@@ -136,6 +137,7 @@ public class SecurityServiceTest {
         Set<Sensor> testSensors = getTestSensors(4, true);
         List<Executable> list = new ArrayList<>();
         when(securityRepository.getSensors()).thenReturn(testSensors);
+        when(securityRepository.deactivateAllSensors()).thenCallRealMethod();
         when(securityRepository.getAlarmStatus()).thenReturn(AlarmStatus.PENDING_ALARM);
         securityService.setArmingStatus(armingStatus);
         securityService.getSensors().forEach(s -> list.add(() -> assertEquals(s.getActive(), false)));
@@ -161,6 +163,51 @@ public class SecurityServiceTest {
         verify(securityRepository, times(1)).setAlarmStatus(AlarmStatus.PENDING_ALARM);
     }
 
+    @ParameterizedTest
+    @DisplayName("Batch events - single alarm write and single sensor persist")
+    @EnumSource(value = ArmingStatus.class, names = {"ARMED_HOME", "ARMED_AWAY"})
+    void applySensorEvents_ifSeveralSensorsActivatedWhileArmed_persistsOnce (ArmingStatus status) {
+        when(securityRepository.getArmingStatus()).thenReturn(status);
+        when(securityRepository.getAlarmStatus()).thenReturn(AlarmStatus.NO_ALARM);
+        List<SensorEvent> events = new ArrayList<>();
+        getTestSensors(3, false).forEach(s -> events.add(new SensorEvent(s, true)));
+
+        securityService.applySensorEvents(events);
+
+        verify(securityRepository, times(1)).setAlarmStatus(AlarmStatus.ALARM);
+        verify(securityRepository, never()).setAlarmStatus(AlarmStatus.PENDING_ALARM);
+        verify(securityRepository, times(1)).updateSensors(anyCollection());
+        verify(securityRepository, never()).updateSensor(any(Sensor.class));
+        events.forEach(e -> assertEquals(true, e.getSensor().getActive()));
+    }
+
+    @Test
+    @DisplayName("Batch events - unchanged sensors are not persisted")
+    void applySensorEvents_ifSensorsAlreadyInactive_nothingPersisted () {
+        when(securityRepository.getAlarmStatus()).thenReturn(AlarmStatus.NO_ALARM);
+        List<SensorEvent> events = new ArrayList<>();
+        getTestSensors(3, false).forEach(s -> events.add(new SensorEvent(s, false)));
+
+        securityService.applySensorEvents(events);
+
+        verify(securityRepository, never()).updateSensors(anyCollection());
+        verify(securityRepository, never()).setAlarmStatus(any(AlarmStatus.class));
+    }
+
+    @ParameterizedTest
+    @DisplayName("Arming - sensors are reset in bulk and the alarm is evaluated once per sensor type")
+    @EnumSource(value = ArmingStatus.class, names = {"ARMED_HOME", "ARMED_AWAY"})
+    void setArmingStatus_ifSensorsActive_resetsThroughRepositoryInBulk (ArmingStatus status) {
+        when(securityRepository.deactivateAllSensors()).thenReturn(Map.of(SensorType.DOOR, 3, SensorType.WINDOW, 2));
+        when(securityRepository.getAlarmStatus()).thenReturn(AlarmStatus.PENDING_ALARM);
+
+        securityService.setArmingStatus(status);
+
+        verify(securityRepository, times(1)).setAlarmStatus(AlarmStatus.NO_ALARM);
+        verify(securityRepository, never()).getSensors();
+        verify(securityRepository, never()).updateSensors(anyCollection());
+        verify(securityRepository, never()).updateSensor(any(Sensor.class));
+    }
 
     private Set<Sensor> getTestSensors (int count, boolean isActive){
         Set<Sensor> testSensorsScope = new HashSet<>();
@@ -0,0 +1,146 @@
+package com.udacity.security.service;
+
+import com.udacity.security.application.StatusListener;
+import com.udacity.security.data.AlarmStatus;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StatusDispatcherTest {
+
+    private final StatusDispatcher dispatcher = new StatusDispatcher();
+    private final RecordingListener listener = new RecordingListener();
+    //runs the listener's callbacks only when the test says so
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+    @Test
+    @DisplayName("Dispatcher - a slow listener only sees the latest value of each callback")
+    void undeliveredEvents_coalesceToLatest() {
+        dispatcher.addListener(listener, tasks::add);
+        dispatcher.publishAlarmStatus(AlarmStatus.PENDING_ALARM);
+        dispatcher.publishAlarmStatus(AlarmStatus.ALARM);
+        dispatcher.publishAlarmStatus(AlarmStatus.NO_ALARM);
+        dispatcher.publishCatDetected(true);
+        dispatcher.publishCatDetected(false);
+        dispatcher.publishSensorStatusChanged();
+        dispatcher.publishSensorStatusChanged();
+        dispatcher.publishSensorStatusChanged();
+
+        StatusDispatcher.ListenerChannel channel = dispatcher.getChannels().get(0);
+        assertEquals(1, tasks.size());
+        assertTrue(channel.isPending());
+        runTasks();
+
+        assertEquals(List.of(AlarmStatus.NO_ALARM), listener.alarms);
+        assertEquals(List.of(false), listener.cats);
+        assertEquals(1, listener.sensorChanges);
+        assertEquals(3, channel.getDelivered());
+        assertEquals(5, channel.getDropped());
+        assertFalse(channel.isPending());
+    }
+
+    @Test
+    @DisplayName("Dispatcher - the lag runs from the oldest undelivered event to its delivery")
+    void lag_isMeasuredFromOldestPendingEvent() throws InterruptedException {
+        dispatcher.addListener(listener, tasks::add);
+        dispatcher.publishAlarmStatus(AlarmStatus.ALARM);
+        Thread.sleep(20);
+        dispatcher.publishCatDetected(true);
+        runTasks();
+        StatusDispatcher.ListenerChannel channel = dispatcher.getChannels().get(0);
+        assertTrue(channel.getLastLagNanos() >= 20_000_000L, "lag was " + channel.getLastLagNanos());
+
+        dispatcher.publishSensorStatusChanged();
+        runTasks();
+        assertTrue(channel.getLastLagNanos() < 20_000_000L);
+        assertTrue(channel.getMaxLagNanos() >= 20_000_000L);
+        assertEquals(0, channel.getDropped());
+    }
+
+    @Test
+    @DisplayName("Dispatcher - a failing listener is counted and still gets later events")
+    void failingListener_isCountedAndKeepsReceiving() {
+        StatusListener failing = new RecordingListener() {
+            @Override
+            public void notify(AlarmStatus status) {
+                throw new IllegalStateException("listener failed");
+            }
+        };
+        dispatcher.addListener(failing, tasks::add);
+        dispatcher.publishAlarmStatus(AlarmStatus.ALARM);
+        dispatcher.publishSensorStatusChanged();
+        runTasks();
+        dispatcher.publishAlarmStatus(AlarmStatus.NO_ALARM);
+        runTasks();
+
+        StatusDispatcher.ListenerChannel channel = dispatcher.getChannels().get(0);
+        assertEquals(2, channel.getFailed());
+        assertEquals(1, channel.getDelivered());
+    }
+
+    @Test
+    @DisplayName("Dispatcher - removing a listener while events are published never fails the publisher")
+    void removeListener_duringPublish_doesNotThrow() throws InterruptedException {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicBoolean stop = new AtomicBoolean();
+        Thread publisher = new Thread(() -> {
+            try {
+                while (!stop.get()) {
+                    dispatcher.publishAlarmStatus(AlarmStatus.ALARM);
+                    dispatcher.publishSensorStatusChanged();
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        publisher.start();
+        try {
+            for (int i = 0; i < 500 && failure.get() == null; i++) {
+                StatusListener removed = new RecordingListener();
+                dispatcher.addListener(removed);
+                Thread.yield();
+                dispatcher.removeListener(removed);
+            }
+        } finally {
+            stop.set(true);
+            publisher.join();
+        }
+        assertNull(failure.get());
+        assertTrue(dispatcher.getChannels().isEmpty());
+    }
+
+    private void runTasks() {
+        for (Runnable task = tasks.poll(); task != null; task = tasks.poll()) {
+            task.run();
+        }
+    }
+
+    private static class RecordingListener implements StatusListener {
+        private final List<AlarmStatus> alarms = new ArrayList<>();
+        private final List<Boolean> cats = new ArrayList<>();
+        private int sensorChanges;
+
+        @Override
+        public void notify(AlarmStatus status) {
+            alarms.add(status);
+        }
+
+        @Override
+        public void catDetected(boolean catDetected) {
+            cats.add(catDetected);
+        }
+
+        @Override
+        public void sensorStatusChanged() {
+            sensorChanges++;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.udacity.security.timer;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimingWheelTest {
+
+    private final ManualClock clock = new ManualClock();
+    private final TimingWheel wheel = new TimingWheel(clock, 10, TimeUnit.MILLISECONDS);
+
+    @Test
+    @DisplayName("Timing wheel - a timer fires once its delay has passed, never before")
+    void schedule_firesAtDeadline() {
+        AtomicInteger fired = new AtomicInteger();
+        TimingWheel.Timeout timeout = wheel.schedule(fired::incrementAndGet, 25, TimeUnit.MILLISECONDS);
+
+        clock.advance(Duration.ofMillis(24));
+        assertEquals(0, wheel.expireDue());
+        assertEquals(0, fired.get());
+        assertEquals(1, wheel.getPendingCount());
+
+        clock.advance(Duration.ofMillis(6));
+        assertEquals(1, wheel.expireDue());
+        assertEquals(1, fired.get());
+        assertTrue(timeout.isExpired());
+        assertEquals(0, wheel.getPendingCount());
+
+        clock.advance(Duration.ofSeconds(10));
+        assertEquals(0, wheel.expireDue());
+        assertEquals(1, fired.get());
+    }
+
+    @Test
+    @DisplayName("Timing wheel - a cancelled timer never fires")
+    void cancel_preventsFiring() {
+        AtomicInteger fired = new AtomicInteger();
+        TimingWheel.Timeout timeout = wheel.schedule(fired::incrementAndGet, 1, TimeUnit.SECONDS);
+
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        assertTrue(timeout.isCancelled());
+        assertEquals(0, wheel.getPendingCount());
+
+        clock.advance(Duration.ofSeconds(2));
+        wheel.expireDue();
+        assertEquals(0, fired.get());
+    }
+
+    @Test
+    @DisplayName("Timing wheel - long delays cascade down the levels and fire on time")
+    void longDelays_cascadeAndFireOnTime() {
+        long[] delaysMillis = {640, 655, 40_960, 41_000, 3_600_000, 86_400_000};
+        List<Long> firedAt = new ArrayList<>();
+        for (long delay : delaysMillis) {
+            wheel.schedule(() -> firedAt.add(clock.nanoTime()), delay, TimeUnit.MILLISECONDS);
+        }
+
+        for (long delay : delaysMillis) {
+            clock.advance(Duration.ofMillis(delay - TimeUnit.NANOSECONDS.toMillis(clock.nanoTime()) - 1));
+            wheel.expireDue();
+            int firedBefore = firedAt.size();
+            clock.advance(Duration.ofMillis(10));
+            wheel.expireDue();
+            assertEquals(firedBefore + 1, firedAt.size(), "timer with delay " + delay);
+        }
+        assertEquals(0, wheel.getPendingCount());
+    }
+
+    @Test
+    @DisplayName("Timing wheel - deadlines beyond the top level are parked and still fire")
+    void delayBeyondWheelSpan_stillFires() {
+        AtomicInteger fired = new AtomicInteger();
+        //64^5 ticks of 10ms is about four months
+        wheel.schedule(fired::incrementAndGet, 400, TimeUnit.DAYS);
+
+        clock.advance(Duration.ofDays(399));
+        wheel.expireDue();
+        assertEquals(0, fired.get());
+
+        clock.advance(Duration.ofDays(1));
+        wheel.expireDue();
+        assertEquals(1, fired.get());
+    }
+
+    @Test
+    @DisplayName("Timing wheel - many timers, half cancelled, fire in deadline order")
+    void manyTimers_firedInOrder() {
+        int count = 100_000;
+        List<Integer> fired = new ArrayList<>();
+        List<TimingWheel.Timeout> timeouts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int delay = i;
+            timeouts.add(wheel.schedule(() -> fired.add(delay), delay * 10L, TimeUnit.MILLISECONDS));
+        }
+        for (int i = 1; i < count; i += 2) {
+            assertTrue(timeouts.get(i).cancel());
+        }
+        assertEquals(count / 2, wheel.getPendingCount());
+
+        for (int step = 0; step < 100; step++) {
+            clock.advance(Duration.ofMillis(count / 10));
+            wheel.expireDue();
+        }
+
+        assertEquals(count / 2, fired.size());
+        for (int i = 0; i < fired.size(); i++) {
+            assertEquals(i * 2, (int) fired.get(i));
+        }
+        assertEquals(0, wheel.getPendingCount());
+    }
+}